@@ -1,6 +1,9 @@
 package de.gymolching.Countdown;
 
 import me.sschaeffner.jArtnet.ArtnetController;
+import me.sschaeffner.jArtnet.ArtnetDmxOutput;
+import me.sschaeffner.jArtnet.DmxOutputEngine;
+import me.sschaeffner.jArtnet.DmxUniverseStore;
 
 import java.util.Arrays;
 
@@ -18,8 +21,15 @@ public class CountdownArtnetController {
 
     private final ArtnetController ac;
 
+    //DMX data of all universes and the engine sending them
+    private final DmxUniverseStore universes;
+    private final DmxOutputEngine engine;
+
     private CountdownArtnetController() {
         ac = new ArtnetController();
+        universes = new DmxUniverseStore();
+        engine = new DmxOutputEngine(universes, new ArtnetDmxOutput(ac));
+        engine.start();
         ac.discoverNodes();
         Arrays.asList(ac.getNodes()).stream().forEach(System.out::println);
     }
@@ -27,4 +37,8 @@ public class CountdownArtnetController {
     public ArtnetController getAc() {
         return ac;
     }
+
+    public DmxUniverseStore getUniverses() {
+        return universes;
+    }
 }
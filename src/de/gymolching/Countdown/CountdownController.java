@@ -1,7 +1,10 @@
 package de.gymolching.Countdown;
 
 import me.sschaeffner.jArtnet.ArtnetController;
-import me.sschaeffner.jArtnet.packets.ArtDmxPacket;
+import me.sschaeffner.jArtnet.DmxUniverseStore;
+import me.sschaeffner.jArtnet.packets.ArtTimeCodePacket;
+import me.sschaeffner.jArtnet.packets.ArtTriggerPacket;
+import me.sschaeffner.jArtnet.packets.ArtnetPacket;
 
 import java.awt.*;
 import java.awt.event.KeyEvent;
@@ -9,10 +12,16 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Controls the countdown gui.
  *
+ * A master counts down itself and broadcasts the remaining time as ArtTimeCode on every frame; a follower displays
+ * the remaining time of the master's time code so that all displays show the same frame.
+ *
+ * Besides the keyboard, the countdown is controlled by ArtTrigger packets sending the same keys as ASCII.
+ *
  * @author sschaeffner
  */
 public class CountdownController implements InputHandler {
@@ -32,6 +41,27 @@ public class CountdownController implements InputHandler {
     //the current ScheduledFuture that sets the countdown's time
     private ScheduledFuture scheduled;
 
+    //time code type; sets the frame rate of the countdown's tick
+    private final byte timeCodeType = ArtTimeCodePacket.TYPE_EBU;
+    //stream id of the broadcast time code
+    private final byte streamId = 0;
+    //whether this countdown follows a master's time code instead of counting itself
+    private final boolean follower;
+    //estimates the end of the master's countdown; null for a master
+    private final TimeCodeFollower timeCodeFollower;
+    //local instant the countdown ends (System.nanoTime); only used by a master
+    private long endNanos;
+
+    //whether a paint for received ArtTriggers is pending and when the first of them was received (System.nanoTime)
+    private final AtomicBoolean triggerPaintPending;
+    private volatile long pendingTriggerNanos;
+
+    //last and highest time from receiving an ArtTrigger to its effect being on screen
+    private volatile long lastTriggerLatencyNanos;
+    private volatile long maxTriggerLatencyNanos;
+    //amount of ArtTriggers that took longer than a frame to be on screen
+    private volatile int lateTriggers;
+
     //the current countdown time
     private int time;
     //whether blackout is currently enabled
@@ -47,7 +77,20 @@ public class CountdownController implements InputHandler {
      * @param fontName      name of the font to use for displaying the countdown
      */
     public CountdownController(int countdownTime, int screen, String fontName) {
+        this(countdownTime, screen, fontName, false);
+    }
+
+    /**
+     * Initializes a CountdownController object. This also creates its own GUI object.
+     *
+     * @param countdownTime the time the countdown starts from
+     * @param screen        number of the screen the countdown be displayed on
+     * @param fontName      name of the font to use for displaying the countdown
+     * @param follower      whether to follow a master's ArtTimeCode instead of counting down itself
+     */
+    public CountdownController(int countdownTime, int screen, String fontName, boolean follower) {
         this.countdownTime = countdownTime;
+        this.follower = follower;
 
         int minuteCharAmount = ((countdownTime / 60) + "").length();
         this.gui = new GUI(this, screen, minuteCharAmount, fontName);
@@ -56,16 +99,114 @@ public class CountdownController implements InputHandler {
         this.time = 0;
         this.blackoutEnabled = false;
         this.whiteoutEnabled = false;
+
+        this.triggerPaintPending = new AtomicBoolean();
+
+        if (follower) {
+            this.timeCodeFollower = new TimeCodeFollower(streamId);
+            this.scheduled = this.scheduler.scheduleAtFixedRate(this::followerTick, 0, getFrameNanos(), TimeUnit.NANOSECONDS);
+        } else {
+            this.timeCodeFollower = null;
+        }
+
+        CountdownArtnetController.getInstance().getAc().addArtnetPacketListener(this::onArtnetPacketReceive);
     }
 
     @Override
     public void onKeyTyped(KeyEvent e) {
-        switch(e.getKeyChar()) {
+        if (e.getKeyChar() == 'Q') {//quit
+            System.exit(0);
+        }
+        onCommand(e.getKeyChar(), System.nanoTime());
+    }
+
+    /**
+     * Handles received ArtTrigger and ArtTimeCode packets.
+     *
+     * @param packet    received packet
+     */
+    private void onArtnetPacketReceive(ArtnetPacket packet) {
+        if (packet instanceof ArtTriggerPacket) {
+            onTrigger((ArtTriggerPacket) packet);
+        } else if (follower && packet instanceof ArtTimeCodePacket) {
+            timeCodeFollower.onTimeCode((ArtTimeCodePacket) packet, packet.getReceiveNanos());
+        }
+    }
+
+    /**
+     * Executes the key sent by an ArtTrigger right on the receiving thread and paints its effect immediately.
+     *
+     * Triggers arriving while a paint is pending are shown by that paint, so a burst of triggers causes a single
+     * paint. Quitting is only possible from the keyboard.
+     *
+     * @param trigger   received ArtTrigger packet
+     */
+    private void onTrigger(ArtTriggerPacket trigger) {
+        if (trigger.getOem() != ArtTriggerPacket.OEM_ALL || trigger.getKey() != ArtTriggerPacket.KEY_ASCII) return;
+
+        char command = (char) (trigger.getSubKey() & 0xFF);
+        long receiveNanos = trigger.getReceiveNanos();
+        if (!onCommand(command, receiveNanos)) return;
+
+        if (triggerPaintPending.compareAndSet(false, true)) {
+            this.pendingTriggerNanos = receiveNanos;
+            this.gui.paintNow(this::onTriggerPainted);
+        }
+    }
+
+    /**
+     * Records the time from receiving the oldest pending ArtTrigger to its effect being on screen.
+     */
+    private void onTriggerPainted() {
+        long latency = System.nanoTime() - pendingTriggerNanos;
+        triggerPaintPending.set(false);
+
+        lastTriggerLatencyNanos = latency;
+        if (latency > maxTriggerLatencyNanos) maxTriggerLatencyNanos = latency;
+        if (latency > getFrameNanos()) lateTriggers++;
+    }
+
+    /**
+     * Returns the time the last painted ArtTrigger took from being received to being on screen.
+     *
+     * @return latency in nanoseconds, 0 if no trigger was painted yet
+     */
+    public long getLastTriggerLatencyNanos() {
+        return lastTriggerLatencyNanos;
+    }
+
+    /**
+     * Returns the highest time an ArtTrigger took from being received to being on screen.
+     *
+     * @return latency in nanoseconds, 0 if no trigger was painted yet
+     */
+    public long getMaxTriggerLatencyNanos() {
+        return maxTriggerLatencyNanos;
+    }
+
+    /**
+     * Returns how many ArtTriggers took longer than a time code frame to be on screen.
+     *
+     * @return amount of late triggers
+     */
+    public int getLateTriggers() {
+        return lateTriggers;
+    }
+
+    /**
+     * Executes a command sent by key or ArtTrigger.
+     *
+     * @param command       the command's key
+     * @param commandNanos  System.nanoTime the command was given at
+     * @return              whether the key is a command
+     */
+    private synchronized boolean onCommand(char command, long commandNanos) {
+        switch(command) {
             case 's'://start
-                start();
+                if (!follower) start(commandNanos);
                 break;
             case 'k'://kill
-                kill();
+                if (!follower) kill();
                 break;
             case 'b'://black out
                 blackOut();
@@ -73,57 +214,131 @@ public class CountdownController implements InputHandler {
             case 'w'://white out
                 whiteOut();
                 break;
-            case 'Q'://quit
-                System.exit(0);
-                break;
+            default:
+                return false;
         }
+        return true;
     }
 
     /**
-     * Starts the countdown. Uses a ScheduledFuture.
+     * Starts the countdown. Uses a ScheduledFuture ticking once per time code frame.
+     *
+     * @param startNanos    System.nanoTime the countdown starts at
      */
-    private void start() {
+    private void start(long startNanos) {
         if (this.scheduled == null) {
-            blackoutEnabled = false;
-            whiteoutEnabled = false;
-            this.gui.setBlackOut(false);
-            this.gui.setWhiteOut(false);
+            resetScreen();
 
             this.time = countdownTime;
             this.gui.setTime(this.time);
-            this.gui.setBackgroundColor(startBackgroundColor);
-
-            this.scheduled = this.scheduler.scheduleAtFixedRate(() -> {
-                if (this.time > 0) {
-                    this.time--;
-                    this.gui.setTime(this.time);
-
-                    if (this.time == 10) {
-                        special();
-                    }
-
-                } else {
-                    ScheduledFuture s = this.scheduled;
-                    this.scheduled = null;
-                    s.cancel(true);
-                    off();
-                }
-            }, 1, 1, TimeUnit.SECONDS);
+
+            this.endNanos = startNanos + TimeUnit.SECONDS.toNanos(countdownTime);
+            this.scheduled = this.scheduler.scheduleAtFixedRate(this::masterTick, 0, getFrameNanos(), TimeUnit.NANOSECONDS);
         }
     }
 
-    private void special() {
-        this.gui.setBackgroundColor(endBackgroundColor);
+    /**
+     * Broadcasts the remaining time and updates the screen once a second has passed.
+     */
+    private synchronized void masterTick() {
+        long remaining = this.endNanos - System.nanoTime();
+        broadcastTimeCode(remaining);
+
+        int seconds = toSeconds(remaining);
+        if (seconds != this.time) {
+            this.time = seconds;
+            this.gui.setTime(this.time);
+
+            if (this.time == 10) {
+                special();
+            }
+        }
+
+        //turn off a second after reaching 0
+        if (remaining <= -TimeUnit.SECONDS.toNanos(1)) {
+            ScheduledFuture s = this.scheduled;
+            this.scheduled = null;
+            s.cancel(false);
+            off();
+        }
+    }
+
+    /**
+     * Updates the screen from the master's time code.
+     */
+    private synchronized void followerTick() {
+        int seconds = toSeconds(timeCodeFollower.getRemainingNanos(System.nanoTime()));
+        if (seconds != this.time) {
+            //the master (re)started its countdown
+            if (seconds > this.time) resetScreen();
+
+            this.time = seconds;
+            this.gui.setTime(this.time);
+
+            if (this.time == 10) {
+                this.gui.setBackgroundColor(endBackgroundColor);
+            }
+        }
+    }
+
+    /**
+     * Disables blackout and whiteout and resets the background color.
+     */
+    private void resetScreen() {
+        blackoutEnabled = false;
+        whiteoutEnabled = false;
+        this.gui.setBlackOut(false);
+        this.gui.setWhiteOut(false);
+        this.gui.setBackgroundColor(startBackgroundColor);
+    }
 
+    /**
+     * Broadcasts the remaining time as ArtTimeCode.
+     *
+     * @param remaining remaining time in nanoseconds
+     */
+    private void broadcastTimeCode(long remaining) {
         ArtnetController ac = CountdownArtnetController.getInstance().getAc();
-        ArtDmxPacket p = new ArtDmxPacket((byte)0x0, (byte)0x0, (byte)0x0, (byte)0x0, new byte[]{(byte)0xff, (byte)0xff, (byte)0xff, (byte)0xff});
-        ac.broadcastPacket(p);
+        ac.broadcastPacket(ArtTimeCodePacket.fromNanos(streamId, remaining, timeCodeType));
+    }
+
+    /**
+     * Returns the duration of one time code frame.
+     *
+     * @return duration in nanoseconds
+     */
+    private long getFrameNanos() {
+        return TimeUnit.SECONDS.toNanos(1) / ArtTimeCodePacket.getFramesPerSecond(timeCodeType);
+    }
+
+    /**
+     * Converts a remaining time into the seconds displayed; a started second is displayed as a whole one.
+     *
+     * @param remaining remaining time in nanoseconds
+     * @return          seconds to display
+     */
+    private static int toSeconds(long remaining) {
+        long second = TimeUnit.SECONDS.toNanos(1);
+        return (int) ((Math.max(remaining, 0) + second - 1) / second);
+    }
+
+    private void special() {
+        this.gui.setBackgroundColor(endBackgroundColor);
+        setLights(0xff);
     }
 
     private void off() {
-        ArtnetController ac = CountdownArtnetController.getInstance().getAc();
-        ArtDmxPacket p = new ArtDmxPacket((byte)0x0, (byte)0x0, (byte)0x0, (byte)0x0, new byte[]{(byte)0x0, (byte)0x0, (byte)0x0, (byte)0x0});
-        ac.broadcastPacket(p);
+        setLights(0x0);
+    }
+
+    /**
+     * Sets the first four channels of universe 0; they are sent with the next frame.
+     *
+     * @param value value of the channels
+     */
+    private void setLights(int value) {
+        DmxUniverseStore universes = CountdownArtnetController.getInstance().getUniverses();
+        for (int channel = 0; channel < 4; channel++) universes.setChannel(0, channel, value);
     }
 
     /**
@@ -133,7 +348,9 @@ public class CountdownController implements InputHandler {
         if (this.scheduled != null) {
             this.scheduled.cancel(false);
             this.scheduled = null;
+            this.time = 0;
             this.gui.setTime(0);
+            broadcastTimeCode(0);
         }
     }
 
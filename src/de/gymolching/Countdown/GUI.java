@@ -150,6 +150,20 @@ public class GUI {
         return minS + ":" + secS;
     }
 
+    /**
+     * Paints the screen right away instead of waiting for queued repaints to be coalesced.
+     *
+     * @param onPainted called on the event dispatch thread once the screen is painted
+     */
+    public void paintNow(Runnable onPainted) {
+        SwingUtilities.invokeLater(() -> {
+            JComponent contentPane = (JComponent) this.frame.getContentPane();
+            contentPane.paintImmediately(0, 0, contentPane.getWidth(), contentPane.getHeight());
+            Toolkit.getDefaultToolkit().sync();
+            onPainted.run();
+        });
+    }
+
     public void setBlackOut(boolean blackOutEnabled) {
         this.blackOutEnabled = blackOutEnabled;
         this.frame.repaint();
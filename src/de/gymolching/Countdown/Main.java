@@ -8,7 +8,10 @@ public class Main {
     public static void main(String[] args) {
         printHelp();
         CountdownArtnetController.getInstance();
-        new CountdownController(15, 0, "Courier");
+
+        //"follow" displays the time code of a master instead of counting down
+        boolean follower = args.length > 0 && args[0].equals("follow");
+        new CountdownController(15, 0, "Courier", follower);
     }
 
     /**
@@ -20,5 +23,7 @@ public class Main {
         System.out.println("b - blackout: blacks out the screen");
         System.out.println("w - whiteout: whites out the screen");
         System.out.println("Q - quit:     quits the program");
+        System.out.println("s, k, b and w can also be sent as ASCII ArtTrigger by a console");
+        System.out.println("start with argument \"follow\" to follow the ArtTimeCode of another countdown");
     }
 }
@@ -0,0 +1,76 @@
+package de.gymolching.Countdown;
+
+import me.sschaeffner.jArtnet.packets.ArtTimeCodePacket;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Estimates when a master's countdown ends from the ArtTimeCode frames it broadcasts.
+ *
+ * Every frame carries the remaining time, so the instant it is received plus its time code is an estimate of the
+ * local instant the countdown ends. Network delay only ever makes frames late, so earlier estimates are trusted more
+ * than later ones.
+ *
+ * @author sschaeffner
+ */
+public class TimeCodeFollower {
+
+    //difference to the current estimate that is taken as a restart or kill instead of jitter
+    private static final long STEP_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    //a later estimate moves the current one by 1/SMOOTHING of the difference
+    private static final int SMOOTHING = 8;
+
+    //stream id to follow
+    private final byte streamId;
+
+    //estimated local instant the countdown ends (System.nanoTime)
+    private long endNanos;
+    //whether a time code frame has been received yet
+    private boolean synced;
+
+    /**
+     * Initializes a TimeCodeFollower object.
+     *
+     * @param streamId  stream id of the master to follow
+     */
+    public TimeCodeFollower(byte streamId) {
+        this.streamId = streamId;
+        this.synced = false;
+    }
+
+    /**
+     * Updates the estimated end of the countdown with a received frame.
+     *
+     * @param packet        received ArtTimeCode packet
+     * @param receiveNanos  System.nanoTime the packet was received at
+     */
+    public synchronized void onTimeCode(ArtTimeCodePacket packet, long receiveNanos) {
+        if (packet.getStreamId() != streamId) return;
+
+        //time codes are rounded down to whole frames, so the actual remaining time is half a frame more on average
+        long halfFrame = TimeUnit.SECONDS.toNanos(1) / ArtTimeCodePacket.getFramesPerSecond(packet.getType()) / 2;
+        long estimate = receiveNanos + packet.toNanos() + halfFrame;
+        long diff = estimate - endNanos;
+
+        if (!synced || Math.abs(diff) > STEP_NANOS) {
+            endNanos = estimate;
+            synced = true;
+        } else if (diff < 0) {
+            //a less delayed frame
+            endNanos += diff / 2;
+        } else {
+            endNanos += diff / SMOOTHING;
+        }
+    }
+
+    /**
+     * Returns the estimated remaining time of the countdown.
+     *
+     * @param nowNanos  current System.nanoTime
+     * @return          remaining time in nanoseconds; 0 if the countdown is over or no frame was received yet
+     */
+    public synchronized long getRemainingNanos(long nowNanos) {
+        if (!synced) return 0;
+        return Math.max(endNanos - nowNanos, 0);
+    }
+}
@@ -17,14 +17,37 @@
  */
 package me.sschaeffner.jArtnet;
 
+import me.sschaeffner.jArtnet.packets.ArtDmxPacket;
+import me.sschaeffner.jArtnet.packets.ArtDmxView;
+import me.sschaeffner.jArtnet.packets.ArtInputPacket;
 import me.sschaeffner.jArtnet.packets.ArtPollPacket;
 import me.sschaeffner.jArtnet.packets.ArtPollReplyPacket;
+import me.sschaeffner.jArtnet.packets.ArtRdmPacket;
+import me.sschaeffner.jArtnet.packets.ArtSyncPacket;
+import me.sschaeffner.jArtnet.packets.ArtTodDataPacket;
 import me.sschaeffner.jArtnet.packets.ArtnetPacket;
 
 import java.io.IOException;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Enumeration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
 
 /**
  * An Art-Net Controller.
@@ -39,14 +62,79 @@ public class ArtnetController {
     //controller style code
     private static final int STYLE_CODE = ArtnetStyleCodes.ST_CONTROLLER;
 
-    //list of all connected nodes
-    private final ArrayList<ArtnetNode> nodes;
+    //all connected nodes by address; only the receiver thread adds nodes
+    private final ConcurrentHashMap<InetAddress, ArtnetNode> nodes;
+
+    //amount of discovery polls sent so far
+    private final AtomicLong pollCycles;
+
+    //nodes that did not reply to this many discovery polls in a row are dropped
+    private static final int MAX_MISSED_POLLS = 3;
 
     //server socket to send and receive Art-Net packets with
     private final DatagramSocket socket;
 
-    //broadcast address
-    private BroadcastAddress broadcastAddress;
+    //channel of the server socket; non-blocking, the receiver thread waits for packets with receiveSelector
+    private final DatagramChannel channel;
+    private final Selector receiveSelector;
+
+    //whether the receiver thread spins instead of waiting for packets
+    private volatile boolean busyPoll = false;
+
+    //IPv4 addresses of all local network interfaces as ints, including loopback; replaced when interfaces change
+    private volatile int[] ownAddresses;
+
+    //interfaces Art-Net is sent on; replaced when interfaces change
+    private volatile ArtnetInterface[] interfaces;
+
+    //names of the network interfaces to use; all if empty
+    private volatile String[] interfaceNames = new String[0];
+
+    //interval in which network interfaces are checked for changes
+    private static final long INTERFACE_CHECK_SECONDS = 5;
+
+    //channel sending control packets through the server socket; its send buffer is only used by the main sender thread
+    private final ArtnetSendChannel controlChannel;
+
+    //channels sending ArtDmx, one per shard; only the control channel without shards. Their send buffers are only
+    //used by the shards' threads; sendDmxPacket sends the caller's own buffer through them from any thread
+    private final ArtnetSendChannel[] dmxChannels;
+
+    //sends all packets from its own thread
+    private final ArtnetSender sender;
+
+    //names and node report advertised in the ArtPollReply
+    private volatile String shortName = "jArtnet";
+    private volatile String longName = "jArtnet - An Art-Net library for Java by Simon Schaeffner";
+    private volatile String nodeReport = "ready";
+
+    //mac address of the interface used, looked up once
+    private final byte[] mac;
+
+    //port-addresses this controller advertises as ports
+    private volatile int[] portAddresses = {0};
+
+    //whether received ArtPolls are answered
+    private volatile boolean respondToPolls = true;
+
+    //maximum random delay before answering an ArtPoll in milliseconds
+    private volatile int maxPollReplyDelay = 1000;
+
+    //pollers whose latest ArtPoll asked for an ArtPollReply whenever this controller's state changes, with the time
+    //of that poll
+    private final Map<InetAddress, Long> changePollers;
+
+    //pollers that stopped polling are no longer informed about changes
+    private static final long CHANGE_POLLER_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    //amount of ArtPollReplies sent
+    private final AtomicLong sentPollReplies;
+
+    //pollers with a scheduled ArtPollReply
+    private final Set<InetAddress> pendingPollReplies;
+
+    //scheduler for delayed replies
+    private final ScheduledExecutorService scheduler;
 
     //receiver thread listening for Art-Net packets
     private final Thread receiverThread;
@@ -54,113 +142,455 @@ public class ArtnetController {
     //list of listeners for received Art-Net packets
     private final ArrayList<ArtnetPacketListener> listeners;
 
+    //list of listeners for views of received ArtDmx packets
+    private final ArrayList<ArtDmxListener> dmxListeners;
+
+    //view reused for every received ArtDmx packet; only used by the receiver thread
+    private final ArtDmxView dmxView;
+
+    //counters for the results of decoding received datagrams
+    private final ArtnetDecodeCounters decodeCounters;
+
+    //requested size of the socket's receive buffer in bytes
+    private static final int RECEIVE_BUFFER_SIZE = 1 << 20;
+
+    //ESTA manufacturer id reserved for prototypes; used for this controller's RDM UID
+    private static final long RDM_MANUFACTURER_ID = 0x7FF0;
+
+    //interval in which outstanding RDM requests are checked for timeouts
+    private static final long RDM_TICK_MILLIS = 100;
+
+    //time after which nodes fall back to non-synchronous output without ArtSync
+    private static final long SYNC_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(4);
+
+    //encoded ArtSync packet
+    private static final byte[] SYNC_BYTES = new ArtSyncPacket().getPackageBytes();
+
+    //ArtDmx packets staged for the next synchronized frame; guarded by itself
+    private final ArrayList<ArtDmxPacket> stagedDmx;
+
+    //port-addresses this controller has sent ArtDmx to
+    private final boolean[] sentPortAddresses;
+
+    //default maximum amount of nodes a port-address is unicast to before broadcasting it instead
+    public static final int DEFAULT_UNICAST_LIMIT = 40;
+
+    //nodes outputting each port-address
+    private final ArtnetRoutingTable routingTable;
+
+    //maximum amount of nodes a port-address is unicast to
+    private volatile int unicastLimit = DEFAULT_UNICAST_LIMIT;
+
+    //longest time a packet is delayed to keep a node's rate limit before it is dropped
+    private static final long MAX_SHAPING_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+
+    //maximum rate packets are unicast to new nodes in packets per second
+    private volatile double defaultMaxNodeRate = Double.POSITIVE_INFINITY;
+
+    //whether node rates are reduced when nodes report dropping packets
+    private volatile boolean rateLearning = false;
+
+    //amount of packets dropped because of rate limits
+    private final AtomicLong throttledPackets;
+
+    //sequence numbers of sent ArtDmx packets
+    private final ArtnetSequenceCounter dmxSequences;
+
+    //sequence numbers of received ArtDmx packets
+    private final ArtnetSequenceTracker receivedDmxSequences;
+
+    //whether staged frames are followed by an ArtSync
+    private volatile boolean syncEnabled = true;
+
+    //time of the last ArtSync or merging ArtDmx of another controller (System.nanoTime)
+    private volatile long lastForeignSyncNanos;
+
+    //time after which an unacknowledged ArtInput is sent again
+    private static final long INPUT_REQUEST_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(3);
+
+    //port-addresses whose node inputs this controller consumes
+    private final boolean[] consumedInputs;
+
+    //whether node inputs that are not consumed get disabled
+    private volatile boolean inputPruning = false;
+
+    //RDM discovery and parameter requests
+    private final ArtnetRdmManager rdmManager;
+
     //whether to ignore packets sent from this controller
-    private boolean ignoreOwnPackets = true;
+    private volatile boolean ignoreOwnPackets = true;
 
     //whether the controller is currently running
-    private boolean running = true;
+    private volatile boolean running = true;
 
     /**
-     * Constructs a new instance of this class.
+     * Constructs a new instance of this class that sends all packets from a single thread.
      */
     public ArtnetController() {
-        this.nodes = new ArrayList<>();
+        this(0);
+    }
+
+    /**
+     * Constructs a new instance of this class.
+     *
+     * With send shards, ArtDmx is sent by several threads, each with its own socket, so that sending thousands of
+     * universes scales across cores. The shards send from ephemeral ports, see
+     * {@link #ArtnetController(int, boolean)}.
+     *
+     * @param sendShards    amount of threads sending ArtDmx; 0 to send all packets from a single thread
+     */
+    public ArtnetController(int sendShards) {
+        this(sendShards, false);
+    }
+
+    /**
+     * Constructs a new instance of this class.
+     *
+     * With send shards, ArtDmx is sent by several threads, each with its own socket, so that sending thousands of
+     * universes scales across cores. The shards send from ephemeral ports unless the source port is shared.
+     *
+     * Sharing the source port binds the shards' sockets to the Art-Net port with SO_REUSEADDR so that ArtDmx is sent
+     * from it like the specification asks. Which socket receives unicast datagrams to a shared port depends on the
+     * operating system; on Linux it is the socket bound last, so some systems may not deliver unicast ArtPollReplies
+     * and RDM to this controller when it is enabled.
+     *
+     * @param sendShards        amount of threads sending ArtDmx; 0 to send all packets from a single thread
+     * @param shareSourcePort   whether the send shards send from the Art-Net port
+     */
+    public ArtnetController(int sendShards, boolean shareSourcePort) {
+        if (sendShards < 0) throw new IllegalArgumentException("sendShards must not be negative");
+        this.nodes = new ConcurrentHashMap<>();
+        this.pollCycles = new AtomicLong();
+        this.throttledPackets = new AtomicLong();
         this.listeners = new ArrayList<>();
+        this.dmxListeners = new ArrayList<>();
+        this.dmxView = new ArtDmxView();
+        this.decodeCounters = new ArtnetDecodeCounters();
+        this.stagedDmx = new ArrayList<>();
+        this.sentPortAddresses = new boolean[1 << 15];
+        this.routingTable = new ArtnetRoutingTable();
+        this.dmxSequences = new ArtnetSequenceCounter();
+        this.receivedDmxSequences = new ArtnetSequenceTracker();
+        this.consumedInputs = new boolean[1 << 15];
+        this.lastForeignSyncNanos = System.nanoTime() - SYNC_TIMEOUT_NANOS;
 
-        BroadcastAddress[] bca = getBroadcastAddresses();
+        this.interfaces = findInterfaces();
+        this.ownAddresses = findOwnAddresses();
+        for (ArtnetInterface artnetInterface : interfaces) System.out.println("using " + artnetInterface);
+        if (interfaces.length == 0) System.err.println("no broadcast address available");
 
-        if (bca.length > 0) {
-            System.out.println("using " + bca[0]);
-            broadcastAddress = bca[0];
-        } else System.err.println("no broadcast address available");
+        byte[] mac = new byte[6];
+        if (interfaces.length > 0) {
+            try {
+                byte[] hardwareAddress = interfaces[0].getNetworkInterface().getHardwareAddress();
+                if (hardwareAddress != null && hardwareAddress.length == 6) mac = hardwareAddress;
+            } catch (SocketException e) {
+                e.printStackTrace();
+            }
+        }
+        this.mac = mac;
 
-        //open udp socket
+        this.pendingPollReplies = ConcurrentHashMap.newKeySet();
+        this.changePollers = new ConcurrentHashMap<>();
+        this.sentPollReplies = new AtomicLong();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ArtnetController scheduler");
+            t.setDaemon(true);
+            return t;
+        });
+
+        //open udp sockets; the server socket is bound last so that it receives unicast datagrams to a shared port
         try {
-            socket = new DatagramSocket(ArtnetPacket.UDP_PORT);
-        } catch (SocketException e) {
+            ArtnetSendChannel[] shardChannels = new ArtnetSendChannel[sendShards];
+            for (int i = 0; i < sendShards; i++) shardChannels[i] = ArtnetSendChannel.open(shareSourcePort);
+
+            channel = DatagramChannel.open();
+            if (sendShards > 0 && shareSourcePort) channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            channel.bind(new InetSocketAddress(ArtnetPacket.UDP_PORT));
+            channel.setOption(StandardSocketOptions.SO_BROADCAST, true);
+            channel.configureBlocking(false);
+            socket = channel.socket();
+            receiveSelector = Selector.open();
+            channel.register(receiveSelector, SelectionKey.OP_READ);
+
+            this.controlChannel = new ArtnetSendChannel(channel);
+            this.dmxChannels = sendShards > 0 ? shardChannels : new ArtnetSendChannel[]{controlChannel};
+        } catch (IOException e) {
             e.printStackTrace();
             throw new IllegalArgumentException("cannot start ArtnetController: cannot open socket");
         }
 
+        //room for the replies of many nodes answering at once
+        try {
+            socket.setReceiveBufferSize(RECEIVE_BUFFER_SIZE);
+        } catch (SocketException e) {
+            e.printStackTrace();
+        }
+
+        this.sender = new ArtnetSender(new ArtnetSender.Target() {
+            @Override
+            public void sendControl(byte[] data, int length, InetAddress address) {
+                controlChannel.send(data, length, address, getInterface(address));
+            }
+
+            @Override
+            public void sendDmx(int shard, int portAddress, int sequence, byte physical, byte[] data, int length) {
+                ArtnetController.this.sendDmx(dmxChannels[shard], portAddress, sequence, physical, data, length);
+            }
+
+            @Override
+            public void sendSync() {
+                for (ArtnetInterface artnetInterface : interfaces) {
+                    controlChannel.send(SYNC_BYTES, SYNC_BYTES.length, artnetInterface.getBroadcastAddress(), artnetInterface);
+                }
+            }
+        }, sendShards);
+
+        updateArtPollReply();
+
+        //RDM UID: prototype manufacturer id and the lower 4 bytes of the mac address
+        long rdmUid = RDM_MANUFACTURER_ID << 32;
+        for (int i = 2; i < 6; i++) rdmUid |= (long) (mac[i] & 0xFF) << (8 * (5 - i));
+        this.rdmManager = new ArtnetRdmManager(this::sendPacket, rdmUid);
+        scheduler.scheduleAtFixedRate(() -> rdmManager.tick(System.nanoTime()), RDM_TICK_MILLIS, RDM_TICK_MILLIS, TimeUnit.MILLISECONDS);
+
+        //pick up interfaces that were added, removed or readdressed
+        scheduler.scheduleWithFixedDelay(this::updateInterfaces, INTERFACE_CHECK_SECONDS, INTERFACE_CHECK_SECONDS, TimeUnit.SECONDS);
+
         //start receiver thread
-        this.receiverThread = new Thread(() -> {
+        this.receiverThread = new Thread(this::receive, "ArtnetController receiver");
+        this.receiverThread.start();
+    }
+
+    /**
+     * Receives packets until the controller is closed.
+     *
+     * Datagrams are received straight into a reused array, so the receive path does not allocate. Unless busy
+     * polling, the thread sleeps until a datagram arrives.
+     */
+    private void receive() {
+        System.out.println("Listening on port " + socket.getLocalPort());
+
+        //large enough for an ArtTodData packet with 200 UIDs; packets are received straight into the reused array
+        byte[] data = new byte[1500];
+        ByteBuffer receiveBuffer = ByteBuffer.wrap(data);
+
+        while (running) {
             try {
-                System.out.println("Listening on " + InetAddress.getLocalHost().getHostAddress() + ":" + ArtnetPacket.UDP_PORT);
-
-                byte[] receiveData = new byte[600];
-                DatagramPacket receivePacket = new DatagramPacket(receiveData, 0, receiveData.length);
-
-                while (running) {
-                    if (!socket.isClosed()) {
-                        try {
-                            socket.receive(receivePacket);
-                            byte[] data = receivePacket.getData();
-                            InetAddress sender = receivePacket.getAddress();
-                            int port = receivePacket.getPort();
-                            onPacketReceive(data, sender, port);
-                        } catch (SocketException e) {
-                            //do nothing as the socket is just closed
-                        }
+                receiveBuffer.clear();
+                SocketAddress source = channel.receive(receiveBuffer);
+                if (source == null) {
+                    if (!busyPoll) {
+                        receiveSelector.select();
+                        receiveSelector.selectedKeys().clear();
                     }
+                    continue;
                 }
 
-            } catch (java.io.IOException e) {
+                long receiveNanos = System.nanoTime();
+                int length = receiveBuffer.position();
+
+                InetSocketAddress sender = (InetSocketAddress) source;
+                onPacketReceive(data, length, sender.getAddress(), sender.getPort(), receiveNanos);
+            } catch (ClosedChannelException | ClosedSelectorException e) {
+                //the socket is just closed
+                return;
+            } catch (IOException e) {
+                e.printStackTrace();
+            } catch (RuntimeException e) {
+                //keep receiving even if a listener fails
                 e.printStackTrace();
             }
-        });
-        this.receiverThread.start();
+        }
+    }
+
+    /**
+     * Sets whether the receiver thread spins on the socket instead of sleeping until a packet arrives.
+     *
+     * Busy polling lowers the latency of reacting to received packets at the cost of keeping a core busy.
+     *
+     * @param busyPoll  whether to busy-poll
+     */
+    public void setBusyPoll(boolean busyPoll) {
+        this.busyPoll = busyPoll;
+        receiveSelector.wakeup();
+    }
+
+    public boolean isBusyPoll() {
+        return busyPoll;
     }
 
     /**
      * Tries to discover nodes by sending an ArtPoll packet.
+     *
+     * Nodes that did not reply to the last {@value #MAX_MISSED_POLLS} discoveries are dropped.
      */
     public void discoverNodes() {
+        expireNodes(pollCycles.incrementAndGet());
         ArtPollPacket pollPacket = new ArtPollPacket();
         broadcastPacket(pollPacket);
 
         //answer itself
-        broadcastPacket(constructArtPollReplyPacket());
+        broadcastPollReply();
+    }
+
+    /**
+     * Discovers nodes by walking the port-address space with targeted ArtPolls.
+     *
+     * Only nodes with a port-address in the current slice reply to each poll, which keeps replies from
+     * overflowing the receive buffers on large installations. Blocks until all slices have been polled,
+     * taking about (32768 / sliceSize) * replyWindow milliseconds. Nodes without any ports do not reply
+     * to targeted polls. Nodes that did not reply to the last {@value #MAX_MISSED_POLLS} discoveries are dropped.
+     *
+     * @param sliceSize     amount of port-addresses polled at once
+     * @param replyWindow   time to wait for replies to each poll in milliseconds
+     */
+    public void discoverNodes(int sliceSize, long replyWindow) {
+        if (sliceSize < 1) throw new IllegalArgumentException("sliceSize has to be at least 1");
+        expireNodes(pollCycles.incrementAndGet());
+
+        //answer itself
+        broadcastPollReply();
+
+        for (int bottom = 0; bottom < ArtnetPortAddress.COUNT; bottom += sliceSize) {
+            int top = Math.min(bottom + sliceSize - 1, ArtnetPortAddress.MAX);
+            broadcastPacket(ArtPollPacket.targeted(bottom, top));
+
+            try {
+                Thread.sleep(replyWindow);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Drops nodes that did not reply to the last discovery polls and removes their routes.
+     *
+     * @param cycle number of the discovery poll about to be sent
+     */
+    private void expireNodes(long cycle) {
+        synchronized (nodes) {
+            for (ArtnetNode node : nodes.values()) {
+                if (cycle - node.getReplyCycle() > MAX_MISSED_POLLS) {
+                    nodes.remove(node.getInetAddress());
+                    routingTable.remove(node);
+                    System.out.println("lost node: " + node);
+                }
+            }
+        }
+    }
+
+    /**
+     * Broadcasts the cached ArtPollReplies of this controller on every interface.
+     */
+    private void broadcastPollReply() {
+        for (ArtnetInterface artnetInterface : interfaces) {
+            sendPollReplies(artnetInterface, artnetInterface.getBroadcastAddress());
+        }
+    }
+
+    /**
+     * Sends the cached ArtPollReplies of this controller.
+     *
+     * @param artnetInterface   interface whose replies to send
+     * @param address           address to send the replies to
+     */
+    private void sendPollReplies(ArtnetInterface artnetInterface, InetAddress address) {
+        byte[][] replies = artnetInterface != null ? artnetInterface.getPollReplies() : null;
+        if (replies != null && socket != null && !socket.isClosed()) {
+            for (byte[] reply : replies) sender.sendControl(reply, address);
+            sentPollReplies.addAndGet(replies.length);
+        }
+    }
+
+    /**
+     * Answers an ArtPoll after a random delay so that many controllers answering the same poll do not
+     * reply in the same instant. Replies to the same poller are coalesced while one is pending.
+     *
+     * @param pollPacket    the received ArtPoll
+     * @param poller        address of the poll's sender
+     */
+    private void scheduleArtPollReply(ArtPollPacket pollPacket, InetAddress poller) {
+        //in targeted mode only reply if one of our ports is in range
+        if (pollPacket.isTargeted() && Arrays.stream(portAddresses).noneMatch(pollPacket::isTargeting)) return;
+
+        //talkToMe bit 1: send ArtPollReply whenever conditions change, as long as the poller keeps asking for it
+        if ((pollPacket.getTalkToMe() & 0b00000010) != 0) changePollers.put(poller, System.nanoTime());
+        else changePollers.remove(poller);
+
+        if (pendingPollReplies.add(poller)) {
+            long delay = maxPollReplyDelay > 0 ? ThreadLocalRandom.current().nextLong(maxPollReplyDelay) : 0;
+            scheduler.schedule(() -> {
+                pendingPollReplies.remove(poller);
+                sendPollReplies(getInterface(poller), poller);
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Encodes the ArtPollReplies of this controller again after its state changed.
+     *
+     * Ports are advertised four at a time in replies with consecutive bind indices starting at 1.
+     * If a poller asked to be informed about changes in its latest ArtPoll, the new replies are broadcast right away.
+     * Synchronized so that the replies cached last always match the latest names and port-addresses.
+     */
+    private synchronized void updateArtPollReply() {
+        int[][] pages = ArtnetPortAddress.toReplyPages(portAddresses);
+        for (ArtnetInterface artnetInterface : interfaces) {
+            InetAddress address = artnetInterface.getInterfaceAddress().getAddress();
+            byte[][] replies = new byte[Math.max(pages.length, 1)][];
+            for (int i = 0; i < replies.length; i++) {
+                int[] page = pages.length > 0 ? pages[i] : new int[0];
+                replies[i] = constructArtPollReplyPacket(address, page, i + 1, pages.length > 1).getPackageBytes();
+            }
+            artnetInterface.setPollReplies(replies);
+        }
+
+        long now = System.nanoTime();
+        changePollers.values().removeIf(pollNanos -> now - pollNanos > CHANGE_POLLER_TIMEOUT_NANOS);
+        if (!changePollers.isEmpty()) broadcastPollReply();
     }
 
     /**
      * Constructs an ArtPollReply packet matching this controller.
      *
+     * @param address   address of the interface the reply is sent on
+     * @param ports     up to four port-addresses sharing net and sub-net
+     * @param bind      bind index of the reply
+     * @param bound     whether the controller sends more than one reply
      * @return an ArtPollReplyPacket matching this controller
      */
-    private ArtPollReplyPacket constructArtPollReplyPacket() {
-        InetAddress address = broadcastAddress.getInterfaceAddress().getAddress();
+    private ArtPollReplyPacket constructArtPollReplyPacket(InetAddress address, int[] ports, int bind, boolean bound) {
         byte versInfoH = (byte) 0;
         byte versInfoL = (byte) 1;
-        byte netSwitch = 0, subSwitch = 0;
+        int firstPort = ports.length > 0 ? ports[0] : 0;
+        byte netSwitch = (byte) ArtnetPortAddress.net(firstPort), subSwitch = (byte) ArtnetPortAddress.subNet(firstPort);
         byte oemHi = (byte)0xff, oem = (byte)0xFF;
         byte ubeaVersion = 0;
         byte status1 = (byte) 0b00110000;
         byte estaManLo = 0, estaManHi = 0;
-        byte[] shortName = new byte[]{'j', 'A', 'r', 't', 'n', 'e', 't', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', 0};
-        byte[] longName = new byte[]{'j', 'A', 'r', 't', 'n', 'e', 't', ' ', '-', ' ', 'A', 'n', ' ', 'A', 'r', 't', '-',
-                                     'N', 'e', 't', ' ', 'l', 'i', 'b', 'r', 'a', 'r', 'y', ' ', 'f', 'o', 'r', ' ', 'J',
-                                     'a', 'v', 'a', ' ', 'b', 'y', ' ', 'S', 'i', 'm', 'o', 'n', ' ', 'S', 'c', 'h', 'a',
-                                     'e', 'f', 'f', 'n', 'e', 'r', ' ', ' ', ' ', ' ', ' ', ' ', 0};
-        byte[] nodeReport = new byte[]{'r', 'e', 'a', 'd', 'y', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ',
-                                       ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ',
-                                       ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ',
-                                       ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', ' ', 0};
-        byte numPortsHi = 0, numPortsLo = 1;
-        byte[] portTypes = new byte[]{0b001000101, 0b001000101, 0b001000101, 0b001000101};
-        byte[] goodInput = new byte[]{0b0000, 0b0000, 0b0000, 0b0000}, goodOutput = new byte[]{(byte)0b10000000, (byte)0b10000000, (byte)0b10000000, (byte)0b10000000};
-        byte[] swIn = new byte[]{0, 0, 0, 0}, swOut = new byte[]{0, 0, 0, 0};
+        byte[] shortName = toPaddedBytes(this.shortName, 18);
+        byte[] longName = toPaddedBytes(this.longName, 64);
+        byte[] nodeReport = toPaddedBytes(this.nodeReport, 64);
+        byte numPortsHi = 0, numPortsLo = (byte) ports.length;
+        byte[] portTypes = new byte[4];
+        byte[] goodInput = new byte[4], goodOutput = new byte[4];
+        byte[] swIn = new byte[4], swOut = new byte[4];
+        for (int i = 0; i < ports.length; i++) {
+            portTypes[i] = 0b001000101;
+            goodOutput[i] = (byte) 0b10000000;
+            swIn[i] = (byte) ArtnetPortAddress.universe(ports[i]);
+            swOut[i] = (byte) ArtnetPortAddress.universe(ports[i]);
+        }
         byte swVideo = 0;
         byte swMacro = 0;
         byte swRemote = 0;
         byte style = STYLE_CODE;
-        byte[] mac = new byte[6];
-        try {
-            mac = broadcastAddress.getNetworkInterface().getHardwareAddress();
-        } catch (SocketException e) {
-            e.printStackTrace();
-        }
-        byte[] bindIp = new byte[]{0, 0, 0, 0};
-        byte bindIndex = 0;
+        byte[] mac = this.mac;
+        byte[] bindIp = bound ? address.getAddress() : new byte[]{0, 0, 0, 0};
+        byte bindIndex = (byte) bind;
         byte status2 = 0b00001110;
 
         return new ArtPollReplyPacket(address, versInfoH, versInfoL, netSwitch, subSwitch, oemHi, oem, ubeaVersion,
@@ -168,6 +598,21 @@ public class ArtnetController {
                 goodInput, goodOutput, swIn, swOut, swVideo, swMacro, swRemote, style, mac, bindIp, bindIndex, status2);
     }
 
+    /**
+     * Converts a string into a null terminated byte array of fixed length padded with spaces.
+     *
+     * @param text      text to convert
+     * @param length    length of the array including the terminating 0
+     * @return          padded byte array
+     */
+    private static byte[] toPaddedBytes(String text, int length) {
+        byte[] bytes = new byte[length];
+        Arrays.fill(bytes, 0, length - 1, (byte) ' ');
+        byte[] textBytes = text.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(textBytes, 0, bytes, 0, Math.min(textBytes.length, length - 1));
+        return bytes;
+    }
+
     /**
      * Sends an Art-Net packet to a single node.
      *
@@ -177,32 +622,32 @@ public class ArtnetController {
         if (socket != null) {
             InetAddress nodeAddress = node.getInetAddress();
             if (nodeAddress != null) {
-
-                byte[] data = artnetPacket.getPackageBytes();
-                DatagramPacket packet = new DatagramPacket(data, data.length, nodeAddress, ArtnetPacket.UDP_PORT);
-                try {
-                    socket.send(packet);
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
+                sendPacket(artnetPacket, nodeAddress);
             }
         }
     }
 
     /**
-     * Sends an Art-Net packet to all nodes.
+     * Sends an Art-Net packet to all nodes on every interface.
+     *
+     * ArtDmx packets are sent like {@link #broadcastDmx(byte, byte, byte, byte, byte[], int)}.
      *
      * @param artnetPacket packet to send
      */
     public void broadcastPacket(ArtnetPacket artnetPacket) {
         if (socket != null) {
-            if (broadcastAddress != null) {
-                byte[] data = artnetPacket.getPackageBytes();
-                DatagramPacket packet = new DatagramPacket(data, data.length, broadcastAddress.getBroadcastAddress(), ArtnetPacket.UDP_PORT);
-                try {
-                    socket.send(packet);
-                } catch (IOException e) {
-                    e.printStackTrace();
+            ArtnetInterface[] interfaces = this.interfaces;
+            if (interfaces.length > 0) {
+                if (artnetPacket instanceof ArtDmxPacket) {
+                    ArtDmxPacket dmxPacket = (ArtDmxPacket) artnetPacket;
+                    sentPortAddresses[dmxPacket.getPortAddress()] = true;
+                    sender.sendDmx(dmxPacket.getPortAddress(), senderSequence(dmxPacket.getSequence()),
+                            dmxPacket.getPhysical(), dmxPacket.getData(), dmxPacket.getDataLength());
+                } else {
+                    byte[] bytes = artnetPacket.getPackageBytes();
+                    for (ArtnetInterface artnetInterface : interfaces) {
+                        sender.sendControl(bytes, artnetInterface.getBroadcastAddress());
+                    }
                 }
             } else {
                 System.err.println("no broadcast address available");
@@ -213,12 +658,256 @@ public class ArtnetController {
     }
 
     /**
-     * Returns all available broadcast addresses.
+     * Sends dmx data to all nodes outputting its port-address as an ArtDmx packet.
+     *
+     * The data is copied and sent by the sender thread, replacing data for the same port-address that was not sent
+     * yet. The packet is encoded once and unicast to each subscribed node, see {@link #setUnicastLimit(int)}.
      *
-     * @return all available broadcast addresses
+     * @param sequence  sequence number, 0 to number packets per port-address
+     * @param physical  physical input port
+     * @param subUni    low byte of the port-address
+     * @param net       high byte of the port-address
+     * @param data      array containing the dmx data
+     * @param length    amount of channels to send
      */
-    private BroadcastAddress[] getBroadcastAddresses() {
-        ArrayList<BroadcastAddress> bcAddresses = new ArrayList<>();
+    public void broadcastDmx(byte sequence, byte physical, byte subUni, byte net, byte[] data, int length) {
+        if (socket != null) {
+            if (interfaces.length > 0) {
+                int portAddress = ((net & 0x7F) << 8) | (subUni & 0xFF);
+                sentPortAddresses[portAddress] = true;
+                sender.sendDmx(portAddress, senderSequence(sequence), physical, data, length);
+            } else {
+                System.err.println("no broadcast address available");
+            }
+        } else {
+            System.err.println("no socket available to broadcast");
+        }
+    }
+
+    /**
+     * Returns the sequence number to hand to the sender for a caller's sequence number. Callers that do not number
+     * their packets pass 0, which would disable reordering on the nodes, so these packets are numbered per
+     * port-address instead.
+     *
+     * @param sequence  caller's sequence number
+     * @return          sequence number (1-255) or ArtnetSender.AUTO_SEQUENCE
+     */
+    private static int senderSequence(byte sequence) {
+        return sequence == 0 ? ArtnetSender.AUTO_SEQUENCE : sequence & 0xFF;
+    }
+
+    /**
+     * Stages an ArtDmx packet for the next synchronized frame.
+     *
+     * Staged packets are sent by {@link #sendStagedDmx()} like {@link #broadcastPacket(ArtnetPacket)}.
+     *
+     * @param packet    packet to stage
+     */
+    public void stageDmx(ArtDmxPacket packet) {
+        synchronized (stagedDmx) {
+            stagedDmx.add(packet);
+        }
+    }
+
+    /**
+     * Sends all staged ArtDmx packets followed by a single ArtSync so that all nodes output them at the same time.
+     *
+     * If synchronous output is disabled or another controller makes it impossible, no ArtSync is sent and
+     * nodes fall back to outputting each packet as soon as it arrives.
+     */
+    public void sendStagedDmx() {
+        synchronized (stagedDmx) {
+            if (socket != null && interfaces.length > 0) {
+                for (ArtDmxPacket packet : stagedDmx) broadcastPacket(packet);
+            }
+            stagedDmx.clear();
+        }
+
+        broadcastSync();
+    }
+
+    /**
+     * Broadcasts an ArtSync if synchronous output is active, making nodes output the ArtDmx data sent before.
+     *
+     * The ArtSync is sent as soon as the sender thread has sent all ArtDmx data before it.
+     */
+    public void broadcastSync() {
+        if (isSyncActive() && socket != null && interfaces.length > 0) sender.sendSync();
+    }
+
+    /**
+     * Returns whether staged frames are currently followed by an ArtSync.
+     *
+     * Synchronous output is suspended for 4 seconds after another controller sent an ArtSync or an ArtDmx to a
+     * port-address this controller sends to.
+     *
+     * @return whether synchronous output is active
+     */
+    public boolean isSyncActive() {
+        return syncEnabled && System.nanoTime() - lastForeignSyncNanos > SYNC_TIMEOUT_NANOS;
+    }
+
+    /**
+     * Sets whether staged frames are followed by an ArtSync.
+     *
+     * @param syncEnabled   whether to use synchronous output
+     */
+    public void setSyncEnabled(boolean syncEnabled) {
+        this.syncEnabled = syncEnabled;
+    }
+
+    /**
+     * Encodes an Art-Net packet and adds it to the sender's control lane. ArtDmx packets without a sequence number
+     * are numbered per port-address.
+     *
+     * @param artnetPacket  packet to send
+     * @param address       address to send the packet to
+     */
+    private void sendPacket(ArtnetPacket artnetPacket, InetAddress address) {
+        byte[] bytes = artnetPacket.getPackageBytes();
+        if (artnetPacket instanceof ArtDmxPacket) {
+            int portAddress = ((ArtDmxPacket) artnetPacket).getPortAddress();
+            sentPortAddresses[portAddress] = true;
+            if (bytes[12] == 0) bytes[12] = dmxSequences.next(portAddress);
+        }
+        sender.sendControl(bytes, address);
+    }
+
+    /**
+     * Encodes dmx data into a channel's send buffer and sends it to all nodes outputting its port-address.
+     * Only called by the sender thread of the channel.
+     *
+     * @param channel       channel to send with
+     * @param portAddress   15-bit port-address
+     * @param sequence      sequence number (0-255) or ArtnetSender.AUTO_SEQUENCE
+     * @param physical      physical input port
+     * @param data          array containing the dmx data
+     * @param length        amount of channels to send
+     */
+    private void sendDmx(ArtnetSendChannel channel, int portAddress, int sequence, byte physical, byte[] data, int length) {
+        byte seq = sequence == ArtnetSender.AUTO_SEQUENCE ? dmxSequences.next(portAddress) : (byte) sequence;
+        int packageLength = ArtDmxPacket.write(channel.ensureBuffer(ArtDmxPacket.HEADER_LENGTH + length), 0,
+                seq, physical, portAddress, data, 0, length);
+        sendRouted(channel, portAddress, packageLength, null);
+    }
+
+    /**
+     * Sends a ready-made ArtDmx packet to all nodes outputting its port-address without copying it, e.g. straight
+     * from a {@link DirectUniverseStore}. The packet's sequence number is set before it is sent.
+     *
+     * The packet is sent by the calling thread through the send channel of its port-address's shard, bypassing the
+     * sender's queues; rate limits of unicast nodes may delay the calling thread. The channel's own send buffer is
+     * not used, so the packet can be sent while the shard's thread sends other packets.
+     *
+     * @param portAddress   15-bit port-address
+     * @param packet        ArtDmx packet between the buffer's position and limit
+     */
+    public void sendDmxPacket(int portAddress, ByteBuffer packet) {
+        if (socket == null || interfaces.length == 0) return;
+        sentPortAddresses[portAddress] = true;
+        packet.put(packet.position() + 12, dmxSequences.next(portAddress));
+        sendRouted(dmxChannels[portAddress % dmxChannels.length], portAddress, packet.remaining(), packet);
+    }
+
+    /**
+     * Sends an encoded ArtDmx packet to all nodes outputting its port-address.
+     *
+     * If no node is known to output the port-address, the packet is broadcast on every interface. If too many nodes
+     * do, it is broadcast on the interfaces these nodes are connected to.
+     *
+     * @param channel       channel to send with
+     * @param portAddress   15-bit port-address of the packet
+     * @param length        amount of bytes to send
+     * @param packet        packet to send or null to send the channel's send buffer
+     */
+    private void sendRouted(ArtnetSendChannel channel, int portAddress, int length, ByteBuffer packet) {
+        ArtnetInterface[] interfaces = this.interfaces;
+        ArtnetNode[] subscribers = routingTable.getSubscribers(portAddress);
+        if (subscribers.length == 0) {
+            for (ArtnetInterface artnetInterface : interfaces) {
+                send(channel, length, packet, artnetInterface.getBroadcastSocketAddress(), artnetInterface);
+            }
+        } else if (subscribers.length > unicastLimit) {
+            for (ArtnetInterface artnetInterface : interfaces) {
+                for (ArtnetNode subscriber : subscribers) {
+                    if (artnetInterface.contains(subscriber.getAddressInt())) {
+                        send(channel, length, packet, artnetInterface.getBroadcastSocketAddress(), artnetInterface);
+                        break;
+                    }
+                }
+            }
+        } else {
+            for (ArtnetNode subscriber : subscribers) {
+                if (shape(subscriber.getRateLimiter())) {
+                    send(channel, length, packet, subscriber.getSocketAddress(), getInterface(subscriber.getAddressInt()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends either a packet or the first bytes of a channel's send buffer.
+     */
+    private static void send(ArtnetSendChannel channel, int length, ByteBuffer packet, InetSocketAddress address,
+                             ArtnetInterface artnetInterface) {
+        if (packet != null) {
+            channel.send(packet, address, artnetInterface);
+        } else {
+            channel.send(length, address, artnetInterface);
+        }
+    }
+
+    /**
+     * Waits until a node's rate limit allows sending it another packet. Called by the thread sending the packet, so
+     * waiting delays the packets sent by that thread; the main sender thread keeps sending control packets meanwhile.
+     *
+     * @param rateLimiter   rate limiter of the node
+     * @return              whether the packet may be sent; false if it would have to wait too long
+     */
+    private boolean shape(ArtnetRateLimiter rateLimiter) {
+        long wait = rateLimiter.reserve(System.nanoTime());
+        if (wait == 0) return true;
+        if (wait > MAX_SHAPING_DELAY_NANOS) {
+            rateLimiter.cancel();
+            throttledPackets.incrementAndGet();
+            return false;
+        }
+
+        sender.waitNanos(wait);
+        return true;
+    }
+
+    /**
+     * Returns the interface whose subnet contains an address.
+     *
+     * @param address   IPv4 address as int
+     * @return          the interface or null
+     */
+    private ArtnetInterface getInterface(int address) {
+        for (ArtnetInterface artnetInterface : interfaces) {
+            if (artnetInterface.contains(address)) return artnetInterface;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the interface whose subnet contains an address.
+     *
+     * @param address   the address
+     * @return          the interface or null
+     */
+    private ArtnetInterface getInterface(InetAddress address) {
+        return getInterface(ArtnetInterface.toInt(address));
+    }
+
+    /**
+     * Returns the broadcast-capable addresses of all selected network interfaces.
+     *
+     * @return all available interfaces
+     */
+    private ArtnetInterface[] findInterfaces() {
+        ArrayList<ArtnetInterface> bcAddresses = new ArrayList<>();
+        String[] interfaceNames = this.interfaceNames;
 
         //iterate trough all network interfaces
         try {
@@ -226,8 +915,8 @@ public class ArtnetController {
             while (networkInterfaceEnumeration.hasMoreElements()) {
                 NetworkInterface nwi = networkInterfaceEnumeration.nextElement();
 
-                //check whether the network interface is a loopback type interface
-                if (!nwi.isLoopback()) {
+                //check whether the network interface is a selected, running, non-loopback interface
+                if (!nwi.isLoopback() && nwi.isUp() && (interfaceNames.length == 0 || Arrays.asList(interfaceNames).contains(nwi.getName()))) {
 
                     //get the interface's addresses
                     for (InterfaceAddress interfaceAddress : nwi.getInterfaceAddresses()) {
@@ -237,7 +926,7 @@ public class ArtnetController {
 
                         //check if broadcast address is available
                         if (bcAddress != null) {
-                            bcAddresses.add(new BroadcastAddress(nwi, interfaceAddress, bcAddress));
+                            bcAddresses.add(new ArtnetInterface(nwi, interfaceAddress, bcAddress));
                         }
                     }
                 }
@@ -246,48 +935,122 @@ public class ArtnetController {
             e.printStackTrace();
         }
 
-        return bcAddresses.toArray(new BroadcastAddress[bcAddresses.size()]);
+        return bcAddresses.toArray(new ArtnetInterface[bcAddresses.size()]);
     }
 
     /**
-     * Manages what to do when a packet is received.
+     * Enumerates the network interfaces again and switches to them if they changed.
      *
-     * @param bytes     received data
-     * @param sender    InetAddress of the packet's sender
-     * @param port      packet sender's port
+     * Interfaces that did not change keep their statistics.
      */
-    private void onPacketReceive(byte[] bytes, InetAddress sender, int port) {
+    private synchronized void updateInterfaces() {
+        ownAddresses = findOwnAddresses();
 
-        InetAddress localhost = null;
-        try {
-            localhost = InetAddress.getLocalHost();
-        } catch (UnknownHostException e) {
-            e.printStackTrace();
+        ArtnetInterface[] current = interfaces;
+        ArtnetInterface[] found = findInterfaces();
+
+        boolean changed = found.length != current.length;
+        for (int i = 0; i < found.length; i++) {
+            for (ArtnetInterface known : current) {
+                if (known.sameAddress(found[i])) {
+                    found[i] = known;
+                    break;
+                }
+            }
+            if (!changed && found[i] != current[i]) changed = true;
         }
 
+        if (changed) {
+            System.out.println("interfaces changed: " + Arrays.toString(found));
+            interfaces = found;
+            updateArtPollReply();
+        }
+    }
+
+    /**
+     * Manages what to do when a packet is received.
+     *
+     * @param bytes         received data
+     * @param length        amount of received bytes
+     * @param sender        InetAddress of the packet's sender
+     * @param port          packet sender's port
+     * @param receiveNanos  System.nanoTime the packet was received at
+     */
+    private void onPacketReceive(byte[] bytes, int length, InetAddress sender, int port, long receiveNanos) {
+        int senderInt = ArtnetInterface.toInt(sender);
+
         //ignore packets sent from this controller
-        if (!(ignoreOwnPackets && (broadcastAddress.equals(sender) || (localhost != null && localhost.equals(sender))))) {
-            ArtnetPacket artnetPacket = ArtnetOpCodes.fromBytes(bytes);
+        if (!(ignoreOwnPackets && isLocalAddress(senderInt))) {
+
+            //traffic per interface
+            ArtnetInterface receivingInterface = getInterface(senderInt);
+            if (receivingInterface != null) receivingInterface.onReceived(length);
+
+            //watch for other sync sources and controllers merging into our universes
+            if (!isOwnAddress(sender)) trackSyncSources(bytes, length);
+
+            //count lost and reordered ArtDmx packets
+            trackDmxSequence(bytes, length);
+
+            //hand ArtDmx packets to view listeners without copying
+            if (!dmxListeners.isEmpty() && dmxView.wrap(bytes, 0, length)) {
+                for (ArtDmxListener listener : dmxListeners) listener.onArtDmxReceive(dmxView, sender);
+
+                //only decode into an owned copy if someone wants it
+                if (listeners.isEmpty()) {
+                    decodeCounters.increment(ArtnetDecodeCodes.DC_OK);
+                    return;
+                }
+            }
+
+            //malformed and foreign packets are only counted
+            ArtnetPacket artnetPacket = ArtnetOpCodes.fromBytes(bytes, length, decodeCounters);
             if (artnetPacket != null) {
 
                 //if ArtPollReply is sent, add all new nodes to list
                 if (artnetPacket instanceof ArtPollReplyPacket) {
-                    ArtnetNode senderNode = isNodeRegistered(sender);
-
-                    if (senderNode == null) {
-                        //create new node and add it to the list
-                        ArtnetNode node = new ArtnetNode(sender, (ArtPollReplyPacket) artnetPacket);
-                        nodes.add(node);
-                        System.out.println("new node: " + node);
-                    } else {
-                        //update ArtnetNode information
-                        senderNode.setArtPollReplyPacket((ArtPollReplyPacket) artnetPacket);
+                    ArtnetNode senderNode;
+                    synchronized (nodes) {
+                        senderNode = nodes.get(sender);
+
+                        if (senderNode == null) {
+                            //create new node and add it to the map
+                            senderNode = new ArtnetNode(sender, (ArtPollReplyPacket) artnetPacket);
+                            senderNode.getRateLimiter().setMaxRate(defaultMaxNodeRate);
+                            senderNode.setReplyCycle(pollCycles.get());
+                            nodes.put(sender, senderNode);
+                            routingTable.update(senderNode);
+                            System.out.println("new node: " + senderNode);
+                        } else {
+                            //update ArtnetNode information
+                            senderNode.setReplyCycle(pollCycles.get());
+                            if (senderNode.setArtPollReplyPacket((ArtPollReplyPacket) artnetPacket)) {
+                                routingTable.update(senderNode);
+                            }
+                        }
                     }
+
+                    //disable inputs nobody listens to
+                    if (inputPruning) pruneInputs(senderNode, (ArtPollReplyPacket) artnetPacket);
+
+                    //slow down for nodes running out of buffers
+                    if (rateLearning) learnRate(senderNode, (ArtPollReplyPacket) artnetPacket);
                 } else {
 
+                    //answer ArtPolls of other controllers
+                    if (artnetPacket instanceof ArtPollPacket && respondToPolls) {
+                        scheduleArtPollReply((ArtPollPacket) artnetPacket, sender);
+                    }
+
+                    //TODs and RDM responses
+                    if (artnetPacket instanceof ArtTodDataPacket || artnetPacket instanceof ArtRdmPacket) {
+                        rdmManager.onPacketReceive(artnetPacket, sender, receiveNanos);
+                    }
+
                     //set sender node for other packets
-                    ArtnetNode senderNode = getNodeFromInetAddress(sender);
-                    if (senderNode != null) artnetPacket.setSender(null);
+                    ArtnetNode senderNode = nodes.get(sender);
+                    if (senderNode != null) artnetPacket.setSender(senderNode);
+                    artnetPacket.setReceiveNanos(receiveNanos);
 
                     //inform listeners
                     listeners.forEach(listener -> listener.onArtnetPacketReceive(artnetPacket));
@@ -297,31 +1060,152 @@ public class ArtnetController {
     }
 
     /**
-     * Checks whether a node with a given InetAddress is already registered.
+     * Detects other controllers that would make nodes ignore this controller's ArtSync.
+     *
+     * Nodes ignore ArtSync while they merge ArtDmx from several controllers, and competing ArtSync sources make
+     * their output unpredictable, so synchronous output is suspended while either is seen.
+     *
+     * @param bytes     received data
+     * @param length    amount of received bytes
+     */
+    private void trackSyncSources(byte[] bytes, int length) {
+        if (length < ArtSyncPacket.PACKAGE_LENGTH || !ArtnetOpCodes.hasArtnetId(bytes, 0)) return;
+
+        int opCode = ArtnetOpCodes.getOpCode(bytes, 0);
+        if (opCode == ArtnetOpCodes.OP_SYNC) {
+            lastForeignSyncNanos = System.nanoTime();
+        } else if (opCode == ArtnetOpCodes.OP_OUTPUT && length >= ArtDmxPacket.HEADER_LENGTH) {
+            int portAddress = ((bytes[15] & 0x7F) << 8) | (bytes[14] & 0xFF);
+            if (sentPortAddresses[portAddress]) lastForeignSyncNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Tracks the sequence number of a received ArtDmx packet without decoding it.
      *
-     * @param sender    InetAddress to check
-     * @return          whether a node is already registered
+     * @param bytes     received data
+     * @param length    amount of received bytes
      */
-    private ArtnetNode isNodeRegistered(InetAddress sender) {
-        for (ArtnetNode node : nodes) {
-            if (node.getInetAddress().equals(sender)) {
-                return node;
+    private void trackDmxSequence(byte[] bytes, int length) {
+        if (length < ArtDmxPacket.HEADER_LENGTH || !ArtnetOpCodes.hasArtnetId(bytes, 0)) return;
+        if (ArtnetOpCodes.getOpCode(bytes, 0) != ArtnetOpCodes.OP_OUTPUT) return;
+
+        int portAddress = ((bytes[15] & 0x7F) << 8) | (bytes[14] & 0xFF);
+        receivedDmxSequences.track(portAddress, bytes[12]);
+    }
+
+    /**
+     * Reduces the rate packets are sent to a node while its report says that it drops packets.
+     *
+     * Reductions are counted by each node's rate limiter, see {@link ArtnetRateLimiter#getOverloads()}.
+     *
+     * @param node  node that sent the reply
+     * @param reply the node's ArtPollReply
+     */
+    private void learnRate(ArtnetNode node, ArtPollReplyPacket reply) {
+        int code = reply.getNodeReportCode();
+        boolean overloaded = code == ArtnetNodeReportCodes.RC_DMX_UDP_FULL || code == ArtnetNodeReportCodes.RC_UDP_FAIL;
+        node.getRateLimiter().onReport(overloaded, System.nanoTime());
+    }
+
+    /**
+     * Disables the inputs of one bind index of a node that are not consumed and enables those that are.
+     *
+     * A node acknowledges an ArtInput with its next ArtPollReply; until then, the request is repeated at most every
+     * few seconds.
+     *
+     * @param node  node that sent the reply
+     * @param reply the node's ArtPollReply for one bind index
+     */
+    private void pruneInputs(ArtnetNode node, ArtPollReplyPacket reply) {
+        int bindIndex = reply.getBindIndex() & 0xFF;
+        boolean[] disable = new boolean[reply.getNumPorts()];
+        boolean changed = false;
+
+        for (int port = 0; port < disable.length; port++) {
+            boolean disabled = (reply.getGoodInput(port) & 0x08) != 0;
+
+            //ports without input are left as they are
+            if ((reply.getPortType(port) & 0x40) == 0) {
+                disable[port] = disabled;
+            } else {
+                disable[port] = !consumedInputs[reply.getInputPortAddress(port)];
+                if (disable[port] != disabled) changed = true;
+            }
+        }
+
+        //inputs match: an earlier request was acknowledged
+        if (!changed) {
+            node.setInputRequestNanos(bindIndex, 0);
+            return;
+        }
+
+        long now = System.nanoTime();
+        long lastRequest = node.getInputRequestNanos(bindIndex);
+        if (lastRequest != 0 && now - lastRequest < INPUT_REQUEST_INTERVAL_NANOS) return;
+
+        node.setInputRequestNanos(bindIndex, now);
+        sendPacket(ArtInputPacket.of(reply.getBindIndex(), disable), node.getInetAddress());
+    }
+
+    /**
+     * Applies input pruning to all known nodes using their last ArtPollReplies.
+     */
+    private void pruneAllInputs() {
+        for (ArtnetNode node : nodes.values()) {
+            for (ArtPollReplyPacket reply : node.getArtPollReplyPackets()) {
+                node.setInputRequestNanos(reply.getBindIndex() & 0xFF, 0);
+                pruneInputs(node, reply);
             }
         }
-        return null;
     }
 
     /**
-     * Returns the node with a specific InetAddress.
+     * Checks whether an address belongs to the interface this controller uses.
      *
-     * If no node is registered, null is returned.
+     * @param address   address to check
+     * @return          whether the address is this controller's
+     */
+    private boolean isOwnAddress(InetAddress address) {
+        for (ArtnetInterface artnetInterface : interfaces) {
+            if (artnetInterface.getInterfaceAddress().getAddress().equals(address)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether an address belongs to any local network interface, including loopback.
      *
-     * @param nodeAddress   the node's address
-     * @return              node with matching InetAddress
+     * @param address   IPv4 address as int
+     * @return          whether the address is local
      */
-    private ArtnetNode getNodeFromInetAddress(InetAddress nodeAddress) {
-        for (ArtnetNode node : nodes) if (node.getInetAddress().equals(nodeAddress)) return node;
-        return null;
+    private boolean isLocalAddress(int address) {
+        for (int ownAddress : ownAddresses) if (ownAddress == address) return true;
+        return false;
+    }
+
+    /**
+     * Returns the IPv4 addresses of all local network interfaces, including loopback and interfaces not used for
+     * Art-Net.
+     *
+     * @return the addresses as ints
+     */
+    private static int[] findOwnAddresses() {
+        IntStream.Builder addresses = IntStream.builder();
+        addresses.add(ArtnetInterface.toInt(InetAddress.getLoopbackAddress()));
+        try {
+            Enumeration<NetworkInterface> networkInterfaceEnumeration = NetworkInterface.getNetworkInterfaces();
+            while (networkInterfaceEnumeration.hasMoreElements()) {
+                Enumeration<InetAddress> inetAddresses = networkInterfaceEnumeration.nextElement().getInetAddresses();
+                while (inetAddresses.hasMoreElements()) {
+                    int address = ArtnetInterface.toInt(inetAddresses.nextElement());
+                    if (address != 0) addresses.add(address);
+                }
+            }
+        } catch (SocketException e) {
+            e.printStackTrace();
+        }
+        return addresses.build().distinct().toArray();
     }
 
     /**
@@ -331,13 +1215,18 @@ public class ArtnetController {
      */
     public void closeSocket() {
         running = false;
+        receiveSelector.wakeup();
+        scheduler.shutdownNow();
+        sender.stop();
+        for (ArtnetSendChannel channel : dmxChannels) if (channel != controlChannel) channel.close();
         if (socket != null && !socket.isClosed()) {
             if (socket.isConnected()) socket.disconnect();
             socket.close();
         }
         try {
             receiverThread.join();
-        } catch (InterruptedException e) {
+            receiveSelector.close();
+        } catch (InterruptedException | IOException e) {
             e.printStackTrace();
         }
     }
@@ -351,13 +1240,32 @@ public class ArtnetController {
         listeners.add(listener);
     }
 
+    /**
+     * Adds an ArtDmxListener.
+     *
+     * @param listener ArtDmxListener instance
+     */
+    public void addArtDmxListener(ArtDmxListener listener) {
+        dmxListeners.add(listener);
+    }
+
+    /**
+     * Removes an ArtDmxListener.
+     *
+     * @param listener  ArtDmxListener instance
+     * @return <tt>true</tt> if the listener was registered and successfully removed
+     */
+    public boolean removeArtDmxListener(ArtDmxListener listener) {
+        return dmxListeners.remove(listener);
+    }
+
     /**
      * Returns all registered nodes.
      *
      * @return all registered nodes
      */
     public ArtnetNode[] getNodes() {
-        return nodes.toArray(new ArtnetNode[nodes.size()]);
+        return nodes.values().toArray(new ArtnetNode[0]);
     }
 
     /**
@@ -370,57 +1278,250 @@ public class ArtnetController {
         return listeners.remove(listener);
     }
 
-    public void setIgnoreOwnPackets(boolean ignoreOwnPackets) {
-        this.ignoreOwnPackets = ignoreOwnPackets;
+    /**
+     * Returns the counters for the results of decoding received datagrams.
+     *
+     * @return decode counters
+     */
+    public ArtnetDecodeCounters getDecodeCounters() {
+        return decodeCounters;
     }
 
     /**
-     * An InetAddress that is combined with its InterfaceAddress.
+     * Sets the short name advertised in this controller's ArtPollReply.
+     *
+     * @param shortName short name (up to 17 characters)
      */
-    public class BroadcastAddress {
-        private final NetworkInterface networkInterface;
-        private final InterfaceAddress interfaceAddress;
-        private final InetAddress broadcastAddress;
+    public void setShortName(String shortName) {
+        this.shortName = shortName;
+        updateArtPollReply();
+    }
 
-        /**
-         * Constructs a new instance of this class.
-         */
-        public BroadcastAddress(NetworkInterface networkInterface, InterfaceAddress interfaceAddress, InetAddress broadcastAddress) {
-            this.networkInterface = networkInterface;
-            this.interfaceAddress = interfaceAddress;
-            this.broadcastAddress = broadcastAddress;
-        }
+    /**
+     * Sets the long name advertised in this controller's ArtPollReply.
+     *
+     * @param longName  long name (up to 63 characters)
+     */
+    public void setLongName(String longName) {
+        this.longName = longName;
+        updateArtPollReply();
+    }
 
-        @Override
-        public String toString() {
-            return "BroadcastAddress: " + interfaceAddress.getAddress().getHostAddress() + " => " + broadcastAddress.getHostAddress();
-        }
+    /**
+     * Sets the node report advertised in this controller's ArtPollReply.
+     *
+     * @param nodeReport    node report (up to 63 characters)
+     */
+    public void setNodeReport(String nodeReport) {
+        this.nodeReport = nodeReport;
+        updateArtPollReply();
+    }
 
-        /**
-         * Returns the NetworkInterface.
-         *
-         * @return NetworkInterface instance
-         */
-        public NetworkInterface getNetworkInterface() {
-            return networkInterface;
+    /**
+     * Sets the port-addresses this controller advertises in its ArtPollReplies.
+     *
+     * Every four port-addresses sharing net and sub-net are advertised in a separate bind-indexed reply.
+     *
+     * @param portAddresses 15-bit port-addresses
+     */
+    public void setPortAddresses(int... portAddresses) {
+        for (int portAddress : portAddresses) ArtnetPortAddress.check(portAddress);
+        this.portAddresses = portAddresses.clone();
+        updateArtPollReply();
+    }
+
+    /**
+     * Returns the port-addresses this controller advertises in its ArtPollReplies.
+     *
+     * @return 15-bit port-addresses
+     */
+    public int[] getPortAddresses() {
+        return portAddresses.clone();
+    }
+
+    /**
+     * Sends ArtDmx data to a port-address on all nodes.
+     *
+     * Packets are numbered per port-address when they are sent so that nodes can drop packets that arrive out of
+     * order; data replaced before it was sent does not use up a sequence number.
+     *
+     * @param portAddress   15-bit port-address
+     * @param data          array containing the dmx data
+     * @param length        amount of channels to send
+     */
+    public void broadcastDmx(int portAddress, byte[] data, int length) {
+        ArtnetPortAddress.check(portAddress);
+        if (interfaces.length > 0) {
+            sentPortAddresses[portAddress] = true;
+            sender.sendDmx(portAddress, ArtnetSender.AUTO_SEQUENCE, (byte) 0, data, length);
+        } else {
+            System.err.println("no broadcast address available");
         }
+    }
+
+    /**
+     * Sets whether ArtPolls of other controllers are answered.
+     *
+     * @param respondToPolls    whether to answer ArtPolls
+     */
+    public void setRespondToPolls(boolean respondToPolls) {
+        this.respondToPolls = respondToPolls;
+    }
 
-        /**
-         * Returns the InterfaceAddress.
-         *
-         * @return InterfaceAddress instance
-         */
-        public InterfaceAddress getInterfaceAddress() {
-            return interfaceAddress;
+    /**
+     * Sets the maximum random delay before an ArtPoll is answered.
+     *
+     * @param maxPollReplyDelay maximum delay in milliseconds; 0 answers right away
+     */
+    public void setMaxPollReplyDelay(int maxPollReplyDelay) {
+        this.maxPollReplyDelay = maxPollReplyDelay;
+    }
+
+    /**
+     * Sets whether node inputs that are not consumed get disabled.
+     *
+     * Active inputs broadcast ArtDmx of their own, so disabling unused ones cuts traffic at the source. Nodes are
+     * sent an ArtInput whenever their ArtPollReply shows an input that is not consumed but active, or consumed but
+     * disabled.
+     *
+     * @param inputPruning  whether to disable inputs that are not consumed
+     */
+    public void setInputPruning(boolean inputPruning) {
+        this.inputPruning = inputPruning;
+        if (inputPruning) pruneAllInputs();
+    }
+
+    /**
+     * Sets the port-addresses whose node inputs this controller consumes.
+     *
+     * Inputs on these port-addresses stay enabled when input pruning is active.
+     *
+     * @param portAddresses 15-bit port-addresses
+     */
+    public void setConsumedInputs(int... portAddresses) {
+        for (int portAddress : portAddresses) ArtnetPortAddress.check(portAddress);
+        synchronized (consumedInputs) {
+            Arrays.fill(consumedInputs, false);
+            for (int portAddress : portAddresses) consumedInputs[portAddress] = true;
         }
+        if (inputPruning) pruneAllInputs();
+    }
 
-        /**
-         * Returns the broadcast address.
-         *
-         * @return broadcast address
-         */
-        public InetAddress getBroadcastAddress() {
-            return broadcastAddress;
+    /**
+     * Returns the port-addresses whose node inputs this controller consumes.
+     *
+     * @return sorted 15-bit port-addresses
+     */
+    public int[] getConsumedInputs() {
+        synchronized (consumedInputs) {
+            return IntStream.range(0, consumedInputs.length).filter(pa -> consumedInputs[pa]).toArray();
         }
     }
+
+    /**
+     * Sets the maximum amount of nodes ArtDmx for a single port-address is unicast to.
+     *
+     * Port-addresses output by more nodes are broadcast instead; 0 broadcasts all ArtDmx.
+     *
+     * @param unicastLimit  maximum amount of subscribed nodes to unicast to
+     */
+    public void setUnicastLimit(int unicastLimit) {
+        if (unicastLimit < 0) throw new IllegalArgumentException("unicastLimit must not be negative");
+        this.unicastLimit = unicastLimit;
+    }
+
+    /**
+     * Sets the maximum rate packets are unicast to each node, including nodes that are discovered later.
+     *
+     * Packets are delayed to keep the rate; packets that would have to wait too long are dropped.
+     *
+     * @param maxRate   packets per second; Double.POSITIVE_INFINITY for no limit
+     */
+    public void setMaxNodeRate(double maxRate) {
+        if (!(maxRate > 0)) throw new IllegalArgumentException("maxRate has to be positive");
+        this.defaultMaxNodeRate = maxRate;
+        for (ArtnetNode node : getNodes()) node.getRateLimiter().setMaxRate(maxRate);
+    }
+
+    /**
+     * Sets whether the rate packets are unicast to a node is reduced when the node reports that it ran out of
+     * buffers.
+     *
+     * @param rateLearning  whether to learn node rates
+     */
+    public void setRateLearning(boolean rateLearning) {
+        this.rateLearning = rateLearning;
+    }
+
+    /**
+     * Returns the amount of packets that were dropped because of node rate limits.
+     *
+     * @return amount of dropped packets
+     */
+    public long getThrottledPackets() {
+        return throttledPackets.get();
+    }
+
+    /**
+     * Returns the amount of ArtPollReplies this controller sent, counting every bind-indexed reply.
+     *
+     * @return amount of sent ArtPollReplies
+     */
+    public long getSentPollReplies() {
+        return sentPollReplies.get();
+    }
+
+    public int getUnicastLimit() {
+        return unicastLimit;
+    }
+
+    /**
+     * Selects the network interfaces Art-Net is sent on by name, e.g. "eth0".
+     *
+     * Interfaces are also checked for changes every few seconds, so interfaces that come up later are used as well.
+     *
+     * @param interfaceNames    names of the interfaces to use; none to use all broadcast-capable interfaces
+     */
+    public void setInterfaces(String... interfaceNames) {
+        this.interfaceNames = interfaceNames.clone();
+        updateInterfaces();
+    }
+
+    /**
+     * Returns the interfaces Art-Net is currently sent on, including their traffic statistics.
+     *
+     * @return the interfaces
+     */
+    public ArtnetInterface[] getInterfaces() {
+        return interfaces.clone();
+    }
+
+    public ArtnetSender getSender() {
+        return sender;
+    }
+
+    public ArtnetRoutingTable getRoutingTable() {
+        return routingTable;
+    }
+
+    public ArtnetSequenceCounter getDmxSequences() {
+        return dmxSequences;
+    }
+
+    public ArtnetSequenceTracker getReceivedDmxSequences() {
+        return receivedDmxSequences;
+    }
+
+    /**
+     * Returns the manager for RDM discovery and parameter requests through this controller.
+     *
+     * @return ArtnetRdmManager instance
+     */
+    public ArtnetRdmManager getRdmManager() {
+        return rdmManager;
+    }
+
+    public void setIgnoreOwnPackets(boolean ignoreOwnPackets) {
+        this.ignoreOwnPackets = ignoreOwnPackets;
+    }
 }
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet;
+
+/**
+ * A collection of all results of decoding received data.
+ *
+ * These codes are returned by the validate methods of the packets and counted in {@link ArtnetDecodeCounters}.
+ *
+ * @author sschaeffner
+ */
+public class ArtnetDecodeCodes {
+    public static final int DC_OK = 0;
+    public static final int DC_TOO_SHORT = 1;
+    public static final int DC_WRONG_ID = 2;
+    public static final int DC_UNKNOWN_OPCODE = 3;
+    public static final int DC_WRONG_OPCODE = 4;
+    public static final int DC_PROT_VER = 5;
+    public static final int DC_LENGTH_MISMATCH = 6;
+    public static final int DC_DECODE_ERROR = 7;
+
+    //amount of codes
+    public static final int DC_COUNT = 8;
+
+    public static String toName(int code) {
+        switch (code) {
+            case DC_OK:
+                return "ok";
+            case DC_TOO_SHORT:
+                return "too short";
+            case DC_WRONG_ID:
+                return "wrong packet ID";
+            case DC_UNKNOWN_OPCODE:
+                return "unknown opcode";
+            case DC_WRONG_OPCODE:
+                return "wrong opcode";
+            case DC_PROT_VER:
+                return "protVer not compatible";
+            case DC_LENGTH_MISMATCH:
+                return "length mismatch";
+            case DC_DECODE_ERROR:
+                return "decode error";
+            default:
+                throw new IllegalArgumentException(code + " is an unknown decode code.");
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts the results of decoding received data, one counter per {@link ArtnetDecodeCodes decode code}.
+ *
+ * Counting does not allocate, so it is cheap enough to be done for every received datagram.
+ *
+ * @author sschaeffner
+ */
+public class ArtnetDecodeCounters {
+
+    //one counter per decode code
+    private final AtomicLongArray counters;
+
+    /**
+     * Constructs a new instance of this class.
+     */
+    public ArtnetDecodeCounters() {
+        this.counters = new AtomicLongArray(ArtnetDecodeCodes.DC_COUNT);
+    }
+
+    /**
+     * Counts a decode result.
+     *
+     * @param code  the decode code
+     */
+    public void increment(int code) {
+        counters.incrementAndGet(code);
+    }
+
+    /**
+     * Returns how often a decode code has been counted.
+     *
+     * @param code  the decode code
+     * @return      how often the code has been counted
+     */
+    public long get(int code) {
+        return counters.get(code);
+    }
+
+    /**
+     * Returns how many datagrams have been rejected for any reason.
+     *
+     * @return amount of rejected datagrams
+     */
+    public long getRejected() {
+        long rejected = 0;
+        for (int i = 0; i < ArtnetDecodeCodes.DC_COUNT; i++) {
+            if (i != ArtnetDecodeCodes.DC_OK) rejected += counters.get(i);
+        }
+        return rejected;
+    }
+
+    /**
+     * Sets all counters to 0.
+     */
+    public void reset() {
+        for (int i = 0; i < ArtnetDecodeCodes.DC_COUNT; i++) counters.set(i, 0);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("ArtnetDecodeCounters{");
+        for (int i = 0; i < ArtnetDecodeCodes.DC_COUNT; i++) {
+            if (i > 0) sb.append("; ");
+            sb.append(ArtnetDecodeCodes.toName(i)).append('=').append(counters.get(i));
+        }
+        return sb.append('}').toString();
+    }
+}
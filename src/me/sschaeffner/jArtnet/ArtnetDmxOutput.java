@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Emits DMX data as ArtDmx through an ArtnetController; frames end with an ArtSync.
+ *
+ * @author sschaeffner
+ */
+public class ArtnetDmxOutput implements DmxOutput, DirectDmxOutput {
+
+    //controller to send through
+    private final ArtnetController controller;
+
+    /**
+     * Constructs a new instance of this class.
+     *
+     * @param controller    controller to send through
+     */
+    public ArtnetDmxOutput(ArtnetController controller) {
+        this.controller = controller;
+    }
+
+    @Override
+    public void sendDmx(int portAddress, byte[] data, int length) {
+        controller.broadcastDmx(portAddress, data, length);
+    }
+
+    @Override
+    public void sendArtDmx(int portAddress, ByteBuffer packet) {
+        controller.sendDmxPacket(portAddress, packet);
+    }
+
+    @Override
+    public void endFrame() {
+        controller.broadcastSync();
+    }
+
+    public ArtnetController getController() {
+        return controller;
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet;
+
+import me.sschaeffner.jArtnet.packets.ArtnetPacket;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.InterfaceAddress;
+import java.net.NetworkInterface;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An IPv4 address of a network interface that Art-Net is sent and received on.
+ *
+ * Tracks the traffic of the interface: packets and bytes sent and received and how long sending took.
+ *
+ * @author sschaeffner
+ */
+public class ArtnetInterface {
+
+    private final NetworkInterface networkInterface;
+    private final InterfaceAddress interfaceAddress;
+    private final InetAddress broadcastAddress;
+
+    //broadcast address with the Art-Net port, created once for sending without allocating
+    private final InetSocketAddress broadcastSocketAddress;
+
+    //address and network mask as ints for allocation-free subnet checks
+    private final int address, mask;
+
+    //cached ArtPollReplies of the controller for this interface
+    private volatile byte[][] pollReplies;
+
+    //written by all sender threads
+    private final LongAdder sentPackets, sentBytes, sendNanos;
+    private final AtomicLong maxSendNanos;
+
+    //only written by the receiver thread
+    private volatile long receivedPackets, receivedBytes;
+
+    /**
+     * Constructs a new instance of this class.
+     *
+     * @param networkInterface  the network interface
+     * @param interfaceAddress  one of the interface's addresses
+     * @param broadcastAddress  broadcast address of the interface address
+     */
+    public ArtnetInterface(NetworkInterface networkInterface, InterfaceAddress interfaceAddress, InetAddress broadcastAddress) {
+        this.networkInterface = networkInterface;
+        this.interfaceAddress = interfaceAddress;
+        this.broadcastAddress = broadcastAddress;
+        this.broadcastSocketAddress = new InetSocketAddress(broadcastAddress, ArtnetPacket.UDP_PORT);
+        this.sentPackets = new LongAdder();
+        this.sentBytes = new LongAdder();
+        this.sendNanos = new LongAdder();
+        this.maxSendNanos = new AtomicLong();
+        this.address = toInt(interfaceAddress.getAddress());
+        int prefix = interfaceAddress.getNetworkPrefixLength();
+        this.mask = prefix <= 0 ? 0 : prefix >= 32 ? -1 : -1 << (32 - prefix);
+    }
+
+    /**
+     * Returns an IPv4 address as an int.
+     *
+     * @param address   the address
+     * @return          the address as int or 0 if it is no IPv4 address
+     */
+    public static int toInt(InetAddress address) {
+        if (!(address instanceof Inet4Address)) return 0;
+        byte[] bytes = address.getAddress();
+        return ((bytes[0] & 0xFF) << 24) | ((bytes[1] & 0xFF) << 16) | ((bytes[2] & 0xFF) << 8) | (bytes[3] & 0xFF);
+    }
+
+    /**
+     * Returns whether an IPv4 address is in the interface's subnet.
+     *
+     * @param address   address as int
+     * @return          whether the address can be reached directly through this interface
+     */
+    public boolean contains(int address) {
+        return (address & mask) == (this.address & mask);
+    }
+
+    /**
+     * Returns whether an address is in the interface's subnet.
+     *
+     * @param address   the address
+     * @return          whether the address can be reached directly through this interface
+     */
+    public boolean contains(InetAddress address) {
+        return address instanceof Inet4Address && contains(toInt(address));
+    }
+
+    /**
+     * Returns whether another instance describes the same interface and address.
+     *
+     * @param other other instance
+     * @return      whether both describe the same interface address
+     */
+    public boolean sameAddress(ArtnetInterface other) {
+        return networkInterface.getName().equals(other.networkInterface.getName()) && address == other.address
+                && mask == other.mask && broadcastAddress.equals(other.broadcastAddress);
+    }
+
+    /**
+     * Counts a sent packet.
+     *
+     * @param length        amount of bytes sent
+     * @param durationNanos time sending took
+     */
+    void onSent(int length, long durationNanos) {
+        sentPackets.increment();
+        sentBytes.add(length);
+        sendNanos.add(durationNanos);
+        if (durationNanos > maxSendNanos.get()) maxSendNanos.accumulateAndGet(durationNanos, Math::max);
+    }
+
+    /**
+     * Counts a received packet. Only called by the receiver thread.
+     *
+     * @param length    amount of bytes received
+     */
+    void onReceived(int length) {
+        receivedPackets++;
+        receivedBytes += length;
+    }
+
+    /**
+     * Returns the encoded ArtPollReplies of the controller for this interface, one per bind index.
+     *
+     * @return cached ArtPollReplies, null before the controller encoded them
+     */
+    public byte[][] getPollReplies() {
+        return pollReplies;
+    }
+
+    void setPollReplies(byte[][] pollReplies) {
+        this.pollReplies = pollReplies;
+    }
+
+    @Override
+    public String toString() {
+        return "ArtnetInterface{" + networkInterface.getName() + "; " + interfaceAddress.getAddress().getHostAddress() +
+                " => " + broadcastAddress.getHostAddress() + "}";
+    }
+
+    public NetworkInterface getNetworkInterface() {
+        return networkInterface;
+    }
+
+    public InterfaceAddress getInterfaceAddress() {
+        return interfaceAddress;
+    }
+
+    public InetAddress getBroadcastAddress() {
+        return broadcastAddress;
+    }
+
+    public InetSocketAddress getBroadcastSocketAddress() {
+        return broadcastSocketAddress;
+    }
+
+    public long getSentPackets() {
+        return sentPackets.sum();
+    }
+
+    public long getSentBytes() {
+        return sentBytes.sum();
+    }
+
+    /**
+     * Returns how long sending a packet took on average.
+     *
+     * @return average time in nanoseconds
+     */
+    public long getAverageSendNanos() {
+        long packets = sentPackets.sum();
+        return packets > 0 ? sendNanos.sum() / packets : 0;
+    }
+
+    /**
+     * Returns how long sending a single packet took at most.
+     *
+     * @return maximum time in nanoseconds
+     */
+    public long getMaxSendNanos() {
+        return maxSendNanos.get();
+    }
+
+    public long getReceivedPackets() {
+        return receivedPackets;
+    }
+
+    public long getReceivedBytes() {
+        return receivedBytes;
+    }
+}
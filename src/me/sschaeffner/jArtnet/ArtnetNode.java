@@ -18,8 +18,13 @@
 package me.sschaeffner.jArtnet;
 
 import me.sschaeffner.jArtnet.packets.ArtPollReplyPacket;
+import me.sschaeffner.jArtnet.packets.ArtnetPacket;
 
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.stream.IntStream;
 
 /**
  * @author sschaeffner
@@ -28,15 +33,36 @@ public class ArtnetNode {
     //ip address
     private final InetAddress inetAddress;
 
+    //ip address as int for allocation-free subnet checks
+    private final int addressInt;
+
+    //ip address and Art-Net port, created once for sending without allocating
+    private final InetSocketAddress socketAddress;
+
     //type
     private final byte styleCode;
 
-    //ArtPollReply packet
+    //ArtPollReply packet of the root device (lowest bind index)
     private ArtPollReplyPacket artPollReplyPacket;
 
-    //name
+    //ArtPollReply packets indexed by bind index; a node with more than 4 ports sends one per bind index
+    private ArtPollReplyPacket[] bindReplies;
+
+    //name; derived from the ArtPollReply and rebuilt only when its bytes change
     private String shortName, longName;
 
+    //node report; derived lazily from the ArtPollReply
+    private String nodeReport;
+
+    //number of the controller's discovery poll that was current when the node last replied
+    private volatile long replyCycle;
+
+    //time of the last unacknowledged ArtInput sent to each bind index (System.nanoTime); 0 if none
+    private long[] inputRequestNanos = new long[0];
+
+    //limits the rate packets are unicast to the node
+    private final ArtnetRateLimiter rateLimiter = new ArtnetRateLimiter();
+
     /**
      * Constructs a new instance of this class.
      *
@@ -45,7 +71,12 @@ public class ArtnetNode {
      */
     public ArtnetNode(InetAddress inetAddress, byte styleCode, String shortName, String longName) {
         this.inetAddress = inetAddress;
+        this.addressInt = ArtnetInterface.toInt(inetAddress);
+        this.socketAddress = new InetSocketAddress(inetAddress, ArtnetPacket.UDP_PORT);
         this.styleCode = styleCode;
+        this.shortName = shortName;
+        this.longName = longName;
+        this.bindReplies = new ArtPollReplyPacket[2];
     }
 
     /**
@@ -55,10 +86,14 @@ public class ArtnetNode {
      */
     public ArtnetNode(InetAddress inetAddress, ArtPollReplyPacket artPollReplyPacket) {
         this.inetAddress = inetAddress;
+        this.addressInt = ArtnetInterface.toInt(inetAddress);
+        this.socketAddress = new InetSocketAddress(inetAddress, ArtnetPacket.UDP_PORT);
         this.artPollReplyPacket = artPollReplyPacket;
         this.styleCode = artPollReplyPacket.getStyle();
-        this.shortName = new String(artPollReplyPacket.getShortName()).trim();
-        this.longName = new String(artPollReplyPacket.getLongName()).trim();
+        this.shortName = artPollReplyPacket.getShortNameAsString();
+        this.longName = artPollReplyPacket.getLongNameAsString();
+        this.bindReplies = new ArtPollReplyPacket[2];
+        storeBindReply(artPollReplyPacket);
     }
 
     @Override
@@ -74,6 +109,24 @@ public class ArtnetNode {
         return inetAddress;
     }
 
+    /**
+     * Returns the node's IPv4 address as an int.
+     *
+     * @return the address or 0 if it is no IPv4 address
+     */
+    public int getAddressInt() {
+        return addressInt;
+    }
+
+    /**
+     * Returns the node's address with the Art-Net port.
+     *
+     * @return the socket address
+     */
+    public InetSocketAddress getSocketAddress() {
+        return socketAddress;
+    }
+
     public String getShortName() {
         return shortName;
     }
@@ -83,11 +136,10 @@ public class ArtnetNode {
     }
 
     public String getNodeReport() {
-        if (artPollReplyPacket != null) {
-            return new String(artPollReplyPacket.getNodeReport());
-        } else {
-            return null;
+        if (nodeReport == null && artPollReplyPacket != null) {
+            nodeReport = artPollReplyPacket.getNodeReportAsString();
         }
+        return nodeReport;
     }
 
     public int getEstaMan() {
@@ -106,11 +158,128 @@ public class ArtnetNode {
         return ArtnetStyleCodes.toName(styleCode);
     }
 
-    public void setArtPollReplyPacket(ArtPollReplyPacket artPollReplyPacket) {
-        this.artPollReplyPacket = artPollReplyPacket;
+    public ArtnetRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Updates the node's information from a new ArtPollReply packet.
+     *
+     * Nodes repeat their reply with a new report counter on every poll, so the packet is always stored to keep the
+     * report and status current, while the names are only rebuilt when their bytes change.
+     *
+     * @param artPollReplyPacket    ArtPollReplyPacket instance
+     * @return                      whether the node's names or ports changed
+     */
+    public boolean setArtPollReplyPacket(ArtPollReplyPacket artPollReplyPacket) {
+        int bindIndex = artPollReplyPacket.getBindIndex() & 0xFF;
+        ArtPollReplyPacket previous = getArtPollReplyPacket(bindIndex);
+        storeBindReply(artPollReplyPacket);
+
+        //names and node report describe the root device
+        ArtPollReplyPacket root = this.artPollReplyPacket;
+        if (root == null || bindIndex <= (root.getBindIndex() & 0xFF)) {
+            this.artPollReplyPacket = artPollReplyPacket;
+            if (!artPollReplyPacket.sameNames(root)) {
+                this.shortName = artPollReplyPacket.getShortNameAsString();
+                this.longName = artPollReplyPacket.getLongNameAsString();
+            }
+            if (!artPollReplyPacket.sameNodeReport(root)) this.nodeReport = null;
+        }
+        return !artPollReplyPacket.sameNames(previous) || !artPollReplyPacket.samePorts(previous);
     }
 
+    /**
+     * Stores an ArtPollReply packet under its bind index.
+     *
+     * @param artPollReplyPacket    ArtPollReplyPacket instance
+     */
+    private void storeBindReply(ArtPollReplyPacket artPollReplyPacket) {
+        int bindIndex = artPollReplyPacket.getBindIndex() & 0xFF;
+        if (bindIndex >= bindReplies.length) bindReplies = Arrays.copyOf(bindReplies, bindIndex + 1);
+        bindReplies[bindIndex] = artPollReplyPacket;
+    }
+
+    /**
+     * Returns the ArtPollReply packet of the root device.
+     *
+     * @return ArtPollReplyPacket instance
+     */
     public ArtPollReplyPacket getArtPollReplyPacket() {
         return artPollReplyPacket;
     }
+
+    /**
+     * Returns the ArtPollReply packet received for a bind index.
+     *
+     * @param bindIndex bind index (0-255)
+     * @return          ArtPollReplyPacket instance or null
+     */
+    public ArtPollReplyPacket getArtPollReplyPacket(int bindIndex) {
+        return bindIndex < bindReplies.length ? bindReplies[bindIndex] : null;
+    }
+
+    /**
+     * Returns the ArtPollReply packets of all bind indices.
+     *
+     * @return ArtPollReplyPacket instances ordered by bind index
+     */
+    public ArtPollReplyPacket[] getArtPollReplyPackets() {
+        return Arrays.stream(bindReplies).filter(Objects::nonNull).toArray(ArtPollReplyPacket[]::new);
+    }
+
+    /**
+     * Returns the port-addresses of all output ports across all bind indices.
+     *
+     * @return sorted port-addresses the node outputs
+     */
+    public int[] getOutputPortAddresses() {
+        return Arrays.stream(bindReplies).filter(Objects::nonNull)
+                .flatMapToInt(reply -> IntStream.range(0, reply.getNumPorts())
+                        .filter(port -> (reply.getPortType(port) & 0x80) != 0)
+                        .map(reply::getOutputPortAddress))
+                .sorted().distinct().toArray();
+    }
+
+    /**
+     * Returns the number of the discovery poll that was current when the node last sent an ArtPollReply.
+     *
+     * @return discovery poll number
+     */
+    long getReplyCycle() {
+        return replyCycle;
+    }
+
+    /**
+     * Records the number of the current discovery poll when the node sends an ArtPollReply.
+     *
+     * @param replyCycle    discovery poll number
+     */
+    void setReplyCycle(long replyCycle) {
+        this.replyCycle = replyCycle;
+    }
+
+    /**
+     * Returns when an ArtInput was last sent to a bind index without being acknowledged yet.
+     *
+     * @param bindIndex bind index (0-255)
+     * @return          System.nanoTime of the request or 0
+     */
+    long getInputRequestNanos(int bindIndex) {
+        return bindIndex < inputRequestNanos.length ? inputRequestNanos[bindIndex] : 0;
+    }
+
+    /**
+     * Records when an ArtInput was sent to a bind index.
+     *
+     * @param bindIndex bind index (0-255)
+     * @param nanos     System.nanoTime of the request or 0 once acknowledged
+     */
+    void setInputRequestNanos(int bindIndex, long nanos) {
+        if (bindIndex >= inputRequestNanos.length) {
+            if (nanos == 0) return;
+            inputRequestNanos = Arrays.copyOf(inputRequestNanos, bindIndex + 1);
+        }
+        inputRequestNanos[bindIndex] = nanos;
+    }
 }
@@ -18,12 +18,18 @@
 package me.sschaeffner.jArtnet;
 
 import me.sschaeffner.jArtnet.packets.ArtDmxPacket;
+import me.sschaeffner.jArtnet.packets.ArtInputPacket;
 import me.sschaeffner.jArtnet.packets.ArtPollPacket;
 import me.sschaeffner.jArtnet.packets.ArtPollReplyPacket;
+import me.sschaeffner.jArtnet.packets.ArtRdmPacket;
+import me.sschaeffner.jArtnet.packets.ArtSyncPacket;
+import me.sschaeffner.jArtnet.packets.ArtTimeCodePacket;
+import me.sschaeffner.jArtnet.packets.ArtTodControlPacket;
+import me.sschaeffner.jArtnet.packets.ArtTodDataPacket;
+import me.sschaeffner.jArtnet.packets.ArtTodRequestPacket;
+import me.sschaeffner.jArtnet.packets.ArtTriggerPacket;
 import me.sschaeffner.jArtnet.packets.ArtnetPacket;
 
-import java.util.Arrays;
-
 /**
  * A collection of all OpCodes of the Art-Net 3 specification.
  *
@@ -67,6 +73,26 @@ public final class ArtnetOpCodes {
     public static final int OP_DIRECTORY = 0x9a00;
     public static final int OP_DIRECTORY_REPLY = 0x9b00;
 
+    //Art-Net package ID as a single big-endian long
+    private static final long ID_LONG = 0x4172742D4E657400L;//"Art-Net\0"
+
+    //decoders indexed by opcode high byte and opcode low byte
+    private static volatile ArtnetPacketDecoder[][] decoders = new ArtnetPacketDecoder[256][];
+
+    static {
+        registerDecoder(OP_OUTPUT, ArtDmxPacket::validate, ArtDmxPacket::fromBytes);
+        registerDecoder(OP_POLL, ArtPollPacket::validate, ArtPollPacket::fromBytes);
+        registerDecoder(OP_POLL_REPLY, ArtPollReplyPacket::validate, ArtPollReplyPacket::fromBytes);
+        registerDecoder(OP_SYNC, ArtSyncPacket::validate, ArtSyncPacket::fromBytes);
+        registerDecoder(OP_INPUT, ArtInputPacket::validate, ArtInputPacket::fromBytes);
+        registerDecoder(OP_TIME_CODE, ArtTimeCodePacket::validate, ArtTimeCodePacket::fromBytes);
+        registerDecoder(OP_TRIGGER, ArtTriggerPacket::validate, ArtTriggerPacket::fromBytes);
+        registerDecoder(OP_TOD_REQUEST, ArtTodRequestPacket::validate, ArtTodRequestPacket::fromBytes);
+        registerDecoder(OP_TOD_DATA, ArtTodDataPacket::validate, ArtTodDataPacket::fromBytes);
+        registerDecoder(OP_TOD_CONTROL, ArtTodControlPacket::validate, ArtTodControlPacket::fromBytes);
+        registerDecoder(OP_RDM, ArtRdmPacket::validate, ArtRdmPacket::fromBytes);
+    }
+
     /**
      * Converts an OpCode integer into a byte array.
      *
@@ -88,46 +114,142 @@ public final class ArtnetOpCodes {
      * @return      instance of ArtnetPacket
      */
     public static ArtnetPacket fromBytes(byte[] bytes) {
+        return fromBytes(bytes, bytes.length);
+    }
+
+    /**
+     * Converts the data of an Art-Net packet in an ArtnetPacket.
+     *
+     * Returns null if the data is no valid Art-Net packet or if no decoder is registered for its opcode.
+     *
+     * @param bytes     data of an Art-Net packet
+     * @param length    amount of valid bytes in data
+     * @return          instance of ArtnetPacket
+     */
+    public static ArtnetPacket fromBytes(byte[] bytes, int length) {
+        return fromBytes(bytes, length, null);
+    }
+
+    /**
+     * Converts the data of an Art-Net packet in an ArtnetPacket without throwing exceptions.
+     *
+     * Returns null if the data is no valid Art-Net packet or if no decoder is registered for its opcode.
+     * The result is counted in the given counters.
+     *
+     * @param bytes     data of an Art-Net packet
+     * @param length    amount of valid bytes in data
+     * @param counters  counters for the decode result or null
+     * @return          instance of ArtnetPacket
+     */
+    public static ArtnetPacket fromBytes(byte[] bytes, int length, ArtnetDecodeCounters counters) {
+        int code = validate(bytes, length);
+        ArtnetPacket packet = null;
+
+        if (code == ArtnetDecodeCodes.DC_OK) {
+            try {
+                packet = getDecoder(getOpCode(bytes, 0)).decode(bytes, length);
+            } catch (RuntimeException e) {
+                //decoder and validator disagree; the packet is dropped
+                code = ArtnetDecodeCodes.DC_DECODE_ERROR;
+            }
+        }
+
+        if (counters != null) counters.increment(code);
+        return packet;
+    }
+
+    /**
+     * Checks whether data contains an Art-Net packet that can be decoded.
+     *
+     * @param bytes     data of an Art-Net packet
+     * @param length    amount of valid bytes in data
+     * @return          one of the {@link ArtnetDecodeCodes}
+     */
+    public static int validate(byte[] bytes, int length) {
         //minimum data length
         //packet id -> 8
         //opcode    -> 2
         //some data -> 1+
-        if (bytes.length > 10) {
+        if (length <= 10 || bytes.length < length) return ArtnetDecodeCodes.DC_TOO_SHORT;
+        if (!hasArtnetId(bytes, 0)) return ArtnetDecodeCodes.DC_WRONG_ID;
 
-            //check packet id
-            byte[] packetId = new byte[8];
-            System.arraycopy(bytes, 0, packetId, 0, 8);
+        ArtnetPacketDecoder decoder = getDecoder(getOpCode(bytes, 0));
+        if (decoder == null) return ArtnetDecodeCodes.DC_UNKNOWN_OPCODE;
 
-            if(Arrays.equals(packetId, ArtnetPacket.ID)) {
+        return decoder.validate(bytes, length);
+    }
 
-                //check opcode
-                byte opCodeLo = bytes[8];
-                byte opCodeHi = bytes[9];
+    /**
+     * Checks whether data starts with the Art-Net package ID.
+     *
+     * @param bytes     data of an Art-Net packet
+     * @param offset    position of the packet in data
+     * @return          whether the ID matches
+     */
+    public static boolean hasArtnetId(byte[] bytes, int offset) {
+        long id = 0;
+        for (int i = 0; i < 8; i++) id = (id << 8) | (bytes[offset + i] & 0xFF);
+        return id == ID_LONG;
+    }
 
-                int opCode = (opCodeHi << 8) + opCodeLo;
+    /**
+     * Reads the opcode of an Art-Net packet.
+     *
+     * @param bytes     data of an Art-Net packet
+     * @param offset    position of the packet in data
+     * @return          the packet's opcode
+     */
+    public static int getOpCode(byte[] bytes, int offset) {
+        return (bytes[offset + 8] & 0xFF) | ((bytes[offset + 9] & 0xFF) << 8);
+    }
 
-                switch (opCode) {
-                    case ArtnetOpCodes.OP_OUTPUT:
-                        System.out.println("OP_OUTPUT");
-                        return ArtDmxPacket.fromBytes(bytes);
+    /**
+     * Registers a decoder for an opcode, replacing any decoder registered before.
+     *
+     * @param opCode    OpCode to decode
+     * @param decoder   decoder to use or null to ignore packets with this opcode
+     */
+    public static synchronized void registerDecoder(int opCode, ArtnetPacketDecoder decoder) {
+        if (opCode < 0 || opCode > 0xFFFF) throw new IllegalArgumentException("0x" + Integer.toHexString(opCode) + " is not a valid opcode.");
+        int hi = opCode >>> 8;
+        int lo = opCode & 0xFF;
 
-                    case ArtnetOpCodes.OP_POLL:
-                        System.out.println("OP_POLL");
-                        return ArtPollPacket.fromBytes(bytes);
+        //copy on write so that the receiver thread never needs a lock
+        ArtnetPacketDecoder[][] table = decoders.clone();
+        table[hi] = table[hi] == null ? new ArtnetPacketDecoder[256] : table[hi].clone();
+        table[hi][lo] = decoder;
+        decoders = table;
+    }
 
-                    case ArtnetOpCodes.OP_POLL_REPLY:
-                        System.out.println("OP_POLL_REPLY");
-                        return ArtPollReplyPacket.fromBytes(bytes);
+    /**
+     * Registers a decoder for an opcode together with a validator that is asked before decoding.
+     *
+     * @param opCode    OpCode to decode
+     * @param validator validator checking received data before it is decoded
+     * @param decoder   decoder constructing the packet
+     */
+    public static void registerDecoder(int opCode, ArtnetPacketValidator validator, ArtnetPacketDecoder decoder) {
+        registerDecoder(opCode, new ArtnetPacketDecoder() {
+            @Override
+            public ArtnetPacket decode(byte[] bytes, int length) {
+                return decoder.decode(bytes, length);
+            }
 
-                    default:
-                        break;
-                }
-            } else {
-                System.out.println("not artnet packet: wrong packet ID");
+            @Override
+            public int validate(byte[] bytes, int length) {
+                return validator.validate(bytes, length);
             }
-        } else {//else cannot be Art-Net packet
-            System.out.println("not artnet packet: too short");
-        }
-        return null;
+        });
+    }
+
+    /**
+     * Returns the decoder registered for an opcode.
+     *
+     * @param opCode    OpCode to look up
+     * @return          registered decoder or null
+     */
+    public static ArtnetPacketDecoder getDecoder(int opCode) {
+        ArtnetPacketDecoder[] row = decoders[(opCode >>> 8) & 0xFF];
+        return row == null ? null : row[opCode & 0xFF];
     }
 }
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet;
+
+import me.sschaeffner.jArtnet.packets.ArtnetPacket;
+
+/**
+ * Decodes the data of a received Art-Net packet with a specific opcode.
+ *
+ * Decoders are registered in {@link ArtnetOpCodes#registerDecoder(int, ArtnetPacketDecoder)}.
+ *
+ * @author sschaeffner
+ */
+public interface ArtnetPacketDecoder extends ArtnetPacketValidator {
+
+    /**
+     * Constructs an ArtnetPacket from received bytes.
+     *
+     * Only called after {@link #validate(byte[], int)} returned {@link ArtnetDecodeCodes#DC_OK}.
+     *
+     * @param bytes     received bytes
+     * @param length    amount of received bytes
+     * @return          new instance of ArtnetPacket
+     */
+    ArtnetPacket decode(byte[] bytes, int length);
+
+    /**
+     * Checks whether received bytes can be decoded.
+     *
+     * ID and opcode have already been checked when this is called. Accepts everything by default.
+     *
+     * @param bytes     received bytes
+     * @param length    amount of received bytes
+     * @return          one of the {@link ArtnetDecodeCodes}
+     */
+    @Override
+    default int validate(byte[] bytes, int length) {
+        return ArtnetDecodeCodes.DC_OK;
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A 15-bit Art-Net port-address.
+ *
+ * A port-address consists of a 7-bit net, a 4-bit sub-net and a 4-bit universe, addressing 32,768 universes.
+ * The static methods work on plain ints so that hot paths never need to allocate an instance.
+ *
+ * @author sschaeffner
+ */
+public final class ArtnetPortAddress implements Comparable<ArtnetPortAddress> {
+    //amount of port-addresses
+    public static final int COUNT = 1 << 15;
+    //highest port-address
+    public static final int MAX = COUNT - 1;
+
+    //amount of ports in a single ArtPollReply
+    public static final int PORTS_PER_REPLY = 4;
+
+    private final int portAddress;
+
+    /**
+     * Constructs a new instance of this class.
+     *
+     * @param portAddress   the 15-bit port-address
+     */
+    private ArtnetPortAddress(int portAddress) {
+        this.portAddress = check(portAddress);
+    }
+
+    /**
+     * Returns the port-address for a 15-bit integer.
+     *
+     * @param portAddress   the 15-bit port-address
+     * @return              ArtnetPortAddress instance
+     */
+    public static ArtnetPortAddress of(int portAddress) {
+        return new ArtnetPortAddress(portAddress);
+    }
+
+    /**
+     * Returns the port-address for a net, sub-net and universe.
+     *
+     * @param net       net (0-127)
+     * @param subNet    sub-net (0-15)
+     * @param universe  universe (0-15)
+     * @return          ArtnetPortAddress instance
+     */
+    public static ArtnetPortAddress of(int net, int subNet, int universe) {
+        return new ArtnetPortAddress(toInt(net, subNet, universe));
+    }
+
+    /**
+     * Combines a net, sub-net and universe into a 15-bit port-address.
+     *
+     * @param net       net (0-127)
+     * @param subNet    sub-net (0-15)
+     * @param universe  universe (0-15)
+     * @return          the 15-bit port-address
+     */
+    public static int toInt(int net, int subNet, int universe) {
+        if (net < 0 || net > 0x7F) throw new IllegalArgumentException("net has to be between 0 and 127");
+        if (subNet < 0 || subNet > 0xF) throw new IllegalArgumentException("subNet has to be between 0 and 15");
+        if (universe < 0 || universe > 0xF) throw new IllegalArgumentException("universe has to be between 0 and 15");
+        return (net << 8) | (subNet << 4) | universe;
+    }
+
+    /**
+     * Checks whether an integer is a valid port-address.
+     *
+     * @param portAddress   port-address to check
+     * @return              the port-address
+     */
+    public static int check(int portAddress) {
+        if (portAddress < 0 || portAddress > MAX) {
+            throw new IllegalArgumentException(portAddress + " is not a valid port-address (0-" + MAX + ")");
+        }
+        return portAddress;
+    }
+
+    public static int net(int portAddress) {
+        return (portAddress >>> 8) & 0x7F;
+    }
+
+    public static int subNet(int portAddress) {
+        return (portAddress >>> 4) & 0xF;
+    }
+
+    public static int universe(int portAddress) {
+        return portAddress & 0xF;
+    }
+
+    /**
+     * Returns the low byte of a port-address as used in the SubUni field of ArtDmx.
+     *
+     * @param portAddress   the 15-bit port-address
+     * @return              sub-net and universe
+     */
+    public static int subUni(int portAddress) {
+        return portAddress & 0xFF;
+    }
+
+    /**
+     * Groups port-addresses into pages of up to four ports sharing net and sub-net, as advertised by a single
+     * bind-indexed ArtPollReply.
+     *
+     * @param portAddresses port-addresses to group
+     * @return              sorted pages of port-addresses without duplicates
+     */
+    public static int[][] toReplyPages(int[] portAddresses) {
+        int[] sorted = Arrays.stream(portAddresses).map(ArtnetPortAddress::check).sorted().distinct().toArray();
+        ArrayList<int[]> pages = new ArrayList<>();
+
+        int start = 0;
+        while (start < sorted.length) {
+            int end = start + 1;
+            while (end < sorted.length && end - start < PORTS_PER_REPLY && (sorted[end] >>> 4) == (sorted[start] >>> 4)) end++;
+            pages.add(Arrays.copyOfRange(sorted, start, end));
+            start = end;
+        }
+
+        return pages.toArray(new int[pages.size()][]);
+    }
+
+    public int getNet() {
+        return net(portAddress);
+    }
+
+    public int getSubNet() {
+        return subNet(portAddress);
+    }
+
+    public int getUniverse() {
+        return universe(portAddress);
+    }
+
+    public int getSubUni() {
+        return subUni(portAddress);
+    }
+
+    public int toInt() {
+        return portAddress;
+    }
+
+    @Override
+    public int compareTo(ArtnetPortAddress o) {
+        return Integer.compare(portAddress, o.portAddress);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ArtnetPortAddress && ((ArtnetPortAddress) o).portAddress == portAddress;
+    }
+
+    @Override
+    public int hashCode() {
+        return portAddress;
+    }
+
+    @Override
+    public String toString() {
+        return getNet() + ":" + getSubNet() + ":" + getUniverse();
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the rate packets are unicast to a single node with a token bucket.
+ *
+ * The rate is capped at a configurable maximum. When the node starts reporting that it drops packets, the rate is
+ * halved, starting from the rate measured so far if no maximum is set, and halved again for every further window the
+ * report persists. Once the report clears, the rate grows again slowly up to the maximum.
+ *
+ * @author sschaeffner
+ */
+public class ArtnetRateLimiter {
+
+    //lowest rate that overload reports can reduce the rate to in packets per second
+    public static final double MIN_RATE = 44;
+
+    //amount the rate grows by per second after an overload in packets per second
+    public static final double RATE_INCREASE = 100;
+
+    //time worth of packets that may be sent at once
+    private static final long BURST_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    //interval in which the send rate is measured
+    private static final long MEASURE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    //time an overload report has to persist before the rate is halved again
+    public static final long OVERLOAD_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    //configured maximum rate in packets per second; guarded by this
+    private double maxRate = Double.POSITIVE_INFINITY;
+
+    //current rate in packets per second; guarded by this
+    private double rate = Double.POSITIVE_INFINITY;
+
+    //available packets; guarded by this
+    private double tokens;
+
+    //time tokens were last added (System.nanoTime); guarded by this
+    private long refillNanos;
+
+    //measured send rate and the packets sent since the measurement started; guarded by this
+    private double measuredRate;
+    private long measureStartNanos;
+    private int measuredPackets;
+
+    //whether the node's last report was an overload, when the rate was last halved and how often; guarded by this
+    private boolean overloaded;
+    private long overloadNanos;
+    private int overloads;
+
+    /**
+     * Sets the maximum rate and resets the current rate to it.
+     *
+     * @param maxRate   packets per second; Double.POSITIVE_INFINITY for no limit
+     */
+    public synchronized void setMaxRate(double maxRate) {
+        if (!(maxRate > 0)) throw new IllegalArgumentException("maxRate has to be positive");
+        this.maxRate = maxRate;
+        this.rate = maxRate;
+        this.tokens = Math.min(tokens, getBurst());
+    }
+
+    public synchronized double getMaxRate() {
+        return maxRate;
+    }
+
+    public synchronized double getRate() {
+        return rate;
+    }
+
+    /**
+     * Returns the rate packets were sent at during the last measurement interval.
+     *
+     * @return packets per second
+     */
+    public synchronized double getMeasuredRate() {
+        return measuredRate;
+    }
+
+    /**
+     * Reserves sending a packet.
+     *
+     * @param nowNanos  current System.nanoTime
+     * @return          nanoseconds to wait before the packet may be sent; 0 if it may be sent now
+     */
+    public synchronized long reserve(long nowNanos) {
+        measure(nowNanos);
+        if (Double.isInfinite(rate)) return 0;
+
+        long elapsed = nowNanos - refillNanos;
+        refillNanos = nowNanos;
+        if (elapsed > 0) {
+            if (rate < maxRate && !overloaded) rate = Math.min(maxRate, rate + RATE_INCREASE * elapsed / 1e9);
+            tokens = Math.min(getBurst(), tokens + rate * elapsed / 1e9);
+        }
+
+        tokens--;
+        return tokens >= 0 ? 0 : (long) (-tokens / rate * 1e9);
+    }
+
+    /**
+     * Returns a reservation for a packet that was not sent after all.
+     */
+    public synchronized void cancel() {
+        tokens = Math.min(getBurst(), tokens + 1);
+        measuredPackets--;
+    }
+
+    /**
+     * Counts a packet for the measured rate.
+     *
+     * @param nowNanos  current System.nanoTime
+     */
+    private void measure(long nowNanos) {
+        long elapsed = nowNanos - measureStartNanos;
+        if (elapsed >= MEASURE_NANOS) {
+            measuredRate = measuredPackets * 1e9 / elapsed;
+            measureStartNanos = nowNanos;
+            measuredPackets = 0;
+        }
+        measuredPackets++;
+    }
+
+    /**
+     * Returns the amount of packets that may be sent at once.
+     *
+     * @return size of the token bucket
+     */
+    private double getBurst() {
+        return Math.max(1, rate * BURST_NANOS / 1e9);
+    }
+
+    /**
+     * Takes note of a node report. The rate is halved when the report turns into an overload and again every
+     * {@link #OVERLOAD_WINDOW_NANOS} it persists; ArtPollReplies repeat the report, so repeated reports within the
+     * window are not counted. The rate only grows again once the report clears.
+     *
+     * @param overloaded    whether the node reports dropping packets
+     * @param nowNanos      current System.nanoTime
+     * @return              whether the rate was reduced
+     */
+    public synchronized boolean onReport(boolean overloaded, long nowNanos) {
+        boolean wasOverloaded = this.overloaded;
+        this.overloaded = overloaded;
+        if (!overloaded) return false;
+        if (wasOverloaded && nowNanos - overloadNanos < OVERLOAD_WINDOW_NANOS) return false;
+
+        overloadNanos = nowNanos;
+        overloads++;
+        double base = Double.isInfinite(rate) ? measuredRate : rate;
+        rate = Math.max(MIN_RATE, base / 2);
+        tokens = Math.min(tokens, getBurst());
+        return true;
+    }
+
+    public synchronized boolean isOverloaded() {
+        return overloaded;
+    }
+
+    /**
+     * Returns how often the rate was halved because of overload reports.
+     *
+     * @return amount of reductions
+     */
+    public synchronized int getOverloads() {
+        return overloads;
+    }
+}
@@ -0,0 +1,577 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet;
+
+import me.sschaeffner.jArtnet.packets.ArtRdmPacket;
+import me.sschaeffner.jArtnet.packets.ArtTodControlPacket;
+import me.sschaeffner.jArtnet.packets.ArtTodDataPacket;
+import me.sschaeffner.jArtnet.packets.ArtTodRequestPacket;
+import me.sschaeffner.jArtnet.packets.ArtnetPacket;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Discovers RDM devices and reads their parameters through Art-Net.
+ *
+ * Requests to different nodes are in flight at the same time; every node gets a window of outstanding requests and
+ * further requests to it are queued. Unanswered requests are repeated and fail after their last timeout.
+ *
+ * The table of devices (TOD) of every port-address is cached and only replaced when a node sends a new one, which
+ * nodes do on their own whenever their TOD changes.
+ *
+ * @author sschaeffner
+ */
+public class ArtnetRdmManager {
+
+    //default amount of outstanding requests per node
+    public static final int DEFAULT_WINDOW = 2;
+
+    //time after which a request is repeated
+    private static final long TOD_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long RDM_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    //a flush makes the node run a full discovery before answering
+    private static final long FLUSH_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    //amount of times a request is sent before it fails
+    private static final int MAX_ATTEMPTS = 3;
+
+    //sends the requests
+    private final ArtnetRdmTransport transport;
+
+    //UID of this controller
+    private final long sourceUid;
+
+    //state of every node that was requested or sent a TOD
+    private final HashMap<InetAddress, NodeState> nodeStates;
+
+    //maximum amount of outstanding requests per node
+    private int window;
+
+    //transaction number of the last RDM request
+    private byte transaction;
+
+    /**
+     * Constructs a new instance of this class.
+     *
+     * @param transport sends the requests
+     * @param sourceUid UID of this controller
+     */
+    public ArtnetRdmManager(ArtnetRdmTransport transport, long sourceUid) {
+        this.transport = transport;
+        this.sourceUid = sourceUid;
+        this.nodeStates = new HashMap<>();
+        this.window = DEFAULT_WINDOW;
+        this.transaction = 0;
+    }
+
+    /**
+     * Sets the maximum amount of outstanding requests per node.
+     *
+     * @param window    amount of requests (1 or more)
+     */
+    public synchronized void setWindow(int window) {
+        if (window < 1) throw new IllegalArgumentException("window has to be at least 1");
+        this.window = window;
+    }
+
+    /**
+     * Returns the TOD of a node's port-address.
+     *
+     * A cached TOD is returned right away; otherwise it is requested from the node.
+     *
+     * @param node          the node's address
+     * @param portAddress   15-bit port-address
+     * @return              future of the UIDs of all devices
+     */
+    public CompletableFuture<long[]> getTod(InetAddress node, int portAddress) {
+        ArtnetPortAddress.check(portAddress);
+        ArrayList<Request> toSend = new ArrayList<>();
+        Request request;
+
+        synchronized (this) {
+            NodeState state = getNodeState(node);
+            long[] tod = state.tods.get(portAddress);
+            if (tod != null) return CompletableFuture.completedFuture(tod.clone());
+
+            request = state.findTodRequest(portAddress);
+            if (request == null) {
+                request = new Request(node, portAddress, ArtTodRequestPacket.of(portAddress), TOD_TIMEOUT_NANOS);
+                state.queue.add(request);
+                pump(state, System.nanoTime(), toSend);
+            }
+        }
+
+        send(toSend);
+        return request.tod;
+    }
+
+    /**
+     * Makes a node run a full RDM discovery on a port-address and returns the resulting TOD.
+     *
+     * @param node          the node's address
+     * @param portAddress   15-bit port-address
+     * @return              future of the UIDs of all devices
+     */
+    public CompletableFuture<long[]> flushTod(InetAddress node, int portAddress) {
+        ArtnetPortAddress.check(portAddress);
+        ArrayList<Request> toSend = new ArrayList<>();
+        Request request = new Request(node, portAddress,
+                new ArtTodControlPacket(portAddress, ArtTodControlPacket.ATC_FLUSH), FLUSH_TIMEOUT_NANOS);
+
+        synchronized (this) {
+            NodeState state = getNodeState(node);
+            state.tods.remove(portAddress);
+            state.queue.add(request);
+            pump(state, System.nanoTime(), toSend);
+        }
+
+        send(toSend);
+        return request.tod;
+    }
+
+    /**
+     * Requests the TODs of all output ports of several nodes at once.
+     *
+     * @param nodes nodes to discover
+     * @return      future completed when all TODs are known
+     */
+    public CompletableFuture<Void> discover(ArtnetNode... nodes) {
+        ArrayList<CompletableFuture<long[]>> tods = new ArrayList<>();
+        for (ArtnetNode node : nodes) {
+            for (int portAddress : node.getOutputPortAddresses()) tods.add(getTod(node.getInetAddress(), portAddress));
+        }
+        return CompletableFuture.allOf(tods.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * Reads a parameter of an RDM device.
+     *
+     * The future fails with a TimeoutException if the device does not answer and with an IOException if it
+     * answers with a NACK.
+     *
+     * @param node          the node's address
+     * @param portAddress   15-bit port-address the device is connected to
+     * @param uid           the device's UID
+     * @param pid           parameter id
+     * @return              future of the parameter data
+     */
+    public CompletableFuture<byte[]> get(InetAddress node, int portAddress, long uid, int pid) {
+        ArtnetPortAddress.check(portAddress);
+        ArrayList<Request> toSend = new ArrayList<>();
+        Request request;
+
+        synchronized (this) {
+            byte transaction = ++this.transaction;
+            request = new Request(node, portAddress, uid, transaction,
+                    ArtRdmPacket.get(portAddress, uid, sourceUid, transaction, 0, pid));
+
+            NodeState state = getNodeState(node);
+            state.queue.add(request);
+            pump(state, System.nanoTime(), toSend);
+        }
+
+        send(toSend);
+        return request.data;
+    }
+
+    /**
+     * Returns the cached TOD of a node's port-address.
+     *
+     * @param node          the node's address
+     * @param portAddress   15-bit port-address
+     * @return              UIDs of all devices or null if the TOD is unknown
+     */
+    public synchronized long[] getCachedTod(InetAddress node, int portAddress) {
+        NodeState state = nodeStates.get(node);
+        if (state == null) return null;
+        long[] tod = state.tods.get(portAddress);
+        return tod != null ? tod.clone() : null;
+    }
+
+    /**
+     * Returns the amount of requests sent to a node and not answered yet.
+     *
+     * @param node  the node's address
+     * @return      amount of outstanding requests
+     */
+    public synchronized int getInFlight(InetAddress node) {
+        NodeState state = nodeStates.get(node);
+        return state != null ? state.inFlight.size() : 0;
+    }
+
+    /**
+     * Returns the amount of requests to a node waiting for a free slot in its window.
+     *
+     * @param node  the node's address
+     * @return      amount of queued requests
+     */
+    public synchronized int getQueued(InetAddress node) {
+        NodeState state = nodeStates.get(node);
+        return state != null ? state.queue.size() : 0;
+    }
+
+    /**
+     * Handles received ArtTodData and ArtRdm packets; all other packets are ignored.
+     *
+     * @param packet    received packet
+     * @param sender    the sending node's address
+     * @param nowNanos  current System.nanoTime
+     */
+    public void onPacketReceive(ArtnetPacket packet, InetAddress sender, long nowNanos) {
+        ArrayList<Request> toSend = new ArrayList<>();
+        ArrayList<Runnable> completions = new ArrayList<>();
+
+        synchronized (this) {
+            if (packet instanceof ArtTodDataPacket) {
+                onTodData((ArtTodDataPacket) packet, getNodeState(sender), completions);
+            } else if (packet instanceof ArtRdmPacket) {
+                NodeState state = nodeStates.get(sender);
+                if (state != null) onRdm((ArtRdmPacket) packet, state, completions);
+            } else {
+                return;
+            }
+            NodeState state = nodeStates.get(sender);
+            if (state != null) pump(state, nowNanos, toSend);
+        }
+
+        send(toSend);
+        completions.forEach(Runnable::run);
+    }
+
+    /**
+     * Repeats requests whose timeout passed and fails them after their last attempt.
+     *
+     * Has to be called regularly, e.g. every 100 milliseconds.
+     *
+     * @param nowNanos  current System.nanoTime
+     */
+    public void tick(long nowNanos) {
+        ArrayList<Request> toSend = new ArrayList<>();
+        ArrayList<Request> failed = new ArrayList<>();
+
+        synchronized (this) {
+            for (NodeState state : nodeStates.values()) {
+                Iterator<Request> it = state.inFlight.iterator();
+                while (it.hasNext()) {
+                    Request request = it.next();
+                    if (nowNanos - request.deadline < 0) continue;
+
+                    if (request.attempts < MAX_ATTEMPTS) {
+                        request.attempts++;
+                        request.deadline = nowNanos + request.timeout;
+                        toSend.add(request);
+                    } else {
+                        it.remove();
+                        failed.add(request);
+                    }
+                }
+                pump(state, nowNanos, toSend);
+            }
+        }
+
+        send(toSend);
+        for (Request request : failed) {
+            request.fail(new TimeoutException("no answer from " + request.node.getHostAddress() + " for " + request.packet.getClass().getSimpleName()));
+        }
+    }
+
+    /**
+     * Adds a block of a TOD and completes the TOD requests of its port-address once the TOD is complete.
+     *
+     * @param packet        received ArtTodData packet
+     * @param state         state of the sending node
+     * @param completions   collects the completions of requests
+     */
+    private void onTodData(ArtTodDataPacket packet, NodeState state, ArrayList<Runnable> completions) {
+        int portAddress = packet.getPortAddress();
+
+        if (packet.getCommandResponse() == ArtTodDataPacket.TOD_NAK) {
+            IOException e = new IOException("TOD of " + ArtnetPortAddress.of(portAddress) + " not available");
+            for (Request request : state.removeTodRequests(portAddress)) completions.add(() -> request.fail(e));
+            return;
+        }
+
+        TodAssembly assembly = state.assemblies.get(portAddress);
+        if (assembly == null || !assembly.accepts(packet)) {
+            assembly = new TodAssembly(packet.getUidTotal());
+            state.assemblies.put(portAddress, assembly);
+        }
+        assembly.add(packet);
+        if (!assembly.isComplete()) return;
+
+        //a new TOD replaces the cached one
+        state.assemblies.remove(portAddress);
+        long[] tod = assembly.toArray();
+        state.tods.put(portAddress, tod);
+        for (Request request : state.removeTodRequests(portAddress)) completions.add(() -> request.tod.complete(tod.clone()));
+    }
+
+    /**
+     * Completes the RDM request answered by a response.
+     *
+     * @param packet        received ArtRdm packet
+     * @param state         state of the sending node
+     * @param completions   collects the completions of requests
+     */
+    private void onRdm(ArtRdmPacket packet, NodeState state, ArrayList<Runnable> completions) {
+        if (!packet.isRdmValid()) return;
+        int commandClass = packet.getCommandClass();
+        if (commandClass != ArtRdmPacket.CC_GET_COMMAND_RESPONSE && commandClass != ArtRdmPacket.CC_SET_COMMAND_RESPONSE) return;
+
+        Request request = state.removeRdmRequest(packet.getSourceUid(), packet.getTransaction());
+        if (request == null) return;
+
+        byte[] data = packet.getParameterData();
+        switch (packet.getResponseType()) {
+            case ArtRdmPacket.RESPONSE_TYPE_ACK:
+                completions.add(() -> request.data.complete(data));
+                break;
+            case ArtRdmPacket.RESPONSE_TYPE_NACK_REASON:
+                int reason = data.length >= 2 ? ((data[0] & 0xFF) << 8) | (data[1] & 0xFF) : -1;
+                completions.add(() -> request.fail(new IOException(String.format("RDM NACK, reason 0x%04x", reason))));
+                break;
+            default:
+                completions.add(() -> request.fail(new IOException("unsupported RDM response type " + packet.getResponseType())));
+                break;
+        }
+    }
+
+    /**
+     * Sends queued requests of a node while its window has room.
+     *
+     * @param state     the node's state
+     * @param nowNanos  current System.nanoTime
+     * @param toSend    collects the requests to send
+     */
+    private void pump(NodeState state, long nowNanos, ArrayList<Request> toSend) {
+        while (state.inFlight.size() < window && !state.queue.isEmpty()) {
+            Request request = state.queue.poll();
+            request.attempts = 1;
+            request.deadline = nowNanos + request.timeout;
+            state.inFlight.add(request);
+            toSend.add(request);
+        }
+    }
+
+    /**
+     * Sends requests. Is called without holding the lock so that the transport can take its time.
+     *
+     * @param requests  requests to send
+     */
+    private void send(ArrayList<Request> requests) {
+        for (Request request : requests) transport.send(request.packet, request.node);
+    }
+
+    /**
+     * Returns the state of a node and creates it if it does not exist yet.
+     *
+     * @param node  the node's address
+     * @return      the node's state
+     */
+    private NodeState getNodeState(InetAddress node) {
+        return nodeStates.computeIfAbsent(node, n -> new NodeState());
+    }
+
+    /**
+     * Requests, cached TODs and partly received TODs of one node.
+     */
+    private static class NodeState {
+        //requests sent and not answered yet
+        private final ArrayList<Request> inFlight = new ArrayList<>();
+        //requests waiting for room in the window
+        private final ArrayDeque<Request> queue = new ArrayDeque<>();
+        //complete TODs by port-address
+        private final HashMap<Integer, long[]> tods = new HashMap<>();
+        //partly received TODs by port-address
+        private final HashMap<Integer, TodAssembly> assemblies = new HashMap<>();
+
+        /**
+         * Returns a queued or outstanding TOD request of a port-address.
+         *
+         * @param portAddress   15-bit port-address
+         * @return              the request or null
+         */
+        private Request findTodRequest(int portAddress) {
+            for (Request request : inFlight) if (request.tod != null && request.portAddress == portAddress) return request;
+            for (Request request : queue) if (request.tod != null && request.portAddress == portAddress) return request;
+            return null;
+        }
+
+        /**
+         * Removes all queued and outstanding TOD requests of a port-address.
+         *
+         * @param portAddress   15-bit port-address
+         * @return              the removed requests
+         */
+        private ArrayList<Request> removeTodRequests(int portAddress) {
+            ArrayList<Request> removed = new ArrayList<>();
+            for (Iterator<Request> it = inFlight.iterator(); it.hasNext(); ) {
+                Request request = it.next();
+                if (request.tod != null && request.portAddress == portAddress) {
+                    removed.add(request);
+                    it.remove();
+                }
+            }
+            for (Iterator<Request> it = queue.iterator(); it.hasNext(); ) {
+                Request request = it.next();
+                if (request.tod != null && request.portAddress == portAddress) {
+                    removed.add(request);
+                    it.remove();
+                }
+            }
+            return removed;
+        }
+
+        /**
+         * Removes the outstanding RDM request answered by a response.
+         *
+         * @param uid           UID of the responding device
+         * @param transaction   transaction number of the response
+         * @return              the request or null
+         */
+        private Request removeRdmRequest(long uid, byte transaction) {
+            for (Iterator<Request> it = inFlight.iterator(); it.hasNext(); ) {
+                Request request = it.next();
+                if (request.data != null && request.uid == uid && request.transaction == transaction) {
+                    it.remove();
+                    return request;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * A TOD or RDM request.
+     */
+    private static class Request {
+        //addressed node and port-address
+        private final InetAddress node;
+        private final int portAddress;
+
+        //packet to send
+        private final ArtnetPacket packet;
+
+        //time after which the request is repeated
+        private final long timeout;
+
+        //addressed device and transaction number of RDM requests
+        private final long uid;
+        private final byte transaction;
+
+        //result of TOD requests; null for RDM requests
+        private final CompletableFuture<long[]> tod;
+
+        //result of RDM requests; null for TOD requests
+        private final CompletableFuture<byte[]> data;
+
+        //amount of times the request was sent
+        private int attempts;
+
+        //time the request is repeated or fails at (System.nanoTime)
+        private long deadline;
+
+        /**
+         * Constructs a new TOD request.
+         */
+        private Request(InetAddress node, int portAddress, ArtnetPacket packet, long timeout) {
+            this.node = node;
+            this.portAddress = portAddress;
+            this.packet = packet;
+            this.timeout = timeout;
+            this.uid = 0;
+            this.transaction = 0;
+            this.tod = new CompletableFuture<>();
+            this.data = null;
+        }
+
+        /**
+         * Constructs a new RDM request.
+         */
+        private Request(InetAddress node, int portAddress, long uid, byte transaction, ArtRdmPacket packet) {
+            this.node = node;
+            this.portAddress = portAddress;
+            this.packet = packet;
+            this.timeout = RDM_TIMEOUT_NANOS;
+            this.uid = uid;
+            this.transaction = transaction;
+            this.tod = null;
+            this.data = new CompletableFuture<>();
+        }
+
+        /**
+         * Fails the request's future.
+         *
+         * @param e cause
+         */
+        private void fail(Throwable e) {
+            if (tod != null) tod.completeExceptionally(e);
+            else data.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Collects the blocks of a TOD that is sent in several ArtTodData packets.
+     */
+    private static class TodAssembly {
+        //total amount of UIDs
+        private final int uidTotal;
+        //UIDs received so far
+        private final TreeSet<Long> uids = new TreeSet<>();
+        //block indices received so far
+        private final BitSet blocks = new BitSet();
+
+        private TodAssembly(int uidTotal) {
+            this.uidTotal = uidTotal;
+        }
+
+        /**
+         * Checks whether a packet belongs to this TOD; a repeated block means the node started sending a new one.
+         *
+         * @param packet    received ArtTodData packet
+         * @return          whether the packet's block can be added
+         */
+        private boolean accepts(ArtTodDataPacket packet) {
+            return packet.getUidTotal() == uidTotal && !blocks.get(packet.getBlockCount() & 0xFF);
+        }
+
+        private void add(ArtTodDataPacket packet) {
+            blocks.set(packet.getBlockCount() & 0xFF);
+            for (long uid : packet.getUids()) uids.add(uid);
+        }
+
+        private boolean isComplete() {
+            return uids.size() >= uidTotal;
+        }
+
+        private long[] toArray() {
+            return uids.stream().mapToLong(Long::longValue).toArray();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Maps port-addresses to the nodes that output them, so that ArtDmx can be unicast.
+ *
+ * Routes are built from the output ports in each node's ArtPollReplies and updated whenever a node's replies
+ * change. Looking up the subscribers of a port-address is a single array access and safe from any thread.
+ *
+ * @author sschaeffner
+ */
+public class ArtnetRoutingTable {
+
+    private static final ArtnetNode[] NO_SUBSCRIBERS = new ArtnetNode[0];
+
+    //nodes outputting each port-address; arrays are replaced, never modified
+    private final AtomicReferenceArray<ArtnetNode[]> subscribers;
+
+    //port-addresses each node was last routed for; guarded by this
+    private final HashMap<ArtnetNode, int[]> routedPortAddresses;
+
+    /**
+     * Constructs a new instance of this class.
+     */
+    public ArtnetRoutingTable() {
+        this.subscribers = new AtomicReferenceArray<>(ArtnetPortAddress.COUNT);
+        this.routedPortAddresses = new HashMap<>();
+    }
+
+    /**
+     * Routes the output ports of a node, replacing the routes of its previous ArtPollReplies.
+     *
+     * @param node  node to route
+     * @return      whether the node's routes changed
+     */
+    public synchronized boolean update(ArtnetNode node) {
+        int[] portAddresses = node.getOutputPortAddresses();
+        int[] previous = routedPortAddresses.get(node);
+        if (Arrays.equals(portAddresses, previous)) return false;
+
+        if (previous != null) {
+            for (int portAddress : previous) {
+                if (Arrays.binarySearch(portAddresses, portAddress) < 0) removeSubscriber(portAddress, node);
+            }
+        }
+        for (int portAddress : portAddresses) {
+            if (previous == null || Arrays.binarySearch(previous, portAddress) < 0) addSubscriber(portAddress, node);
+        }
+        routedPortAddresses.put(node, portAddresses);
+        return true;
+    }
+
+    /**
+     * Removes all routes of a node.
+     *
+     * @param node  node to remove
+     */
+    public synchronized void remove(ArtnetNode node) {
+        int[] previous = routedPortAddresses.remove(node);
+        if (previous != null) {
+            for (int portAddress : previous) removeSubscriber(portAddress, node);
+        }
+    }
+
+    /**
+     * Adds a node to the subscribers of a port-address. Has to be called while holding this object's lock.
+     *
+     * @param portAddress   15-bit port-address
+     * @param node          the node
+     */
+    private void addSubscriber(int portAddress, ArtnetNode node) {
+        ArtnetNode[] current = getSubscribers(portAddress);
+        ArtnetNode[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = node;
+        subscribers.set(portAddress, updated);
+    }
+
+    /**
+     * Removes a node from the subscribers of a port-address. Has to be called while holding this object's lock.
+     *
+     * @param portAddress   15-bit port-address
+     * @param node          the node
+     */
+    private void removeSubscriber(int portAddress, ArtnetNode node) {
+        ArtnetNode[] current = getSubscribers(portAddress);
+        ArtnetNode[] updated = Arrays.stream(current).filter(n -> n != node).toArray(ArtnetNode[]::new);
+        subscribers.set(portAddress, updated.length > 0 ? updated : null);
+    }
+
+    /**
+     * Returns all nodes outputting a port-address.
+     *
+     * The returned array is shared and must not be modified.
+     *
+     * @param portAddress   15-bit port-address
+     * @return              the subscribed nodes
+     */
+    public ArtnetNode[] getSubscribers(int portAddress) {
+        ArtnetNode[] current = subscribers.get(portAddress);
+        return current != null ? current : NO_SUBSCRIBERS;
+    }
+
+    /**
+     * Returns how many nodes output a port-address.
+     *
+     * @param portAddress   15-bit port-address
+     * @return              amount of subscribed nodes
+     */
+    public int getSubscriberCount(int portAddress) {
+        ArtnetNode[] current = subscribers.get(portAddress);
+        return current != null ? current.length : 0;
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet;
+
+import me.sschaeffner.jArtnet.packets.ArtDmxPacket;
+import me.sschaeffner.jArtnet.packets.ArtnetPacket;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A socket with its own send buffer.
+ *
+ * The send buffer is only used by a single sender thread. Packets in buffers owned by the caller can be sent from
+ * any thread.
+ *
+ * @author sschaeffner
+ */
+class ArtnetSendChannel {
+
+    //time to wait for room in the socket's send buffer before retrying
+    private static final long SEND_RETRY_NANOS = 50_000;
+
+    private final DatagramChannel channel;
+
+    //reused buffer for encoding packets and its wrapper for sending them
+    private byte[] buffer;
+    private ByteBuffer wrappedBuffer;
+
+    /**
+     * Constructs a new instance of this class.
+     *
+     * @param channel   channel to send with
+     */
+    ArtnetSendChannel(DatagramChannel channel) {
+        this.channel = channel;
+        this.buffer = new byte[ArtDmxPacket.HEADER_LENGTH + 512];
+        this.wrappedBuffer = ByteBuffer.wrap(buffer);
+    }
+
+    /**
+     * Opens a socket used for sending only.
+     *
+     * If the source port is shared, the socket is bound to the Art-Net port with SO_REUSEADDR. The socket receiving
+     * Art-Net has to be bound after all sending sockets because the last socket bound to a port receives its unicast
+     * datagrams. Falls back to an ephemeral port if the Art-Net port cannot be shared.
+     *
+     * @param shareSourcePort   whether to send from the Art-Net port
+     * @return                  the channel
+     * @throws IOException      if no socket can be opened
+     */
+    static ArtnetSendChannel open(boolean shareSourcePort) throws IOException {
+        DatagramChannel channel = DatagramChannel.open();
+        if (shareSourcePort) {
+            try {
+                channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+                channel.bind(new InetSocketAddress(ArtnetPacket.UDP_PORT));
+            } catch (IOException e) {
+                System.err.println("cannot share port " + ArtnetPacket.UDP_PORT + " for sending: " + e.getMessage());
+                channel.close();
+                channel = DatagramChannel.open();
+            }
+        }
+        if (channel.getLocalAddress() == null) channel.bind(new InetSocketAddress(0));
+        channel.setOption(StandardSocketOptions.SO_BROADCAST, true);
+
+        //received datagrams are never read
+        channel.setOption(StandardSocketOptions.SO_RCVBUF, 1);
+        return new ArtnetSendChannel(channel);
+    }
+
+    /**
+     * Returns the send buffer, growing it if it is smaller than a given length. Only called by the sender thread.
+     *
+     * @param length    minimum length of the buffer
+     * @return          the send buffer
+     */
+    byte[] ensureBuffer(int length) {
+        if (buffer.length < length) {
+            buffer = new byte[length];
+            wrappedBuffer = ByteBuffer.wrap(buffer);
+        }
+        return buffer;
+    }
+
+    /**
+     * Sends the first bytes of the send buffer. Only called by the sender thread.
+     *
+     * @param length            amount of bytes to send
+     * @param address           address and port to send the bytes to
+     * @param artnetInterface   interface the bytes are sent on, null if unknown
+     */
+    void send(int length, InetSocketAddress address, ArtnetInterface artnetInterface) {
+        wrappedBuffer.clear();
+        wrappedBuffer.limit(length);
+        send(wrappedBuffer, address, artnetInterface);
+    }
+
+    /**
+     * Sends already encoded bytes; can be called from any thread.
+     *
+     * @param data              encoded packet
+     * @param length            amount of bytes to send
+     * @param address           address to send the bytes to
+     * @param artnetInterface   interface the bytes are sent on, null if unknown
+     */
+    void send(byte[] data, int length, InetAddress address, ArtnetInterface artnetInterface) {
+        send(ByteBuffer.wrap(data, 0, length), new InetSocketAddress(address, ArtnetPacket.UDP_PORT), artnetInterface);
+    }
+
+    /**
+     * Sends the remaining bytes of a buffer without copying them, e.g. straight from a direct buffer. The buffer's
+     * position is left unchanged so that the same packet can be sent to several addresses. Can be called from any
+     * thread.
+     *
+     * @param data              encoded packet between the buffer's position and limit
+     * @param address           address and port to send the bytes to
+     * @param artnetInterface   interface the bytes are sent on, null if unknown
+     */
+    void send(ByteBuffer data, InetSocketAddress address, ArtnetInterface artnetInterface) {
+        int position = data.position();
+        try {
+            long start = System.nanoTime();
+            int length;
+
+            //a non-blocking channel sends nothing while the socket's send buffer is full
+            while ((length = channel.send(data, address)) == 0 && data.hasRemaining()) {
+                LockSupport.parkNanos(SEND_RETRY_NANOS);
+            }
+            if (artnetInterface != null) artnetInterface.onSent(length, System.nanoTime() - start);
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            data.position(position);
+        }
+    }
+
+    int getLocalPort() {
+        return channel.socket().getLocalPort();
+    }
+
+    void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
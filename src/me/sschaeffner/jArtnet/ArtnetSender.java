@@ -0,0 +1,566 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet;
+
+import java.net.InetAddress;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends packets from dedicated threads so that producers never block on the socket.
+ *
+ * Producers on any thread add packets to one of two lanes without taking a shared lock. Control packets such as
+ * ArtPoll and ArtTrigger are sent in order and ahead of DMX. DMX data is kept per port-address: data for a
+ * port-address that is still waiting replaces the waiting data instead of being sent after it. An ArtSync is sent
+ * as soon as every lane has sent the DMX data that was added to it before the ArtSync was requested, even if more
+ * data keeps arriving.
+ *
+ * DMX can be sharded: each shard sends the port-addresses whose remainder by the amount of shards equals its index
+ * from its own thread, so that sending scales across cores. Without shards, all packets are sent by one thread.
+ *
+ * All lanes are preallocated, so adding and sending packets does not allocate.
+ *
+ * @author sschaeffner
+ */
+public class ArtnetSender {
+
+    //sequence number telling the target to number the packet itself
+    public static final int AUTO_SEQUENCE = -1;
+
+    //amount of control packets that can wait; producers wait for space beyond that
+    private static final int CONTROL_CAPACITY = 1024;
+
+    //amount of ArtSyncs that can wait; further requests are merged into the newest one
+    private static final int SYNC_CAPACITY = 16;
+
+    /**
+     * Sends the packets taken from the lanes.
+     */
+    public interface Target {
+
+        /**
+         * Sends an encoded control packet; called by the main sender thread.
+         *
+         * @param data      encoded packet
+         * @param length    amount of bytes to send
+         * @param address   address to send the packet to
+         */
+        void sendControl(byte[] data, int length, InetAddress address);
+
+        /**
+         * Sends DMX data to a port-address; called by the thread of the shard only.
+         *
+         * @param shard         index of the shard sending the data; 0 without shards
+         * @param portAddress   15-bit port-address
+         * @param sequence      sequence number (0-255) or AUTO_SEQUENCE
+         * @param physical      physical input port
+         * @param data          array containing the dmx data
+         * @param length        amount of channels to send
+         */
+        void sendDmx(int shard, int portAddress, int sequence, byte physical, byte[] data, int length);
+
+        /**
+         * Sends an ArtSync; called by the main sender thread.
+         */
+        void sendSync();
+    }
+
+    /**
+     * An entry of the control lane.
+     */
+    private static class ControlPacket {
+        private byte[] data;
+        private InetAddress address;
+    }
+
+    /**
+     * The latest DMX data of a port-address; links itself into its shard's lane while it waits.
+     */
+    private static class DmxSlot {
+        private final int portAddress;
+
+        //whether the slot waits in the DMX lane
+        private final AtomicBoolean queued = new AtomicBoolean();
+
+        //next slot in the lane
+        private volatile DmxSlot next;
+
+        //latest data; guarded by this
+        private final byte[] data = new byte[512];
+        private int length, sequence;
+        private byte physical;
+
+        private DmxSlot(int portAddress) {
+            this.portAddress = portAddress;
+        }
+    }
+
+    /**
+     * A DMX lane and the thread sending it.
+     *
+     * The lane is an intrusive queue of slots for many producers and a single consumer: producers swap themselves
+     * in as the tail, the consumer walks from the head. An empty stub slot keeps the queue from running empty.
+     */
+    private static class Shard {
+        private final int index;
+
+        //lane of waiting slots; head only used by the shard's thread
+        private final DmxSlot stub = new DmxSlot(-1);
+        private final AtomicReference<DmxSlot> tail = new AtomicReference<>(stub);
+        private DmxSlot head = stub;
+
+        //copy of a slot's data while it is sent; only used by the shard's thread
+        private final byte[] buffer = new byte[512];
+
+        //amount of slots added to the lane
+        private final AtomicLong enqueued = new AtomicLong();
+
+        //amount of slots taken from the lane and sent; only written by the shard's thread
+        private volatile long sent;
+
+        //amount of sent slots after which the main thread waits to be woken for an ArtSync
+        private volatile long wakeAt = Long.MAX_VALUE;
+
+        //thread sending the lane; the main sender thread without shards
+        private Thread thread;
+
+        private Shard(int index) {
+            this.index = index;
+        }
+
+        private void offer(DmxSlot slot) {
+            slot.next = null;
+            DmxSlot previous = tail.getAndSet(slot);
+            previous.next = slot;
+        }
+
+        private DmxSlot poll() {
+            DmxSlot first = head;
+            DmxSlot next = first.next;
+            if (first == stub) {
+                if (next == null) return null;
+                head = next;
+                first = next;
+                next = next.next;
+            }
+            if (next != null) {
+                head = next;
+                return first;
+            }
+
+            //a producer is between swapping the tail and linking its slot
+            if (first != tail.get()) return null;
+
+            offer(stub);
+            next = first.next;
+            if (next != null) {
+                head = next;
+                return first;
+            }
+            return null;
+        }
+
+        private long getWaiting() {
+            return enqueued.get() - sent;
+        }
+    }
+
+    //target packets are sent to
+    private final Target target;
+
+    //control packets in order: a bounded ring whose entries carry the position they are ready for
+    private final ControlPacket[] controlLane;
+    private final AtomicLongArray controlSequences;
+    private final AtomicLong controlTail;
+    private volatile long controlHead;
+
+    //DMX lanes; a single one sent by the main thread without shards
+    private final Shard[] shards;
+
+    //whether the DMX lanes have their own threads
+    private final boolean sharded;
+
+    //slot of each port-address; created on first use
+    private final AtomicReferenceArray<DmxSlot> slots;
+
+    //requested ArtSyncs in order, each with the amount of slots every lane has to send before it; guarded by itself
+    private final long[][] syncMarks;
+    private long syncHead, syncTail;
+
+    //amount of DMX data replaced by newer data before it was sent
+    private final AtomicLong coalesced;
+
+    //thread sending control packets and ArtSync
+    private final Thread thread;
+
+    //whether the sender threads keep running
+    private volatile boolean running = true;
+
+    /**
+     * Constructs a new instance of this class and starts a single sender thread.
+     *
+     * @param target    target packets are sent to
+     */
+    public ArtnetSender(Target target) {
+        this(target, 0);
+    }
+
+    /**
+     * Constructs a new instance of this class and starts the sender threads.
+     *
+     * @param target    target packets are sent to
+     * @param shards    amount of threads sending DMX; 0 to send DMX from the main sender thread
+     */
+    public ArtnetSender(Target target, int shards) {
+        if (shards < 0) throw new IllegalArgumentException("shards must not be negative");
+        this.target = target;
+        this.controlLane = new ControlPacket[CONTROL_CAPACITY];
+        this.controlSequences = new AtomicLongArray(CONTROL_CAPACITY);
+        for (int i = 0; i < CONTROL_CAPACITY; i++) {
+            controlLane[i] = new ControlPacket();
+            controlSequences.set(i, i);
+        }
+        this.controlTail = new AtomicLong();
+        this.sharded = shards > 0;
+        this.shards = new Shard[Math.max(shards, 1)];
+        this.slots = new AtomicReferenceArray<>(ArtnetPortAddress.COUNT);
+        this.syncMarks = new long[SYNC_CAPACITY][this.shards.length];
+        this.coalesced = new AtomicLong();
+        this.thread = new Thread(this::run, "ArtnetSender");
+        this.thread.setDaemon(true);
+
+        for (int i = 0; i < this.shards.length; i++) {
+            Shard shard = new Shard(i);
+            if (sharded) {
+                shard.thread = new Thread(() -> runShard(shard), "ArtnetSender shard " + i);
+                shard.thread.setDaemon(true);
+                shard.thread.start();
+            } else {
+                shard.thread = thread;
+            }
+            this.shards[i] = shard;
+        }
+        this.thread.start();
+    }
+
+    /**
+     * Adds an encoded control packet to the control lane. Waits for space if the lane is full.
+     *
+     * @param data      encoded packet; must not be modified afterwards
+     * @param address   address to send the packet to
+     */
+    public void sendControl(byte[] data, InetAddress address) {
+        while (true) {
+            long position = controlTail.get();
+            int index = (int) (position % CONTROL_CAPACITY);
+            long ready = controlSequences.get(index);
+            if (ready == position) {
+                if (controlTail.compareAndSet(position, position + 1)) {
+                    ControlPacket entry = controlLane[index];
+                    entry.data = data;
+                    entry.address = address;
+                    controlSequences.set(index, position + 1);
+                    LockSupport.unpark(thread);
+                    return;
+                }
+            } else if (ready < position) {
+                //full: the entry was not sent yet
+                LockSupport.unpark(thread);
+                LockSupport.parkNanos(100_000);
+            }
+        }
+    }
+
+    /**
+     * Sends the waiting control packets. Only called by the main sender thread.
+     */
+    private void sendControlPackets() {
+        while (true) {
+            long position = controlHead;
+            int index = (int) (position % CONTROL_CAPACITY);
+            if (controlSequences.get(index) != position + 1) return;
+
+            ControlPacket entry = controlLane[index];
+            byte[] data = entry.data;
+            InetAddress address = entry.address;
+            entry.data = null;
+            entry.address = null;
+            controlSequences.set(index, position + CONTROL_CAPACITY);
+            controlHead = position + 1;
+
+            target.sendControl(data, data.length, address);
+        }
+    }
+
+    /**
+     * Sets the DMX data to send to a port-address, replacing data that was not sent yet.
+     *
+     * @param portAddress   15-bit port-address
+     * @param sequence      sequence number (0-255) or AUTO_SEQUENCE
+     * @param physical      physical input port
+     * @param data          array containing the dmx data; copied
+     * @param length        amount of channels to send (0-512)
+     */
+    public void sendDmx(int portAddress, int sequence, byte physical, byte[] data, int length) {
+        if (length < 0 || length > 512) throw new IllegalArgumentException("length has to be between 0 and 512");
+        DmxSlot slot = slots.get(portAddress);
+        if (slot == null) {
+            slots.compareAndSet(portAddress, null, new DmxSlot(portAddress));
+            slot = slots.get(portAddress);
+        }
+
+        synchronized (slot) {
+            System.arraycopy(data, 0, slot.data, 0, length);
+            slot.length = length;
+            slot.sequence = sequence;
+            slot.physical = physical;
+        }
+
+        if (slot.queued.compareAndSet(false, true)) {
+            Shard shard = getShard(portAddress);
+            shard.enqueued.incrementAndGet();
+            shard.offer(slot);
+            LockSupport.unpark(shard.thread);
+        } else {
+            coalesced.incrementAndGet();
+        }
+    }
+
+    /**
+     * Requests an ArtSync after all DMX data added so far.
+     */
+    public void sendSync() {
+        synchronized (syncMarks) {
+            //when full, the newest ArtSync also waits for the data added since it was requested
+            if (syncTail - syncHead < SYNC_CAPACITY) syncTail++;
+            long[] mark = syncMarks[(int) ((syncTail - 1) % SYNC_CAPACITY)];
+            for (int i = 0; i < shards.length; i++) mark[i] = shards[i].enqueued.get();
+        }
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Waits for a given time, e.g. to keep a node's rate limit. The main sender thread keeps sending control
+     * packets while it waits, so that they are not delayed by DMX waiting in an unsharded lane.
+     *
+     * @param nanos time to wait in nanoseconds
+     */
+    public void waitNanos(long nanos) {
+        long deadline = System.nanoTime() + nanos;
+        boolean mainThread = Thread.currentThread() == thread;
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            //producers of control packets unpark the main thread
+            if (mainThread) sendControlPackets();
+            LockSupport.parkNanos(remaining);
+        }
+        if (mainThread) sendControlPackets();
+    }
+
+    /**
+     * Returns the shard sending a port-address.
+     *
+     * @param portAddress   15-bit port-address
+     * @return              the shard
+     */
+    private Shard getShard(int portAddress) {
+        return shards[portAddress % shards.length];
+    }
+
+    /**
+     * Sends packets until stopped; control packets first, then ArtSyncs whose DMX was sent, then DMX without shards.
+     */
+    private void run() {
+        while (running || hasWaiting()) {
+            try {
+                sendControlPackets();
+                boolean syncWaiting = sendSyncs();
+
+                if (!sharded && sendNext(shards[0])) continue;
+
+                if (running && !hasControlWaiting()) {
+                    //shards unpark this thread when they sent the data the oldest ArtSync waits for
+                    if (!syncWaiting || prepareWake()) LockSupport.park(this);
+                }
+            } catch (RuntimeException e) {
+                //keep sending even if a single packet fails
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Sends the ArtSyncs whose DMX data was sent.
+     *
+     * @return whether an ArtSync still waits
+     */
+    private boolean sendSyncs() {
+        while (true) {
+            synchronized (syncMarks) {
+                if (syncHead == syncTail) return false;
+                if (!isSent(syncMarks[(int) (syncHead % SYNC_CAPACITY)])) return true;
+                syncHead++;
+            }
+            target.sendSync();
+        }
+    }
+
+    /**
+     * Tells the shards when to wake the main thread for the oldest waiting ArtSync.
+     *
+     * @return whether the main thread can park; false if the ArtSync can already be sent
+     */
+    private boolean prepareWake() {
+        synchronized (syncMarks) {
+            if (syncHead == syncTail) return true;
+            long[] mark = syncMarks[(int) (syncHead % SYNC_CAPACITY)];
+            for (int i = 0; i < shards.length; i++) shards[i].wakeAt = mark[i];
+
+            //checked after publishing wakeAt, so that a shard reaching it in between is not missed
+            return !isSent(mark);
+        }
+    }
+
+    /**
+     * Sends the DMX lane of a shard until stopped.
+     *
+     * @param shard the shard
+     */
+    private void runShard(Shard shard) {
+        while (running || shard.getWaiting() > 0) {
+            try {
+                if (sendNext(shard)) {
+                    //wake the main thread once this lane sent everything an ArtSync waits for
+                    if (shard.sent == shard.wakeAt) LockSupport.unpark(thread);
+                } else if (running) {
+                    LockSupport.park(this);
+                }
+            } catch (RuntimeException e) {
+                //keep sending even if a single packet fails
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Sends the next waiting DMX data of a shard.
+     *
+     * @param shard the shard
+     * @return      whether data was sent
+     */
+    private boolean sendNext(Shard shard) {
+        DmxSlot slot = shard.poll();
+        if (slot == null) return false;
+
+        try {
+            //data added from now on queues the slot again
+            slot.queued.set(false);
+            int length, sequence;
+            byte physical;
+            synchronized (slot) {
+                length = slot.length;
+                sequence = slot.sequence;
+                physical = slot.physical;
+                System.arraycopy(slot.data, 0, shard.buffer, 0, length);
+            }
+            target.sendDmx(shard.index, slot.portAddress, sequence, physical, shard.buffer, length);
+            return true;
+        } finally {
+            shard.sent++;
+        }
+    }
+
+    /**
+     * Returns whether every lane sent the slots an ArtSync waits for.
+     *
+     * @param mark  amount of slots each lane has to send
+     * @return      whether the ArtSync can be sent
+     */
+    private boolean isSent(long[] mark) {
+        for (int i = 0; i < shards.length; i++) if (shards[i].sent < mark[i]) return false;
+        return true;
+    }
+
+    private boolean hasControlWaiting() {
+        return controlTail.get() != controlHead;
+    }
+
+    /**
+     * Returns whether packets wait to be sent by the main sender thread.
+     *
+     * @return whether the control lane, an unsharded DMX lane or an ArtSync waits
+     */
+    private boolean hasWaiting() {
+        if (hasControlWaiting() || (!sharded && shards[0].getWaiting() > 0)) return true;
+        synchronized (syncMarks) {
+            return syncHead != syncTail;
+        }
+    }
+
+    /**
+     * Stops the sender threads after sending all waiting packets.
+     */
+    public void stop() {
+        running = false;
+        try {
+            if (sharded) {
+                for (Shard shard : shards) {
+                    LockSupport.unpark(shard.thread);
+                    shard.thread.join();
+                }
+            }
+            LockSupport.unpark(thread);
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the amount of threads sending DMX.
+     *
+     * @return amount of shards; 0 if DMX is sent by the main sender thread
+     */
+    public int getShards() {
+        return sharded ? shards.length : 0;
+    }
+
+    /**
+     * Returns the amount of DMX data that was replaced by newer data before it was sent.
+     *
+     * @return amount of coalesced DMX data
+     */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    /**
+     * Returns the amount of packets and port-addresses waiting to be sent.
+     *
+     * @return amount of waiting control packets and port-addresses with DMX data
+     */
+    public int getWaiting() {
+        long waiting = controlTail.get() - controlHead;
+        for (Shard shard : shards) waiting += shard.getWaiting();
+        return (int) waiting;
+    }
+}
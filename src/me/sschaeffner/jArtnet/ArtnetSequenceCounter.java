@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet;
+
+/**
+ * Assigns ArtDmx sequence numbers, counting separately for every port-address.
+ *
+ * Sequence numbers run from 1 to 255 and wrap back to 1; 0 is skipped because it tells nodes to disable
+ * reordering. Nodes use them to drop ArtDmx packets that arrive after a newer one.
+ *
+ * @author sschaeffner
+ */
+public class ArtnetSequenceCounter {
+
+    //last sequence number sent to each port-address, 0 if none; guarded by this
+    private final byte[] sequences;
+
+    /**
+     * Constructs a new instance of this class.
+     */
+    public ArtnetSequenceCounter() {
+        this.sequences = new byte[ArtnetPortAddress.COUNT];
+    }
+
+    /**
+     * Returns the next sequence number for a port-address.
+     *
+     * @param portAddress   15-bit port-address
+     * @return              sequence number (1-255)
+     */
+    public synchronized byte next(int portAddress) {
+        byte sequence = next(sequences[portAddress]);
+        sequences[portAddress] = sequence;
+        return sequence;
+    }
+
+    /**
+     * Returns the sequence number following another one.
+     *
+     * @param sequence  sequence number
+     * @return          the following sequence number (1-255)
+     */
+    public static byte next(byte sequence) {
+        return sequence == (byte) 0xFF ? 1 : (byte) (sequence + 1);
+    }
+
+    /**
+     * Returns the last sequence number sent to a port-address.
+     *
+     * @param portAddress   15-bit port-address
+     * @return              sequence number, 0 if nothing was sent yet
+     */
+    public synchronized byte get(int portAddress) {
+        return sequences[portAddress];
+    }
+}
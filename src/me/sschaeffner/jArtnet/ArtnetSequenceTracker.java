@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks the sequence numbers of received ArtDmx packets per port-address to count lost and reordered packets.
+ *
+ * A packet whose sequence number is up to half the sequence range ahead of the previous one is in order; the
+ * numbers skipped in between are assumed lost until they arrive late and count as reordered instead. Packets with
+ * sequence number 0 do not use sequencing and are only counted as received.
+ *
+ * Tracking does not allocate; it is done by the receiver thread while the counters can be read from any thread.
+ *
+ * @author sschaeffner
+ */
+public class ArtnetSequenceTracker {
+
+    //amount of sequence numbers that are used (1-255)
+    private static final int RANGE = 255;
+
+    //last in-order sequence number of each port-address, 0 if none
+    private final byte[] sequences;
+
+    private final AtomicLong received;
+    private final AtomicLong skipped;
+    private final AtomicLong reordered;
+    private final AtomicLong duplicates;
+
+    /**
+     * Constructs a new instance of this class.
+     */
+    public ArtnetSequenceTracker() {
+        this.sequences = new byte[ArtnetPortAddress.COUNT];
+        this.received = new AtomicLong();
+        this.skipped = new AtomicLong();
+        this.reordered = new AtomicLong();
+        this.duplicates = new AtomicLong();
+    }
+
+    /**
+     * Tracks a received ArtDmx packet.
+     *
+     * @param portAddress   15-bit port-address of the packet
+     * @param sequence      sequence number of the packet
+     * @return              whether the packet is newer than every packet received before for its port-address
+     */
+    public boolean track(int portAddress, byte sequence) {
+        received.incrementAndGet();
+        if (sequence == 0) return true;
+
+        byte last = sequences[portAddress];
+        if (last == 0) {
+            sequences[portAddress] = sequence;
+            return true;
+        }
+
+        //distance on the ring of sequence numbers 1-255
+        int distance = ((sequence & 0xFF) - (last & 0xFF) + RANGE) % RANGE;
+        if (distance == 0) {
+            duplicates.incrementAndGet();
+            return false;
+        } else if (distance <= RANGE / 2) {
+            if (distance > 1) skipped.addAndGet(distance - 1);
+            sequences[portAddress] = sequence;
+            return true;
+        } else {
+            reordered.incrementAndGet();
+            return false;
+        }
+    }
+
+    /**
+     * Returns the last in-order sequence number received for a port-address.
+     *
+     * @param portAddress   15-bit port-address
+     * @return              sequence number, 0 if none was received
+     */
+    public byte get(int portAddress) {
+        return sequences[portAddress];
+    }
+
+    public long getReceived() {
+        return received.get();
+    }
+
+    /**
+     * Returns how many packets were skipped and never arrived late.
+     *
+     * Late repetitions of packets that were already received count as reordered as well, so this is an estimate.
+     *
+     * @return estimated amount of lost packets
+     */
+    public long getLost() {
+        return Math.max(0, skipped.get() - reordered.get());
+    }
+
+    public long getReordered() {
+        return reordered.get();
+    }
+
+    public long getDuplicates() {
+        return duplicates.get();
+    }
+
+    @Override
+    public String toString() {
+        return "ArtnetSequenceTracker{received=" + getReceived() + "; lost=" + getLost() +
+                "; reordered=" + getReordered() + "; duplicates=" + getDuplicates() + "}";
+    }
+}
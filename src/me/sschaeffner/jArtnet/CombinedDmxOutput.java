@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet;
+
+import java.util.Arrays;
+
+/**
+ * Emits the DMX data of each universe through a selection of several outputs, e.g. Art-Net, sACN or both.
+ *
+ * All outputs are fed from the same data in the same frame, so universes stay aligned across protocols.
+ *
+ * @author sschaeffner
+ */
+public class CombinedDmxOutput implements DmxOutput {
+
+    //outputs to send through
+    private final DmxOutput[] outputs;
+
+    //bit mask of the outputs used by each port-address; bit i selects outputs[i]
+    private final byte[] outputMasks;
+
+    /**
+     * Constructs a new instance of this class sending every universe through all outputs.
+     *
+     * @param outputs   outputs to send through (up to 8)
+     */
+    public CombinedDmxOutput(DmxOutput... outputs) {
+        if (outputs.length > 8) throw new IllegalArgumentException("at most 8 outputs can be combined");
+        this.outputs = outputs.clone();
+        this.outputMasks = new byte[ArtnetPortAddress.COUNT];
+        Arrays.fill(outputMasks, (byte) ((1 << outputs.length) - 1));
+    }
+
+    /**
+     * Selects the outputs a universe is sent through.
+     *
+     * @param portAddress   15-bit port-address
+     * @param outputs       outputs to use; all of them have to be part of this combined output
+     */
+    public void setOutputs(int portAddress, DmxOutput... outputs) {
+        ArtnetPortAddress.check(portAddress);
+        int mask = 0;
+        for (DmxOutput output : outputs) {
+            int index = Arrays.asList(this.outputs).indexOf(output);
+            if (index < 0) throw new IllegalArgumentException("output is not part of this combined output");
+            mask |= 1 << index;
+        }
+        outputMasks[portAddress] = (byte) mask;
+    }
+
+    @Override
+    public void sendDmx(int portAddress, byte[] data, int length) {
+        int mask = outputMasks[portAddress];
+        for (int i = 0; i < outputs.length; i++) {
+            if ((mask & (1 << i)) != 0) outputs[i].sendDmx(portAddress, data, length);
+        }
+    }
+
+    @Override
+    public void endFrame() {
+        for (DmxOutput output : outputs) output.endFrame();
+    }
+
+    @Override
+    public void close() {
+        for (DmxOutput output : outputs) output.close();
+    }
+}
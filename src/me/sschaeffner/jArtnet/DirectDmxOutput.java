@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Emits ready-made ArtDmx packets, e.g. straight from a {@link DirectUniverseStore} without copying them.
+ *
+ * @author sschaeffner
+ */
+public interface DirectDmxOutput {
+
+    /**
+     * Sends the ArtDmx packet of a universe. The packet's bytes may be changed (e.g. its sequence number) but must
+     * not be kept after returning.
+     *
+     * @param portAddress   15-bit port-address
+     * @param packet        ArtDmx packet between the buffer's position and limit
+     */
+    void sendArtDmx(int portAddress, ByteBuffer packet);
+
+    /**
+     * Ends a frame after the packets of all its universes were sent, e.g. to output them synchronously.
+     */
+    default void endFrame() {
+    }
+}
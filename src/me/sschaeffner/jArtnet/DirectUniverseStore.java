@@ -0,0 +1,480 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet;
+
+import me.sschaeffner.jArtnet.packets.ArtDmxPacket;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Holds the DMX data of all 32,768 universes outside the Java heap, each as a ready-to-send ArtDmx packet.
+ *
+ * Memory is allocated in direct buffers of 256 universes (one net) when their first channel is set, so the garbage
+ * collector never scans channel data. Every universe is stored with its ArtDmx header in front of it, so that it
+ * is sent without ever being copied into the heap.
+ *
+ * Universes are guarded by striped locks: threads writing universes with different low bytes of their
+ * port-addresses never contend. Changed universes are tracked in lock-free bitmaps. To send a universe, its packet
+ * is copied into a direct send buffer while its stripe is held and sent after the stripe is released, so writers
+ * never wait for the network.
+ *
+ * The store is sent by calling {@link #sendDirty(DirectDmxOutput)} from an own loop; it is not driven by a
+ * DmxOutputEngine.
+ *
+ * @author sschaeffner
+ */
+public class DirectUniverseStore {
+
+    //size of a universe in the store: ArtDmx header and 512 channels
+    public static final int SLOT_SIZE = ArtDmxPacket.HEADER_LENGTH + 512;
+
+    //amount of universes per direct buffer
+    private static final int UNIVERSES_PER_CHUNK = 256;
+
+    //amount of locks universes are spread across
+    private static final int STRIPES = 256;
+
+    //offsets of the ArtDmx length field within a slot
+    private static final int LENGTH_HI = 16;
+    private static final int LENGTH_LO = 17;
+
+    //direct buffers holding the universes of one net each; created on first use
+    private final AtomicReferenceArray<ByteBuffer> chunks;
+
+    //locks guarding the universes whose port-addresses share their low byte
+    private final Object[] stripes;
+
+    //amount of channels covered by the highest channel set in each universe; guarded by the universe's stripe
+    private final int[] highWaterMarks;
+
+    //universes changed since they were last sent and universes in use, one bit each
+    private final AtomicLongArray dirty, used;
+
+    //copy of the universe being sent; guarded by itself, which serializes sending
+    private final ByteBuffer sendBuffer;
+
+    //views of the direct buffers to copy universes from; guarded by sendBuffer
+    private final ByteBuffer[] sendViews;
+
+    /**
+     * Constructs a new instance of this class; no memory for universes is allocated yet.
+     */
+    public DirectUniverseStore() {
+        this.chunks = new AtomicReferenceArray<>(ArtnetPortAddress.COUNT / UNIVERSES_PER_CHUNK);
+        this.stripes = new Object[STRIPES];
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new Object();
+        this.highWaterMarks = new int[ArtnetPortAddress.COUNT];
+        this.dirty = new AtomicLongArray(ArtnetPortAddress.COUNT / 64);
+        this.used = new AtomicLongArray(ArtnetPortAddress.COUNT / 64);
+        this.sendBuffer = ByteBuffer.allocateDirect(SLOT_SIZE);
+        this.sendViews = new ByteBuffer[ArtnetPortAddress.COUNT / UNIVERSES_PER_CHUNK];
+    }
+
+    /**
+     * Sets a channel; the universe is only marked as changed if the value differs.
+     *
+     * @param portAddress   15-bit port-address
+     * @param channel       channel (0-511)
+     * @param value         value (0-255)
+     */
+    public void setChannel(int portAddress, int channel, int value) {
+        checkChannels(channel, 1);
+        ByteBuffer chunk = getChunk(portAddress);
+        int index = getOffset(portAddress) + ArtDmxPacket.HEADER_LENGTH + channel;
+        synchronized (getStripe(portAddress)) {
+            raiseHighWaterMark(portAddress, channel + 1);
+            if (chunk.get(index) != (byte) value) {
+                chunk.put(index, (byte) value);
+                setBit(dirty, portAddress);
+            }
+        }
+    }
+
+    /**
+     * Sets consecutive channels.
+     *
+     * @param portAddress   15-bit port-address
+     * @param channel       first channel (0-511)
+     * @param values        array containing the values
+     * @param offset        position of the first value in values
+     * @param length        amount of channels to set
+     */
+    public void setChannels(int portAddress, int channel, byte[] values, int offset, int length) {
+        checkChannels(channel, length);
+        ByteBuffer chunk = getChunk(portAddress);
+        int index = getOffset(portAddress) + ArtDmxPacket.HEADER_LENGTH + channel;
+        synchronized (getStripe(portAddress)) {
+            raiseHighWaterMark(portAddress, channel + length);
+            for (int i = 0; i < length; i++) {
+                if (chunk.get(index + i) != values[offset + i]) {
+                    ByteBuffer target = chunk.duplicate();
+                    target.position(index + i);
+                    target.put(values, offset + i, length - i);
+                    setBit(dirty, portAddress);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets consecutive channels to the same value.
+     *
+     * @param portAddress   15-bit port-address
+     * @param channel       first channel (0-511)
+     * @param length        amount of channels to set
+     * @param value         value (0-255)
+     */
+    public void fill(int portAddress, int channel, int length, int value) {
+        checkChannels(channel, length);
+        ByteBuffer chunk = getChunk(portAddress);
+        int index = getOffset(portAddress) + ArtDmxPacket.HEADER_LENGTH + channel;
+        synchronized (getStripe(portAddress)) {
+            raiseHighWaterMark(portAddress, channel + length);
+            boolean changed = false;
+            for (int i = index; i < index + length; i++) {
+                if (chunk.get(i) != (byte) value) {
+                    chunk.put(i, (byte) value);
+                    changed = true;
+                }
+            }
+            if (changed) setBit(dirty, portAddress);
+        }
+    }
+
+    /**
+     * Copies consecutive channels from one universe to another. A source universe that was never used reads as zeros
+     * and stays unused.
+     *
+     * @param sourcePortAddress 15-bit port-address to copy from
+     * @param sourceChannel     first channel to copy (0-511)
+     * @param portAddress       15-bit port-address to copy to
+     * @param channel           first channel to copy to (0-511)
+     * @param length            amount of channels to copy
+     */
+    public void copy(int sourcePortAddress, int sourceChannel, int portAddress, int channel, int length) {
+        checkChannels(sourceChannel, length);
+        checkChannels(channel, length);
+        ByteBuffer source = chunks.get(ArtnetPortAddress.check(sourcePortAddress) / UNIVERSES_PER_CHUNK);
+        ByteBuffer chunk = getChunk(portAddress);
+        int sourceIndex = getOffset(sourcePortAddress) + ArtDmxPacket.HEADER_LENGTH + sourceChannel;
+        int index = getOffset(portAddress) + ArtDmxPacket.HEADER_LENGTH + channel;
+
+        //lock both stripes in a fixed order
+        Object first = getStripe(Math.min(sourcePortAddress & 0xFF, portAddress & 0xFF));
+        Object second = getStripe(Math.max(sourcePortAddress & 0xFF, portAddress & 0xFF));
+        synchronized (first) {
+            synchronized (second) {
+                raiseHighWaterMark(portAddress, channel + length);
+                boolean changed = false;
+                if (source == chunk && sourceIndex < index) {
+                    //overlapping ranges within a universe are copied backwards
+                    for (int i = length - 1; i >= 0; i--) changed |= copyChannel(source, sourceIndex + i, chunk, index + i);
+                } else {
+                    for (int i = 0; i < length; i++) changed |= copyChannel(source, sourceIndex + i, chunk, index + i);
+                }
+                if (changed) setBit(dirty, portAddress);
+            }
+        }
+    }
+
+    /**
+     * Copies a single channel; a missing source reads as 0.
+     *
+     * @return whether the channel changed
+     */
+    private static boolean copyChannel(ByteBuffer source, int sourceIndex, ByteBuffer target, int index) {
+        byte value = source != null ? source.get(sourceIndex) : 0;
+        if (target.get(index) == value) return false;
+        target.put(index, value);
+        return true;
+    }
+
+    /**
+     * Returns the value of a channel.
+     *
+     * @param portAddress   15-bit port-address
+     * @param channel       channel (0-511)
+     * @return              value (0-255)
+     */
+    public int getChannel(int portAddress, int channel) {
+        checkChannels(channel, 1);
+        ByteBuffer chunk = chunks.get(ArtnetPortAddress.check(portAddress) / UNIVERSES_PER_CHUNK);
+        if (chunk == null) return 0;
+        synchronized (getStripe(portAddress)) {
+            return chunk.get(getOffset(portAddress) + ArtDmxPacket.HEADER_LENGTH + channel) & 0xFF;
+        }
+    }
+
+    /**
+     * Copies consecutive channels into an array.
+     *
+     * @param portAddress   15-bit port-address
+     * @param channel       first channel (0-511)
+     * @param values        array to copy the values to
+     * @param offset        position of the first value in values
+     * @param length        amount of channels to copy
+     */
+    public void getChannels(int portAddress, int channel, byte[] values, int offset, int length) {
+        checkChannels(channel, length);
+        ByteBuffer chunk = chunks.get(ArtnetPortAddress.check(portAddress) / UNIVERSES_PER_CHUNK);
+        if (chunk == null) {
+            for (int i = offset; i < offset + length; i++) values[i] = 0;
+            return;
+        }
+        synchronized (getStripe(portAddress)) {
+            ByteBuffer source = chunk.duplicate();
+            source.position(getOffset(portAddress) + ArtDmxPacket.HEADER_LENGTH + channel);
+            source.get(values, offset, length);
+        }
+    }
+
+    /**
+     * Sets all channels of a universe to 0; the length stays the same so that the zeros are sent.
+     *
+     * @param portAddress   15-bit port-address
+     */
+    public void clear(int portAddress) {
+        if (!isUsed(portAddress)) return;
+        ByteBuffer chunk = getChunk(portAddress);
+        int index = getOffset(portAddress) + ArtDmxPacket.HEADER_LENGTH;
+        synchronized (getStripe(portAddress)) {
+            boolean changed = false;
+            for (int i = index; i < index + highWaterMarks[portAddress]; i++) {
+                if (chunk.get(i) != 0) {
+                    chunk.put(i, (byte) 0);
+                    changed = true;
+                }
+            }
+            if (changed) setBit(dirty, portAddress);
+        }
+    }
+
+    /**
+     * Returns the length a universe is sent with: the amount of channels up to the highest one set, rounded up to
+     * an even number and at least 2.
+     *
+     * @param portAddress   15-bit port-address
+     * @return              length (2-512)
+     */
+    public int getLength(int portAddress) {
+        synchronized (getStripe(ArtnetPortAddress.check(portAddress))) {
+            return Math.max(DmxUniverseStore.MIN_LENGTH, (highWaterMarks[portAddress] + 1) & ~1);
+        }
+    }
+
+    /**
+     * Marks a universe as changed so that it is sent again.
+     *
+     * @param portAddress   15-bit port-address
+     */
+    public void markDirty(int portAddress) {
+        if (isUsed(portAddress)) setBit(dirty, portAddress);
+    }
+
+    public boolean isDirty(int portAddress) {
+        return getBit(dirty, ArtnetPortAddress.check(portAddress));
+    }
+
+    public int getDirtyCount() {
+        return countBits(dirty);
+    }
+
+    /**
+     * Returns whether a channel of a universe was set.
+     *
+     * @param portAddress   15-bit port-address
+     * @return              whether the universe is in use
+     */
+    public boolean isUsed(int portAddress) {
+        return getBit(used, ArtnetPortAddress.check(portAddress));
+    }
+
+    public int getUsedCount() {
+        return countBits(used);
+    }
+
+    /**
+     * Returns the amount of direct memory allocated for universes.
+     *
+     * @return amount of bytes
+     */
+    public long getAllocatedBytes() {
+        long bytes = 0;
+        for (int i = 0; i < chunks.length(); i++) if (chunks.get(i) != null) bytes += chunks.get(i).capacity();
+        return bytes;
+    }
+
+    /**
+     * Sends all universes that changed since they were last sent.
+     *
+     * @param output    output to send through
+     * @return          amount of universes sent
+     */
+    public int sendDirty(DirectDmxOutput output) {
+        int count = 0;
+        for (int word = 0; word < dirty.length(); word++) {
+            if (dirty.get(word) == 0) continue;
+            long bits = dirty.getAndSet(word, 0);
+            while (bits != 0) {
+                int portAddress = word * 64 + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                sendUniverse(portAddress, output);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Sends a universe whether it changed or not and clears its changed mark.
+     *
+     * @param portAddress   15-bit port-address
+     * @param output        output to send through
+     */
+    public void send(int portAddress, DirectDmxOutput output) {
+        if (!isUsed(portAddress)) return;
+        clearBit(dirty, portAddress);
+        sendUniverse(portAddress, output);
+    }
+
+    /**
+     * Copies the ArtDmx packet of a universe into the send buffer while holding the universe's stripe, so that no
+     * channel changes while it is copied, and hands it to an output after releasing the stripe.
+     *
+     * @param portAddress   15-bit port-address
+     * @param output        output to send through
+     */
+    private void sendUniverse(int portAddress, DirectDmxOutput output) {
+        int index = portAddress / UNIVERSES_PER_CHUNK;
+        int offset = getOffset(portAddress);
+        synchronized (sendBuffer) {
+            ByteBuffer source = sendViews[index];
+            if (source == null) {
+                source = chunks.get(index).duplicate();
+                sendViews[index] = source;
+            }
+
+            int length;
+            sendBuffer.clear();
+            synchronized (getStripe(portAddress)) {
+                length = Math.max(DmxUniverseStore.MIN_LENGTH, (highWaterMarks[portAddress] + 1) & ~1);
+                source.limit(offset + ArtDmxPacket.HEADER_LENGTH + length);
+                source.position(offset);
+                sendBuffer.put(source);
+            }
+            sendBuffer.put(LENGTH_HI, (byte) (length >> 8));
+            sendBuffer.put(LENGTH_LO, (byte) length);
+            sendBuffer.flip();
+            output.sendArtDmx(portAddress, sendBuffer);
+        }
+    }
+
+    /**
+     * Returns the direct buffer holding a universe, allocating it on first use.
+     *
+     * @param portAddress   15-bit port-address
+     * @return              direct buffer of the universe's net
+     */
+    private ByteBuffer getChunk(int portAddress) {
+        int index = ArtnetPortAddress.check(portAddress) / UNIVERSES_PER_CHUNK;
+        ByteBuffer chunk = chunks.get(index);
+        if (chunk == null) {
+            chunk = ByteBuffer.allocateDirect(UNIVERSES_PER_CHUNK * SLOT_SIZE);
+            byte[] header = new byte[ArtDmxPacket.HEADER_LENGTH];
+            for (int i = 0; i < UNIVERSES_PER_CHUNK; i++) {
+                ArtDmxPacket.write(header, 0, (byte) 0, (byte) 0, index * UNIVERSES_PER_CHUNK + i, header, 0, 0);
+                chunk.position(i * SLOT_SIZE);
+                chunk.put(header);
+            }
+            chunk.clear();
+            if (!chunks.compareAndSet(index, null, chunk)) chunk = chunks.get(index);
+        }
+        setBit(used, portAddress);
+        return chunk;
+    }
+
+    /**
+     * Returns the position of a universe's slot within its direct buffer.
+     *
+     * @param portAddress   15-bit port-address
+     * @return              offset of the slot's ArtDmx header
+     */
+    private static int getOffset(int portAddress) {
+        return (portAddress % UNIVERSES_PER_CHUNK) * SLOT_SIZE;
+    }
+
+    /**
+     * Returns the lock guarding a universe.
+     *
+     * @param portAddress   15-bit port-address
+     * @return              lock of the universe's stripe
+     */
+    private Object getStripe(int portAddress) {
+        return stripes[portAddress % STRIPES];
+    }
+
+    /**
+     * Raises the high-water mark of a universe. Has to be called while holding the universe's stripe.
+     */
+    private void raiseHighWaterMark(int portAddress, int channels) {
+        if (channels > highWaterMarks[portAddress]) highWaterMarks[portAddress] = channels;
+    }
+
+    private static void setBit(AtomicLongArray bits, int index) {
+        long mask = 1L << index;
+        int word = index >>> 6;
+        long current;
+        while (((current = bits.get(word)) & mask) == 0) {
+            if (bits.compareAndSet(word, current, current | mask)) return;
+        }
+    }
+
+    private static void clearBit(AtomicLongArray bits, int index) {
+        long mask = 1L << index;
+        int word = index >>> 6;
+        long current;
+        while (((current = bits.get(word)) & mask) != 0) {
+            if (bits.compareAndSet(word, current, current & ~mask)) return;
+        }
+    }
+
+    private static boolean getBit(AtomicLongArray bits, int index) {
+        return (bits.get(index >>> 6) & (1L << index)) != 0;
+    }
+
+    private static int countBits(AtomicLongArray bits) {
+        int count = 0;
+        for (int i = 0; i < bits.length(); i++) count += Long.bitCount(bits.get(i));
+        return count;
+    }
+
+    /**
+     * Checks whether a range of channels lies within a universe.
+     *
+     * @param channel   first channel
+     * @param length    amount of channels
+     */
+    private static void checkChannels(int channel, int length) {
+        if (channel < 0 || length < 0 || channel + length > 512) {
+            throw new IllegalArgumentException("channels " + channel + " to " + (channel + length - 1) + " are not within 0 to 511");
+        }
+    }
+}
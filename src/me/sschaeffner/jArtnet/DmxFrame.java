@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet;
+
+/**
+ * One of the frames of a DmxFrameBuffer: the DMX data of all universes as committed together.
+ *
+ * Channels can only be set on the frame returned by {@link DmxFrameBuffer#begin()} until the frame is committed.
+ *
+ * @author sschaeffner
+ */
+public class DmxFrame {
+
+    //buffer the frame belongs to
+    private final DmxFrameBuffer owner;
+
+    //channels of each universe; allocated on first use
+    final byte[][] universes;
+
+    //amount of channels covered by the highest channel set in each universe
+    final int[] highWaterMarks;
+
+    //commit each universe was last changed in
+    final long[] generations;
+
+    //port-addresses of the universes in use, in the order they were first set
+    int[] portAddresses;
+    int usedCount;
+
+    /**
+     * Constructs a new instance of this class.
+     *
+     * @param owner buffer the frame belongs to
+     */
+    DmxFrame(DmxFrameBuffer owner) {
+        this.owner = owner;
+        this.universes = new byte[ArtnetPortAddress.COUNT][];
+        this.highWaterMarks = new int[ArtnetPortAddress.COUNT];
+        this.generations = new long[ArtnetPortAddress.COUNT];
+        this.portAddresses = new int[16];
+    }
+
+    /**
+     * Sets a channel.
+     *
+     * @param portAddress   15-bit port-address
+     * @param channel       channel (0-511)
+     * @param value         value (0-255)
+     */
+    public void setChannel(int portAddress, int channel, int value) {
+        checkChannels(channel, 1);
+        byte[] universe = write(portAddress, channel + 1);
+        universe[channel] = (byte) value;
+    }
+
+    /**
+     * Sets consecutive channels.
+     *
+     * @param portAddress   15-bit port-address
+     * @param channel       first channel (0-511)
+     * @param values        array containing the values
+     * @param offset        position of the first value in values
+     * @param length        amount of channels to set
+     */
+    public void setChannels(int portAddress, int channel, byte[] values, int offset, int length) {
+        checkChannels(channel, length);
+        byte[] universe = write(portAddress, channel + length);
+        System.arraycopy(values, offset, universe, channel, length);
+    }
+
+    /**
+     * Sets consecutive channels to the same value.
+     *
+     * @param portAddress   15-bit port-address
+     * @param channel       first channel (0-511)
+     * @param length        amount of channels to set
+     * @param value         value (0-255)
+     */
+    public void fill(int portAddress, int channel, int length, int value) {
+        checkChannels(channel, length);
+        byte[] universe = write(portAddress, channel + length);
+        for (int i = channel; i < channel + length; i++) universe[i] = (byte) value;
+    }
+
+    /**
+     * Returns the value of a channel.
+     *
+     * @param portAddress   15-bit port-address
+     * @param channel       channel (0-511)
+     * @return              value (0-255)
+     */
+    public int getChannel(int portAddress, int channel) {
+        checkChannels(channel, 1);
+        byte[] universe = universes[ArtnetPortAddress.check(portAddress)];
+        return universe != null ? universe[channel] & 0xFF : 0;
+    }
+
+    /**
+     * Returns the amount of channels covered by the highest channel set in a universe.
+     *
+     * @param portAddress   15-bit port-address
+     * @return              amount of channels (0-512)
+     */
+    public int getHighWaterMark(int portAddress) {
+        return highWaterMarks[ArtnetPortAddress.check(portAddress)];
+    }
+
+    /**
+     * Returns the commit a universe was last changed in.
+     *
+     * @param portAddress   15-bit port-address
+     * @return              number of the commit; 0 if the universe was never set
+     */
+    public long getGeneration(int portAddress) {
+        return generations[ArtnetPortAddress.check(portAddress)];
+    }
+
+    /**
+     * Prepares a universe for being written in the open transaction.
+     *
+     * @param portAddress   15-bit port-address
+     * @param channels      amount of channels up to the highest one written
+     * @return              the universe's channels
+     */
+    private byte[] write(int portAddress, int channels) {
+        owner.checkWritable(this);
+        byte[] universe = allocate(ArtnetPortAddress.check(portAddress));
+        if (channels > highWaterMarks[portAddress]) highWaterMarks[portAddress] = channels;
+        owner.touch(this, portAddress);
+        return universe;
+    }
+
+    /**
+     * Returns the channels of a universe, allocating them on first use.
+     *
+     * @param portAddress   15-bit port-address
+     * @return              512 channels
+     */
+    byte[] allocate(int portAddress) {
+        byte[] universe = universes[portAddress];
+        if (universe == null) {
+            universe = new byte[512];
+            universes[portAddress] = universe;
+            if (usedCount == portAddresses.length) {
+                int[] grown = new int[portAddresses.length * 2];
+                System.arraycopy(portAddresses, 0, grown, 0, usedCount);
+                portAddresses = grown;
+            }
+            portAddresses[usedCount++] = portAddress;
+        }
+        return universe;
+    }
+
+    /**
+     * Copies a universe from another frame of the same buffer, including its length and generation.
+     *
+     * @param source        frame to copy from
+     * @param portAddress   15-bit port-address
+     */
+    void copyFrom(DmxFrame source, int portAddress) {
+        byte[] universe = allocate(portAddress);
+        byte[] sourceUniverse = source.universes[portAddress];
+        System.arraycopy(sourceUniverse, 0, universe, 0, Math.max(highWaterMarks[portAddress], source.highWaterMarks[portAddress]));
+        highWaterMarks[portAddress] = source.highWaterMarks[portAddress];
+        generations[portAddress] = source.generations[portAddress];
+    }
+
+    private static void checkChannels(int channel, int length) {
+        if (channel < 0 || length < 0 || channel + length > 512) {
+            throw new IllegalArgumentException("channels have to be between 0 and 511");
+        }
+    }
+}
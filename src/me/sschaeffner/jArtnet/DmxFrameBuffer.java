@@ -0,0 +1,238 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands whole frames of DMX data from writers to a sender, so that no universe is ever sent half-updated.
+ *
+ * Writers change channels between {@link #begin()} and {@link #commit()} on a back frame. The sender reads the
+ * last committed frame through {@link #acquire()}. The three frames are swapped lock-free, so writers and the sender
+ * never wait for each other. Writers wait for each other: only one transaction is open at a time.
+ *
+ * Every universe of a frame carries the number of the commit it was last changed in. Only universes changed since
+ * a frame was last written are copied when it is reused, and the sender only picks up universes whose generation
+ * changed.
+ *
+ * @author sschaeffner
+ */
+public class DmxFrameBuffer {
+
+    //flag of the swap state marking a committed frame the sender has not acquired yet
+    private static final int FRESH = 4;
+
+    //the three frames
+    private final DmxFrame[] frames;
+
+    //index of the frame between writers and the sender, combined with FRESH
+    private final AtomicInteger state;
+
+    //index of the frame written by writers; guarded by writeLock
+    private int back;
+
+    //index of the frame read by the sender; only used by the sending thread
+    private int front;
+
+    //serializes transactions
+    private final ReentrantLock writeLock;
+
+    //frame of the open transaction or null; guarded by writeLock
+    private DmxFrame writing;
+
+    //frame committed last; never written again until it is the back frame; guarded by writeLock
+    private DmxFrame committed;
+
+    //port-addresses changed in the open transaction; guarded by writeLock
+    private int[] touched;
+    private int touchedCount;
+
+    //amount of commits; the generation of the next commit is one higher
+    private volatile long commits;
+
+    /**
+     * Constructs a new instance of this class.
+     */
+    public DmxFrameBuffer() {
+        this.frames = new DmxFrame[]{new DmxFrame(this), new DmxFrame(this), new DmxFrame(this)};
+        this.back = 0;
+        this.state = new AtomicInteger(1);
+        this.front = 2;
+        this.writeLock = new ReentrantLock();
+        this.touched = new int[16];
+    }
+
+    /**
+     * Opens a transaction, waiting for the open transaction of another thread to end.
+     *
+     * The returned frame contains the last committed data. It has to be committed or aborted by the same thread.
+     *
+     * @return the frame to write
+     */
+    public DmxFrame begin() {
+        writeLock.lock();
+        if (writing != null) {
+            writeLock.unlock();
+            throw new IllegalStateException("a transaction is already open in this thread");
+        }
+
+        DmxFrame frame = frames[back];
+        if (committed != null) {
+            //bring the universes changed since the frame was last written up to date
+            for (int i = 0; i < committed.usedCount; i++) {
+                int portAddress = committed.portAddresses[i];
+                if (frame.generations[portAddress] != committed.generations[portAddress]) {
+                    frame.copyFrom(committed, portAddress);
+                }
+            }
+        }
+        writing = frame;
+        touchedCount = 0;
+        return frame;
+    }
+
+    /**
+     * Publishes the open transaction's frame to the sender as a whole.
+     */
+    public void commit() {
+        checkOpen();
+        DmxFrame frame = writing;
+        long generation = commits + 1;
+        for (int i = 0; i < touchedCount; i++) frame.generations[touched[i]] = generation;
+        commits = generation;
+
+        int previous = state.getAndSet(back | FRESH);
+        back = previous & ~FRESH;
+        committed = frame;
+        end();
+    }
+
+    /**
+     * Discards the changes of the open transaction.
+     */
+    public void abort() {
+        checkOpen();
+        DmxFrame frame = writing;
+        for (int i = 0; i < touchedCount; i++) {
+            int portAddress = touched[i];
+            if (committed != null && committed.universes[portAddress] != null) {
+                frame.copyFrom(committed, portAddress);
+            } else {
+                byte[] universe = frame.universes[portAddress];
+                for (int channel = 0; channel < frame.highWaterMarks[portAddress]; channel++) universe[channel] = 0;
+                frame.highWaterMarks[portAddress] = 0;
+                frame.generations[portAddress] = 0;
+            }
+        }
+        end();
+    }
+
+    /**
+     * Returns whether the current thread has a transaction open.
+     *
+     * @return whether a transaction is open
+     */
+    public boolean isWriting() {
+        return writeLock.isHeldByCurrentThread() && writing != null;
+    }
+
+    /**
+     * Returns the last committed frame. Only called by the sending thread; the frame stays unchanged until the next
+     * call.
+     *
+     * @return the last committed frame, empty if nothing was committed yet
+     */
+    public DmxFrame acquire() {
+        if ((state.get() & FRESH) != 0) front = state.getAndSet(front) & ~FRESH;
+        return frames[front];
+    }
+
+    /**
+     * Copies the universes of the last committed frame into a store. Only universes whose generation differs from
+     * the one copied before are copied; the store only marks the ones whose data actually changed.
+     *
+     * Only called by the sending thread.
+     *
+     * @param store         store to copy into
+     * @param generations   generation of each universe copied before; updated
+     * @return              amount of universes copied
+     */
+    public int copyTo(DmxUniverseStore store, long[] generations) {
+        DmxFrame frame = acquire();
+        int copied = 0;
+        for (int i = 0; i < frame.usedCount; i++) {
+            int portAddress = frame.portAddresses[i];
+            long generation = frame.generations[portAddress];
+            if (generation != generations[portAddress] && frame.highWaterMarks[portAddress] > 0) {
+                store.setChannels(portAddress, 0, frame.universes[portAddress], 0, frame.highWaterMarks[portAddress]);
+                generations[portAddress] = generation;
+                copied++;
+            }
+        }
+        return copied;
+    }
+
+    public long getCommits() {
+        return commits;
+    }
+
+    /**
+     * Checks whether a frame may be written by the current thread.
+     *
+     * @param frame the frame
+     */
+    void checkWritable(DmxFrame frame) {
+        if (!writeLock.isHeldByCurrentThread() || writing != frame) {
+            throw new IllegalStateException("frame can only be written inside a transaction");
+        }
+    }
+
+    /**
+     * Records a universe changed in the open transaction.
+     *
+     * @param frame         frame of the transaction
+     * @param portAddress   15-bit port-address
+     */
+    void touch(DmxFrame frame, int portAddress) {
+        //a generation of -1 marks universes already recorded
+        if (frame.generations[portAddress] == -1) return;
+        frame.generations[portAddress] = -1;
+        if (touchedCount == touched.length) {
+            int[] grown = new int[touched.length * 2];
+            System.arraycopy(touched, 0, grown, 0, touchedCount);
+            touched = grown;
+        }
+        touched[touchedCount++] = portAddress;
+    }
+
+    private void checkOpen() {
+        if (!writeLock.isHeldByCurrentThread() || writing == null) {
+            throw new IllegalStateException("no transaction open");
+        }
+    }
+
+    /**
+     * Ends the open transaction.
+     */
+    private void end() {
+        writing = null;
+        touchedCount = 0;
+        writeLock.unlock();
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet;
+
+/**
+ * Emits the DMX data of universes, addressed by 15-bit port-address, through some protocol.
+ *
+ * @author sschaeffner
+ */
+public interface DmxOutput {
+
+    /**
+     * Sends the DMX data of a universe.
+     *
+     * @param portAddress   15-bit port-address
+     * @param data          array containing the dmx data
+     * @param length        amount of channels to send
+     */
+    void sendDmx(int portAddress, byte[] data, int length);
+
+    /**
+     * Ends a frame after the data of all its universes was sent, e.g. to output them synchronously.
+     */
+    default void endFrame() {
+    }
+
+    /**
+     * Releases the resources of this output.
+     */
+    default void close() {
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet;
+
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends the universes of a DmxUniverseStore or the frames committed to a DmxFrameBuffer at a steady rate.
+ *
+ * Every frame sends the universes that changed; universes that did not change are resent once the keep-alive
+ * interval passed, so that nodes do not time out and fall back to their failsafe state. Applications only write
+ * to the store or commit frames.
+ *
+ * With pacing enabled, the packets of a frame are spread evenly across most of the frame instead of being sent in
+ * a single burst that cheap nodes and switches would partly drop.
+ *
+ * @author sschaeffner
+ */
+public class DmxOutputEngine {
+
+    //default maximum frame rate; the highest refresh rate of DMX512 with 512 channels
+    public static final double DEFAULT_MAX_RATE = 44;
+
+    //default interval after which unchanged universes are resent
+    public static final long DEFAULT_KEEP_ALIVE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    //share of a frame the packets are spread across when pacing
+    private static final double PACING_SHARE = 0.75;
+
+    /**
+     * Source of time and way of waiting used by the engine; replaceable to run the engine on a simulated clock.
+     */
+    public interface Timer {
+
+        /**
+         * Returns the current time.
+         *
+         * @return time in nanoseconds like System.nanoTime
+         */
+        long nanoTime();
+
+        /**
+         * Waits for up to a given time; may return earlier.
+         *
+         * @param nanos time to wait in nanoseconds
+         */
+        void parkNanos(long nanos);
+    }
+
+    //timer using System.nanoTime and LockSupport.parkNanos
+    public static final Timer SYSTEM_TIMER = new Timer() {
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+
+        @Override
+        public void parkNanos(long nanos) {
+            LockSupport.parkNanos(nanos);
+        }
+    };
+
+    //universes to send
+    private final DmxUniverseStore store;
+
+    //frames committed by writers, copied into the store before each frame is sent; null if writers use the store
+    private final DmxFrameBuffer frameBuffer;
+
+    //generation of each universe last copied from the frame buffer; only used by the sending thread
+    private final long[] copiedGenerations;
+
+    //output the universes are sent through
+    private final DmxOutput output;
+
+    //output recording when each universe was sent; only used by the sending thread
+    private final DmxOutput recordingOutput;
+
+    //time each universe was last sent at (timer's nanoTime); only used by the sending thread
+    private final long[] lastSentNanos;
+
+    //universes in use and universes due for a keep-alive in the frame being sent; only used by the sending thread
+    private final BitSet used, due;
+
+    //start of the frame being sent; only used by the sending thread
+    private long frameNanos;
+
+    //time between two packets and time the next packet is due at when pacing; only used by the sending thread
+    private long packetGapNanos, nextPacketNanos;
+
+    //whether packets are spread across the frame
+    private volatile boolean pacing = false;
+
+    //source of time and way of waiting
+    private volatile Timer timer = SYSTEM_TIMER;
+
+    //duration of a frame at the maximum rate
+    private volatile long framePeriodNanos;
+
+    //interval after which unchanged universes are resent
+    private volatile long keepAliveNanos;
+
+    //amount of frames, of frame deadlines missed and of universes sent
+    private volatile long frames, missedDeadlines, sentUniverses;
+
+    //thread running the send loop
+    private Thread thread;
+
+    //whether the send loop is running
+    private volatile boolean running;
+
+    /**
+     * Constructs a new instance of this class.
+     *
+     * @param store     universes to send
+     * @param output    output to send through
+     */
+    public DmxOutputEngine(DmxUniverseStore store, DmxOutput output) {
+        this(store, null, output);
+    }
+
+    /**
+     * Constructs a new instance of this class that sends the frames committed to a frame buffer.
+     *
+     * Every frame sends the last committed frame, so that universes are never sent half-updated.
+     *
+     * @param frameBuffer   frames to send
+     * @param output        output to send through
+     */
+    public DmxOutputEngine(DmxFrameBuffer frameBuffer, DmxOutput output) {
+        this(new DmxUniverseStore(), frameBuffer, output);
+    }
+
+    private DmxOutputEngine(DmxUniverseStore store, DmxFrameBuffer frameBuffer, DmxOutput output) {
+        this.store = store;
+        this.frameBuffer = frameBuffer;
+        this.copiedGenerations = frameBuffer != null ? new long[ArtnetPortAddress.COUNT] : null;
+        this.output = output;
+        this.lastSentNanos = new long[ArtnetPortAddress.COUNT];
+        this.used = new BitSet(ArtnetPortAddress.COUNT);
+        this.due = new BitSet(ArtnetPortAddress.COUNT);
+        this.recordingOutput = (portAddress, data, length) -> {
+            if (packetGapNanos > 0) pace();
+            output.sendDmx(portAddress, data, length);
+            lastSentNanos[portAddress] = frameNanos;
+        };
+        this.framePeriodNanos = (long) (TimeUnit.SECONDS.toNanos(1) / DEFAULT_MAX_RATE);
+        this.keepAliveNanos = DEFAULT_KEEP_ALIVE_NANOS;
+    }
+
+    /**
+     * Sets the maximum amount of frames per second.
+     *
+     * @param maxRate   frames per second
+     */
+    public void setMaxRate(double maxRate) {
+        if (maxRate <= 0) throw new IllegalArgumentException("maxRate has to be positive");
+        this.framePeriodNanos = (long) (TimeUnit.SECONDS.toNanos(1) / maxRate);
+    }
+
+    /**
+     * Sets the interval after which unchanged universes are resent.
+     *
+     * @param keepAlive interval
+     * @param unit      unit of the interval
+     */
+    public void setKeepAlive(long keepAlive, TimeUnit unit) {
+        this.keepAliveNanos = unit.toNanos(keepAlive);
+    }
+
+    /**
+     * Sets whether the packets of a frame are spread across the frame instead of being sent at once.
+     *
+     * @param pacing    whether to pace packets
+     */
+    public void setPacing(boolean pacing) {
+        this.pacing = pacing;
+    }
+
+    /**
+     * Sets the source of time and way of waiting, e.g. to run the engine on a simulated clock.
+     *
+     * @param timer the timer
+     */
+    public void setTimer(Timer timer) {
+        this.timer = timer;
+    }
+
+    /**
+     * Starts sending in a separate thread.
+     */
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        thread = new Thread(this::run, "DmxOutputEngine");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Stops sending and waits for the current frame to be sent.
+     */
+    public synchronized void stop() {
+        if (!running) return;
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    /**
+     * Sends frames until stopped; deadlines are absolute so that the rate does not drift.
+     */
+    private void run() {
+        Timer timer = this.timer;
+        long deadline = timer.nanoTime();
+        while (running) {
+            sendFrame(timer.nanoTime());
+
+            long period = framePeriodNanos;
+            deadline += period;
+            long now = timer.nanoTime();
+            if (now - deadline > 0) {
+                //skip the frames that cannot be sent in time instead of sending them in a burst
+                long missed = (now - deadline) / period + 1;
+                missedDeadlines += missed;
+                deadline += missed * period;
+            }
+
+            long remaining;
+            while (running && (remaining = deadline - timer.nanoTime()) > 0) timer.parkNanos(remaining);
+        }
+    }
+
+    /**
+     * Sends one frame: all changed universes and the unchanged ones that are due for a keep-alive. With a frame
+     * buffer, the last committed frame is taken over first.
+     *
+     * Called by the engine's thread; can also be called from an own loop instead of starting the engine.
+     *
+     * @param nowNanos  current time of the engine's timer
+     * @return          amount of universes sent
+     */
+    public int sendFrame(long nowNanos) {
+        frameNanos = nowNanos;
+        if (frameBuffer != null) frameBuffer.copyTo(store, copiedGenerations);
+
+        store.getUsed(used);
+        long keepAlive = keepAliveNanos;
+        due.clear();
+        for (int portAddress = used.nextSetBit(0); portAddress >= 0; portAddress = used.nextSetBit(portAddress + 1)) {
+            if (nowNanos - lastSentNanos[portAddress] >= keepAlive && !store.isDirty(portAddress)) due.set(portAddress);
+        }
+
+        packetGapNanos = 0;
+        if (pacing) {
+            int packets = store.getDirtyCount() + due.cardinality();
+            if (packets > 1) packetGapNanos = (long) (framePeriodNanos * PACING_SHARE) / packets;
+            nextPacketNanos = timer.nanoTime();
+        }
+
+        int sent = store.sendDirty(recordingOutput);
+
+        //changed universes were sent already
+        for (int portAddress = due.nextSetBit(0); portAddress >= 0; portAddress = due.nextSetBit(portAddress + 1)) {
+            if (lastSentNanos[portAddress] != nowNanos) {
+                store.send(portAddress, recordingOutput);
+                sent++;
+            }
+        }
+
+        if (sent > 0) output.endFrame();
+        frames++;
+        sentUniverses += sent;
+        return sent;
+    }
+
+    /**
+     * Waits until the next packet of a paced frame is due.
+     */
+    private void pace() {
+        Timer timer = this.timer;
+        long remaining;
+        while ((remaining = nextPacketNanos - timer.nanoTime()) > 0) timer.parkNanos(remaining);
+        nextPacketNanos += packetGapNanos;
+    }
+
+    public long getFrames() {
+        return frames;
+    }
+
+    /**
+     * Returns the amount of frames that could not be sent in time, e.g. because sending took too long.
+     *
+     * @return amount of missed deadlines
+     */
+    public long getMissedDeadlines() {
+        return missedDeadlines;
+    }
+
+    public long getSentUniverses() {
+        return sentUniverses;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+}
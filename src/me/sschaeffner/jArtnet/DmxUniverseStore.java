@@ -0,0 +1,257 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Holds the DMX data of all universes, addressed by 15-bit port-address, and tracks which of them changed.
+ *
+ * Only changed universes are sent, each with the shortest even length covering every channel ever set.
+ * Universes are allocated when their first channel is set.
+ *
+ * @author sschaeffner
+ */
+public class DmxUniverseStore {
+
+    //shortest length of an ArtDmx packet
+    public static final int MIN_LENGTH = 2;
+
+    //channels of each universe; guarded by this
+    private final byte[][] universes;
+
+    //amount of channels covered by the highest channel set in each universe; guarded by this
+    private final int[] highWaterMarks;
+
+    //universes changed since they were last sent; guarded by this
+    private final BitSet dirty;
+
+    //universes with at least one channel set; guarded by this
+    private final BitSet used;
+
+    //copy of a universe's data while it is sent; guarded by itself, which serializes sending
+    private final byte[] sendBuffer;
+
+    //copy of the changed universes while they are sent; guarded by sendBuffer
+    private final BitSet toSend;
+
+    /**
+     * Constructs a new instance of this class.
+     */
+    public DmxUniverseStore() {
+        this.universes = new byte[ArtnetPortAddress.COUNT][];
+        this.highWaterMarks = new int[ArtnetPortAddress.COUNT];
+        this.dirty = new BitSet(ArtnetPortAddress.COUNT);
+        this.used = new BitSet(ArtnetPortAddress.COUNT);
+        this.sendBuffer = new byte[512];
+        this.toSend = new BitSet(ArtnetPortAddress.COUNT);
+    }
+
+    /**
+     * Sets a channel; the universe is only marked as changed if the value differs.
+     *
+     * @param portAddress   15-bit port-address
+     * @param channel       channel (0-511)
+     * @param value         value (0-255)
+     */
+    public synchronized void setChannel(int portAddress, int channel, int value) {
+        checkChannels(channel, 1);
+        byte[] universe = getUniverse(portAddress);
+        if (channel >= highWaterMarks[portAddress]) highWaterMarks[portAddress] = channel + 1;
+        if (universe[channel] != (byte) value) {
+            universe[channel] = (byte) value;
+            dirty.set(portAddress);
+        }
+    }
+
+    /**
+     * Sets consecutive channels.
+     *
+     * @param portAddress   15-bit port-address
+     * @param channel       first channel (0-511)
+     * @param values        array containing the values
+     * @param offset        position of the first value in values
+     * @param length        amount of channels to set
+     */
+    public synchronized void setChannels(int portAddress, int channel, byte[] values, int offset, int length) {
+        checkChannels(channel, length);
+        byte[] universe = getUniverse(portAddress);
+        if (channel + length > highWaterMarks[portAddress]) highWaterMarks[portAddress] = channel + length;
+        for (int i = 0; i < length; i++) {
+            if (universe[channel + i] != values[offset + i]) {
+                System.arraycopy(values, offset + i, universe, channel + i, length - i);
+                dirty.set(portAddress);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Returns the value of a channel.
+     *
+     * @param portAddress   15-bit port-address
+     * @param channel       channel (0-511)
+     * @return              value (0-255)
+     */
+    public synchronized int getChannel(int portAddress, int channel) {
+        checkChannels(channel, 1);
+        byte[] universe = universes[ArtnetPortAddress.check(portAddress)];
+        return universe != null ? universe[channel] & 0xFF : 0;
+    }
+
+    /**
+     * Sets all channels of a universe to 0; the length stays the same so that the zeros are sent.
+     *
+     * @param portAddress   15-bit port-address
+     */
+    public synchronized void clear(int portAddress) {
+        byte[] universe = universes[ArtnetPortAddress.check(portAddress)];
+        if (universe != null) {
+            Arrays.fill(universe, (byte) 0);
+            dirty.set(portAddress);
+        }
+    }
+
+    /**
+     * Returns the length a universe is sent with: the amount of channels up to the highest one set, rounded up to
+     * an even number and at least 2.
+     *
+     * @param portAddress   15-bit port-address
+     * @return              length (2-512)
+     */
+    public synchronized int getLength(int portAddress) {
+        return toLength(highWaterMarks[ArtnetPortAddress.check(portAddress)]);
+    }
+
+    /**
+     * Marks a universe as changed so that it is sent again.
+     *
+     * @param portAddress   15-bit port-address
+     */
+    public synchronized void markDirty(int portAddress) {
+        if (universes[ArtnetPortAddress.check(portAddress)] != null) dirty.set(portAddress);
+    }
+
+    public synchronized boolean isDirty(int portAddress) {
+        return dirty.get(ArtnetPortAddress.check(portAddress));
+    }
+
+    public synchronized int getDirtyCount() {
+        return dirty.cardinality();
+    }
+
+    /**
+     * Returns whether a channel of a universe was set.
+     *
+     * @param portAddress   15-bit port-address
+     * @return              whether the universe is in use
+     */
+    public synchronized boolean isUsed(int portAddress) {
+        return used.get(ArtnetPortAddress.check(portAddress));
+    }
+
+    /**
+     * Copies the set of universes in use into a set, so that callers can reuse it.
+     *
+     * @param target    set to replace with the port-addresses with at least one channel set
+     */
+    public synchronized void getUsed(BitSet target) {
+        target.clear();
+        target.or(used);
+    }
+
+    /**
+     * Sends all universes that changed since they were last sent.
+     *
+     * Writers are only blocked while a universe is copied, not while it is sent.
+     *
+     * @param output    output to send through
+     * @return          amount of universes sent
+     */
+    public int sendDirty(DmxOutput output) {
+        synchronized (sendBuffer) {
+            synchronized (this) {
+                toSend.clear();
+                toSend.or(dirty);
+                dirty.clear();
+            }
+
+            int count = 0;
+            for (int portAddress = toSend.nextSetBit(0); portAddress >= 0; portAddress = toSend.nextSetBit(portAddress + 1)) {
+                send(portAddress, output);
+                count++;
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Sends a universe whether it changed or not and clears its changed mark.
+     *
+     * @param portAddress   15-bit port-address
+     * @param output        output to send through
+     */
+    public void send(int portAddress, DmxOutput output) {
+        ArtnetPortAddress.check(portAddress);
+        synchronized (sendBuffer) {
+            int length;
+            synchronized (this) {
+                byte[] universe = universes[portAddress];
+                if (universe == null) return;
+                length = toLength(highWaterMarks[portAddress]);
+                System.arraycopy(universe, 0, sendBuffer, 0, length);
+                dirty.clear(portAddress);
+            }
+            output.sendDmx(portAddress, sendBuffer, length);
+        }
+    }
+
+    /**
+     * Returns the data of a universe, allocating it on first use.
+     *
+     * @param portAddress   15-bit port-address
+     * @return              512 channels
+     */
+    private byte[] getUniverse(int portAddress) {
+        byte[] universe = universes[ArtnetPortAddress.check(portAddress)];
+        if (universe == null) {
+            universe = new byte[512];
+            universes[portAddress] = universe;
+            used.set(portAddress);
+            dirty.set(portAddress);
+        }
+        return universe;
+    }
+
+    /**
+     * Converts a high-water mark into the shortest legal even length.
+     *
+     * @param highWaterMark amount of channels up to the highest one set
+     * @return              length (2-512)
+     */
+    private static int toLength(int highWaterMark) {
+        return Math.max(MIN_LENGTH, (highWaterMark + 1) & ~1);
+    }
+
+    private static void checkChannels(int channel, int length) {
+        if (channel < 0 || length < 0 || channel + length > 512) {
+            throw new IllegalArgumentException("channels have to be between 0 and 511");
+        }
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.MulticastSocket;
+import java.net.NetworkInterface;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Emits DMX data as sACN (E1.31) to the multicast group of each universe.
+ *
+ * Port-address n is sent as sACN universe n + 1. Only the fields that change between packets are written into a
+ * reused buffer; the rest of the header is encoded once.
+ *
+ * @author sschaeffner
+ */
+public class E131DmxOutput implements DmxOutput {
+    public static final int UDP_PORT = 5568;
+
+    //length of a data packet without DMX data (including the start code)
+    public static final int HEADER_LENGTH = 126;
+
+    //default and maximum priority
+    public static final int DEFAULT_PRIORITY = 100;
+    public static final int MAX_PRIORITY = 200;
+
+    //ACN packet identifier
+    private static final byte[] ACN_PACKET_IDENTIFIER = {'A', 'S', 'C', '-', 'E', '1', '.', '1', '7', 0, 0, 0};
+
+    //vectors of the root, framing and DMP layer
+    private static final int VECTOR_ROOT_E131_DATA = 0x00000004;
+    private static final int VECTOR_E131_DATA_PACKET = 0x00000002;
+    private static final byte VECTOR_DMP_SET_PROPERTY = 0x02;
+
+    //highest sACN universe
+    private static final int MAX_UNIVERSE = 63999;
+
+    //socket to send through
+    private final MulticastSocket socket;
+
+    //reused buffer and datagram; guarded by buffer
+    private final byte[] buffer;
+    private final DatagramPacket packet;
+
+    //sequence number of each universe
+    private final byte[] sequences;
+
+    //multicast group of each universe; created on first use
+    private final InetAddress[] groups;
+
+    /**
+     * Constructs a new instance of this class sending through the default interface.
+     *
+     * @param sourceName    name of this source (up to 63 characters)
+     * @throws IOException  if the socket cannot be opened
+     */
+    public E131DmxOutput(String sourceName) throws IOException {
+        this(sourceName, UUID.randomUUID(), null);
+    }
+
+    /**
+     * Constructs a new instance of this class.
+     *
+     * @param sourceName        name of this source (up to 63 characters)
+     * @param cid               component identifier; should stay the same across restarts
+     * @param interfaceAddress  address of the interface to send through or null for the default interface
+     * @throws IOException      if the socket cannot be opened
+     */
+    public E131DmxOutput(String sourceName, UUID cid, InetAddress interfaceAddress) throws IOException {
+        this.socket = new MulticastSocket();
+        if (interfaceAddress != null) {
+            NetworkInterface networkInterface = NetworkInterface.getByInetAddress(interfaceAddress);
+            if (networkInterface == null) {
+                socket.close();
+                throw new IOException("no network interface has the address " + interfaceAddress.getHostAddress());
+            }
+            socket.setNetworkInterface(networkInterface);
+        }
+
+        this.buffer = new byte[HEADER_LENGTH + 512];
+        writeHeader(buffer, 0, cid, sourceName, DEFAULT_PRIORITY);
+        this.packet = new DatagramPacket(buffer, buffer.length);
+        this.packet.setPort(UDP_PORT);
+
+        this.sequences = new byte[MAX_UNIVERSE + 1];
+        this.groups = new InetAddress[MAX_UNIVERSE + 1];
+    }
+
+    /**
+     * Sets the priority of this source; receivers use the data of the source with the highest priority.
+     *
+     * @param priority  priority (0-200)
+     */
+    public void setPriority(int priority) {
+        if (priority < 0 || priority > MAX_PRIORITY) throw new IllegalArgumentException("priority has to be between 0 and 200");
+        synchronized (buffer) {
+            buffer[108] = (byte) priority;
+        }
+    }
+
+    @Override
+    public void sendDmx(int portAddress, byte[] data, int length) {
+        int universe = toUniverse(portAddress);
+        synchronized (buffer) {
+            int packetLength = writeData(buffer, 0, ++sequences[universe], universe, data, 0, length);
+            packet.setData(buffer, 0, packetLength);
+            packet.setAddress(getGroup(universe));
+            try {
+                socket.send(packet);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        socket.close();
+    }
+
+    /**
+     * Returns the multicast group of a universe, creating it on first use.
+     *
+     * @param universe  sACN universe
+     * @return          multicast group
+     */
+    private InetAddress getGroup(int universe) {
+        InetAddress group = groups[universe];
+        if (group == null) {
+            group = getMulticastAddress(universe);
+            groups[universe] = group;
+        }
+        return group;
+    }
+
+    /**
+     * Encodes a whole sACN data packet.
+     *
+     * @param buffer        buffer to write into
+     * @param offset        position in the buffer to start writing at
+     * @param cid           component identifier
+     * @param sourceName    name of the source (up to 63 characters)
+     * @param priority      priority (0-200)
+     * @param sequence      sequence number
+     * @param universe      sACN universe (1-63999)
+     * @param data          array containing the dmx data
+     * @param dataOffset    position of the first channel in data
+     * @param length        amount of channels to send
+     * @return              amount of bytes written
+     */
+    public static int write(byte[] buffer, int offset, UUID cid, String sourceName, int priority,
+                            byte sequence, int universe, byte[] data, int dataOffset, int length) {
+        writeHeader(buffer, offset, cid, sourceName, priority);
+        return writeData(buffer, offset, sequence, universe, data, dataOffset, length);
+    }
+
+    /**
+     * Encodes the fields of a data packet that stay the same for all packets of a source.
+     *
+     * @param buffer        buffer to write into
+     * @param offset        position in the buffer to start writing at
+     * @param cid           component identifier
+     * @param sourceName    name of the source (up to 63 characters)
+     * @param priority      priority (0-200)
+     */
+    private static void writeHeader(byte[] buffer, int offset, UUID cid, String sourceName, int priority) {
+        if (buffer.length < offset + HEADER_LENGTH) throw new IllegalArgumentException("buffer too small for an sACN packet");
+        ByteBuffer b = ByteBuffer.wrap(buffer, offset, HEADER_LENGTH);
+
+        //root layer: preamble size, postamble size, packet identifier, (flags and length), vector, cid
+        b.putShort((short) 0x0010).putShort((short) 0).put(ACN_PACKET_IDENTIFIER);
+        b.putShort((short) 0).putInt(VECTOR_ROOT_E131_DATA);
+        b.putLong(cid.getMostSignificantBits()).putLong(cid.getLeastSignificantBits());
+
+        //framing layer: (flags and length), vector, source name, priority, sync address, (sequence), options, (universe)
+        b.putShort((short) 0).putInt(VECTOR_E131_DATA_PACKET);
+        byte[] name = new byte[64];
+        byte[] nameBytes = sourceName.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(nameBytes, 0, name, 0, Math.min(nameBytes.length, 63));
+        b.put(name).put((byte) priority).putShort((short) 0).put((byte) 0).put((byte) 0).putShort((short) 0);
+
+        //DMP layer: (flags and length), vector, address and data type, first address, increment, (count), start code
+        b.putShort((short) 0).put(VECTOR_DMP_SET_PROPERTY).put((byte) 0xa1).putShort((short) 0).putShort((short) 1);
+        b.putShort((short) 0).put((byte) 0);
+    }
+
+    /**
+     * Encodes the fields of a data packet that change between packets.
+     *
+     * @param buffer        buffer holding the header
+     * @param offset        position of the packet in the buffer
+     * @param sequence      sequence number
+     * @param universe      sACN universe (1-63999)
+     * @param data          array containing the dmx data
+     * @param dataOffset    position of the first channel in data
+     * @param length        amount of channels to send
+     * @return              amount of bytes of the whole packet
+     */
+    private static int writeData(byte[] buffer, int offset, byte sequence, int universe, byte[] data, int dataOffset, int length) {
+        if (length < 0 || length > 512) throw new IllegalArgumentException("length has to be between 0 and 512");
+        if (buffer.length < offset + HEADER_LENGTH + length) throw new IllegalArgumentException("buffer too small for an sACN packet");
+        int packetLength = HEADER_LENGTH + length;
+
+        //flags and length of root, framing and DMP layer
+        writeFlagsAndLength(buffer, offset + 16, packetLength - 16);
+        writeFlagsAndLength(buffer, offset + 38, packetLength - 38);
+        writeFlagsAndLength(buffer, offset + 115, packetLength - 115);
+
+        //sequence and universe
+        buffer[offset + 111] = sequence;
+        buffer[offset + 113] = (byte) (universe >>> 8);
+        buffer[offset + 114] = (byte) universe;
+
+        //property value count (start code and channels) and data
+        buffer[offset + 123] = (byte) ((length + 1) >>> 8);
+        buffer[offset + 124] = (byte) (length + 1);
+        System.arraycopy(data, dataOffset, buffer, offset + HEADER_LENGTH, length);
+
+        return packetLength;
+    }
+
+    private static void writeFlagsAndLength(byte[] buffer, int offset, int length) {
+        buffer[offset] = (byte) (0x70 | (length >>> 8));
+        buffer[offset + 1] = (byte) length;
+    }
+
+    /**
+     * Returns the sACN universe a port-address is sent as.
+     *
+     * @param portAddress   15-bit port-address
+     * @return              sACN universe
+     */
+    public static int toUniverse(int portAddress) {
+        return ArtnetPortAddress.check(portAddress) + 1;
+    }
+
+    /**
+     * Returns the multicast group of an sACN universe (239.255.hi.lo).
+     *
+     * @param universe  sACN universe (1-63999)
+     * @return          multicast group
+     */
+    public static InetAddress getMulticastAddress(int universe) {
+        if (universe < 1 || universe > MAX_UNIVERSE) throw new IllegalArgumentException("universe has to be between 1 and 63999");
+        try {
+            return InetAddress.getByAddress(new byte[]{(byte) 239, (byte) 255, (byte) (universe >>> 8), (byte) universe});
+        } catch (UnknownHostException e) {
+            //cannot happen with a 4 byte address
+            throw new IllegalStateException(e);
+        }
+    }
+}
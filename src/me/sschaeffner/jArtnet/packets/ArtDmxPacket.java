@@ -17,7 +17,9 @@
  */
 package me.sschaeffner.jArtnet.packets;
 
+import me.sschaeffner.jArtnet.ArtnetDecodeCodes;
 import me.sschaeffner.jArtnet.ArtnetOpCodes;
+import me.sschaeffner.jArtnet.ArtnetPortAddress;
 
 /**
  * @author sschaeffner
@@ -26,6 +28,15 @@ public class ArtDmxPacket extends ArtnetPacket {
     public static final byte protVerHi = 3;
     public static final byte protVerLo = 14;
 
+    //minimum protocol version accepted when decoding
+    private static final int MIN_PROT_VER = (protVerHi << 8) | protVerLo;
+
+    //length of the package without dmx data
+    public static final int HEADER_LENGTH = 18;
+
+    //constant ID, opcode and protVer
+    private static final byte[] HEADER = ArtnetPacket.constructHeader(ArtnetOpCodes.OP_OUTPUT, protVerHi, protVerLo);
+
     private final byte sequence;
     private final byte physical;
     private final byte subUni, net;
@@ -60,62 +71,132 @@ public class ArtDmxPacket extends ArtnetPacket {
     }
 
     /**
-     * Returns the whole package's data as byte array.
+     * Constructs a new instance of this class.
      *
-     * @return the package's data as byte array
+     * @param sequence      sequence number
+     * @param physical      physical input port
+     * @param portAddress   15-bit port-address
+     * @param data          dmx data
      */
+    public ArtDmxPacket(byte sequence, byte physical, int portAddress, byte[] data) {
+        this(sequence, physical, (byte) ArtnetPortAddress.subUni(ArtnetPortAddress.check(portAddress)),
+                (byte) ArtnetPortAddress.net(portAddress), data);
+    }
+
     @Override
-    public byte[] getPackageBytes() {
-        int length = (this.lengthHi << 8) + this.length;
+    public int getPackageLength() {
+        return HEADER_LENGTH + getDataLength();
+    }
 
-        int byteArrayLength = ArtnetPacket.ID.length + 2 + 1+1 + 1 + 1 + 1 + 1 + 1+1 + length;
-        byte[] bytes = new byte[byteArrayLength];
+    /**
+     * Writes the whole package's data into a buffer.
+     *
+     * @param buffer    buffer to write into
+     * @param offset    position in the buffer to start writing at
+     * @return          amount of bytes written
+     */
+    @Override
+    public int writeTo(byte[] buffer, int offset) {
+        int length = getDataLength();
+        if (data.length < length) {
+            throw new IllegalStateException("cannot get packet bytes for ArtDmxPacket: not enough data for length available");
+        }
+        return write(buffer, offset, this.sequence, this.physical, this.subUni, this.net, this.data, 0, length);
+    }
 
-        //Art-Net package ID
-        System.arraycopy(ArtnetPacket.ID, 0, bytes, 0, ArtnetPacket.ID.length);
+    /**
+     * Writes an ArtDmx package into a buffer without constructing an ArtDmxPacket instance.
+     *
+     * @param buffer        buffer to write into
+     * @param offset        position in the buffer to start writing at
+     * @param sequence      sequence number
+     * @param physical      physical input port
+     * @param subUni        low byte of the port-address
+     * @param net           high byte of the port-address
+     * @param data          array containing the dmx data
+     * @param dataOffset    position of the first channel in data
+     * @param length        amount of channels to write
+     * @return              amount of bytes written
+     */
+    public static int write(byte[] buffer, int offset, byte sequence, byte physical, byte subUni, byte net,
+                            byte[] data, int dataOffset, int length) {
+        checkCapacity(buffer, offset, HEADER_LENGTH + length);
 
-        //opcode
-        byte[] opCode = ArtnetOpCodes.toByteArray(ArtnetOpCodes.OP_OUTPUT);
-        System.arraycopy(opCode, 0, bytes, ArtnetPacket.ID.length, 2);
+        //Art-Net package ID, opcode and protVer
+        System.arraycopy(HEADER, 0, buffer, offset, HEADER.length);
 
-        bytes[10] = protVerHi;
-        bytes[11] = protVerLo;
+        buffer[offset + 12] = sequence;
 
-        bytes[12] = this.sequence;
+        buffer[offset + 13] = physical;
 
-        bytes[13] = this.physical;
+        buffer[offset + 14] = subUni;
+        buffer[offset + 15] = net;
 
-        bytes[14] = this.subUni;
-        bytes[15] = this.net;
+        buffer[offset + 16] = (byte) ((length >>> 8) & 0xFF);
+        buffer[offset + 17] = (byte) (length & 0xFF);
 
-        bytes[16] = this.lengthHi;
-        bytes[17] = this.length;
+        System.arraycopy(data, dataOffset, buffer, offset + HEADER_LENGTH, length);
 
-        if (bytes.length >= length + 18) {
-            System.arraycopy(data, 0, bytes, 18, length);
-        } else {
-            throw new IllegalStateException("cannot get packet bytes for ArtDmxPacket: not enough data for length available");
-        }
+        return HEADER_LENGTH + length;
+    }
 
-        return bytes;
+    /**
+     * Writes an ArtDmx package for a port-address into a buffer without constructing an ArtDmxPacket instance.
+     *
+     * @param buffer        buffer to write into
+     * @param offset        position in the buffer to start writing at
+     * @param sequence      sequence number
+     * @param physical      physical input port
+     * @param portAddress   15-bit port-address
+     * @param data          array containing the dmx data
+     * @param dataOffset    position of the first channel in data
+     * @param length        amount of channels to write
+     * @return              amount of bytes written
+     */
+    public static int write(byte[] buffer, int offset, byte sequence, byte physical, int portAddress,
+                            byte[] data, int dataOffset, int length) {
+        return write(buffer, offset, sequence, physical, (byte) ArtnetPortAddress.subUni(portAddress),
+                (byte) ArtnetPortAddress.net(portAddress), data, dataOffset, length);
     }
 
-    public static ArtDmxPacket fromBytes(byte[] bytes) {
+    /**
+     * Checks whether received bytes contain a valid ArtDmx packet.
+     *
+     * @param bytes     received bytes
+     * @param length    amount of received bytes
+     * @return          one of the {@link ArtnetDecodeCodes}
+     */
+    public static int validate(byte[] bytes, int length) {
+        int code = validateHeader(bytes, length, HEADER_LENGTH, ArtnetOpCodes.OP_OUTPUT, MIN_PROT_VER);
+        if (code != ArtnetDecodeCodes.DC_OK) return code;
 
-        //check for correct opcode
-        byte[] opCode = ArtnetOpCodes.toByteArray(ArtnetOpCodes.OP_OUTPUT);
+        int dataLength = ((bytes[16] & 0xFF) << 8) | (bytes[17] & 0xFF);
+        if (dataLength > 512 || length < HEADER_LENGTH + dataLength) return ArtnetDecodeCodes.DC_LENGTH_MISMATCH;
 
-        byte rOpCodeLo = bytes[8];
-        byte rOpCodeHi = bytes[9];
-        if (rOpCodeLo != opCode[0] || rOpCodeHi != opCode[1]) {
-            throw new IllegalArgumentException("cannot construct ArtDmxPacket from data: wrong opcode");
-        }
+        return ArtnetDecodeCodes.DC_OK;
+    }
+
+    /**
+     * Constructs a new instance of this class from received bytes.
+     *
+     * @param bytes  received bytes
+     * @return      new instance
+     */
+    public static ArtDmxPacket fromBytes(byte[] bytes) {
+        return fromBytes(bytes, bytes.length);
+    }
 
-        //check protocol version
-        byte rProtVerHi = bytes[10];
-        byte rProtVerLo = bytes[11];
-        if (rProtVerHi < protVerHi || rProtVerLo < protVerLo) {
-            throw new IllegalArgumentException("cannot construct ArtPollPacket from data: protVer not compatible");
+    /**
+     * Constructs a new instance of this class from received bytes.
+     *
+     * @param bytes     received bytes
+     * @param length    amount of received bytes
+     * @return          new instance
+     */
+    public static ArtDmxPacket fromBytes(byte[] bytes, int length) {
+        int code = validate(bytes, length);
+        if (code != ArtnetDecodeCodes.DC_OK) {
+            throw new IllegalArgumentException("cannot construct ArtDmxPacket from bytes: " + ArtnetDecodeCodes.toName(code));
         }
 
         //read information
@@ -127,19 +208,14 @@ public class ArtDmxPacket extends ArtnetPacket {
         byte net = bytes[15];
 
         byte lengthHi = bytes[16];
-        byte length = bytes[17];
+        byte lengthLo = bytes[17];
 
-        int lengthI = (lengthHi << 8) + length;
+        int dataLength = ((lengthHi & 0xFF) << 8) | (lengthLo & 0xFF);
 
-        byte[] data = new byte[lengthI];
-        if (bytes.length >= lengthI + 18) {
-            System.arraycopy(bytes, 18, data, 0, lengthI);
-        } else {
-            throw new IllegalStateException("cannot construct ArtDmxPacket from bytes: data too short (is " + (bytes.length - 18)
-                    + "; should be " + lengthI + ")");
-        }
+        byte[] data = new byte[dataLength];
+        System.arraycopy(bytes, HEADER_LENGTH, data, 0, dataLength);
 
-        return new ArtDmxPacket(sequence, physical, subUni, net, lengthHi, length, data);
+        return new ArtDmxPacket(sequence, physical, subUni, net, lengthHi, lengthLo, data);
     }
 
     public byte getSequence() {
@@ -158,6 +234,15 @@ public class ArtDmxPacket extends ArtnetPacket {
         return net;
     }
 
+    /**
+     * Returns the 15-bit port-address the packet is addressed to.
+     *
+     * @return the port-address
+     */
+    public int getPortAddress() {
+        return ((net & 0x7F) << 8) | (subUni & 0xFF);
+    }
+
     public byte getLengthHi() {
         return lengthHi;
     }
@@ -166,6 +251,24 @@ public class ArtDmxPacket extends ArtnetPacket {
         return length;
     }
 
+    /**
+     * Returns the port-address the packet is addressed to.
+     *
+     * @return the port-address
+     */
+    public ArtnetPortAddress getArtnetPortAddress() {
+        return ArtnetPortAddress.of(getPortAddress());
+    }
+
+    /**
+     * Returns the amount of dmx channels in this packet.
+     *
+     * @return the amount of dmx channels
+     */
+    public int getDataLength() {
+        return ((lengthHi & 0xFF) << 8) | (length & 0xFF);
+    }
+
     public byte[] getData() {
         return data;
     }
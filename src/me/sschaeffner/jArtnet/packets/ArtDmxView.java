@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet.packets;
+
+import me.sschaeffner.jArtnet.ArtnetOpCodes;
+
+/**
+ * A reusable read-only view of a received ArtDmx packet.
+ *
+ * Unlike {@link ArtDmxPacket#fromBytes(byte[])} nothing is copied: all accessors read straight from the
+ * wrapped buffer. A view is only valid until the buffer is reused, so listeners that want to keep the dmx data
+ * have to copy it with {@link #copyData(byte[], int)} or {@link #toPacket()}.
+ *
+ * @author sschaeffner
+ */
+public class ArtDmxView {
+
+    //wrapped buffer
+    private byte[] bytes;
+    //position of the packet in the buffer
+    private int offset;
+    //amount of dmx channels in the packet
+    private int length;
+
+    /**
+     * Constructs a new instance of this class that does not wrap any buffer yet.
+     */
+    public ArtDmxView() {
+    }
+
+    /**
+     * Wraps a buffer containing a received ArtDmx packet.
+     *
+     * @param bytes         buffer containing the packet
+     * @param offset        position of the packet in the buffer
+     * @param packetLength  amount of valid bytes starting at offset
+     * @return              whether the buffer contains a complete ArtDmx packet
+     */
+    public boolean wrap(byte[] bytes, int offset, int packetLength) {
+        this.bytes = null;
+        if (packetLength < ArtDmxPacket.HEADER_LENGTH) return false;
+
+        if (!ArtnetOpCodes.hasArtnetId(bytes, offset)) return false;
+        if (ArtnetOpCodes.getOpCode(bytes, offset) != ArtnetOpCodes.OP_OUTPUT) return false;
+
+        int length = ((bytes[offset + 16] & 0xFF) << 8) | (bytes[offset + 17] & 0xFF);
+        if (packetLength < ArtDmxPacket.HEADER_LENGTH + length) return false;
+
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+        return true;
+    }
+
+    /**
+     * Returns whether this view currently wraps a valid packet.
+     *
+     * @return whether a packet is wrapped
+     */
+    public boolean isValid() {
+        return bytes != null;
+    }
+
+    public byte getSequence() {
+        return bytes[offset + 12];
+    }
+
+    public byte getPhysical() {
+        return bytes[offset + 13];
+    }
+
+    public byte getSubUni() {
+        return bytes[offset + 14];
+    }
+
+    public byte getNet() {
+        return bytes[offset + 15];
+    }
+
+    /**
+     * Returns the 15-bit port-address the packet is addressed to.
+     *
+     * @return the port-address
+     */
+    public int getPortAddress() {
+        return ((bytes[offset + 15] & 0x7F) << 8) | (bytes[offset + 14] & 0xFF);
+    }
+
+    /**
+     * Returns the amount of dmx channels in the packet.
+     *
+     * @return amount of dmx channels
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Returns the value of a single dmx channel.
+     *
+     * @param channel   channel index starting at 0
+     * @return          the channel's value (0-255)
+     */
+    public int getChannel(int channel) {
+        if (channel < 0 || channel >= length) {
+            throw new IndexOutOfBoundsException("channel " + channel + " not in packet (length " + length + ")");
+        }
+        return bytes[offset + ArtDmxPacket.HEADER_LENGTH + channel] & 0xFF;
+    }
+
+    /**
+     * Copies the packet's dmx data into an array.
+     *
+     * @param dest          array to copy into
+     * @param destOffset    position in the array to start copying to
+     * @return              amount of channels copied
+     */
+    public int copyData(byte[] dest, int destOffset) {
+        System.arraycopy(bytes, offset + ArtDmxPacket.HEADER_LENGTH, dest, destOffset, length);
+        return length;
+    }
+
+    /**
+     * Constructs an ArtDmxPacket owning a copy of the wrapped packet's data.
+     *
+     * @return new ArtDmxPacket instance
+     */
+    public ArtDmxPacket toPacket() {
+        byte[] data = new byte[length];
+        copyData(data, 0);
+        return new ArtDmxPacket(getSequence(), getPhysical(), getSubUni(), getNet(),
+                bytes[offset + 16], bytes[offset + 17], data);
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet.packets;
+
+import me.sschaeffner.jArtnet.ArtnetDecodeCodes;
+import me.sschaeffner.jArtnet.ArtnetOpCodes;
+
+import java.util.Arrays;
+
+/**
+ * An ArtInput packet.
+ *
+ * Enables or disables the DMX inputs of a node (one bind index, up to 4 ports).
+ *
+ * @author sschaeffner
+ */
+public class ArtInputPacket extends ArtnetPacket {
+    public static final byte protVerHi = 3;
+    public static final byte protVerLo = 14;
+
+    //minimum protocol version accepted when decoding
+    private static final int MIN_PROT_VER = (protVerHi << 8) | protVerLo;
+
+    //length of the whole package
+    public static final int PACKAGE_LENGTH = ArtnetPacket.ID.length + 2 + 1+1 + 1 + 1 + 1+1 + 4;
+
+    //bit in an input byte disabling the input
+    public static final byte INPUT_DISABLE = 0b00000001;
+
+    //constant ID, opcode and protVer
+    private static final byte[] HEADER = ArtnetPacket.constructHeader(ArtnetOpCodes.OP_INPUT, protVerHi, protVerLo);
+
+    //bind index of the addressed device; 0 or 1 addresses the root device
+    private final byte bindIndex;
+
+    //number of input ports (0-4)
+    private final int numPorts;
+
+    //one byte per input port, bit 0 disables
+    private final byte[] input;
+
+    /**
+     * Constructs a new instance of this class.
+     *
+     * @param bindIndex bind index of the addressed device
+     * @param numPorts  number of input ports (0-4)
+     * @param input     one byte per input port; {@link #INPUT_DISABLE} disables the port
+     */
+    public ArtInputPacket(byte bindIndex, int numPorts, byte[] input) {
+        if (numPorts < 0 || numPorts > 4) throw new IllegalArgumentException("numPorts has to be between 0 and 4");
+        if (input.length != 4) throw new IllegalArgumentException("input has to be 4 bytes long");
+        this.bindIndex = bindIndex;
+        this.numPorts = numPorts;
+        this.input = input;
+    }
+
+    /**
+     * Constructs a new instance of this class enabling or disabling each port.
+     *
+     * @param bindIndex bind index of the addressed device
+     * @param disabled  per port whether it is disabled (up to 4 entries)
+     * @return          new instance
+     */
+    public static ArtInputPacket of(byte bindIndex, boolean... disabled) {
+        if (disabled.length > 4) throw new IllegalArgumentException("an ArtInput addresses at most 4 ports");
+        byte[] input = new byte[4];
+        for (int i = 0; i < disabled.length; i++) {
+            if (disabled[i]) input[i] = INPUT_DISABLE;
+        }
+        return new ArtInputPacket(bindIndex, disabled.length, input);
+    }
+
+    @Override
+    public int getPackageLength() {
+        return PACKAGE_LENGTH;
+    }
+
+    /**
+     * Writes the whole package's data into a buffer.
+     *
+     * @param buffer    buffer to write into
+     * @param offset    position in the buffer to start writing at
+     * @return          amount of bytes written
+     */
+    @Override
+    public int writeTo(byte[] buffer, int offset) {
+        checkCapacity(buffer, offset, PACKAGE_LENGTH);
+
+        //Art-Net package ID, op code and protVer
+        System.arraycopy(HEADER, 0, buffer, offset, HEADER.length);
+
+        //filler and bind index
+        buffer[offset + 12] = 0;
+        buffer[offset + 13] = bindIndex;
+
+        //numPorts (hi, lo)
+        buffer[offset + 14] = (byte) (numPorts >>> 8);
+        buffer[offset + 15] = (byte) numPorts;
+
+        //input
+        System.arraycopy(input, 0, buffer, offset + 16, 4);
+
+        return PACKAGE_LENGTH;
+    }
+
+    /**
+     * Checks whether received bytes contain a valid ArtInput packet.
+     *
+     * @param bytes     received bytes
+     * @param length    amount of received bytes
+     * @return          one of the {@link ArtnetDecodeCodes}
+     */
+    public static int validate(byte[] bytes, int length) {
+        return validateHeader(bytes, length, PACKAGE_LENGTH, ArtnetOpCodes.OP_INPUT, MIN_PROT_VER);
+    }
+
+    /**
+     * Constructs a new instance of this class from received bytes.
+     *
+     * @param bytes     received bytes
+     * @param length    amount of received bytes
+     * @return          new instance
+     */
+    public static ArtInputPacket fromBytes(byte[] bytes, int length) {
+        int code = validate(bytes, length);
+        if (code != ArtnetDecodeCodes.DC_OK) {
+            throw new IllegalArgumentException("cannot construct ArtInputPacket from bytes: " + ArtnetDecodeCodes.toName(code));
+        }
+        int numPorts = Math.min(((bytes[14] & 0xFF) << 8) | (bytes[15] & 0xFF), 4);
+        return new ArtInputPacket(bytes[13], numPorts, Arrays.copyOfRange(bytes, 16, 20));
+    }
+
+    public byte getBindIndex() {
+        return bindIndex;
+    }
+
+    public int getNumPorts() {
+        return numPorts;
+    }
+
+    public byte[] getInput() {
+        return Arrays.copyOf(input, input.length);
+    }
+
+    /**
+     * Returns whether an input port is disabled by this packet.
+     *
+     * @param port  port (0-3)
+     * @return      whether the port is disabled
+     */
+    public boolean isDisabled(int port) {
+        return (input[port] & INPUT_DISABLE) != 0;
+    }
+}
@@ -19,7 +19,9 @@ package me.sschaeffner.jArtnet.packets;
 
 
 import me.sschaeffner.jArtnet.ArtNetPriorityCodes;
+import me.sschaeffner.jArtnet.ArtnetDecodeCodes;
 import me.sschaeffner.jArtnet.ArtnetOpCodes;
+import me.sschaeffner.jArtnet.ArtnetPortAddress;
 
 /**
  * An ArtPoll packet.
@@ -30,8 +32,26 @@ public class ArtPollPacket extends ArtnetPacket {
     public static final byte protVerHi = 3;
     public static final byte protVerLo = 14;
 
+    //minimum protocol version accepted when decoding
+    private static final int MIN_PROT_VER = (protVerHi << 8) | protVerLo;
+
+    //length of the whole package including the Art-Net 4 target and manufacturer fields
+    public static final int PACKAGE_LENGTH = ArtnetPacket.ID.length + 2 + 1+1 + 1 + 1 + 2 + 2 + 2 + 2;
+
+    //length of an Art-Net 3 package without target and manufacturer fields
+    public static final int MIN_PACKAGE_LENGTH = ArtnetPacket.ID.length + 2 + 1+1 + 1 + 1;
+
+    //talkToMe flag enabling targeted mode
+    public static final byte TALK_TO_ME_TARGETED = 0b00100000;
+
+    //constant ID, opcode and protVer
+    private static final byte[] HEADER = ArtnetPacket.constructHeader(ArtnetOpCodes.OP_POLL, protVerHi, protVerLo);
+
     private final byte talkToMe;
     private final byte priority;
+    private final int targetPortAddressTop, targetPortAddressBottom;
+    private final int estaMan;
+    private final int oem;
 
     /**
      * Constructs a new instance of this class.
@@ -55,38 +75,94 @@ public class ArtPollPacket extends ArtnetPacket {
      * @param priority  lowest priority of diagnostic message to be sent
      */
     public ArtPollPacket(byte talkToMe, byte priority) {
+        this(talkToMe, priority, ArtnetPortAddress.MAX, 0, 0, 0);
+    }
+
+    /**
+     * Constructs a new instance of this class.
+     *
+     * @param talkToMe                  TalkToMe behaviour of nodes
+     * @param priority                  lowest priority of diagnostic message to be sent
+     * @param targetPortAddressTop      highest port-address to reply in targeted mode
+     * @param targetPortAddressBottom   lowest port-address to reply in targeted mode
+     * @param estaMan                   ESTA manufacturer code of the sender
+     * @param oem                       oem code of the sender
+     */
+    public ArtPollPacket(byte talkToMe, byte priority, int targetPortAddressTop, int targetPortAddressBottom,
+                         int estaMan, int oem) {
         this.talkToMe = talkToMe;
         this.priority = priority;
+        this.targetPortAddressTop = ArtnetPortAddress.check(targetPortAddressTop);
+        this.targetPortAddressBottom = ArtnetPortAddress.check(targetPortAddressBottom);
+        this.estaMan = estaMan & 0xFFFF;
+        this.oem = oem & 0xFFFF;
     }
 
     /**
-     * Returns the whole package's data as byte array.
+     * Constructs a targeted ArtPoll that only nodes with a port-address in a range reply to.
+     *
+     * Uses the same talkToMe and priority defaults as {@link #ArtPollPacket()}.
      *
-     * @return the package's data as byte array
+     * @param bottom    lowest port-address to reply
+     * @param top       highest port-address to reply
+     * @return          new instance
      */
-    @Override
-    public byte[] getPackageBytes() {
-        int byteArrayLength = ArtnetPacket.ID.length + 2 + 1+1 + 1 + 1;
-        byte[] bytes = new byte[byteArrayLength];
+    public static ArtPollPacket targeted(int bottom, int top) {
+        return new ArtPollPacket((byte) (0b00000110 | TALK_TO_ME_TARGETED), ArtNetPriorityCodes.DP_CRITICAL,
+                top, bottom, 0, 0);
+    }
 
-        //Art-Net package ID
-        System.arraycopy(ArtnetPacket.ID, 0, bytes, 0, ArtnetPacket.ID.length);
+    @Override
+    public int getPackageLength() {
+        return PACKAGE_LENGTH;
+    }
 
-        //op code
-        byte[] opCode = ArtnetOpCodes.toByteArray(ArtnetOpCodes.OP_POLL);
-        System.arraycopy(opCode, 0, bytes, ArtnetPacket.ID.length, 2);
+    /**
+     * Writes the whole package's data into a buffer.
+     *
+     * @param buffer    buffer to write into
+     * @param offset    position in the buffer to start writing at
+     * @return          amount of bytes written
+     */
+    @Override
+    public int writeTo(byte[] buffer, int offset) {
+        checkCapacity(buffer, offset, PACKAGE_LENGTH);
 
-        //protVer
-        bytes[ArtnetPacket.ID.length + 2] = protVerHi;
-        bytes[ArtnetPacket.ID.length + 2 + 1] = protVerLo;
+        //Art-Net package ID, op code and protVer
+        System.arraycopy(HEADER, 0, buffer, offset, HEADER.length);
 
         //talk to me
-        bytes[ArtnetPacket.ID.length + 2 + 1 + 1] = this.talkToMe;
+        buffer[offset + ArtnetPacket.ID.length + 2 + 1 + 1] = this.talkToMe;
 
         //priority
-        bytes[ArtnetPacket.ID.length + 2 + 1 + 1 + 1] = this.priority;
+        buffer[offset + ArtnetPacket.ID.length + 2 + 1 + 1 + 1] = this.priority;
+
+        //target port-address top and bottom
+        buffer[offset + 14] = (byte) (targetPortAddressTop >>> 8);
+        buffer[offset + 15] = (byte) targetPortAddressTop;
+        buffer[offset + 16] = (byte) (targetPortAddressBottom >>> 8);
+        buffer[offset + 17] = (byte) targetPortAddressBottom;
+
+        //esta man
+        buffer[offset + 18] = (byte) (estaMan >>> 8);
+        buffer[offset + 19] = (byte) estaMan;
 
-        return bytes;
+        //oem
+        buffer[offset + 20] = (byte) (oem >>> 8);
+        buffer[offset + 21] = (byte) oem;
+
+        return PACKAGE_LENGTH;
+    }
+
+    /**
+     * Checks whether received bytes contain a valid ArtPoll packet.
+     *
+     * @param bytes     received bytes
+     * @param length    amount of received bytes
+     * @return          one of the {@link ArtnetDecodeCodes}
+     */
+    public static int validate(byte[] bytes, int length) {
+        return validateHeader(bytes, length, MIN_PACKAGE_LENGTH, ArtnetOpCodes.OP_POLL, MIN_PROT_VER);
     }
 
     /**
@@ -96,29 +172,33 @@ public class ArtPollPacket extends ArtnetPacket {
      * @return      new instance
      */
     public static ArtPollPacket fromBytes(byte[] bytes) {
-        int byteArrayLength = ArtnetPacket.ID.length + 2 + 1+1 + 1 + 1;
-        if (bytes.length < byteArrayLength) {
-            throw new IllegalArgumentException("cannot construct ArtPollPacket from bytes: bytes length not compatible");
-        }
-
-        byte[] opCode = ArtnetOpCodes.toByteArray(ArtnetOpCodes.OP_POLL);
-
-        byte rOpCodeLo = bytes[8];
-        byte rOpCodeHi = bytes[9];
-        if (rOpCodeLo != opCode[0] || rOpCodeHi != opCode[1]) {
-            throw new IllegalArgumentException("cannot construct ArtPollReplyPacket from bytes: wrong opcode");
-        }
+        return fromBytes(bytes, bytes.length);
+    }
 
-        byte rProtVerHi = bytes[10];
-        byte rProtVerLo = bytes[11];
-        if (rProtVerHi < protVerHi || rProtVerLo < protVerLo) {
-            throw new IllegalArgumentException("cannot construct ArtPollPacket from bytes: protVer not compatible");
+    /**
+     * Constructs a new instance of this class from received bytes.
+     *
+     * @param bytes     received bytes
+     * @param length    amount of received bytes
+     * @return          new instance
+     */
+    public static ArtPollPacket fromBytes(byte[] bytes, int length) {
+        int code = validate(bytes, length);
+        if (code != ArtnetDecodeCodes.DC_OK) {
+            throw new IllegalArgumentException("cannot construct ArtPollPacket from bytes: " + ArtnetDecodeCodes.toName(code));
         }
 
-        //no exceptions
         byte talkToMe = bytes[12];
         byte priority = bytes[13];
-        return new ArtPollPacket(talkToMe, priority);
+
+        //Art-Net 3 packages end after the priority
+        if (length < PACKAGE_LENGTH) return new ArtPollPacket(talkToMe, priority);
+
+        int top = ((bytes[14] & 0x7F) << 8) | (bytes[15] & 0xFF);
+        int bottom = ((bytes[16] & 0x7F) << 8) | (bytes[17] & 0xFF);
+        int estaMan = ((bytes[18] & 0xFF) << 8) | (bytes[19] & 0xFF);
+        int oem = ((bytes[20] & 0xFF) << 8) | (bytes[21] & 0xFF);
+        return new ArtPollPacket(talkToMe, priority, top, bottom, estaMan, oem);
     }
 
     public byte getTalkToMe() {
@@ -128,4 +208,39 @@ public class ArtPollPacket extends ArtnetPacket {
     public byte getPriority() {
         return priority;
     }
+
+    /**
+     * Returns whether only nodes with a port-address between bottom and top shall reply.
+     *
+     * @return whether targeted mode is enabled
+     */
+    public boolean isTargeted() {
+        return (talkToMe & TALK_TO_ME_TARGETED) != 0;
+    }
+
+    /**
+     * Checks whether a port-address is addressed by this poll.
+     *
+     * @param portAddress   15-bit port-address
+     * @return              whether a node with this port-address shall reply
+     */
+    public boolean isTargeting(int portAddress) {
+        return !isTargeted() || (portAddress >= targetPortAddressBottom && portAddress <= targetPortAddressTop);
+    }
+
+    public int getTargetPortAddressTop() {
+        return targetPortAddressTop;
+    }
+
+    public int getTargetPortAddressBottom() {
+        return targetPortAddressBottom;
+    }
+
+    public int getEstaMan() {
+        return estaMan;
+    }
+
+    public int getOem() {
+        return oem;
+    }
 }
@@ -17,41 +17,36 @@
  */
 package me.sschaeffner.jArtnet.packets;
 
+import me.sschaeffner.jArtnet.ArtnetDecodeCodes;
 import me.sschaeffner.jArtnet.ArtnetOpCodes;
+import me.sschaeffner.jArtnet.ArtnetPortAddress;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 /**
  * An ArtPollReply packet.
  *
+ * The packet is backed by a single byte array holding its encoded form; fields are decoded on demand.
+ * Getters returning arrays return a new copy on every call.
+ *
  * @author sschaeffner
  */
 public class ArtPollReplyPacket extends ArtnetPacket {
 
-    private final InetAddress address;
-    private final byte versInfoH;
-    private final byte versInfoL;
-    private final byte netSwitch, subSwitch;
-    private final byte oemHi, oem;
-    private final byte ubeaVersion;
-    private final byte status1;
-    private final byte estaManLo, estaManHi;
-    private final byte[] shortName;
-    private final byte[] longName;
-    private final byte[] nodeReport;
-    private final byte numPortsHi, numPortsLo;
-    private final byte[] portTypes;
-    private final byte[] goodInput, goodOutput;
-    private final byte[] swIn, swOut;
-    private final byte swVideo;
-    private final byte swMacro;
-    private final byte swRemote;
-    private final byte style;
-    private final byte[] mac;
-    private final byte[] bindIp;
-    private final byte bindIndex;
-    private final byte status2;
+    //length of the whole package
+    public static final int PACKAGE_LENGTH = ArtnetPacket.ID.length + 2 + 4 + 2 + 2 + 1+1 + 1+1 + 1 + 1 + 1+1 + 18 + 64 + 64 + 1+1 + 4 + 4+4 + 4+4 + 1 + 1 + 1 + 3 + 1 + 6 + 4 + 1 + 1 + 26;
+
+    //constant ID and opcode
+    private static final byte[] HEADER = ArtnetPacket.constructHeader(ArtnetOpCodes.OP_POLL_REPLY);
+
+    //encoded package
+    private final byte[] bytes;
+
+    //address decoded on first use
+    private InetAddress address;
 
     /**
      * Constructs a new instance of this class.
@@ -62,67 +57,25 @@ public class ArtPollReplyPacket extends ArtnetPacket {
                               byte[] portTypes, byte[] goodInput, byte[] goodOutput, byte[] swIn, byte[] swOut,
                               byte swVideo, byte swMacro, byte swRemote, byte style, byte[] mac, byte[] bindIp,
                               byte bindIndex, byte status2) {
-        this.address = address;
-        this.versInfoH = versInfoH;
-        this.versInfoL = versInfoL;
-        this.netSwitch = netSwitch;
-        this.subSwitch = subSwitch;
-        this.oemHi = oemHi;
-        this.oem = oem;
-        this.ubeaVersion = ubeaVersion;
-        this.status1 = status1;
-        this.estaManLo = estaManLo;
-        this.estaManHi = estaManHi;
         if (shortName.length != 18) throw new IllegalArgumentException("shortName has to be 18 bytes long");
-        this.shortName = shortName;
         if (longName.length != 64) throw new IllegalArgumentException("longName has to be 64 bytes long");
-        this.longName = longName;
         if (nodeReport.length != 64) throw new IllegalArgumentException("nodeReport has to be 4 bytes long");
-        this.nodeReport = nodeReport;
-        this.numPortsHi = numPortsHi;
-        this.numPortsLo = numPortsLo;
         if (portTypes.length != 4) throw new IllegalArgumentException("portTypes has to be 4 bytes long");
-        this.portTypes = portTypes;
         if (goodInput.length != 4) throw new IllegalArgumentException("goodInput has to be 4 bytes long");
-        this.goodInput = goodInput;
         if (goodOutput.length != 4) throw new IllegalArgumentException("goodOutput has to be 4 bytes long");
-        this.goodOutput = goodOutput;
         if (swIn.length != 4) throw new IllegalArgumentException("swIn has to be 4 bytes long");
-        this.swIn = swIn;
         if (swOut.length != 4) throw new IllegalArgumentException("swOut has to be 4 bytes long");
-        this.swOut = swOut;
-        this.swVideo = swVideo;
-        this.swMacro = swMacro;
-        this.swRemote = swRemote;
-        this.style = style;
         if (mac.length != 6) throw new IllegalArgumentException("mac has to be 6 bytes long");
-        this.mac = mac;
         if (bindIp.length != 4) throw new IllegalArgumentException("bindIp has to be 4 bytes long");
-        this.bindIp = bindIp;
-        this.bindIndex = bindIndex;
-        this.status2 = status2;
-    }
-
-    /**
-     * Returns the whole package's data as byte array.
-     *
-     * @return the package's data as byte array
-     */
-    @Override
-    public byte[] getPackageBytes() {
-        int byteArrayLength = ArtnetPacket.ID.length + 2 + 4 + 2 + 2 + 1+1 + 1+1 + 1 + 1 + 1+1 + 18 + 64 + 64 + 1+1 + 4 + 4+4 + 4+4 + 1 + 1 + 1 + 3 + 1 + 6 + 4 + 1 + 1 + 26;
-        byte[] bytes = new byte[byteArrayLength];
 
-        //Art-Net package ID
-        System.arraycopy(ArtnetPacket.ID, 0, bytes, 0, ArtnetPacket.ID.length);
+        this.address = address;
+        this.bytes = new byte[PACKAGE_LENGTH];
 
-        //opcode
-        byte[] opCode = ArtnetOpCodes.toByteArray(ArtnetOpCodes.OP_POLL_REPLY);
-        System.arraycopy(opCode, 0, bytes, ArtnetPacket.ID.length, 2);
+        //Art-Net package ID and opcode
+        System.arraycopy(HEADER, 0, bytes, 0, HEADER.length);
 
         //address
-        byte[] addressBytes = address.getAddress();
-        System.arraycopy(addressBytes, 0, bytes, 10, 4);
+        System.arraycopy(address.getAddress(), 0, bytes, 10, 4);
 
         //port (0x1936)
         byte portLo = (byte) 0x36;
@@ -191,10 +144,7 @@ public class ArtPollReplyPacket extends ArtnetPacket {
         //swRemote
         bytes[196] = swRemote;
 
-        //spare
-        bytes[197] = 0;
-        bytes[198] = 0;
-        bytes[199] = 0;
+        //spare (197 - 199) stays 0
 
         //style
         bytes[200] = style;
@@ -211,12 +161,46 @@ public class ArtPollReplyPacket extends ArtnetPacket {
         //status 2
         bytes[212] = status2;
 
-        //filler
-        for (int i = 0; i < 26; i++) {
-            bytes[213 + i] = 0;
-        }
+        //filler (213 - 238) stays 0
+    }
 
-        return bytes;
+    /**
+     * Constructs a new instance of this class backed by an already encoded package.
+     *
+     * @param bytes encoded package of exactly PACKAGE_LENGTH bytes; not copied
+     */
+    private ArtPollReplyPacket(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    @Override
+    public int getPackageLength() {
+        return PACKAGE_LENGTH;
+    }
+
+    /**
+     * Writes the whole package's data into a buffer.
+     *
+     * @param buffer    buffer to write into
+     * @param offset    position in the buffer to start writing at
+     * @return          amount of bytes written
+     */
+    @Override
+    public int writeTo(byte[] buffer, int offset) {
+        checkCapacity(buffer, offset, PACKAGE_LENGTH);
+        System.arraycopy(bytes, 0, buffer, offset, PACKAGE_LENGTH);
+        return PACKAGE_LENGTH;
+    }
+
+    /**
+     * Checks whether received bytes contain a valid ArtPollReply packet.
+     *
+     * @param bytes     received bytes
+     * @param length    amount of received bytes
+     * @return          one of the {@link ArtnetDecodeCodes}
+     */
+    public static int validate(byte[] bytes, int length) {
+        return validateHeader(bytes, length, PACKAGE_LENGTH, ArtnetOpCodes.OP_POLL_REPLY, -1);
     }
 
     /**
@@ -226,213 +210,330 @@ public class ArtPollReplyPacket extends ArtnetPacket {
      * @return      new instance
      */
     public static ArtPollReplyPacket fromBytes(byte[] bytes) {
-        int byteArrayLength = ArtnetPacket.ID.length + 2 + 4 + 2 + 2 + 1+1 + 1+1 + 1 + 1 + 1+1 + 18 + 64 + 64 + 1+1 + 4 + 4+4 + 4+4 + 1 + 1 + 1 + 3 + 1 + 6 + 4 + 1 + 1 + 26;
-        if (bytes.length < byteArrayLength) {
-            throw new IllegalArgumentException("cannot construct ArtPollReplyPacket from bytes: bytes length not compatible");
-        }
-
-        byte[] opCode = ArtnetOpCodes.toByteArray(ArtnetOpCodes.OP_POLL_REPLY);
-
-        byte rOpCodeLo = bytes[8];
-        byte rOpCodeHi = bytes[9];
-
-        if (rOpCodeLo != opCode[0] || rOpCodeHi != opCode[1]) {
-            throw new IllegalArgumentException("cannot construct ArtPollReplyPacket from bytes: wrong opcode");
-        }
+        return fromBytes(bytes, bytes.length);
+    }
 
-        byte[] addressBytes = new byte[4];
-        System.arraycopy(bytes, 10, addressBytes, 0, 4);
-        InetAddress address;
-        try {
-            address = InetAddress.getByAddress(addressBytes);
-        } catch (UnknownHostException e) {
-            e.printStackTrace();
-            throw new IllegalArgumentException("cannot construct ArtPollReplyPacket from bytes: wrong address");
+    /**
+     * Constructs a new instance of this class from received bytes.
+     *
+     * Only copies the received bytes once; all fields are decoded on demand.
+     *
+     * @param bytes     received bytes
+     * @param length    amount of received bytes
+     * @return          new instance
+     */
+    public static ArtPollReplyPacket fromBytes(byte[] bytes, int length) {
+        int code = validate(bytes, length);
+        if (code != ArtnetDecodeCodes.DC_OK) {
+            throw new IllegalArgumentException("cannot construct ArtPollReplyPacket from bytes: " + ArtnetDecodeCodes.toName(code));
         }
+        return new ArtPollReplyPacket(Arrays.copyOf(bytes, PACKAGE_LENGTH));
+    }
 
-        byte versInfoH = bytes[16];
-        byte versInfoL = bytes[17];
-
-        byte netSwitch = bytes[18];
-        byte subSwitch = bytes[19];
-
-        byte oemHi = bytes[20];
-        byte oem = bytes[21];
-
-        byte ubeaVersion = bytes[22];
-
-        byte status1 = bytes[23];
-
-        byte estaManLo = bytes[24];
-        byte estaManHi = bytes[25];
-
-        byte[] shortName = new byte[18];
-        System.arraycopy(bytes, 26, shortName, 0, 18);
-
-        byte[] longName = new byte[64];
-        System.arraycopy(bytes, 44, longName, 0, 64);
-
-        byte[] nodeReport = new byte[64];
-        System.arraycopy(bytes, 108, nodeReport, 0, 64);
-
-        byte numPortsHi = bytes[172];
-        byte numPortsLo = bytes[173];
-
-        byte[] portTypes = new byte[4];
-        System.arraycopy(bytes, 174, portTypes, 0, 4);
-
-        byte[] goodInput = new byte[4];
-        System.arraycopy(bytes, 178, goodInput, 0, 4);
-        byte[] goodOutput = new byte[4];
-        System.arraycopy(bytes, 182, goodOutput, 0, 4);
-
-        byte[] swIn = new byte[4];
-        System.arraycopy(bytes, 186, swIn, 0, 4);
-        byte[] swOut = new byte[4];
-        System.arraycopy(bytes, 190, swOut, 0, 4);
-
-        byte swVideo = bytes[194];
-
-        byte swMacro = bytes[195];
-
-        byte swRemote = bytes[196];
-
-        byte style = bytes[200];
-
-        byte[] mac = new byte[6];
-        System.arraycopy(bytes, 201, mac, 0, 6);
-
-        byte[] bindIp = new byte[4];
-        System.arraycopy(bytes, 207, bindIp, 0, 4);
+    /**
+     * Checks whether another packet has exactly the same content.
+     *
+     * @param other packet to compare with
+     * @return      whether both packets' bytes are equal
+     */
+    public boolean contentEquals(ArtPollReplyPacket other) {
+        return other != null && Arrays.equals(bytes, other.bytes);
+    }
 
-        byte bindIndex = bytes[211];
+    /**
+     * Checks whether another packet advertises the same short and long name.
+     *
+     * @param other packet to compare with
+     * @return      whether both packets' names are equal
+     */
+    public boolean sameNames(ArtPollReplyPacket other) {
+        return other != null && rangeEquals(bytes, other.bytes, 26, 108);
+    }
 
-        byte status2 = bytes[212];
+    /**
+     * Checks whether another packet has the same node report.
+     *
+     * @param other packet to compare with
+     * @return      whether both packets' node reports are equal
+     */
+    public boolean sameNodeReport(ArtPollReplyPacket other) {
+        return other != null && rangeEquals(bytes, other.bytes, 108, 172);
+    }
 
-        return new ArtPollReplyPacket(address, versInfoH, versInfoL, netSwitch, subSwitch, oemHi, oem, ubeaVersion,
-                status1, estaManLo, estaManHi, shortName, longName, nodeReport, numPortsHi, numPortsLo, portTypes,
-                goodInput, goodOutput, swIn, swOut, swVideo, swMacro, swRemote, style, mac, bindIp, bindIndex, status2);
+    /**
+     * Checks whether another packet advertises the same ports: net, sub-net, amount of ports, port types and
+     * universes. Port status such as good input and good output is not compared.
+     *
+     * @param other packet to compare with
+     * @return      whether both packets' ports are equal
+     */
+    public boolean samePorts(ArtPollReplyPacket other) {
+        return other != null && rangeEquals(bytes, other.bytes, 18, 20) && rangeEquals(bytes, other.bytes, 172, 178)
+                && rangeEquals(bytes, other.bytes, 186, 194);
     }
 
+    /**
+     * Compares a range of two arrays.
+     *
+     * @param a     first array
+     * @param b     second array
+     * @param from  first index to compare
+     * @param to    index after the last one to compare
+     * @return      whether the ranges are equal
+     */
+    private static boolean rangeEquals(byte[] a, byte[] b, int from, int to) {
+        for (int i = from; i < to; i++) if (a[i] != b[i]) return false;
+        return true;
+    }
 
+    /**
+     * Decodes a null terminated string field.
+     *
+     * @param offset    position of the field
+     * @param length    maximum length of the field
+     * @return          decoded string without padding
+     */
+    private String decodeString(int offset, int length) {
+        int end = offset;
+        while (end < offset + length && bytes[end] != 0) end++;
+        return new String(bytes, offset, end - offset, StandardCharsets.US_ASCII).trim();
+    }
 
     public InetAddress getAddress() {
+        if (address == null) {
+            try {
+                address = InetAddress.getByAddress(Arrays.copyOfRange(bytes, 10, 14));
+            } catch (UnknownHostException e) {
+                //cannot happen for 4 address bytes
+                throw new IllegalStateException(e);
+            }
+        }
         return address;
     }
 
     public byte getVersInfoH() {
-        return versInfoH;
+        return bytes[16];
     }
 
     public byte getVersInfoL() {
-        return versInfoL;
+        return bytes[17];
     }
 
     public byte getNetSwitch() {
-        return netSwitch;
+        return bytes[18];
     }
 
     public byte getSubSwitch() {
-        return subSwitch;
+        return bytes[19];
     }
 
     public byte getOemHi() {
-        return oemHi;
+        return bytes[20];
     }
 
     public byte getOem() {
-        return oem;
+        return bytes[21];
     }
 
     public byte getUbeaVersion() {
-        return ubeaVersion;
+        return bytes[22];
     }
 
     public byte getStatus1() {
-        return status1;
+        return bytes[23];
     }
 
     public byte getEstaManLo() {
-        return estaManLo;
+        return bytes[24];
     }
 
     public byte getEstaManHi() {
-        return estaManHi;
+        return bytes[25];
     }
 
     public int getEstaMan() {
-        return ((estaManHi & 0xFF) << 8) + (estaManLo & 0xFF);
+        return ((bytes[25] & 0xFF) << 8) + (bytes[24] & 0xFF);
     }
 
     public byte[] getShortName() {
-        return shortName;
+        return Arrays.copyOfRange(bytes, 26, 26 + 18);
+    }
+
+    public String getShortNameAsString() {
+        return decodeString(26, 18);
     }
 
     public byte[] getLongName() {
-        return longName;
+        return Arrays.copyOfRange(bytes, 44, 44 + 64);
+    }
+
+    public String getLongNameAsString() {
+        return decodeString(44, 64);
     }
 
     public byte[] getNodeReport() {
-        return nodeReport;
+        return Arrays.copyOfRange(bytes, 108, 108 + 64);
+    }
+
+    public String getNodeReportAsString() {
+        return decodeString(108, 64);
+    }
+
+    /**
+     * Returns the code of a node report formatted as "#xxxx [yyyy] text".
+     *
+     * @return hexadecimal report code or -1 if the report is not formatted as such
+     */
+    public int getNodeReportCode() {
+        if (bytes[108] != '#' || bytes[113] != ' ' || bytes[114] != '[') return -1;
+        return parseDigits(109, 4, 16);
+    }
+
+    /**
+     * Returns the counter of a node report formatted as "#xxxx [yyyy] text"; nodes increment it with every reply.
+     *
+     * @return decimal report counter or -1 if the report is not formatted as such
+     */
+    public int getNodeReportCounter() {
+        if (getNodeReportCode() < 0 || bytes[119] != ']') return -1;
+        return parseDigits(115, 4, 10);
+    }
+
+    /**
+     * Parses digits of the packet's bytes without creating a String.
+     *
+     * @param offset    offset of the first digit
+     * @param length    amount of digits
+     * @param radix     radix of the digits
+     * @return          parsed value or -1 if a byte is not a digit
+     */
+    private int parseDigits(int offset, int length, int radix) {
+        int value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            int digit = Character.digit((char) bytes[i], radix);
+            if (digit < 0) return -1;
+            value = value * radix + digit;
+        }
+        return value;
     }
 
     public byte getNumPortsHi() {
-        return numPortsHi;
+        return bytes[172];
     }
 
     public byte getNumPortsLo() {
-        return numPortsLo;
+        return bytes[173];
     }
 
     public byte[] getPortTypes() {
-        return portTypes;
+        return Arrays.copyOfRange(bytes, 174, 174 + 4);
+    }
+
+    public byte getPortType(int port) {
+        return bytes[174 + checkPort(port)];
     }
 
     public byte[] getGoodInput() {
-        return goodInput;
+        return Arrays.copyOfRange(bytes, 178, 178 + 4);
+    }
+
+    public byte getGoodInput(int port) {
+        return bytes[178 + checkPort(port)];
     }
 
     public byte[] getGoodOutput() {
-        return goodOutput;
+        return Arrays.copyOfRange(bytes, 182, 182 + 4);
+    }
+
+    public byte getGoodOutput(int port) {
+        return bytes[182 + checkPort(port)];
     }
 
     public byte[] getSwIn() {
-        return swIn;
+        return Arrays.copyOfRange(bytes, 186, 186 + 4);
+    }
+
+    public byte getSwIn(int port) {
+        return bytes[186 + checkPort(port)];
     }
 
     public byte[] getSwOut() {
-        return swOut;
+        return Arrays.copyOfRange(bytes, 190, 190 + 4);
+    }
+
+    public byte getSwOut(int port) {
+        return bytes[190 + checkPort(port)];
+    }
+
+    /**
+     * Returns the 15-bit port-address of an output port, combining netSwitch, subSwitch and swOut.
+     *
+     * @param port  port index (0-3)
+     * @return      the port's port-address
+     */
+    public int getOutputPortAddress(int port) {
+        return ((bytes[18] & 0x7F) << 8) | ((bytes[19] & 0x0F) << 4) | (getSwOut(port) & 0x0F);
+    }
+
+    /**
+     * Returns the 15-bit port-address of an input port, combining netSwitch, subSwitch and swIn.
+     *
+     * @param port  port index (0-3)
+     * @return      the port's port-address
+     */
+    public int getInputPortAddress(int port) {
+        return ((bytes[18] & 0x7F) << 8) | ((bytes[19] & 0x0F) << 4) | (getSwIn(port) & 0x0F);
+    }
+
+    /**
+     * Returns the amount of ports described by this packet.
+     *
+     * @return amount of ports (0-4)
+     */
+    public int getNumPorts() {
+        return Math.min(((bytes[172] & 0xFF) << 8) | (bytes[173] & 0xFF), ArtnetPortAddress.PORTS_PER_REPLY);
     }
 
     public byte getSwVideo() {
-        return swVideo;
+        return bytes[194];
     }
 
     public byte getSwMacro() {
-        return swMacro;
+        return bytes[195];
     }
 
     public byte getSwRemote() {
-        return swRemote;
+        return bytes[196];
     }
 
     public byte getStyle() {
-        return style;
+        return bytes[200];
     }
 
     public byte[] getMac() {
-        return mac;
+        return Arrays.copyOfRange(bytes, 201, 201 + 6);
     }
 
     public byte[] getBindIp() {
-        return bindIp;
+        return Arrays.copyOfRange(bytes, 207, 207 + 4);
     }
 
     public byte getBindIndex() {
-        return bindIndex;
+        return bytes[211];
     }
 
     public byte getStatus2() {
-        return status2;
+        return bytes[212];
+    }
+
+    /**
+     * Checks whether a port index is between 0 and 3.
+     *
+     * @param port  port index
+     * @return      the port index
+     */
+    private static int checkPort(int port) {
+        if (port < 0 || port > 3) throw new IndexOutOfBoundsException("port has to be between 0 and 3");
+        return port;
     }
 }
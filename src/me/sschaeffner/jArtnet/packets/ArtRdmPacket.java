@@ -0,0 +1,330 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet.packets;
+
+import me.sschaeffner.jArtnet.ArtnetDecodeCodes;
+import me.sschaeffner.jArtnet.ArtnetOpCodes;
+
+import java.util.Arrays;
+
+/**
+ * An ArtRdm packet.
+ *
+ * Carries one RDM message (without its start code) to or from the devices on a node's port-address.
+ *
+ * @author sschaeffner
+ */
+public class ArtRdmPacket extends ArtnetPacket {
+    public static final byte protVerHi = 3;
+    public static final byte protVerLo = 14;
+
+    //minimum protocol version accepted when decoding
+    private static final int MIN_PROT_VER = (protVerHi << 8) | protVerLo;
+
+    //length of the package without the RDM message
+    public static final int HEADER_LENGTH = ArtnetPacket.ID.length + 2 + 1+1 + 1+1 + 7 + 1 + 1 + 1;
+
+    //RDM start code, sub-start code and version
+    public static final int RDM_START_CODE = 0xCC;
+    public static final int RDM_SUB_START_CODE = 0x01;
+    public static final byte RDM_VERSION = 0x01;
+
+    //length of an RDM message without start code, parameter data and checksum
+    public static final int RDM_HEADER_LENGTH = 23;
+
+    //RDM command classes
+    public static final int CC_GET_COMMAND = 0x20;
+    public static final int CC_GET_COMMAND_RESPONSE = 0x21;
+    public static final int CC_SET_COMMAND = 0x30;
+    public static final int CC_SET_COMMAND_RESPONSE = 0x31;
+
+    //RDM response types
+    public static final int RESPONSE_TYPE_ACK = 0x00;
+    public static final int RESPONSE_TYPE_ACK_TIMER = 0x01;
+    public static final int RESPONSE_TYPE_NACK_REASON = 0x02;
+    public static final int RESPONSE_TYPE_ACK_OVERFLOW = 0x03;
+
+    //command: process the RDM message
+    public static final byte AR_PROCESS = 0x00;
+
+    //constant ID, opcode and protVer
+    private static final byte[] HEADER = ArtnetPacket.constructHeader(ArtnetOpCodes.OP_RDM, protVerHi, protVerLo);
+
+    //15-bit port-address
+    private final int portAddress;
+
+    //RDM message without start code
+    private final byte[] rdm;
+
+    /**
+     * Constructs a new instance of this class.
+     *
+     * @param portAddress   15-bit port-address
+     * @param rdm           RDM message without start code
+     */
+    public ArtRdmPacket(int portAddress, byte[] rdm) {
+        if (rdm.length > 255) throw new IllegalArgumentException("an RDM message can be at most 255 bytes long");
+        this.portAddress = portAddress & 0x7FFF;
+        this.rdm = rdm;
+    }
+
+    /**
+     * Constructs a new instance of this class carrying an RDM GET command.
+     *
+     * @param portAddress   15-bit port-address
+     * @param destUid       UID of the addressed device
+     * @param srcUid        UID of the controller
+     * @param transaction   transaction number
+     * @param subDevice     sub-device; 0 is the root device
+     * @param pid           parameter id
+     * @return              new instance
+     */
+    public static ArtRdmPacket get(int portAddress, long destUid, long srcUid, byte transaction, int subDevice, int pid) {
+        return new ArtRdmPacket(portAddress, encodeRdm(destUid, srcUid, transaction, 1, subDevice, CC_GET_COMMAND, pid, new byte[0]));
+    }
+
+    /**
+     * Constructs a new instance of this class carrying an RDM response.
+     *
+     * @param portAddress   15-bit port-address
+     * @param destUid       UID of the controller
+     * @param srcUid        UID of the responding device
+     * @param transaction   transaction number of the request
+     * @param responseType  one of the RESPONSE_TYPE_ constants
+     * @param commandClass  command class of the response
+     * @param pid           parameter id
+     * @param data          parameter data
+     * @return              new instance
+     */
+    public static ArtRdmPacket response(int portAddress, long destUid, long srcUid, byte transaction, int responseType,
+                                        int commandClass, int pid, byte[] data) {
+        return new ArtRdmPacket(portAddress, encodeRdm(destUid, srcUid, transaction, responseType, 0, commandClass, pid, data));
+    }
+
+    /**
+     * Encodes an RDM message without start code.
+     *
+     * @param destUid       UID of the addressed device
+     * @param srcUid        UID of the sender
+     * @param transaction   transaction number
+     * @param portId        port id of a request or response type of a response
+     * @param subDevice     sub-device
+     * @param commandClass  command class
+     * @param pid           parameter id
+     * @param data          parameter data (up to 231 bytes)
+     * @return              the encoded message
+     */
+    private static byte[] encodeRdm(long destUid, long srcUid, byte transaction, int portId, int subDevice,
+                                    int commandClass, int pid, byte[] data) {
+        if (data.length > 231) throw new IllegalArgumentException("RDM parameter data can be at most 231 bytes long");
+        byte[] rdm = new byte[RDM_HEADER_LENGTH + data.length + 2];
+
+        rdm[0] = RDM_SUB_START_CODE;
+        //message length including start code, excluding checksum
+        rdm[1] = (byte) (RDM_HEADER_LENGTH + 1 + data.length);
+        writeUid(rdm, 2, destUid);
+        writeUid(rdm, 8, srcUid);
+        rdm[14] = transaction;
+        rdm[15] = (byte) portId;
+        rdm[16] = 0;
+        rdm[17] = (byte) (subDevice >>> 8);
+        rdm[18] = (byte) subDevice;
+        rdm[19] = (byte) commandClass;
+        rdm[20] = (byte) (pid >>> 8);
+        rdm[21] = (byte) pid;
+        rdm[22] = (byte) data.length;
+        System.arraycopy(data, 0, rdm, RDM_HEADER_LENGTH, data.length);
+
+        int checksum = checksum(rdm, RDM_HEADER_LENGTH + data.length);
+        rdm[rdm.length - 2] = (byte) (checksum >>> 8);
+        rdm[rdm.length - 1] = (byte) checksum;
+        return rdm;
+    }
+
+    /**
+     * Calculates the checksum of an RDM message: the sum of all its bytes including the start code.
+     *
+     * @param rdm       RDM message without start code
+     * @param length    amount of bytes to sum up (without start code)
+     * @return          16 bit checksum
+     */
+    private static int checksum(byte[] rdm, int length) {
+        int sum = RDM_START_CODE;
+        for (int i = 0; i < length; i++) sum += rdm[i] & 0xFF;
+        return sum & 0xFFFF;
+    }
+
+    /**
+     * Reads a 48-bit RDM UID (manufacturer id and device id, big-endian).
+     *
+     * @param bytes     data to read from
+     * @param offset    position of the UID
+     * @return          the UID
+     */
+    static long readUid(byte[] bytes, int offset) {
+        long uid = 0;
+        for (int i = 0; i < 6; i++) uid = (uid << 8) | (bytes[offset + i] & 0xFF);
+        return uid;
+    }
+
+    /**
+     * Writes a 48-bit RDM UID (manufacturer id and device id, big-endian).
+     *
+     * @param bytes     data to write into
+     * @param offset    position of the UID
+     * @param uid       the UID
+     */
+    static void writeUid(byte[] bytes, int offset, long uid) {
+        for (int i = 5; i >= 0; i--) {
+            bytes[offset + i] = (byte) uid;
+            uid >>>= 8;
+        }
+    }
+
+    /**
+     * Returns a UID in its usual notation (manufacturer:device, hexadecimal).
+     *
+     * @param uid   48-bit UID
+     * @return      UID as String
+     */
+    public static String uidToString(long uid) {
+        return String.format("%04x:%08x", (uid >>> 32) & 0xFFFF, uid & 0xFFFFFFFFL);
+    }
+
+    @Override
+    public int getPackageLength() {
+        return HEADER_LENGTH + rdm.length;
+    }
+
+    /**
+     * Writes the whole package's data into a buffer.
+     *
+     * @param buffer    buffer to write into
+     * @param offset    position in the buffer to start writing at
+     * @return          amount of bytes written
+     */
+    @Override
+    public int writeTo(byte[] buffer, int offset) {
+        checkCapacity(buffer, offset, getPackageLength());
+
+        //Art-Net package ID, op code and protVer
+        System.arraycopy(HEADER, 0, buffer, offset, HEADER.length);
+
+        //RDM version, filler 2, spare 1-7
+        buffer[offset + 12] = RDM_VERSION;
+        Arrays.fill(buffer, offset + 13, offset + 21, (byte) 0);
+
+        //net, command and address
+        buffer[offset + 21] = (byte) (portAddress >>> 8);
+        buffer[offset + 22] = AR_PROCESS;
+        buffer[offset + 23] = (byte) portAddress;
+
+        //RDM message
+        System.arraycopy(rdm, 0, buffer, offset + HEADER_LENGTH, rdm.length);
+
+        return getPackageLength();
+    }
+
+    /**
+     * Checks whether received bytes contain a valid ArtRdm packet.
+     *
+     * The RDM message itself is checked by {@link #isRdmValid()}.
+     *
+     * @param bytes     received bytes
+     * @param length    amount of received bytes
+     * @return          one of the {@link ArtnetDecodeCodes}
+     */
+    public static int validate(byte[] bytes, int length) {
+        return validateHeader(bytes, length, HEADER_LENGTH, ArtnetOpCodes.OP_RDM, MIN_PROT_VER);
+    }
+
+    /**
+     * Constructs a new instance of this class from received bytes.
+     *
+     * @param bytes     received bytes
+     * @param length    amount of received bytes
+     * @return          new instance
+     */
+    public static ArtRdmPacket fromBytes(byte[] bytes, int length) {
+        int code = validate(bytes, length);
+        if (code != ArtnetDecodeCodes.DC_OK) {
+            throw new IllegalArgumentException("cannot construct ArtRdmPacket from bytes: " + ArtnetDecodeCodes.toName(code));
+        }
+        int portAddress = ((bytes[21] & 0x7F) << 8) | (bytes[23] & 0xFF);
+        return new ArtRdmPacket(portAddress, Arrays.copyOfRange(bytes, HEADER_LENGTH, Math.min(length, HEADER_LENGTH + 255)));
+    }
+
+    /**
+     * Checks whether the carried RDM message is complete and its checksum matches.
+     *
+     * @return whether the RDM message can be read
+     */
+    public boolean isRdmValid() {
+        if (rdm.length < RDM_HEADER_LENGTH + 2 || (rdm[0] & 0xFF) != RDM_SUB_START_CODE) return false;
+        int messageLength = (rdm[1] & 0xFF) - 1;
+        if (messageLength < RDM_HEADER_LENGTH || messageLength + 2 > rdm.length) return false;
+        if (RDM_HEADER_LENGTH + (rdm[22] & 0xFF) != messageLength) return false;
+        int checksum = ((rdm[messageLength] & 0xFF) << 8) | (rdm[messageLength + 1] & 0xFF);
+        return checksum == checksum(rdm, messageLength);
+    }
+
+    public int getPortAddress() {
+        return portAddress;
+    }
+
+    public byte[] getRdm() {
+        return Arrays.copyOf(rdm, rdm.length);
+    }
+
+    public long getDestUid() {
+        return readUid(rdm, 2);
+    }
+
+    public long getSourceUid() {
+        return readUid(rdm, 8);
+    }
+
+    public byte getTransaction() {
+        return rdm[14];
+    }
+
+    /**
+     * Returns the port id of a request or the response type of a response.
+     *
+     * @return port id or one of the RESPONSE_TYPE_ constants
+     */
+    public int getResponseType() {
+        return rdm[15] & 0xFF;
+    }
+
+    public int getSubDevice() {
+        return ((rdm[17] & 0xFF) << 8) | (rdm[18] & 0xFF);
+    }
+
+    public int getCommandClass() {
+        return rdm[19] & 0xFF;
+    }
+
+    public int getPid() {
+        return ((rdm[20] & 0xFF) << 8) | (rdm[21] & 0xFF);
+    }
+
+    public byte[] getParameterData() {
+        return Arrays.copyOfRange(rdm, RDM_HEADER_LENGTH, RDM_HEADER_LENGTH + (rdm[22] & 0xFF));
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet.packets;
+
+import me.sschaeffner.jArtnet.ArtnetDecodeCodes;
+import me.sschaeffner.jArtnet.ArtnetOpCodes;
+
+/**
+ * An ArtSync packet.
+ *
+ * Tells all nodes to output the ArtDmx packets received since the last ArtSync at the same time.
+ *
+ * @author sschaeffner
+ */
+public class ArtSyncPacket extends ArtnetPacket {
+    public static final byte protVerHi = 3;
+    public static final byte protVerLo = 14;
+
+    //minimum protocol version accepted when decoding
+    private static final int MIN_PROT_VER = (protVerHi << 8) | protVerLo;
+
+    //length of the whole package
+    public static final int PACKAGE_LENGTH = ArtnetPacket.ID.length + 2 + 1+1 + 1 + 1;
+
+    //constant ID, opcode and protVer
+    private static final byte[] HEADER = ArtnetPacket.constructHeader(ArtnetOpCodes.OP_SYNC, protVerHi, protVerLo);
+
+    /**
+     * Constructs a new instance of this class.
+     */
+    public ArtSyncPacket() {
+    }
+
+    @Override
+    public int getPackageLength() {
+        return PACKAGE_LENGTH;
+    }
+
+    /**
+     * Writes the whole package's data into a buffer.
+     *
+     * @param buffer    buffer to write into
+     * @param offset    position in the buffer to start writing at
+     * @return          amount of bytes written
+     */
+    @Override
+    public int writeTo(byte[] buffer, int offset) {
+        checkCapacity(buffer, offset, PACKAGE_LENGTH);
+
+        //Art-Net package ID, op code and protVer
+        System.arraycopy(HEADER, 0, buffer, offset, HEADER.length);
+
+        //aux1 and aux2
+        buffer[offset + 12] = 0;
+        buffer[offset + 13] = 0;
+
+        return PACKAGE_LENGTH;
+    }
+
+    /**
+     * Checks whether received bytes contain a valid ArtSync packet.
+     *
+     * @param bytes     received bytes
+     * @param length    amount of received bytes
+     * @return          one of the {@link ArtnetDecodeCodes}
+     */
+    public static int validate(byte[] bytes, int length) {
+        return validateHeader(bytes, length, PACKAGE_LENGTH, ArtnetOpCodes.OP_SYNC, MIN_PROT_VER);
+    }
+
+    /**
+     * Constructs a new instance of this class from received bytes.
+     *
+     * @param bytes     received bytes
+     * @param length    amount of received bytes
+     * @return          new instance
+     */
+    public static ArtSyncPacket fromBytes(byte[] bytes, int length) {
+        int code = validate(bytes, length);
+        if (code != ArtnetDecodeCodes.DC_OK) {
+            throw new IllegalArgumentException("cannot construct ArtSyncPacket from bytes: " + ArtnetDecodeCodes.toName(code));
+        }
+        return new ArtSyncPacket();
+    }
+}
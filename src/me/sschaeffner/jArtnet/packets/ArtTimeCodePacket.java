@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet.packets;
+
+import me.sschaeffner.jArtnet.ArtnetDecodeCodes;
+import me.sschaeffner.jArtnet.ArtnetOpCodes;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An ArtTimeCode packet.
+ *
+ * Transports a time code (hours, minutes, seconds, frames) and its frame rate.
+ *
+ * @author sschaeffner
+ */
+public class ArtTimeCodePacket extends ArtnetPacket {
+    public static final byte protVerHi = 3;
+    public static final byte protVerLo = 14;
+
+    //minimum protocol version accepted when decoding
+    private static final int MIN_PROT_VER = (protVerHi << 8) | protVerLo;
+
+    //length of the whole package
+    public static final int PACKAGE_LENGTH = ArtnetPacket.ID.length + 2 + 1+1 + 1 + 1 + 1 + 1 + 1 + 1 + 1;
+
+    //time code types
+    public static final byte TYPE_FILM = 0;
+    public static final byte TYPE_EBU = 1;
+    public static final byte TYPE_DF = 2;
+    public static final byte TYPE_SMPTE = 3;
+
+    //constant ID, opcode and protVer
+    private static final byte[] HEADER = ArtnetPacket.constructHeader(ArtnetOpCodes.OP_TIME_CODE, protVerHi, protVerLo);
+
+    //stream id; 0 is the master stream
+    private final byte streamId;
+
+    //frames (0-29), seconds (0-59), minutes (0-59), hours (0-23)
+    private final byte frames, seconds, minutes, hours;
+
+    //time code type (one of the TYPE_ constants)
+    private final byte type;
+
+    /**
+     * Constructs a new instance of this class.
+     *
+     * @param streamId  stream id; 0 is the master stream
+     * @param frames    frames (0 up to the frame rate - 1)
+     * @param seconds   seconds (0-59)
+     * @param minutes   minutes (0-59)
+     * @param hours     hours (0-23)
+     * @param type      time code type (one of the TYPE_ constants)
+     */
+    public ArtTimeCodePacket(byte streamId, byte frames, byte seconds, byte minutes, byte hours, byte type) {
+        this.streamId = streamId;
+        this.frames = frames;
+        this.seconds = seconds;
+        this.minutes = minutes;
+        this.hours = hours;
+        this.type = type;
+    }
+
+    /**
+     * Constructs a new instance of this class from a duration.
+     *
+     * The duration is rounded down to whole frames and wraps around after 24 hours.
+     *
+     * @param streamId  stream id; 0 is the master stream
+     * @param nanos     duration in nanoseconds
+     * @param type      time code type (one of the TYPE_ constants)
+     * @return          new instance
+     */
+    public static ArtTimeCodePacket fromNanos(byte streamId, long nanos, byte type) {
+        int fps = getFramesPerSecond(type);
+        long totalFrames = Math.max(nanos, 0) * fps / TimeUnit.SECONDS.toNanos(1);
+        long totalSeconds = totalFrames / fps;
+        return new ArtTimeCodePacket(streamId, (byte) (totalFrames % fps), (byte) (totalSeconds % 60),
+                (byte) (totalSeconds / 60 % 60), (byte) (totalSeconds / 3600 % 24), type);
+    }
+
+    /**
+     * Returns the amount of frames per second of a time code type.
+     *
+     * Drop frame time code is counted with 30 frames per second.
+     *
+     * @param type  time code type (one of the TYPE_ constants)
+     * @return      frames per second
+     */
+    public static int getFramesPerSecond(byte type) {
+        switch (type) {
+            case TYPE_FILM:
+                return 24;
+            case TYPE_EBU:
+                return 25;
+            case TYPE_DF:
+            case TYPE_SMPTE:
+                return 30;
+            default:
+                throw new IllegalArgumentException("unknown time code type " + type);
+        }
+    }
+
+    @Override
+    public int getPackageLength() {
+        return PACKAGE_LENGTH;
+    }
+
+    /**
+     * Writes the whole package's data into a buffer.
+     *
+     * @param buffer    buffer to write into
+     * @param offset    position in the buffer to start writing at
+     * @return          amount of bytes written
+     */
+    @Override
+    public int writeTo(byte[] buffer, int offset) {
+        checkCapacity(buffer, offset, PACKAGE_LENGTH);
+
+        //Art-Net package ID, op code and protVer
+        System.arraycopy(HEADER, 0, buffer, offset, HEADER.length);
+
+        //filler and stream id
+        buffer[offset + 12] = 0;
+        buffer[offset + 13] = streamId;
+
+        //time code
+        buffer[offset + 14] = frames;
+        buffer[offset + 15] = seconds;
+        buffer[offset + 16] = minutes;
+        buffer[offset + 17] = hours;
+        buffer[offset + 18] = type;
+
+        return PACKAGE_LENGTH;
+    }
+
+    /**
+     * Checks whether received bytes contain a valid ArtTimeCode packet.
+     *
+     * @param bytes     received bytes
+     * @param length    amount of received bytes
+     * @return          one of the {@link ArtnetDecodeCodes}
+     */
+    public static int validate(byte[] bytes, int length) {
+        return validateHeader(bytes, length, PACKAGE_LENGTH, ArtnetOpCodes.OP_TIME_CODE, MIN_PROT_VER);
+    }
+
+    /**
+     * Constructs a new instance of this class from received bytes.
+     *
+     * @param bytes     received bytes
+     * @param length    amount of received bytes
+     * @return          new instance
+     */
+    public static ArtTimeCodePacket fromBytes(byte[] bytes, int length) {
+        int code = validate(bytes, length);
+        if (code != ArtnetDecodeCodes.DC_OK) {
+            throw new IllegalArgumentException("cannot construct ArtTimeCodePacket from bytes: " + ArtnetDecodeCodes.toName(code));
+        }
+        return new ArtTimeCodePacket(bytes[13], bytes[14], bytes[15], bytes[16], bytes[17], bytes[18]);
+    }
+
+    /**
+     * Returns the time code as a duration.
+     *
+     * @return duration in nanoseconds
+     */
+    public long toNanos() {
+        long totalSeconds = (hours & 0xFF) * 3600L + (minutes & 0xFF) * 60L + (seconds & 0xFF);
+        return TimeUnit.SECONDS.toNanos(totalSeconds) + TimeUnit.SECONDS.toNanos(frames & 0xFF) / getFramesPerSecond(type);
+    }
+
+    public byte getStreamId() {
+        return streamId;
+    }
+
+    public byte getFrames() {
+        return frames;
+    }
+
+    public byte getSeconds() {
+        return seconds;
+    }
+
+    public byte getMinutes() {
+        return minutes;
+    }
+
+    public byte getHours() {
+        return hours;
+    }
+
+    public byte getType() {
+        return type;
+    }
+}
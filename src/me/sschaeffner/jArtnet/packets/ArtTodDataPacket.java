@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet.packets;
+
+import me.sschaeffner.jArtnet.ArtnetDecodeCodes;
+import me.sschaeffner.jArtnet.ArtnetOpCodes;
+
+import java.util.Arrays;
+
+/**
+ * An ArtTodData packet.
+ *
+ * Carries (a block of) the table of RDM devices (TOD) of a node's port-address. Nodes send it in reply to an
+ * ArtTodRequest or ArtTodControl and whenever their TOD changes.
+ *
+ * @author sschaeffner
+ */
+public class ArtTodDataPacket extends ArtnetPacket {
+    public static final byte protVerHi = 3;
+    public static final byte protVerLo = 14;
+
+    //minimum protocol version accepted when decoding
+    private static final int MIN_PROT_VER = (protVerHi << 8) | protVerLo;
+
+    //length of the package without UIDs
+    public static final int HEADER_LENGTH = ArtnetPacket.ID.length + 2 + 1+1 + 1 + 1 + 6 + 1 + 1 + 1 + 1 + 1+1 + 1 + 1;
+
+    //maximum amount of UIDs per packet
+    public static final int MAX_UIDS = 200;
+
+    //command responses
+    public static final byte TOD_FULL = 0x00;
+    public static final byte TOD_NAK = (byte) 0xFF;
+
+    //constant ID, opcode and protVer
+    private static final byte[] HEADER = ArtnetPacket.constructHeader(ArtnetOpCodes.OP_TOD_DATA, protVerHi, protVerLo);
+
+    //physical port (1-4) and bind index of the node
+    private final byte port, bindIndex;
+
+    //15-bit port-address
+    private final int portAddress;
+
+    //command response
+    private final byte commandResponse;
+
+    //total amount of UIDs in the TOD
+    private final int uidTotal;
+
+    //index of this block
+    private final byte blockCount;
+
+    //UIDs in this block
+    private final long[] uids;
+
+    /**
+     * Constructs a new instance of this class.
+     *
+     * @param port              physical port (1-4)
+     * @param bindIndex         bind index of the node
+     * @param portAddress       15-bit port-address
+     * @param commandResponse   {@link #TOD_FULL} or {@link #TOD_NAK}
+     * @param uidTotal          total amount of UIDs in the TOD
+     * @param blockCount        index of this block
+     * @param uids              UIDs in this block (up to 200)
+     */
+    public ArtTodDataPacket(byte port, byte bindIndex, int portAddress, byte commandResponse, int uidTotal, byte blockCount, long[] uids) {
+        if (uids.length > MAX_UIDS) throw new IllegalArgumentException("at most 200 UIDs fit into one packet");
+        this.port = port;
+        this.bindIndex = bindIndex;
+        this.portAddress = portAddress & 0x7FFF;
+        this.commandResponse = commandResponse;
+        this.uidTotal = uidTotal;
+        this.blockCount = blockCount;
+        this.uids = uids;
+    }
+
+    /**
+     * Splits a whole TOD into packets.
+     *
+     * @param port          physical port (1-4)
+     * @param bindIndex     bind index of the node
+     * @param portAddress   15-bit port-address
+     * @param tod           all UIDs of the port-address
+     * @return              one packet per block of up to 200 UIDs
+     */
+    public static ArtTodDataPacket[] forTod(byte port, byte bindIndex, int portAddress, long[] tod) {
+        int blocks = Math.max((tod.length + MAX_UIDS - 1) / MAX_UIDS, 1);
+        ArtTodDataPacket[] packets = new ArtTodDataPacket[blocks];
+        for (int i = 0; i < blocks; i++) {
+            long[] block = Arrays.copyOfRange(tod, i * MAX_UIDS, Math.min((i + 1) * MAX_UIDS, tod.length));
+            packets[i] = new ArtTodDataPacket(port, bindIndex, portAddress, TOD_FULL, tod.length, (byte) i, block);
+        }
+        return packets;
+    }
+
+    @Override
+    public int getPackageLength() {
+        return HEADER_LENGTH + uids.length * 6;
+    }
+
+    /**
+     * Writes the whole package's data into a buffer.
+     *
+     * @param buffer    buffer to write into
+     * @param offset    position in the buffer to start writing at
+     * @return          amount of bytes written
+     */
+    @Override
+    public int writeTo(byte[] buffer, int offset) {
+        checkCapacity(buffer, offset, getPackageLength());
+
+        //Art-Net package ID, op code and protVer
+        System.arraycopy(HEADER, 0, buffer, offset, HEADER.length);
+
+        //RDM version and port
+        buffer[offset + 12] = ArtRdmPacket.RDM_VERSION;
+        buffer[offset + 13] = port;
+
+        //spare 1-6
+        Arrays.fill(buffer, offset + 14, offset + 20, (byte) 0);
+
+        //bind index, net, command response and address
+        buffer[offset + 20] = bindIndex;
+        buffer[offset + 21] = (byte) (portAddress >>> 8);
+        buffer[offset + 22] = commandResponse;
+        buffer[offset + 23] = (byte) portAddress;
+
+        //uidTotal (hi, lo), block count and uid count
+        buffer[offset + 24] = (byte) (uidTotal >>> 8);
+        buffer[offset + 25] = (byte) uidTotal;
+        buffer[offset + 26] = blockCount;
+        buffer[offset + 27] = (byte) uids.length;
+
+        //UIDs
+        for (int i = 0; i < uids.length; i++) ArtRdmPacket.writeUid(buffer, offset + HEADER_LENGTH + i * 6, uids[i]);
+
+        return getPackageLength();
+    }
+
+    /**
+     * Checks whether received bytes contain a valid ArtTodData packet.
+     *
+     * @param bytes     received bytes
+     * @param length    amount of received bytes
+     * @return          one of the {@link ArtnetDecodeCodes}
+     */
+    public static int validate(byte[] bytes, int length) {
+        int code = validateHeader(bytes, length, HEADER_LENGTH, ArtnetOpCodes.OP_TOD_DATA, MIN_PROT_VER);
+        if (code != ArtnetDecodeCodes.DC_OK) return code;
+
+        int uidCount = bytes[27] & 0xFF;
+        if (uidCount > MAX_UIDS || length < HEADER_LENGTH + uidCount * 6) return ArtnetDecodeCodes.DC_LENGTH_MISMATCH;
+        return ArtnetDecodeCodes.DC_OK;
+    }
+
+    /**
+     * Constructs a new instance of this class from received bytes.
+     *
+     * @param bytes     received bytes
+     * @param length    amount of received bytes
+     * @return          new instance
+     */
+    public static ArtTodDataPacket fromBytes(byte[] bytes, int length) {
+        int code = validate(bytes, length);
+        if (code != ArtnetDecodeCodes.DC_OK) {
+            throw new IllegalArgumentException("cannot construct ArtTodDataPacket from bytes: " + ArtnetDecodeCodes.toName(code));
+        }
+        long[] uids = new long[bytes[27] & 0xFF];
+        for (int i = 0; i < uids.length; i++) uids[i] = ArtRdmPacket.readUid(bytes, HEADER_LENGTH + i * 6);
+
+        int portAddress = ((bytes[21] & 0x7F) << 8) | (bytes[23] & 0xFF);
+        int uidTotal = ((bytes[24] & 0xFF) << 8) | (bytes[25] & 0xFF);
+        return new ArtTodDataPacket(bytes[13], bytes[20], portAddress, bytes[22], uidTotal, bytes[26], uids);
+    }
+
+    public byte getPort() {
+        return port;
+    }
+
+    public byte getBindIndex() {
+        return bindIndex;
+    }
+
+    public int getPortAddress() {
+        return portAddress;
+    }
+
+    public byte getCommandResponse() {
+        return commandResponse;
+    }
+
+    public int getUidTotal() {
+        return uidTotal;
+    }
+
+    public byte getBlockCount() {
+        return blockCount;
+    }
+
+    public long[] getUids() {
+        return Arrays.copyOf(uids, uids.length);
+    }
+}
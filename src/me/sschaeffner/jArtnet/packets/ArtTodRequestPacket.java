@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet.packets;
+
+import me.sschaeffner.jArtnet.ArtnetDecodeCodes;
+import me.sschaeffner.jArtnet.ArtnetOpCodes;
+
+import java.util.Arrays;
+
+/**
+ * An ArtTodRequest packet.
+ *
+ * Asks a node to send the table of RDM devices (TOD) of up to 32 port-addresses sharing one net.
+ *
+ * @author sschaeffner
+ */
+public class ArtTodRequestPacket extends ArtnetPacket {
+    public static final byte protVerHi = 3;
+    public static final byte protVerLo = 14;
+
+    //minimum protocol version accepted when decoding
+    private static final int MIN_PROT_VER = (protVerHi << 8) | protVerLo;
+
+    //length of the whole package
+    public static final int PACKAGE_LENGTH = ArtnetPacket.ID.length + 2 + 1+1 + 1+1 + 7 + 1 + 1 + 1 + 32;
+
+    //maximum amount of port-addresses per request
+    public static final int MAX_ADDRESSES = 32;
+
+    //command: send the entire TOD
+    public static final byte TOD_FULL = 0;
+
+    //constant ID, opcode and protVer
+    private static final byte[] HEADER = ArtnetPacket.constructHeader(ArtnetOpCodes.OP_TOD_REQUEST, protVerHi, protVerLo);
+
+    //net of all requested port-addresses
+    private final byte net;
+
+    //command
+    private final byte command;
+
+    //sub-net and universe of the requested port-addresses
+    private final byte[] addresses;
+
+    /**
+     * Constructs a new instance of this class.
+     *
+     * @param net       net of all requested port-addresses
+     * @param command   command
+     * @param addresses sub-net and universe of the requested port-addresses (up to 32)
+     */
+    public ArtTodRequestPacket(byte net, byte command, byte[] addresses) {
+        if (addresses.length > MAX_ADDRESSES) throw new IllegalArgumentException("at most 32 addresses can be requested");
+        this.net = net;
+        this.command = command;
+        this.addresses = addresses;
+    }
+
+    /**
+     * Constructs a new instance of this class requesting the full TOD of port-addresses.
+     *
+     * @param portAddresses 15-bit port-addresses sharing one net (up to 32)
+     * @return              new instance
+     */
+    public static ArtTodRequestPacket of(int... portAddresses) {
+        if (portAddresses.length == 0) throw new IllegalArgumentException("at least one port-address has to be requested");
+        int net = portAddresses[0] >>> 8;
+        byte[] addresses = new byte[portAddresses.length];
+        for (int i = 0; i < portAddresses.length; i++) {
+            if (portAddresses[i] >>> 8 != net) throw new IllegalArgumentException("all port-addresses have to share one net");
+            addresses[i] = (byte) portAddresses[i];
+        }
+        return new ArtTodRequestPacket((byte) net, TOD_FULL, addresses);
+    }
+
+    @Override
+    public int getPackageLength() {
+        return PACKAGE_LENGTH;
+    }
+
+    /**
+     * Writes the whole package's data into a buffer.
+     *
+     * @param buffer    buffer to write into
+     * @param offset    position in the buffer to start writing at
+     * @return          amount of bytes written
+     */
+    @Override
+    public int writeTo(byte[] buffer, int offset) {
+        checkCapacity(buffer, offset, PACKAGE_LENGTH);
+
+        //Art-Net package ID, op code and protVer
+        System.arraycopy(HEADER, 0, buffer, offset, HEADER.length);
+
+        //filler 1 and 2, spare 1-7
+        Arrays.fill(buffer, offset + 12, offset + 21, (byte) 0);
+
+        //net, command and address count
+        buffer[offset + 21] = net;
+        buffer[offset + 22] = command;
+        buffer[offset + 23] = (byte) addresses.length;
+
+        //addresses
+        System.arraycopy(addresses, 0, buffer, offset + 24, addresses.length);
+        Arrays.fill(buffer, offset + 24 + addresses.length, offset + PACKAGE_LENGTH, (byte) 0);
+
+        return PACKAGE_LENGTH;
+    }
+
+    /**
+     * Checks whether received bytes contain a valid ArtTodRequest packet.
+     *
+     * @param bytes     received bytes
+     * @param length    amount of received bytes
+     * @return          one of the {@link ArtnetDecodeCodes}
+     */
+    public static int validate(byte[] bytes, int length) {
+        int code = validateHeader(bytes, length, PACKAGE_LENGTH, ArtnetOpCodes.OP_TOD_REQUEST, MIN_PROT_VER);
+        if (code == ArtnetDecodeCodes.DC_OK && (bytes[23] & 0xFF) > MAX_ADDRESSES) return ArtnetDecodeCodes.DC_LENGTH_MISMATCH;
+        return code;
+    }
+
+    /**
+     * Constructs a new instance of this class from received bytes.
+     *
+     * @param bytes     received bytes
+     * @param length    amount of received bytes
+     * @return          new instance
+     */
+    public static ArtTodRequestPacket fromBytes(byte[] bytes, int length) {
+        int code = validate(bytes, length);
+        if (code != ArtnetDecodeCodes.DC_OK) {
+            throw new IllegalArgumentException("cannot construct ArtTodRequestPacket from bytes: " + ArtnetDecodeCodes.toName(code));
+        }
+        return new ArtTodRequestPacket(bytes[21], bytes[22], Arrays.copyOfRange(bytes, 24, 24 + (bytes[23] & 0xFF)));
+    }
+
+    public byte getNet() {
+        return net;
+    }
+
+    public byte getCommand() {
+        return command;
+    }
+
+    public byte[] getAddresses() {
+        return Arrays.copyOf(addresses, addresses.length);
+    }
+
+    /**
+     * Returns the requested port-addresses.
+     *
+     * @return 15-bit port-addresses
+     */
+    public int[] getPortAddresses() {
+        int[] portAddresses = new int[addresses.length];
+        for (int i = 0; i < addresses.length; i++) portAddresses[i] = ((net & 0x7F) << 8) | (addresses[i] & 0xFF);
+        return portAddresses;
+    }
+}
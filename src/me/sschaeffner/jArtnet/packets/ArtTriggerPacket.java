@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet.packets;
+
+import me.sschaeffner.jArtnet.ArtnetDecodeCodes;
+import me.sschaeffner.jArtnet.ArtnetOpCodes;
+
+import java.util.Arrays;
+
+/**
+ * An ArtTrigger packet.
+ *
+ * Triggers a macro, key or show on nodes; the meaning of key and subKey depends on the OEM code.
+ *
+ * @author sschaeffner
+ */
+public class ArtTriggerPacket extends ArtnetPacket {
+    public static final byte protVerHi = 3;
+    public static final byte protVerLo = 14;
+
+    //minimum protocol version accepted when decoding
+    private static final int MIN_PROT_VER = (protVerHi << 8) | protVerLo;
+
+    //length of the whole package
+    public static final int PACKAGE_LENGTH = ArtnetPacket.ID.length + 2 + 1+1 + 1+1 + 1+1 + 1 + 1 + 512;
+
+    //OEM code addressing all nodes; key and subKey then have the meanings below
+    public static final int OEM_ALL = 0xFFFF;
+
+    //keys for OEM_ALL
+    public static final byte KEY_ASCII = 0;
+    public static final byte KEY_MACRO = 1;
+    public static final byte KEY_SOFT = 2;
+    public static final byte KEY_SHOW = 3;
+
+    //constant ID, opcode and protVer
+    private static final byte[] HEADER = ArtnetPacket.constructHeader(ArtnetOpCodes.OP_TRIGGER, protVerHi, protVerLo);
+
+    //OEM code of the addressed nodes
+    private final int oem;
+
+    //trigger key and subKey
+    private final byte key, subKey;
+
+    //512 bytes of payload
+    private final byte[] data;
+
+    /**
+     * Constructs a new instance of this class.
+     *
+     * @param oem       OEM code of the addressed nodes; {@link #OEM_ALL} for all nodes
+     * @param key       trigger key
+     * @param subKey    trigger subKey
+     * @param data      payload (up to 512 bytes)
+     */
+    public ArtTriggerPacket(int oem, byte key, byte subKey, byte[] data) {
+        if (data.length > 512) throw new IllegalArgumentException("data can be at most 512 bytes long");
+        this.oem = oem & 0xFFFF;
+        this.key = key;
+        this.subKey = subKey;
+        this.data = Arrays.copyOf(data, 512);
+    }
+
+    /**
+     * Constructs a new instance of this class sending an ASCII key press to all nodes.
+     *
+     * @param key   the key's character
+     * @return      new instance
+     */
+    public static ArtTriggerPacket ascii(char key) {
+        return new ArtTriggerPacket(OEM_ALL, KEY_ASCII, (byte) key, new byte[0]);
+    }
+
+    @Override
+    public int getPackageLength() {
+        return PACKAGE_LENGTH;
+    }
+
+    /**
+     * Writes the whole package's data into a buffer.
+     *
+     * @param buffer    buffer to write into
+     * @param offset    position in the buffer to start writing at
+     * @return          amount of bytes written
+     */
+    @Override
+    public int writeTo(byte[] buffer, int offset) {
+        checkCapacity(buffer, offset, PACKAGE_LENGTH);
+
+        //Art-Net package ID, op code and protVer
+        System.arraycopy(HEADER, 0, buffer, offset, HEADER.length);
+
+        //filler 1 and 2
+        buffer[offset + 12] = 0;
+        buffer[offset + 13] = 0;
+
+        //oem (hi, lo)
+        buffer[offset + 14] = (byte) (oem >>> 8);
+        buffer[offset + 15] = (byte) oem;
+
+        //key and subKey
+        buffer[offset + 16] = key;
+        buffer[offset + 17] = subKey;
+
+        //data
+        System.arraycopy(data, 0, buffer, offset + 18, 512);
+
+        return PACKAGE_LENGTH;
+    }
+
+    /**
+     * Checks whether received bytes contain a valid ArtTrigger packet.
+     *
+     * @param bytes     received bytes
+     * @param length    amount of received bytes
+     * @return          one of the {@link ArtnetDecodeCodes}
+     */
+    public static int validate(byte[] bytes, int length) {
+        return validateHeader(bytes, length, PACKAGE_LENGTH, ArtnetOpCodes.OP_TRIGGER, MIN_PROT_VER);
+    }
+
+    /**
+     * Constructs a new instance of this class from received bytes.
+     *
+     * @param bytes     received bytes
+     * @param length    amount of received bytes
+     * @return          new instance
+     */
+    public static ArtTriggerPacket fromBytes(byte[] bytes, int length) {
+        int code = validate(bytes, length);
+        if (code != ArtnetDecodeCodes.DC_OK) {
+            throw new IllegalArgumentException("cannot construct ArtTriggerPacket from bytes: " + ArtnetDecodeCodes.toName(code));
+        }
+        int oem = ((bytes[14] & 0xFF) << 8) | (bytes[15] & 0xFF);
+        return new ArtTriggerPacket(oem, bytes[16], bytes[17], Arrays.copyOfRange(bytes, 18, 18 + 512));
+    }
+
+    /**
+     * Returns whether this trigger addresses nodes of an OEM code.
+     *
+     * @param oem   the node's OEM code
+     * @return      whether the node has to act on this trigger
+     */
+    public boolean isAddressing(int oem) {
+        return this.oem == OEM_ALL || this.oem == (oem & 0xFFFF);
+    }
+
+    public int getOem() {
+        return oem;
+    }
+
+    public byte getKey() {
+        return key;
+    }
+
+    public byte getSubKey() {
+        return subKey;
+    }
+
+    public byte[] getData() {
+        return Arrays.copyOf(data, data.length);
+    }
+}
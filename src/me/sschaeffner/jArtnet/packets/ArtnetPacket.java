@@ -17,7 +17,12 @@
  */
 package me.sschaeffner.jArtnet.packets;
 
+import me.sschaeffner.jArtnet.ArtnetDecodeCodes;
 import me.sschaeffner.jArtnet.ArtnetNode;
+import me.sschaeffner.jArtnet.ArtnetOpCodes;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 
 /**
  * This is an Artnet package.
@@ -28,6 +33,9 @@ public abstract class ArtnetPacket {
     public static final int UDP_PORT = 0x1936;//6454
     public static final byte[] ID = new byte[]{'A', 'r', 't', '-', 'N', 'e', 't', 0x00};
 
+    //per-thread scratch array used when encoding into buffers without a backing array
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[600]);
+
     protected ArtnetNode sender;
 
     public void setSender(ArtnetNode sender) {
@@ -42,10 +50,139 @@ public abstract class ArtnetPacket {
         return this.sender;
     }
 
+    //System.nanoTime the packet was received at; 0 for packets not received
+    protected long receiveNanos;
+
+    public void setReceiveNanos(long receiveNanos) {
+        this.receiveNanos = receiveNanos;
+    }
+
+    /**
+     * Returns when the packet was received, to measure the latency of reacting to it.
+     * @return  System.nanoTime the packet was received at; 0 for packets not received
+     */
+    public long getReceiveNanos() {
+        return this.receiveNanos;
+    }
+
     /**
      * Returns the whole package's data as byte array.
      *
+     * Allocates a new array on every call; use {@link #writeTo(byte[], int)} to encode into a reused buffer.
+     *
      * @return the package's data as byte array
      */
-    public abstract byte[] getPackageBytes();
+    public byte[] getPackageBytes() {
+        byte[] bytes = new byte[getPackageLength()];
+        writeTo(bytes, 0);
+        return bytes;
+    }
+
+    /**
+     * Returns the length of the whole package in bytes.
+     *
+     * @return the package's length in bytes
+     */
+    public abstract int getPackageLength();
+
+    /**
+     * Writes the whole package's data into a buffer.
+     *
+     * @param buffer    buffer to write into
+     * @param offset    position in the buffer to start writing at
+     * @return          amount of bytes written
+     */
+    public abstract int writeTo(byte[] buffer, int offset);
+
+    /**
+     * Writes the whole package's data into a ByteBuffer at its current position.
+     *
+     * The buffer's position is advanced by the amount of bytes written.
+     *
+     * @param buffer    buffer to write into
+     * @return          amount of bytes written
+     */
+    public int writeTo(ByteBuffer buffer) {
+        int length = getPackageLength();
+        if (buffer.remaining() < length) throw new BufferOverflowException();
+
+        if (buffer.hasArray()) {
+            writeTo(buffer.array(), buffer.arrayOffset() + buffer.position());
+            buffer.position(buffer.position() + length);
+        } else {
+            byte[] scratch = SCRATCH.get();
+            if (scratch.length < length) {
+                scratch = new byte[length];
+                SCRATCH.set(scratch);
+            }
+            writeTo(scratch, 0);
+            buffer.put(scratch, 0, length);
+        }
+        return length;
+    }
+
+    /**
+     * Checks whether a package of a given length fits into a buffer.
+     *
+     * @param buffer    buffer to write into
+     * @param offset    position in the buffer to start writing at
+     * @param length    length of the package
+     */
+    protected static void checkCapacity(byte[] buffer, int offset, int length) {
+        if (offset < 0 || buffer.length - offset < length) {
+            throw new IllegalArgumentException("cannot write package: buffer too small (is " + (buffer.length - offset)
+                    + "; should be " + length + ")");
+        }
+    }
+
+    /**
+     * Constructs the constant header of a package: the Art-Net ID followed by the opcode.
+     *
+     * @param opCode    the package's opcode
+     * @return          ID and opcode as byte array
+     */
+    protected static byte[] constructHeader(int opCode) {
+        byte[] header = new byte[ID.length + 2];
+        System.arraycopy(ID, 0, header, 0, ID.length);
+        header[ID.length] = (byte) (opCode & 0xFF);
+        header[ID.length + 1] = (byte) ((opCode >>> 8) & 0xFF);
+        return header;
+    }
+
+    /**
+     * Constructs the constant header of a package: the Art-Net ID followed by the opcode and the protocol version.
+     *
+     * @param opCode    the package's opcode
+     * @param protVerHi high byte of the protocol version
+     * @param protVerLo low byte of the protocol version
+     * @return          ID, opcode and protocol version as byte array
+     */
+    protected static byte[] constructHeader(int opCode, byte protVerHi, byte protVerLo) {
+        byte[] header = new byte[ID.length + 2 + 2];
+        System.arraycopy(constructHeader(opCode), 0, header, 0, ID.length + 2);
+        header[ID.length + 2] = protVerHi;
+        header[ID.length + 3] = protVerLo;
+        return header;
+    }
+
+    /**
+     * Checks the common header of received bytes: length, ID, opcode and optionally the protocol version.
+     *
+     * @param bytes         received bytes
+     * @param length        amount of received bytes
+     * @param minLength     minimum length of the package
+     * @param opCode        expected opcode
+     * @param minProtVer    minimum protocol version or -1 if the package has no protVer field
+     * @return              one of the {@link ArtnetDecodeCodes}
+     */
+    protected static int validateHeader(byte[] bytes, int length, int minLength, int opCode, int minProtVer) {
+        if (length < minLength || bytes.length < length) return ArtnetDecodeCodes.DC_TOO_SHORT;
+        if (!ArtnetOpCodes.hasArtnetId(bytes, 0)) return ArtnetDecodeCodes.DC_WRONG_ID;
+        if (ArtnetOpCodes.getOpCode(bytes, 0) != opCode) return ArtnetDecodeCodes.DC_WRONG_OPCODE;
+        if (minProtVer >= 0) {
+            int protVer = ((bytes[10] & 0xFF) << 8) | (bytes[11] & 0xFF);
+            if (protVer < minProtVer) return ArtnetDecodeCodes.DC_PROT_VER;
+        }
+        return ArtnetDecodeCodes.DC_OK;
+    }
 }
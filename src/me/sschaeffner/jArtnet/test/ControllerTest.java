@@ -17,12 +17,28 @@
  */
 package me.sschaeffner.jArtnet.test;
 
+import me.sschaeffner.jArtnet.packets.ArtDmxPacket;
 import me.sschaeffner.jArtnet.packets.ArtPollPacket;
+import me.sschaeffner.jArtnet.packets.ArtPollReplyPacket;
+import me.sschaeffner.jArtnet.packets.ArtTriggerPacket;
+import me.sschaeffner.jArtnet.packets.ArtnetPacket;
 import me.sschaeffner.jArtnet.ArtnetController;
+import me.sschaeffner.jArtnet.ArtnetInterface;
 import org.junit.After;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
 /**
  * @author sschaeffner
  */
@@ -43,6 +59,124 @@ public class ControllerTest {
         System.out.println("packet sent");
     }
 
+    @Test
+    public void test2() throws InterruptedException {
+        //staged packets without a sequence number are numbered per port-address
+        int portAddress = 0x123;
+        for (int i = 1; i <= 3; i++) {
+            controller.stageDmx(new ArtDmxPacket((byte) 0, (byte) 0, portAddress, new byte[512]));
+            controller.sendStagedDmx();
+            awaitSequence(portAddress, i);
+        }
+    }
+
+    @Test
+    public void test3() {
+        //replies are encoded again when names and port-addresses change, four ports per bind index
+        controller.setShortName("short");
+        controller.setPortAddresses(1, 2, 3, 4, 0x15);
+        for (ArtnetInterface artnetInterface : controller.getInterfaces()) {
+            byte[][] replies = artnetInterface.getPollReplies();
+            Assert.assertEquals(2, replies.length);
+            for (int i = 0; i < replies.length; i++) {
+                ArtPollReplyPacket reply = ArtPollReplyPacket.fromBytes(replies[i]);
+                Assert.assertEquals("short", reply.getShortNameAsString().trim());
+                Assert.assertEquals(i + 1, reply.getBindIndex());
+            }
+            Assert.assertEquals(4, ArtPollReplyPacket.fromBytes(replies[0]).getNumPortsLo());
+            Assert.assertEquals(1, ArtPollReplyPacket.fromBytes(replies[1]).getNumPortsLo());
+        }
+    }
+
+    @Test
+    public void test4() throws IOException, InterruptedException {
+        //polls arriving while a reply is pending are answered once
+        controller.setMaxPollReplyDelay(300);
+        try (DatagramSocket poller = openPoller()) {
+            for (int i = 0; i < 5; i++) poll(poller, (byte) 0);
+            await(controller::getSentPollReplies, 1);
+            Thread.sleep(500);
+            Assert.assertEquals(1, controller.getSentPollReplies());
+
+            poll(poller, (byte) 0);
+            await(controller::getSentPollReplies, 2);
+        }
+    }
+
+    @Test
+    public void test5() throws IOException, InterruptedException {
+        //changes are broadcast only while the poller's latest poll asks for it
+        controller.setMaxPollReplyDelay(0);
+        try (DatagramSocket poller = openPoller()) {
+            poll(poller, (byte) 0b10);
+            await(controller::getSentPollReplies, 1);
+            controller.setShortName("changed");
+            Assert.assertEquals(2, controller.getSentPollReplies());
+
+            poll(poller, (byte) 0);
+            await(controller::getSentPollReplies, 3);
+            controller.setShortName("changed again");
+            Assert.assertEquals(3, controller.getSentPollReplies());
+        }
+    }
+
+    @Test
+    public void test6() throws IOException, InterruptedException {
+        //received packets name the node that sent them
+        BlockingQueue<ArtnetPacket> received = new ArrayBlockingQueue<>(16);
+        controller.addArtnetPacketListener(received::offer);
+        try (DatagramSocket node = openPoller()) {
+            byte[] reply = controller.getInterfaces()[0].getPollReplies()[0];
+            node.send(new DatagramPacket(reply, reply.length, node.getLocalAddress(), ArtnetPacket.UDP_PORT));
+            await(() -> controller.getNodes().length, 1);
+
+            byte[] trigger = new ArtTriggerPacket(ArtTriggerPacket.OEM_ALL, (byte) 0, (byte) 0, new byte[0]).getPackageBytes();
+            node.send(new DatagramPacket(trigger, trigger.length, node.getLocalAddress(), ArtnetPacket.UDP_PORT));
+            ArtnetPacket packet = received.poll(5, TimeUnit.SECONDS);
+            Assert.assertTrue(packet instanceof ArtTriggerPacket);
+            Assert.assertSame(controller.getNodes()[0], packet.getSender());
+        }
+    }
+
+    @Test
+    public void test7() throws IOException, InterruptedException {
+        //nodes are dropped once they missed three discovery polls in a row
+        try (DatagramSocket node = openPoller()) {
+            byte[] reply = controller.getInterfaces()[0].getPollReplies()[0];
+            node.send(new DatagramPacket(reply, reply.length, node.getLocalAddress(), ArtnetPacket.UDP_PORT));
+            await(() -> controller.getNodes().length, 1);
+        }
+
+        //the node shares the controller's address, so the controller's own replies must not keep it alive
+        controller.setIgnoreOwnPackets(true);
+        for (int i = 0; i < 3; i++) controller.discoverNodes();
+        Assert.assertEquals(1, controller.getNodes().length);
+        controller.discoverNodes();
+        Assert.assertEquals(0, controller.getNodes().length);
+    }
+
+    private DatagramSocket openPoller() throws IOException {
+        //polls from this host are answered on its own interface
+        controller.setIgnoreOwnPackets(false);
+        InetAddress address = controller.getInterfaces()[0].getInterfaceAddress().getAddress();
+        return new DatagramSocket(new InetSocketAddress(address, 0));
+    }
+
+    private static void poll(DatagramSocket poller, byte talkToMe) throws IOException {
+        byte[] bytes = new ArtPollPacket(talkToMe, (byte) 0).getPackageBytes();
+        poller.send(new DatagramPacket(bytes, bytes.length, poller.getLocalAddress(), ArtnetPacket.UDP_PORT));
+    }
+
+    private void awaitSequence(int portAddress, int sequence) throws InterruptedException {
+        await(() -> controller.getDmxSequences().get(portAddress), sequence);
+    }
+
+    private static void await(LongSupplier value, long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (value.getAsLong() != expected && System.currentTimeMillis() < deadline) Thread.sleep(1);
+        Assert.assertEquals(expected, value.getAsLong());
+    }
+
     @After
     public void teardown() {
         controller.closeSocket();
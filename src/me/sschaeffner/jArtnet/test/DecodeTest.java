@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet.test;
+
+import me.sschaeffner.jArtnet.ArtnetDecodeCodes;
+import me.sschaeffner.jArtnet.ArtnetDecodeCounters;
+import me.sschaeffner.jArtnet.ArtnetOpCodes;
+import me.sschaeffner.jArtnet.packets.ArtDmxPacket;
+import me.sschaeffner.jArtnet.packets.ArtPollPacket;
+import me.sschaeffner.jArtnet.packets.ArtPollReplyPacket;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * @author sschaeffner
+ */
+public class DecodeTest {
+
+    @Test
+    public void test1() {
+        byte[] dmx = new ArtDmxPacket((byte) 0, (byte) 0, (byte) 0, (byte) 0, new byte[512]).getPackageBytes();
+
+        Assert.assertEquals(ArtnetDecodeCodes.DC_OK, ArtnetOpCodes.validate(dmx, dmx.length));
+        Assert.assertEquals(ArtnetDecodeCodes.DC_TOO_SHORT, ArtnetOpCodes.validate(dmx, 5));
+        Assert.assertEquals(ArtnetDecodeCodes.DC_LENGTH_MISMATCH, ArtnetOpCodes.validate(dmx, 100));
+        Assert.assertEquals(ArtnetDecodeCodes.DC_OK, ArtDmxPacket.validate(dmx, dmx.length));
+
+        byte[] poll = new ArtPollPacket().getPackageBytes();
+        Assert.assertEquals(ArtnetDecodeCodes.DC_TOO_SHORT, ArtPollReplyPacket.validate(poll, poll.length));
+        byte[] padded = Arrays.copyOf(poll, ArtPollReplyPacket.PACKAGE_LENGTH);
+        Assert.assertEquals(ArtnetDecodeCodes.DC_WRONG_OPCODE, ArtPollReplyPacket.validate(padded, padded.length));
+        Assert.assertEquals(ArtnetDecodeCodes.DC_WRONG_OPCODE, ArtDmxPacket.validate(padded, padded.length));
+
+        poll[10] = 0;
+        Assert.assertEquals(ArtnetDecodeCodes.DC_PROT_VER, ArtnetOpCodes.validate(poll, poll.length));
+
+        poll[0] = 'B';
+        Assert.assertEquals(ArtnetDecodeCodes.DC_WRONG_ID, ArtnetOpCodes.validate(poll, poll.length));
+    }
+
+    @Test
+    public void test2() {
+        ArtnetDecodeCounters counters = new ArtnetDecodeCounters();
+        byte[] garbage = new byte[600];
+        byte[] unknown = new ArtPollPacket().getPackageBytes();
+        unknown[9] = (byte) 0xF8;//OP_IP_PROG
+
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertNull(ArtnetOpCodes.fromBytes(garbage, garbage.length, counters));
+            Assert.assertNull(ArtnetOpCodes.fromBytes(unknown, unknown.length, counters));
+        }
+        byte[] poll = new ArtPollPacket().getPackageBytes();
+        Assert.assertNotNull(ArtnetOpCodes.fromBytes(poll, poll.length, counters));
+
+        Assert.assertEquals(1000, counters.get(ArtnetDecodeCodes.DC_WRONG_ID));
+        Assert.assertEquals(1000, counters.get(ArtnetDecodeCodes.DC_UNKNOWN_OPCODE));
+        Assert.assertEquals(1, counters.get(ArtnetDecodeCodes.DC_OK));
+        Assert.assertEquals(2000, counters.getRejected());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test3() {
+        ArtDmxPacket.fromBytes(new byte[10]);
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet.test;
+
+import me.sschaeffner.jArtnet.ArtnetOpCodes;
+import me.sschaeffner.jArtnet.DirectUniverseStore;
+import me.sschaeffner.jArtnet.packets.ArtDmxPacket;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author sschaeffner
+ */
+public class DirectUniverseStoreTest {
+
+    @Test
+    public void test1() {
+        DirectUniverseStore store = new DirectUniverseStore();
+        Assert.assertEquals(0, store.getAllocatedBytes());
+        Assert.assertEquals(0, store.getChannel(0x7FFF, 511));
+
+        store.setChannel(0x1234, 9, 200);
+        store.setChannels(0x7FFF, 0, new byte[]{1, 2, 3}, 0, 3);
+        Assert.assertEquals(200, store.getChannel(0x1234, 9));
+        Assert.assertEquals(10, store.getLength(0x1234));
+        Assert.assertEquals(2, store.getDirtyCount());
+        Assert.assertEquals(2 * 256 * DirectUniverseStore.SLOT_SIZE, store.getAllocatedBytes());
+
+        ArrayList<ArtDmxPacket> sent = new ArrayList<>();
+        Assert.assertEquals(2, store.sendDirty((portAddress, packet) -> {
+            byte[] bytes = new byte[packet.remaining()];
+            packet.duplicate().get(bytes);
+            sent.add((ArtDmxPacket) ArtnetOpCodes.fromBytes(bytes));
+        }));
+        Assert.assertEquals(0, store.getDirtyCount());
+
+        //sent in port-address order as ArtDmx packets
+        Assert.assertEquals(0x1234, sent.get(0).getPortAddress());
+        Assert.assertEquals(10, sent.get(0).getDataLength());
+        Assert.assertEquals((byte) 200, sent.get(0).getData()[9]);
+        Assert.assertEquals(0x7FFF, sent.get(1).getPortAddress());
+        Assert.assertEquals(4, sent.get(1).getDataLength());
+        Assert.assertEquals(3, sent.get(1).getData()[2]);
+
+        //unchanged values do not mark the universe
+        store.setChannels(0x7FFF, 0, new byte[]{1, 2, 3}, 0, 3);
+        store.fill(0x1234, 9, 1, 200);
+        Assert.assertEquals(0, store.getDirtyCount());
+    }
+
+    @Test
+    public void test2() {
+        DirectUniverseStore store = new DirectUniverseStore();
+        store.fill(1, 0, 4, 7);
+        store.copy(1, 0, 300, 2, 4);
+
+        byte[] values = new byte[6];
+        store.getChannels(300, 0, values, 0, 6);
+        Assert.assertArrayEquals(new byte[]{0, 0, 7, 7, 7, 7}, values);
+
+        //overlapping copy within a universe
+        store.setChannels(2, 0, new byte[]{1, 2, 3, 4}, 0, 4);
+        store.copy(2, 0, 2, 1, 3);
+        store.getChannels(2, 0, values, 0, 4);
+        Assert.assertArrayEquals(new byte[]{1, 1, 2, 3}, new byte[]{values[0], values[1], values[2], values[3]});
+
+        //cleared universes keep their length so that the zeros are sent
+        store.clear(300);
+        Assert.assertEquals(0, store.getChannel(300, 2));
+        Assert.assertEquals(6, store.getLength(300));
+        Assert.assertFalse(store.isUsed(3));
+    }
+
+    @Test
+    public void test3() throws InterruptedException {
+        DirectUniverseStore store = new DirectUniverseStore();
+        Thread[] writers = new Thread[4];
+        for (int i = 0; i < writers.length; i++) {
+            int first = i;
+            writers[i] = new Thread(() -> {
+                for (int portAddress = first; portAddress < 32768; portAddress += writers.length) {
+                    store.setChannel(portAddress, 511, portAddress & 0xFF);
+                }
+            });
+            writers[i].start();
+        }
+        for (Thread writer : writers) writer.join();
+
+        Assert.assertEquals(32768, store.getUsedCount());
+        Assert.assertEquals(32768 - 32768 / 256, store.getDirtyCount());
+
+        int[] sent = new int[1];
+        ByteBuffer[] last = new ByteBuffer[1];
+        store.sendDirty((portAddress, packet) -> {
+            sent[0]++;
+            last[0] = packet;
+        });
+        Assert.assertEquals(32768 - 32768 / 256, sent[0]);
+        Assert.assertTrue(last[0].isDirect());
+        Assert.assertEquals(DirectUniverseStore.SLOT_SIZE, last[0].remaining());
+    }
+
+    @Test
+    public void test4() throws InterruptedException {
+        DirectUniverseStore store = new DirectUniverseStore();
+        store.setChannel(0, 0, 1);
+
+        //a slow output does not block writers of the universe being sent
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread sender = new Thread(() -> store.sendDirty((portAddress, packet) -> {
+            sending.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        }));
+        sender.start();
+        Assert.assertTrue(sending.await(10, TimeUnit.SECONDS));
+
+        Thread writer = new Thread(() -> store.setChannel(0, 0, 2));
+        writer.start();
+        writer.join(10000);
+        Assert.assertFalse(writer.isAlive());
+        Assert.assertEquals(2, store.getChannel(0, 0));
+
+        release.countDown();
+        sender.join();
+    }
+
+    @Test
+    public void test5() {
+        DirectUniverseStore store = new DirectUniverseStore();
+        store.fill(0, 0, 4, 9);
+
+        //copying from an unused universe clears the target without allocating or using the source
+        store.copy(0x1000, 0, 0, 1, 2);
+        Assert.assertFalse(store.isUsed(0x1000));
+        Assert.assertEquals(DirectUniverseStore.SLOT_SIZE * 256, store.getAllocatedBytes());
+        Assert.assertEquals(9, store.getChannel(0, 0));
+        Assert.assertEquals(0, store.getChannel(0, 1));
+        Assert.assertEquals(0, store.getChannel(0, 2));
+        Assert.assertEquals(9, store.getChannel(0, 3));
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet.test;
+
+import me.sschaeffner.jArtnet.CombinedDmxOutput;
+import me.sschaeffner.jArtnet.DmxOutput;
+import me.sschaeffner.jArtnet.E131DmxOutput;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.UUID;
+
+/**
+ * @author sschaeffner
+ */
+public class DmxOutputTest {
+
+    @Test
+    public void test1() {
+        UUID cid = new UUID(0x0102030405060708L, 0x090A0B0C0D0E0F10L);
+        byte[] buffer = new byte[E131DmxOutput.HEADER_LENGTH + 512];
+        int length = E131DmxOutput.write(buffer, 0, cid, "jArtnet", 150, (byte) 7, 0x0102, new byte[]{1, 2, 3}, 0, 3);
+        Assert.assertEquals(129, length);
+
+        //root layer: preamble size, packet identifier, flags and length, vector, cid
+        Assert.assertEquals(0x10, buffer[1]);
+        Assert.assertEquals('A', buffer[4]);
+        Assert.assertEquals('7', buffer[12]);
+        Assert.assertEquals(0x70, buffer[16]);
+        Assert.assertEquals(129 - 16, buffer[17]);
+        Assert.assertEquals(4, buffer[21]);
+        Assert.assertEquals(1, buffer[22]);
+        Assert.assertEquals(0x10, buffer[37]);
+
+        //framing layer: flags and length, vector, source name, priority, sequence, universe
+        Assert.assertEquals(129 - 38, buffer[39]);
+        Assert.assertEquals(2, buffer[43]);
+        Assert.assertEquals('j', buffer[44]);
+        Assert.assertEquals(0, buffer[51]);
+        Assert.assertEquals((byte) 150, buffer[108]);
+        Assert.assertEquals(7, buffer[111]);
+        Assert.assertEquals(1, buffer[113]);
+        Assert.assertEquals(2, buffer[114]);
+
+        //DMP layer: flags and length, vector, type, increment, count, start code, data
+        Assert.assertEquals(129 - 115, buffer[116]);
+        Assert.assertEquals(2, buffer[117]);
+        Assert.assertEquals((byte) 0xa1, buffer[118]);
+        Assert.assertEquals(1, buffer[122]);
+        Assert.assertEquals(4, buffer[124]);
+        Assert.assertEquals(0, buffer[125]);
+        Assert.assertEquals(1, buffer[126]);
+        Assert.assertEquals(3, buffer[128]);
+    }
+
+    @Test
+    public void test2() {
+        Assert.assertEquals(1, E131DmxOutput.toUniverse(0));
+        Assert.assertEquals(0x0313, E131DmxOutput.toUniverse(0x0312));
+        Assert.assertEquals("/239.255.3.19", E131DmxOutput.getMulticastAddress(0x0313).toString());
+    }
+
+    @Test
+    public void test3() {
+        ArrayList<String> sent = new ArrayList<>();
+        DmxOutput artnet = (portAddress, data, length) -> sent.add("artnet " + portAddress);
+        DmxOutput sacn = (portAddress, data, length) -> sent.add("sacn " + portAddress);
+
+        CombinedDmxOutput output = new CombinedDmxOutput(artnet, sacn);
+        output.setOutputs(2, sacn);
+        output.setOutputs(3);
+
+        byte[] data = new byte[512];
+        for (int portAddress = 1; portAddress <= 3; portAddress++) output.sendDmx(portAddress, data, 512);
+
+        Assert.assertEquals(3, sent.size());
+        Assert.assertEquals("artnet 1", sent.get(0));
+        Assert.assertEquals("sacn 1", sent.get(1));
+        Assert.assertEquals("sacn 2", sent.get(2));
+    }
+}
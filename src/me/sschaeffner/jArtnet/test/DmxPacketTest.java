@@ -23,6 +23,8 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
+
 /**
  * @author sschaeffner
  */
@@ -66,6 +68,32 @@ public class DmxPacketTest {
         Assert.assertEquals(0x10, p.getLength() & 0xFF);
     }
 
+    @Test
+    public void test4() {
+        byte[] data = new byte[200];
+        for (int i = 0; i < data.length; i++) data[i] = (byte) i;
+        ArtDmxPacket p = new ArtDmxPacket((byte) 1, (byte) 2, (byte) 3, (byte) 4, data);
+        byte[] bytes = p.getPackageBytes();
+        Assert.assertEquals(ArtDmxPacket.HEADER_LENGTH + 200, bytes.length);
+
+        //encode into a reused buffer at an offset
+        byte[] buffer = new byte[600];
+        int written = p.writeTo(buffer, 5);
+        Assert.assertEquals(bytes.length, written);
+        for (int i = 0; i < written; i++) Assert.assertEquals(bytes[i], buffer[5 + i]);
+
+        //encode without a packet instance
+        byte[] buffer2 = new byte[600];
+        ArtDmxPacket.write(buffer2, 5, (byte) 1, (byte) 2, (byte) 3, (byte) 4, data, 0, data.length);
+        Assert.assertArrayEquals(buffer, buffer2);
+
+        //encode into a direct ByteBuffer
+        ByteBuffer bb = ByteBuffer.allocateDirect(600);
+        Assert.assertEquals(bytes.length, p.writeTo(bb));
+        Assert.assertEquals(bytes.length, bb.position());
+        for (int i = 0; i < written; i++) Assert.assertEquals(bytes[i], bb.get(i));
+    }
+
     @After
     public void teardown() {
 
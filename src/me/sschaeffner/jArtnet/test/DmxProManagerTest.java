@@ -19,6 +19,9 @@
 package me.sschaeffner.jArtnet.test;
 
 import me.sschaeffner.jArtnet.ArtnetController;
+import me.sschaeffner.jArtnet.ArtnetDmxOutput;
+import me.sschaeffner.jArtnet.DmxOutputEngine;
+import me.sschaeffner.jArtnet.DmxUniverseStore;
 import me.sschaeffner.jArtnet.ArtnetPacketListener;
 import me.sschaeffner.jArtnet.packets.ArtDmxPacket;
 import me.sschaeffner.jArtnet.packets.ArtnetPacket;
@@ -88,6 +91,10 @@ public class DmxProManagerTest implements ArtnetPacketListener {
     }
 
     public void fade() {
+        DmxUniverseStore store = new DmxUniverseStore();
+        DmxOutputEngine engine = new DmxOutputEngine(store, new ArtnetDmxOutput(controller));
+        engine.start();
+
         int rM = 1;
         int gM = 0;
         int bM = 0;
@@ -105,11 +112,7 @@ public class DmxProManagerTest implements ArtnetPacketListener {
             }
 
             for (int i = 0; i < 256; i += 4) {
-                int r = i * rM;
-                int g = i * gM;
-                int b = i * bM;
-                ArtDmxPacket dmxPacket = new ArtDmxPacket((byte)0, (byte)0, (byte)0, (byte)0, new byte[]{(byte)r, (byte)g, (byte)b});
-                controller.broadcastPacket(dmxPacket);
+                setColor(store, i * rM, i * gM, i * bM);
                 try {
                     Thread.sleep(20);
                 } catch (InterruptedException e) {
@@ -117,11 +120,7 @@ public class DmxProManagerTest implements ArtnetPacketListener {
                 }
             }
             for (int i = 254; i >= 0; i -= 4) {
-                int r = i * rM;
-                int g = i * gM;
-                int b = i * bM;
-                ArtDmxPacket dmxPacket = new ArtDmxPacket((byte)0, (byte)0, (byte)0, (byte)0, new byte[]{(byte)r, (byte)g, (byte)b});
-                controller.broadcastPacket(dmxPacket);
+                setColor(store, i * rM, i * gM, i * bM);
                 try {
                     Thread.sleep(20);
                 } catch (InterruptedException e) {
@@ -129,8 +128,22 @@ public class DmxProManagerTest implements ArtnetPacketListener {
                 }
             }
         }
-        ArtDmxPacket dmxPacket = new ArtDmxPacket((byte)0, (byte)0, (byte)0, (byte)0, new byte[]{(byte)0, (byte)0, (byte)0});
-        controller.broadcastPacket(dmxPacket);
+        setColor(store, 0, 0, 0);
+
+        //let the engine send the last color
+        try {
+            Thread.sleep(100);
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+        engine.stop();
+        System.out.println("frames: " + engine.getFrames() + ", missed deadlines: " + engine.getMissedDeadlines());
+    }
+
+    private void setColor(DmxUniverseStore store, int r, int g, int b) {
+        store.setChannel(0, 0, r);
+        store.setChannel(0, 1, g);
+        store.setChannel(0, 2, b);
     }
 
     @Override
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet.test;
+
+import me.sschaeffner.jArtnet.packets.ArtDmxPacket;
+import me.sschaeffner.jArtnet.packets.ArtDmxView;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author sschaeffner
+ */
+public class DmxViewTest {
+
+    @Test
+    public void test1() {
+        byte[] data = new byte[300];
+        for (int i = 0; i < data.length; i++) data[i] = (byte) (i * 3);
+        ArtDmxPacket p = new ArtDmxPacket((byte) 7, (byte) 1, (byte) 0x34, (byte) 0x12, data);
+
+        //wrap a buffer that is larger than the packet
+        byte[] buffer = new byte[600];
+        int length = p.writeTo(buffer, 0);
+
+        ArtDmxView view = new ArtDmxView();
+        Assert.assertTrue(view.wrap(buffer, 0, length));
+        Assert.assertEquals(7, view.getSequence());
+        Assert.assertEquals(1, view.getPhysical());
+        Assert.assertEquals(0x1234, view.getPortAddress());
+        Assert.assertEquals(300, view.getLength());
+        for (int i = 0; i < data.length; i++) Assert.assertEquals(data[i] & 0xFF, view.getChannel(i));
+
+        byte[] copy = new byte[300];
+        view.copyData(copy, 0);
+        Assert.assertArrayEquals(data, copy);
+        Assert.assertArrayEquals(data, view.toPacket().getData());
+    }
+
+    @Test
+    public void test2() {
+        byte[] buffer = new ArtDmxPacket((byte) 0, (byte) 0, (byte) 0, (byte) 0, new byte[512]).getPackageBytes();
+        ArtDmxView view = new ArtDmxView();
+
+        //truncated packet
+        Assert.assertFalse(view.wrap(buffer, 0, 100));
+        Assert.assertFalse(view.isValid());
+
+        //wrong opcode
+        buffer[9] = 0x20;
+        Assert.assertFalse(view.wrap(buffer, 0, buffer.length));
+    }
+}
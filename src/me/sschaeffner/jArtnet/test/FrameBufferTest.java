@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet.test;
+
+import me.sschaeffner.jArtnet.DmxFrame;
+import me.sschaeffner.jArtnet.DmxFrameBuffer;
+import me.sschaeffner.jArtnet.DmxOutputEngine;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+/**
+ * @author sschaeffner
+ */
+public class FrameBufferTest {
+
+    @Test
+    public void test1() {
+        DmxFrameBuffer buffer = new DmxFrameBuffer();
+        Assert.assertEquals(0, buffer.acquire().getChannel(1, 0));
+
+        DmxFrame frame = buffer.begin();
+        frame.setChannel(1, 0, 100);
+        frame.fill(2, 0, 4, 50);
+
+        //not visible before the commit
+        Assert.assertEquals(0, buffer.acquire().getChannel(1, 0));
+        buffer.commit();
+        Assert.assertEquals(1, buffer.getCommits());
+
+        DmxFrame committed = buffer.acquire();
+        Assert.assertEquals(100, committed.getChannel(1, 0));
+        Assert.assertEquals(4, committed.getHighWaterMark(2));
+        Assert.assertEquals(1, committed.getGeneration(1));
+
+        //the next transaction starts from the committed data
+        frame = buffer.begin();
+        Assert.assertEquals(100, frame.getChannel(1, 0));
+        frame.setChannel(2, 0, 51);
+        buffer.commit();
+
+        frame = buffer.begin();
+        Assert.assertEquals(51, frame.getChannel(2, 0));
+        Assert.assertEquals(100, frame.getChannel(1, 0));
+        frame.setChannel(1, 0, 0);
+        buffer.abort();
+
+        //aborted changes are discarded
+        frame = buffer.begin();
+        Assert.assertEquals(100, frame.getChannel(1, 0));
+        buffer.abort();
+
+        committed = buffer.acquire();
+        Assert.assertEquals(51, committed.getChannel(2, 0));
+        Assert.assertEquals(1, committed.getGeneration(1));
+        Assert.assertEquals(2, committed.getGeneration(2));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void test2() {
+        DmxFrameBuffer buffer = new DmxFrameBuffer();
+        DmxFrame frame = buffer.begin();
+        buffer.commit();
+
+        //committed frames cannot be changed anymore
+        frame.setChannel(1, 0, 1);
+    }
+
+    @Test
+    public void test3() throws InterruptedException {
+        DmxFrameBuffer buffer = new DmxFrameBuffer();
+        ArrayList<String> torn = new ArrayList<>();
+        byte[] last = new byte[1];
+        DmxOutputEngine engine = new DmxOutputEngine(buffer, (portAddress, data, length) -> {
+            //all channels of a frame are set to the same value
+            for (int i = 1; i < length; i++) if (data[i] != data[0]) torn.add(portAddress + ": " + data[0] + " " + data[i]);
+            last[0] = data[0];
+        });
+
+        Thread writer = new Thread(() -> {
+            for (int value = 1; value <= 2000; value++) {
+                DmxFrame frame = buffer.begin();
+                for (int portAddress = 0; portAddress < 4; portAddress++) frame.fill(portAddress, 0, 512, value);
+                buffer.commit();
+            }
+        });
+        writer.start();
+
+        //send frames while the writer commits, then once more after its last commit
+        while (writer.isAlive()) engine.sendFrame(System.nanoTime());
+        writer.join();
+        engine.sendFrame(System.nanoTime());
+
+        Assert.assertTrue(torn.toString(), torn.isEmpty());
+        Assert.assertTrue(engine.getSentUniverses() >= 4);
+        Assert.assertEquals((byte) 2000, last[0]);
+        Assert.assertEquals(2000, buffer.getCommits());
+    }
+}
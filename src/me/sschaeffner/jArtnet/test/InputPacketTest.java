@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet.test;
+
+import me.sschaeffner.jArtnet.ArtnetOpCodes;
+import me.sschaeffner.jArtnet.packets.ArtInputPacket;
+import me.sschaeffner.jArtnet.packets.ArtnetPacket;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author sschaeffner
+ */
+public class InputPacketTest {
+
+    @Test
+    public void test1() {
+        byte[] b = ArtInputPacket.of((byte) 2, false, true, true).getPackageBytes();
+        Assert.assertEquals(20, b.length);
+
+        //Art-Net package code
+        for (int i = 0; i < ArtnetPacket.ID.length; i++) {
+            Assert.assertEquals(ArtnetPacket.ID[i], b[i]);
+        }
+
+        //opcode (0x7000)
+        Assert.assertEquals(0, b[8]);
+        Assert.assertEquals(0x70, b[9]);
+
+        //bind index
+        Assert.assertEquals(2, b[13]);
+
+        //numPorts
+        Assert.assertEquals(0, b[14]);
+        Assert.assertEquals(3, b[15]);
+
+        //input
+        Assert.assertEquals(0, b[16]);
+        Assert.assertEquals(1, b[17]);
+        Assert.assertEquals(1, b[18]);
+        Assert.assertEquals(0, b[19]);
+    }
+
+    @Test
+    public void test2() {
+        byte[] b = ArtInputPacket.of((byte) 1, true, false).getPackageBytes();
+        ArtInputPacket p = (ArtInputPacket) ArtnetOpCodes.fromBytes(b);
+
+        Assert.assertEquals(1, p.getBindIndex());
+        Assert.assertEquals(2, p.getNumPorts());
+        Assert.assertTrue(p.isDisabled(0));
+        Assert.assertFalse(p.isDisabled(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test3() {
+        ArtInputPacket.of((byte) 0, true, true, true, true, true);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet.test;
+
+import me.sschaeffner.jArtnet.ArtnetInterface;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InterfaceAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+
+/**
+ * @author sschaeffner
+ */
+public class InterfaceTest {
+
+    @Test
+    public void test1() throws UnknownHostException {
+        Assert.assertEquals(0x0A000102, ArtnetInterface.toInt(InetAddress.getByAddress(new byte[]{10, 0, 1, 2})));
+        Assert.assertEquals(0xC0A80001, ArtnetInterface.toInt(InetAddress.getByAddress(new byte[]{(byte) 192, (byte) 168, 0, 1})));
+        Assert.assertEquals(0, ArtnetInterface.toInt(InetAddress.getByName("::1")));
+    }
+
+    @Test
+    public void test2() throws SocketException, UnknownHostException {
+        InetAddress loopback = InetAddress.getByAddress(new byte[]{127, 0, 0, 1});
+        NetworkInterface networkInterface = NetworkInterface.getByInetAddress(loopback);
+        InterfaceAddress interfaceAddress = null;
+        for (InterfaceAddress address : networkInterface.getInterfaceAddresses()) {
+            if (address.getAddress() instanceof Inet4Address) interfaceAddress = address;
+        }
+        Assert.assertNotNull(interfaceAddress);
+
+        //127.0.0.1/8
+        ArtnetInterface artnetInterface = new ArtnetInterface(networkInterface, interfaceAddress,
+                InetAddress.getByAddress(new byte[]{127, (byte) 255, (byte) 255, (byte) 255}));
+        Assert.assertTrue(artnetInterface.contains(InetAddress.getByAddress(new byte[]{127, 1, 2, 3})));
+        Assert.assertFalse(artnetInterface.contains(InetAddress.getByAddress(new byte[]{10, 0, 0, 1})));
+        Assert.assertFalse(artnetInterface.contains(InetAddress.getByName("::1")));
+
+        ArtnetInterface same = new ArtnetInterface(networkInterface, interfaceAddress,
+                InetAddress.getByAddress(new byte[]{127, (byte) 255, (byte) 255, (byte) 255}));
+        Assert.assertTrue(artnetInterface.sameAddress(same));
+        Assert.assertEquals(0, artnetInterface.getSentPackets());
+        Assert.assertEquals(0, artnetInterface.getAverageSendNanos());
+    }
+}
@@ -18,6 +18,7 @@
 package me.sschaeffner.jArtnet.test;
 
 import me.sschaeffner.jArtnet.ArtnetOpCodes;
+import me.sschaeffner.jArtnet.packets.ArtPollPacket;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -44,4 +45,33 @@ public class OpCodeTest {
         Assert.assertArrayEquals(eq, ba);
     }
 
+    @Test
+    public void test3() {
+        byte[] bytes = new ArtPollPacket().getPackageBytes();
+        Assert.assertTrue(ArtnetOpCodes.hasArtnetId(bytes, 0));
+        Assert.assertEquals(ArtnetOpCodes.OP_POLL, ArtnetOpCodes.getOpCode(bytes, 0));
+        Assert.assertTrue(ArtnetOpCodes.fromBytes(bytes) instanceof ArtPollPacket);
+
+        //wrong ID
+        bytes[3] = 'x';
+        Assert.assertFalse(ArtnetOpCodes.hasArtnetId(bytes, 0));
+        Assert.assertNull(ArtnetOpCodes.fromBytes(bytes));
+    }
+
+    @Test
+    public void test4() {
+        byte[] bytes = new ArtPollPacket().getPackageBytes();
+        bytes[8] = 0x00;
+        bytes[9] = (byte) 0x23;//OP_DIAG_DATA
+
+        //no decoder registered
+        Assert.assertNull(ArtnetOpCodes.fromBytes(bytes));
+
+        ArtPollPacket decoded = new ArtPollPacket();
+        ArtnetOpCodes.registerDecoder(ArtnetOpCodes.OP_DIAG_DATA, (b, length) -> decoded);
+        Assert.assertSame(decoded, ArtnetOpCodes.fromBytes(bytes));
+
+        ArtnetOpCodes.registerDecoder(ArtnetOpCodes.OP_DIAG_DATA, null);
+        Assert.assertNull(ArtnetOpCodes.fromBytes(bytes));
+    }
 }
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet.test;
+
+import me.sschaeffner.jArtnet.DmxOutput;
+import me.sschaeffner.jArtnet.DmxOutputEngine;
+import me.sschaeffner.jArtnet.DmxUniverseStore;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @author sschaeffner
+ */
+public class OutputEngineTest {
+
+    @Test
+    public void test1() {
+        DmxUniverseStore store = new DmxUniverseStore();
+        ArrayList<Integer> sent = new ArrayList<>();
+        int[] frames = new int[1];
+        DmxOutput output = new DmxOutput() {
+            @Override
+            public void sendDmx(int portAddress, byte[] data, int length) {
+                sent.add(portAddress);
+            }
+
+            @Override
+            public void endFrame() {
+                frames[0]++;
+            }
+        };
+
+        DmxOutputEngine engine = new DmxOutputEngine(store, output);
+        engine.setKeepAlive(1, TimeUnit.SECONDS);
+        long now = System.nanoTime();
+
+        store.setChannel(1, 0, 255);
+        store.setChannel(2, 0, 255);
+        Assert.assertEquals(2, engine.sendFrame(now));
+
+        //nothing changed: nothing sent, no frame ended
+        Assert.assertEquals(0, engine.sendFrame(now + TimeUnit.MILLISECONDS.toNanos(100)));
+        Assert.assertEquals(1, frames[0]);
+
+        store.setChannel(2, 0, 0);
+        Assert.assertEquals(1, engine.sendFrame(now + TimeUnit.MILLISECONDS.toNanos(600)));
+
+        //universe 1 is due for a keep-alive, universe 2 was sent 500ms ago
+        Assert.assertEquals(1, engine.sendFrame(now + TimeUnit.MILLISECONDS.toNanos(1100)));
+        Assert.assertEquals(Integer.valueOf(1), sent.get(sent.size() - 1));
+        Assert.assertEquals(1, engine.sendFrame(now + TimeUnit.MILLISECONDS.toNanos(1600)));
+        Assert.assertEquals(Integer.valueOf(2), sent.get(sent.size() - 1));
+
+        Assert.assertEquals(4, frames[0]);
+        Assert.assertEquals(5, engine.getSentUniverses());
+    }
+
+    @Test
+    public void test2() throws InterruptedException {
+        DmxUniverseStore store = new DmxUniverseStore();
+        int[] sent = new int[1];
+        DmxOutputEngine engine = new DmxOutputEngine(store, (portAddress, data, length) -> sent[0]++);
+        engine.setMaxRate(100);
+        engine.setKeepAlive(20, TimeUnit.MILLISECONDS);
+
+        //run 300ms of simulated time
+        SimulatedTimer timer = new SimulatedTimer(TimeUnit.MILLISECONDS.toNanos(300));
+        engine.setTimer(timer);
+
+        store.setChannel(0, 0, 1);
+        engine.start();
+        Assert.assertTrue(timer.reached.await(10, TimeUnit.SECONDS));
+        engine.stop();
+
+        //sent once and then refreshed every 20ms
+        Assert.assertTrue(sent[0] >= 15);
+        Assert.assertTrue(engine.getFrames() >= 30);
+        Assert.assertEquals(0, engine.getMissedDeadlines());
+        Assert.assertFalse(engine.isRunning());
+    }
+
+    @Test
+    public void test3() {
+        DmxUniverseStore store = new DmxUniverseStore();
+        SimulatedTimer timer = new SimulatedTimer(Long.MAX_VALUE);
+        ArrayList<Long> sentNanos = new ArrayList<>();
+        DmxOutputEngine engine = new DmxOutputEngine(store, (portAddress, data, length) -> sentNanos.add(timer.nanoTime()));
+        engine.setMaxRate(10);
+        engine.setPacing(true);
+        engine.setTimer(timer);
+
+        for (int portAddress = 0; portAddress < 4; portAddress++) store.setChannel(portAddress, 0, 255);
+        Assert.assertEquals(4, engine.sendFrame(timer.nanoTime()));
+
+        //4 packets spread evenly across 75ms of the 100ms frame
+        Assert.assertEquals(4, sentNanos.size());
+        long gap = TimeUnit.MILLISECONDS.toNanos(75) / 4;
+        for (int i = 1; i < 4; i++) Assert.assertEquals(gap, sentNanos.get(i) - sentNanos.get(i - 1));
+    }
+
+    /**
+     * Clock that advances by the time waited instead of waiting.
+     */
+    private static class SimulatedTimer implements DmxOutputEngine.Timer {
+        private final AtomicLong now = new AtomicLong();
+        private final long end;
+        private final CountDownLatch reached = new CountDownLatch(1);
+
+        private SimulatedTimer(long end) {
+            this.end = end;
+        }
+
+        @Override
+        public long nanoTime() {
+            return now.get();
+        }
+
+        @Override
+        public void parkNanos(long nanos) {
+            if (now.addAndGet(nanos) >= end) {
+                reached.countDown();
+
+                //let the test stop the engine without the clock running away
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+        }
+    }
+}
@@ -23,6 +23,8 @@ import me.sschaeffner.jArtnet.packets.ArtnetPacket;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Arrays;
+
 /**
  * @author sschaeffner
  */
@@ -98,4 +100,36 @@ public class PollPacketTest {
         Assert.assertEquals(pOrig.getTalkToMe(), p.getTalkToMe());
         Assert.assertEquals(pOrig.getPriority(), p.getPriority());
     }
+
+    @Test
+    public void test5() {
+        ArtPollPacket pOrig = ArtPollPacket.targeted(0x0100, 0x01FF);
+        byte[] b = pOrig.getPackageBytes();
+        Assert.assertEquals(22, b.length);
+
+        //talk to me with targeted mode (0b00100110)
+        Assert.assertEquals(0x26, b[12]);
+
+        //target port-address top (0x01FF) and bottom (0x0100)
+        Assert.assertEquals(0x01, b[14]);
+        Assert.assertEquals(0xFF, b[15] & 0xFF);
+        Assert.assertEquals(0x01, b[16]);
+        Assert.assertEquals(0x00, b[17]);
+
+        ArtPollPacket p = ArtPollPacket.fromBytes(b);
+        Assert.assertTrue(p.isTargeted());
+        Assert.assertEquals(0x01FF, p.getTargetPortAddressTop());
+        Assert.assertEquals(0x0100, p.getTargetPortAddressBottom());
+        Assert.assertTrue(p.isTargeting(0x0180));
+        Assert.assertFalse(p.isTargeting(0x0200));
+    }
+
+    @Test
+    public void test6() {
+        //Art-Net 3 packages without target fields
+        byte[] b = Arrays.copyOf(new ArtPollPacket().getPackageBytes(), ArtPollPacket.MIN_PACKAGE_LENGTH);
+        ArtPollPacket p = ArtPollPacket.fromBytes(b);
+        Assert.assertFalse(p.isTargeted());
+        Assert.assertTrue(p.isTargeting(0x7FFF));
+    }
 }
@@ -17,6 +17,8 @@
  */
 package me.sschaeffner.jArtnet.test;
 
+import me.sschaeffner.jArtnet.ArtnetNode;
+import me.sschaeffner.jArtnet.ArtnetNodeReportCodes;
 import me.sschaeffner.jArtnet.ArtnetStyleCodes;
 import me.sschaeffner.jArtnet.packets.ArtPollReplyPacket;
 import org.junit.Assert;
@@ -51,4 +53,54 @@ public class PollReplyPacketTest {
         Assert.assertEquals(pOrig.getBindIndex(), p.getBindIndex());
         Assert.assertEquals(pOrig.getStatus2(), p.getStatus2());
     }
+
+    @Test
+    public void test3() throws UnknownHostException {
+        byte[] shortName = new byte[18];
+        System.arraycopy("node 1".getBytes(), 0, shortName, 0, 6);
+        byte[] nodeReport = new byte[64];
+        System.arraycopy("#0001 [0010] ok".getBytes(), 0, nodeReport, 0, 15);
+        ArtPollReplyPacket pOrig = new ArtPollReplyPacket(InetAddress.getByAddress(new byte[]{2, 0, 0, 1}), (byte)1, (byte)2, (byte)3, (byte)4, (byte)5, (byte)6, (byte)7, (byte)8, (byte)9, (byte)10, shortName, new byte[64], nodeReport, (byte)0, (byte)4, new byte[]{1, 2, 3, 4}, new byte[]{5, 6, 7, 8}, new byte[]{9, 10, 11, 12}, new byte[]{13, 14, 15, 16}, new byte[]{17, 18, 19, 20}, (byte)21, (byte)22, (byte)23, ArtnetStyleCodes.ST_NODE, new byte[]{1, 2, 3, 4, 5, 6}, new byte[]{2, 0, 0, 1}, (byte)2, (byte)24);
+
+        byte[] data = pOrig.getPackageBytes();
+        ArtPollReplyPacket p = ArtPollReplyPacket.fromBytes(data);
+
+        Assert.assertTrue(p.contentEquals(pOrig));
+        Assert.assertEquals(pOrig.getAddress(), p.getAddress());
+        Assert.assertEquals(4, p.getSubSwitch());
+        Assert.assertEquals(0x0a09, p.getEstaMan());
+        Assert.assertEquals("node 1", p.getShortNameAsString());
+        Assert.assertEquals("#0001 [0010] ok", p.getNodeReportAsString());
+        Assert.assertEquals(ArtnetNodeReportCodes.RC_POWER_OK, p.getNodeReportCode());
+        Assert.assertEquals(10, p.getNodeReportCounter());
+        Assert.assertArrayEquals(new byte[]{17, 18, 19, 20}, p.getSwOut());
+        Assert.assertEquals(19, p.getSwOut(2));
+        Assert.assertEquals(7, p.getGoodInput(2));
+        Assert.assertArrayEquals(new byte[]{1, 2, 3, 4, 5, 6}, p.getMac());
+        Assert.assertEquals(2, p.getBindIndex());
+        Assert.assertEquals(24, p.getStatus2());
+
+        //node keeps its strings for an unchanged reply
+        ArtnetNode node = new ArtnetNode(p.getAddress(), p);
+        String report = node.getNodeReport();
+        Assert.assertFalse(node.setArtPollReplyPacket(ArtPollReplyPacket.fromBytes(data)));
+        Assert.assertSame(report, node.getNodeReport());
+
+        //a new report counter updates the report without counting as a change
+        data[117] = '2';
+        Assert.assertFalse(node.setArtPollReplyPacket(ArtPollReplyPacket.fromBytes(data)));
+        Assert.assertEquals("#0001 [0020] ok", node.getNodeReport());
+        Assert.assertEquals(20, node.getArtPollReplyPacket().getNodeReportCounter());
+
+        //so does a change of port status
+        data[182] = 0;
+        Assert.assertFalse(node.setArtPollReplyPacket(ArtPollReplyPacket.fromBytes(data)));
+
+        data[30] = 'X';
+        Assert.assertTrue(node.setArtPollReplyPacket(ArtPollReplyPacket.fromBytes(data)));
+        Assert.assertEquals("nodeX1", node.getShortName());
+
+        data[191] = 0;
+        Assert.assertTrue(node.setArtPollReplyPacket(ArtPollReplyPacket.fromBytes(data)));
+    }
 }
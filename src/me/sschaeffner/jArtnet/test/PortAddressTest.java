@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet.test;
+
+import me.sschaeffner.jArtnet.ArtnetPortAddress;
+import me.sschaeffner.jArtnet.packets.ArtDmxPacket;
+import me.sschaeffner.jArtnet.packets.ArtDmxView;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author sschaeffner
+ */
+public class PortAddressTest {
+
+    @Test
+    public void test1() {
+        ArtnetPortAddress p = ArtnetPortAddress.of(0x7F, 0xA, 0x5);
+        Assert.assertEquals(0x7FA5, p.toInt());
+        Assert.assertEquals(0x7F, p.getNet());
+        Assert.assertEquals(0xA, p.getSubNet());
+        Assert.assertEquals(0x5, p.getUniverse());
+        Assert.assertEquals(0xA5, p.getSubUni());
+        Assert.assertEquals("127:10:5", p.toString());
+        Assert.assertEquals(p, ArtnetPortAddress.of(0x7FA5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test2() {
+        ArtnetPortAddress.of(ArtnetPortAddress.COUNT);
+    }
+
+    @Test
+    public void test3() {
+        //encode and decode every port-address through ArtDmx
+        byte[] data = new byte[2];
+        byte[] buffer = new byte[ArtDmxPacket.HEADER_LENGTH + data.length];
+        ArtDmxView view = new ArtDmxView();
+
+        for (int portAddress = 0; portAddress < ArtnetPortAddress.COUNT; portAddress++) {
+            ArtDmxPacket p = new ArtDmxPacket((byte) 0, (byte) 0, portAddress, data);
+            Assert.assertEquals(portAddress, p.getPortAddress());
+
+            int length = p.writeTo(buffer, 0);
+            Assert.assertEquals(portAddress, ArtDmxPacket.fromBytes(buffer).getPortAddress());
+
+            Assert.assertTrue(view.wrap(buffer, 0, length));
+            Assert.assertEquals(portAddress, view.getPortAddress());
+
+            int net = ArtnetPortAddress.net(portAddress);
+            int subNet = ArtnetPortAddress.subNet(portAddress);
+            int universe = ArtnetPortAddress.universe(portAddress);
+            Assert.assertEquals(portAddress, ArtnetPortAddress.toInt(net, subNet, universe));
+        }
+    }
+
+    @Test
+    public void test4() {
+        //all port-addresses need one reply per four ports
+        int[] all = new int[ArtnetPortAddress.COUNT];
+        for (int i = 0; i < all.length; i++) all[i] = all.length - 1 - i;
+        int[][] pages = ArtnetPortAddress.toReplyPages(all);
+        Assert.assertEquals(ArtnetPortAddress.COUNT / 4, pages.length);
+
+        int expected = 0;
+        for (int[] page : pages) {
+            Assert.assertEquals(4, page.length);
+            for (int portAddress : page) {
+                Assert.assertEquals(expected++, portAddress);
+                Assert.assertEquals(page[0] >>> 4, portAddress >>> 4);
+            }
+        }
+
+        //ports of different sub-nets never share a reply
+        pages = ArtnetPortAddress.toReplyPages(new int[]{0x0F, 0x10, 0x11, 0x10});
+        Assert.assertEquals(2, pages.length);
+        Assert.assertArrayEquals(new int[]{0x0F}, pages[0]);
+        Assert.assertArrayEquals(new int[]{0x10, 0x11}, pages[1]);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet.test;
+
+import me.sschaeffner.jArtnet.ArtnetRateLimiter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author sschaeffner
+ */
+public class RateLimiterTest {
+
+    @Test
+    public void test1() {
+        ArtnetRateLimiter limiter = new ArtnetRateLimiter();
+        long now = TimeUnit.SECONDS.toNanos(10);
+
+        //no limit
+        for (int i = 0; i < 1000; i++) Assert.assertEquals(0, limiter.reserve(now));
+
+        //1000 packets/s allow a burst of 5 packets, then one every millisecond
+        limiter.setMaxRate(1000);
+        now += TimeUnit.SECONDS.toNanos(1);
+        for (int i = 0; i < 5; i++) Assert.assertEquals(0, limiter.reserve(now));
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(1), limiter.reserve(now));
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(2), limiter.reserve(now));
+
+        limiter.cancel();
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(2), limiter.reserve(now));
+
+        now += TimeUnit.MILLISECONDS.toNanos(3);
+        Assert.assertEquals(0, limiter.reserve(now));
+    }
+
+    @Test
+    public void test2() {
+        ArtnetRateLimiter limiter = new ArtnetRateLimiter();
+        limiter.setMaxRate(1000);
+        long now = 0;
+
+        //halved when the report turns into an overload, repeated reports within the window are not counted
+        Assert.assertTrue(limiter.onReport(true, now));
+        Assert.assertFalse(limiter.onReport(true, now + TimeUnit.SECONDS.toNanos(1)));
+        Assert.assertEquals(500, limiter.getRate(), 0.001);
+
+        //halved again while the overload persists, never below the minimum rate
+        for (int i = 1; i < 10; i++) limiter.onReport(true, now + i * ArtnetRateLimiter.OVERLOAD_WINDOW_NANOS);
+        Assert.assertEquals(ArtnetRateLimiter.MIN_RATE, limiter.getRate(), 0.001);
+        Assert.assertEquals(10, limiter.getOverloads());
+
+        //does not grow while overloaded
+        now = 10 * ArtnetRateLimiter.OVERLOAD_WINDOW_NANOS;
+        limiter.reserve(now);
+        limiter.reserve(now + TimeUnit.SECONDS.toNanos(2));
+        Assert.assertEquals(ArtnetRateLimiter.MIN_RATE, limiter.getRate(), 0.001);
+
+        //grows again up to the maximum once the report clears
+        now += TimeUnit.SECONDS.toNanos(2);
+        Assert.assertFalse(limiter.onReport(false, now));
+        limiter.reserve(now + TimeUnit.SECONDS.toNanos(2));
+        Assert.assertEquals(ArtnetRateLimiter.MIN_RATE + 2 * ArtnetRateLimiter.RATE_INCREASE, limiter.getRate(), 0.001);
+        limiter.reserve(now + TimeUnit.SECONDS.toNanos(60));
+        Assert.assertEquals(1000, limiter.getRate(), 0.001);
+
+        //a new overload halves the rate right away
+        Assert.assertTrue(limiter.onReport(true, now + TimeUnit.SECONDS.toNanos(61)));
+        Assert.assertEquals(500, limiter.getRate(), 0.001);
+    }
+
+    @Test
+    public void test3() {
+        ArtnetRateLimiter limiter = new ArtnetRateLimiter();
+        long now = 0;
+
+        //without a maximum, the rate is halved from the measured rate
+        for (int i = 0; i <= 2000; i++) limiter.reserve(now + i * TimeUnit.MILLISECONDS.toNanos(1) / 2);
+        Assert.assertEquals(2000, limiter.getMeasuredRate(), 1);
+        limiter.onReport(true, now + TimeUnit.SECONDS.toNanos(1));
+        Assert.assertEquals(1000, limiter.getRate(), 1);
+    }
+}
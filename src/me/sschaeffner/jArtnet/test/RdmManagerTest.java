@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet.test;
+
+import me.sschaeffner.jArtnet.ArtnetRdmManager;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * @author sschaeffner
+ */
+public class RdmManagerTest {
+    private static final long CONTROLLER_UID = 0x7FF0_00000001L;
+    private static final int PID_DEVICE_LABEL = 0x0082;
+
+    private HashMap<InetAddress, SimulatedRdmNode> nodes;
+    private ArtnetRdmManager manager;
+
+    @Before
+    public void setUp() {
+        nodes = new HashMap<>();
+        manager = new ArtnetRdmManager((packet, node) -> nodes.get(node).receive(packet), CONTROLLER_UID);
+    }
+
+    private SimulatedRdmNode addNode(int i) throws IOException {
+        InetAddress address = InetAddress.getByAddress(new byte[]{10, 0, (byte) (i >>> 8), (byte) i});
+        SimulatedRdmNode node = new SimulatedRdmNode(address, manager);
+        nodes.put(address, node);
+        return node;
+    }
+
+    private void deliverAll() {
+        boolean delivered = true;
+        while (delivered) {
+            delivered = false;
+            for (SimulatedRdmNode node : nodes.values()) {
+                if (node.deliver() > 0) delivered = true;
+            }
+        }
+    }
+
+    @Test
+    public void test1() throws Exception {
+        ArrayList<CompletableFuture<long[]>> tods = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            SimulatedRdmNode node = addNode(i);
+            node.addDevice(0, 0x1234_00000000L + i);
+            node.addDevice(1, 0x1234_00010000L + i);
+            node.addDevice(1, 0x1234_00020000L + i);
+            tods.add(manager.getTod(node.getAddress(), 0));
+            tods.add(manager.getTod(node.getAddress(), 1));
+        }
+
+        //all requests are in flight before any node answered
+        for (SimulatedRdmNode node : nodes.values()) {
+            Assert.assertEquals(2, node.getQueued());
+            Assert.assertEquals(2, manager.getInFlight(node.getAddress()));
+        }
+
+        deliverAll();
+        for (CompletableFuture<long[]> tod : tods) Assert.assertTrue(tod.isDone());
+
+        SimulatedRdmNode node = nodes.get(InetAddress.getByAddress(new byte[]{10, 0, 0, 7}));
+        Assert.assertArrayEquals(new long[]{0x1234_00010007L, 0x1234_00020007L}, manager.getTod(node.getAddress(), 1).get());
+
+        //cached TODs are not requested again
+        Assert.assertEquals(2, node.getTodRequests());
+        manager.getTod(node.getAddress(), 0).get();
+        Assert.assertEquals(0, node.getQueued());
+        Assert.assertEquals(0, manager.getInFlight(node.getAddress()));
+    }
+
+    @Test
+    public void test2() throws Exception {
+        SimulatedRdmNode node = addNode(1);
+        long uid = 0x1234_00000001L;
+        node.addDevice(0, uid);
+        node.setParameter(uid, PID_DEVICE_LABEL, "dimmer".getBytes());
+
+        ArrayList<CompletableFuture<byte[]>> labels = new ArrayList<>();
+        for (int i = 0; i < 5; i++) labels.add(manager.get(node.getAddress(), 0, uid, PID_DEVICE_LABEL));
+        CompletableFuture<byte[]> unknown = manager.get(node.getAddress(), 0, uid, 0x1234);
+
+        //only a window of requests is outstanding
+        Assert.assertEquals(ArtnetRdmManager.DEFAULT_WINDOW, node.getQueued());
+        Assert.assertEquals(6 - ArtnetRdmManager.DEFAULT_WINDOW, manager.getQueued(node.getAddress()));
+
+        deliverAll();
+        Assert.assertEquals(6, node.getRdmRequests());
+        for (CompletableFuture<byte[]> label : labels) Assert.assertEquals("dimmer", new String(label.get()));
+
+        try {
+            unknown.get();
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void test3() throws Exception {
+        SimulatedRdmNode node = addNode(1);
+        node.addDevice(3, 0x1234_00000001L);
+        manager.getTod(node.getAddress(), 3);
+        deliverAll();
+        Assert.assertEquals(1, manager.getCachedTod(node.getAddress(), 3).length);
+
+        //a changed TOD the node sends on its own replaces the cached one, also across several blocks
+        long[] tod = new long[450];
+        for (int i = 0; i < tod.length; i++) tod[i] = 0x1234_00000000L + i;
+        node.changeTod(3, tod);
+
+        Assert.assertArrayEquals(tod, manager.getCachedTod(node.getAddress(), 3));
+        Assert.assertArrayEquals(tod, manager.getTod(node.getAddress(), 3).get());
+        Assert.assertEquals(1, node.getTodRequests());
+
+        //a flush forces a new discovery
+        CompletableFuture<long[]> flushed = manager.flushTod(node.getAddress(), 3);
+        Assert.assertNull(manager.getCachedTod(node.getAddress(), 3));
+        deliverAll();
+        Assert.assertEquals(1, node.getTodControls());
+        Assert.assertEquals(450, flushed.get().length);
+    }
+
+    @Test
+    public void test4() throws Exception {
+        SimulatedRdmNode node = addNode(1);
+        node.addDevice(0, 0x1234_00000001L);
+        node.setSilent(true);
+
+        CompletableFuture<long[]> tod = manager.getTod(node.getAddress(), 0);
+        long now = System.nanoTime();
+        deliverAll();
+
+        //repeated after each timeout, failed after the last one
+        manager.tick(now + TimeUnit.SECONDS.toNanos(2));
+        deliverAll();
+        manager.tick(now + TimeUnit.SECONDS.toNanos(4));
+        deliverAll();
+        Assert.assertFalse(tod.isDone());
+        manager.tick(now + TimeUnit.SECONDS.toNanos(6));
+
+        Assert.assertEquals(3, node.getTodRequests());
+        Assert.assertEquals(0, manager.getInFlight(node.getAddress()));
+        try {
+            tod.get();
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof TimeoutException);
+        }
+    }
+}
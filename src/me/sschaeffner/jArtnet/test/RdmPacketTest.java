@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet.test;
+
+import me.sschaeffner.jArtnet.ArtnetOpCodes;
+import me.sschaeffner.jArtnet.packets.ArtRdmPacket;
+import me.sschaeffner.jArtnet.packets.ArtTodControlPacket;
+import me.sschaeffner.jArtnet.packets.ArtTodDataPacket;
+import me.sschaeffner.jArtnet.packets.ArtTodRequestPacket;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author sschaeffner
+ */
+public class RdmPacketTest {
+
+    @Test
+    public void test1() {
+        byte[] b = ArtTodRequestPacket.of(0x0312, 0x0315).getPackageBytes();
+        Assert.assertEquals(56, b.length);
+
+        //opcode (0x8000)
+        Assert.assertEquals(0, b[8]);
+        Assert.assertEquals((byte) 0x80, b[9]);
+
+        //net, command, address count and addresses
+        Assert.assertEquals(3, b[21]);
+        Assert.assertEquals(ArtTodRequestPacket.TOD_FULL, b[22]);
+        Assert.assertEquals(2, b[23]);
+        Assert.assertEquals(0x12, b[24]);
+        Assert.assertEquals(0x15, b[25]);
+
+        ArtTodRequestPacket p = (ArtTodRequestPacket) ArtnetOpCodes.fromBytes(b);
+        Assert.assertArrayEquals(new int[]{0x0312, 0x0315}, p.getPortAddresses());
+    }
+
+    @Test
+    public void test2() {
+        long[] tod = new long[250];
+        for (int i = 0; i < tod.length; i++) tod[i] = 0x7FF0_12345678L + i;
+        ArtTodDataPacket[] packets = ArtTodDataPacket.forTod((byte) 2, (byte) 1, 0x0105, tod);
+        Assert.assertEquals(2, packets.length);
+
+        byte[] b = packets[1].getPackageBytes();
+        Assert.assertEquals(28 + 50 * 6, b.length);
+
+        //net, address, uidTotal, block count and uid count
+        Assert.assertEquals(1, b[21]);
+        Assert.assertEquals(5, b[23]);
+        Assert.assertEquals(0, b[24]);
+        Assert.assertEquals((byte) 250, b[25]);
+        Assert.assertEquals(1, b[26]);
+        Assert.assertEquals(50, b[27]);
+
+        //first UID of the block
+        Assert.assertEquals(0x7F, b[28]);
+        Assert.assertEquals((byte) 0xF0, b[29]);
+        Assert.assertEquals(0x12, b[30]);
+        Assert.assertEquals((byte) (0x78 + 200), b[33]);
+
+        ArtTodDataPacket p = (ArtTodDataPacket) ArtnetOpCodes.fromBytes(b);
+        Assert.assertEquals(0x0105, p.getPortAddress());
+        Assert.assertEquals(250, p.getUidTotal());
+        Assert.assertEquals(tod[249], p.getUids()[49]);
+
+        //truncated
+        Assert.assertNull(ArtnetOpCodes.fromBytes(b, b.length - 1));
+    }
+
+    @Test
+    public void test3() {
+        byte[] b = new ArtTodControlPacket(0x7FFF, ArtTodControlPacket.ATC_FLUSH).getPackageBytes();
+        Assert.assertEquals(24, b.length);
+        Assert.assertEquals(0x7F, b[21]);
+        Assert.assertEquals(ArtTodControlPacket.ATC_FLUSH, b[22]);
+        Assert.assertEquals((byte) 0xFF, b[23]);
+        Assert.assertEquals(0x7FFF, ((ArtTodControlPacket) ArtnetOpCodes.fromBytes(b)).getPortAddress());
+    }
+
+    @Test
+    public void test4() {
+        byte[] b = ArtRdmPacket.get(0x0001, 0x1234_56789ABCL, 0x7FF0_00000001L, (byte) 9, 0, 0x0082).getPackageBytes();
+        Assert.assertEquals(24 + 25, b.length);
+
+        //opcode (0x8300) and rdm version
+        Assert.assertEquals(0, b[8]);
+        Assert.assertEquals((byte) 0x83, b[9]);
+        Assert.assertEquals(1, b[12]);
+
+        //sub-start code, message length and command class
+        Assert.assertEquals(1, b[24]);
+        Assert.assertEquals(24, b[25]);
+        Assert.assertEquals(ArtRdmPacket.CC_GET_COMMAND, b[24 + 19]);
+
+        //checksum includes the start code
+        int sum = 0xCC;
+        for (int i = 24; i < b.length - 2; i++) sum += b[i] & 0xFF;
+        Assert.assertEquals((byte) (sum >>> 8), b[b.length - 2]);
+        Assert.assertEquals((byte) sum, b[b.length - 1]);
+
+        ArtRdmPacket p = (ArtRdmPacket) ArtnetOpCodes.fromBytes(b);
+        Assert.assertTrue(p.isRdmValid());
+        Assert.assertEquals(0x1234_56789ABCL, p.getDestUid());
+        Assert.assertEquals(0x7FF0_00000001L, p.getSourceUid());
+        Assert.assertEquals(9, p.getTransaction());
+        Assert.assertEquals(0x0082, p.getPid());
+        Assert.assertEquals(0, p.getParameterData().length);
+
+        //corrupted checksum
+        b[b.length - 1]++;
+        Assert.assertFalse(((ArtRdmPacket) ArtnetOpCodes.fromBytes(b)).isRdmValid());
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet.test;
+
+import me.sschaeffner.jArtnet.ArtnetNode;
+import me.sschaeffner.jArtnet.ArtnetRoutingTable;
+import me.sschaeffner.jArtnet.ArtnetStyleCodes;
+import me.sschaeffner.jArtnet.packets.ArtPollReplyPacket;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * @author sschaeffner
+ */
+public class RoutingTableTest {
+
+    private static ArtPollReplyPacket reply(InetAddress address, int net, int subNet, int... universes) {
+        byte[] portTypes = new byte[4];
+        byte[] swOut = new byte[4];
+        for (int i = 0; i < universes.length; i++) {
+            portTypes[i] = (byte) 0x80;
+            swOut[i] = (byte) universes[i];
+        }
+        return new ArtPollReplyPacket(address, (byte) 0, (byte) 0, (byte) net, (byte) subNet, (byte) 0, (byte) 0,
+                (byte) 0, (byte) 0, (byte) 0, (byte) 0, new byte[18], new byte[64], new byte[64], (byte) 0,
+                (byte) universes.length, portTypes, new byte[4], new byte[4], new byte[4], swOut, (byte) 0, (byte) 0,
+                (byte) 0, ArtnetStyleCodes.ST_NODE, new byte[6], new byte[4], (byte) 1, (byte) 0);
+    }
+
+    @Test
+    public void test1() throws UnknownHostException {
+        InetAddress a = InetAddress.getByAddress(new byte[]{10, 0, 0, 1});
+        InetAddress b = InetAddress.getByAddress(new byte[]{10, 0, 0, 2});
+        ArtnetNode nodeA = new ArtnetNode(a, reply(a, 0, 0, 0, 1));
+        ArtnetNode nodeB = new ArtnetNode(b, reply(b, 1, 2, 1));
+
+        ArtnetRoutingTable table = new ArtnetRoutingTable();
+        Assert.assertTrue(table.update(nodeA));
+        Assert.assertTrue(table.update(nodeB));
+        Assert.assertFalse(table.update(nodeA));
+
+        Assert.assertArrayEquals(new ArtnetNode[]{nodeA}, table.getSubscribers(0));
+        Assert.assertArrayEquals(new ArtnetNode[]{nodeA}, table.getSubscribers(1));
+        Assert.assertArrayEquals(new ArtnetNode[]{nodeB}, table.getSubscribers(0x121));
+        Assert.assertEquals(0, table.getSubscriberCount(2));
+
+        //node A is patched to universes 1 and 2
+        nodeA.setArtPollReplyPacket(reply(a, 0, 0, 1, 2));
+        Assert.assertTrue(table.update(nodeA));
+        Assert.assertEquals(0, table.getSubscriberCount(0));
+        Assert.assertArrayEquals(new ArtnetNode[]{nodeA}, table.getSubscribers(2));
+
+        table.remove(nodeA);
+        Assert.assertEquals(0, table.getSubscriberCount(1));
+        Assert.assertArrayEquals(new ArtnetNode[]{nodeB}, table.getSubscribers(0x121));
+    }
+
+    @Test
+    public void test2() throws UnknownHostException {
+        ArtnetRoutingTable table = new ArtnetRoutingTable();
+        for (int i = 1; i <= 3; i++) {
+            InetAddress address = InetAddress.getByAddress(new byte[]{10, 0, 0, (byte) i});
+            table.update(new ArtnetNode(address, reply(address, 0, 0, 5)));
+        }
+        Assert.assertEquals(3, table.getSubscriberCount(5));
+        Assert.assertEquals(3, table.getSubscribers(5).length);
+    }
+}
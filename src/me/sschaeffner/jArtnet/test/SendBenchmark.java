@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet.test;
+
+import me.sschaeffner.jArtnet.ArtnetSender;
+import me.sschaeffner.jArtnet.packets.ArtDmxPacket;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.SocketException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures how many ArtDmx packets per second an ArtnetSender sends with a growing amount of shards.
+ *
+ * Packets are sent to a local socket that is never read, so that only the sending side is measured.
+ *
+ * @author sschaeffner
+ */
+public class SendBenchmark {
+
+    //amount of universes updated by the producers
+    private static final int UNIVERSES = 4096;
+
+    //duration of each measurement
+    private static final long DURATION_MILLIS = 2000;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println(cores + " cores, " + UNIVERSES + " universes");
+
+        try (DatagramSocket sink = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+            for (int shards = 1; shards <= cores; shards *= 2) {
+                double rate = measure(shards, sink.getLocalPort());
+                System.out.printf("%2d shards: %9.0f packets/s (%5.0f universes at 44 Hz)%n", shards, rate, rate / 44);
+            }
+        }
+    }
+
+    /**
+     * Sends as many packets as possible for a while.
+     *
+     * @param shards    amount of shards
+     * @param port      port of the sink
+     * @return          packets sent per second
+     */
+    private static double measure(int shards, int port) throws SocketException, InterruptedException {
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        LongAdder sent = new LongAdder();
+
+        //one socket, buffer and datagram per shard like the controller's send channels
+        DatagramSocket[] sockets = new DatagramSocket[shards];
+        byte[][] buffers = new byte[shards][ArtDmxPacket.HEADER_LENGTH + 512];
+        DatagramPacket[] packets = new DatagramPacket[shards];
+        for (int i = 0; i < shards; i++) {
+            sockets[i] = new DatagramSocket();
+            packets[i] = new DatagramPacket(buffers[i], buffers[i].length, loopback, port);
+        }
+
+        ArtnetSender sender = new ArtnetSender(new ArtnetSender.Target() {
+            @Override
+            public void sendControl(byte[] data, int length, InetAddress address) {
+            }
+
+            @Override
+            public void sendDmx(int shard, int portAddress, int sequence, byte physical, byte[] data, int length) {
+                int packetLength = ArtDmxPacket.write(buffers[shard], 0, (byte) 0, physical, portAddress, data, 0, length);
+                packets[shard].setLength(packetLength);
+                try {
+                    sockets[shard].send(packets[shard]);
+                    sent.increment();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+
+            @Override
+            public void sendSync() {
+            }
+        }, shards);
+
+        //producers keep every universe waiting so that the shards never idle
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DURATION_MILLIS);
+        Thread[] producers = new Thread[shards];
+        for (int i = 0; i < shards; i++) {
+            int first = i;
+            producers[i] = new Thread(() -> {
+                byte[] data = new byte[512];
+                while (System.nanoTime() < end) {
+                    for (int portAddress = first; portAddress < UNIVERSES; portAddress += shards) {
+                        data[0]++;
+                        sender.sendDmx(portAddress, ArtnetSender.AUTO_SEQUENCE, (byte) 0, data, data.length);
+                    }
+                }
+            });
+            producers[i].start();
+        }
+
+        long start = System.nanoTime();
+        for (Thread producer : producers) producer.join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long count = sent.sum();
+
+        sender.stop();
+        for (DatagramSocket socket : sockets) socket.close();
+        return count / seconds;
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet.test;
+
+import me.sschaeffner.jArtnet.ArtnetSender;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author sschaeffner
+ */
+public class SenderTest {
+
+    /**
+     * Records sent packets; the first packet blocks until released so that packets can pile up.
+     */
+    private static class RecordingTarget implements ArtnetSender.Target {
+        private final ArrayList<String> sent = new ArrayList<>();
+        private final CountDownLatch blocked = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public void sendControl(byte[] data, int length, InetAddress address) {
+            record("control " + data[0]);
+        }
+
+        @Override
+        public void sendDmx(int shard, int portAddress, int sequence, byte physical, byte[] data, int length) {
+            record("dmx " + portAddress + " " + data[0]);
+        }
+
+        @Override
+        public void sendSync() {
+            record("sync");
+        }
+
+        private void record(String packet) {
+            synchronized (sent) {
+                sent.add(packet);
+            }
+            if (blocked.getCount() > 0) {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test1() throws InterruptedException {
+        RecordingTarget target = new RecordingTarget();
+        ArtnetSender sender = new ArtnetSender(target);
+        InetAddress address = InetAddress.getLoopbackAddress();
+
+        //block the sender thread with the first packet
+        sender.sendDmx(1, ArtnetSender.AUTO_SEQUENCE, (byte) 0, new byte[]{0}, 1);
+        Assert.assertTrue(target.blocked.await(1, TimeUnit.SECONDS));
+
+        //newer data for universe 2 replaces the waiting data; control packets overtake DMX
+        sender.sendDmx(2, ArtnetSender.AUTO_SEQUENCE, (byte) 0, new byte[]{1}, 1);
+        sender.sendDmx(3, ArtnetSender.AUTO_SEQUENCE, (byte) 0, new byte[]{1}, 1);
+        sender.sendDmx(2, ArtnetSender.AUTO_SEQUENCE, (byte) 0, new byte[]{2}, 1);
+        sender.sendSync();
+        sender.sendControl(new byte[]{7}, address);
+        sender.sendControl(new byte[]{8}, address);
+        Assert.assertEquals(1, sender.getCoalesced());
+
+        target.release.countDown();
+        sender.stop();
+
+        String[] expected = {"dmx 1 0", "control 7", "control 8", "dmx 2 2", "dmx 3 1", "sync"};
+        Assert.assertArrayEquals(expected, target.sent.toArray(new String[0]));
+        Assert.assertEquals(0, sender.getWaiting());
+    }
+
+    @Test
+    public void test2() throws InterruptedException {
+        RecordingTarget target = new RecordingTarget();
+        target.blocked.countDown();
+        ArtnetSender sender = new ArtnetSender(target);
+
+        //data added after a universe was taken from the lane is sent again
+        for (int i = 0; i < 100; i++) sender.sendDmx(5, ArtnetSender.AUTO_SEQUENCE, (byte) 0, new byte[]{(byte) i}, 1);
+        sender.stop();
+
+        synchronized (target.sent) {
+            Assert.assertEquals("dmx 5 99", target.sent.get(target.sent.size() - 1));
+            Assert.assertEquals(100, target.sent.size() + sender.getCoalesced());
+        }
+    }
+
+    @Test
+    public void test3() {
+        int[] wrongShard = new int[1];
+        int[] sent = new int[1];
+        int[] sentBeforeSync = new int[1];
+        ArtnetSender sender = new ArtnetSender(new ArtnetSender.Target() {
+            @Override
+            public void sendControl(byte[] data, int length, InetAddress address) {
+            }
+
+            @Override
+            public synchronized void sendDmx(int shard, int portAddress, int sequence, byte physical, byte[] data, int length) {
+                if (portAddress % 4 != shard) wrongShard[0]++;
+                sent[0]++;
+            }
+
+            @Override
+            public synchronized void sendSync() {
+                sentBeforeSync[0] = sent[0];
+            }
+        }, 4);
+        Assert.assertEquals(4, sender.getShards());
+
+        //each shard sends its own port-addresses; the ArtSync waits for all of them
+        for (int portAddress = 0; portAddress < 1000; portAddress++) {
+            sender.sendDmx(portAddress, ArtnetSender.AUTO_SEQUENCE, (byte) 0, new byte[512], 512);
+        }
+        sender.sendSync();
+        sender.stop();
+
+        Assert.assertEquals(0, wrongShard[0]);
+        Assert.assertEquals(1000, sent[0]);
+        Assert.assertEquals(1000, sentBeforeSync[0]);
+    }
+
+    @Test
+    public void test4() throws InterruptedException {
+        CountDownLatch synced = new CountDownLatch(1);
+        ArtnetSender sender = new ArtnetSender(new ArtnetSender.Target() {
+            @Override
+            public void sendControl(byte[] data, int length, InetAddress address) {
+            }
+
+            @Override
+            public void sendDmx(int shard, int portAddress, int sequence, byte physical, byte[] data, int length) {
+            }
+
+            @Override
+            public void sendSync() {
+                synced.countDown();
+            }
+        }, 2);
+
+        //DMX keeps arriving on all lanes; the ArtSync only waits for the data added before it
+        Thread producer = new Thread(() -> {
+            for (int i = 0; synced.getCount() > 0; i++) {
+                sender.sendDmx(i % 8, ArtnetSender.AUTO_SEQUENCE, (byte) 0, new byte[]{(byte) i}, 1);
+            }
+        });
+        producer.start();
+        sender.sendSync();
+
+        Assert.assertTrue(synced.await(10, TimeUnit.SECONDS));
+        producer.join();
+        sender.stop();
+    }
+
+    @Test
+    public void test5() throws InterruptedException {
+        RecordingTarget target = new RecordingTarget();
+        target.blocked.countDown();
+        ArtnetSender sender = new ArtnetSender(target);
+
+        try {
+            sender.sendDmx(1, ArtnetSender.AUTO_SEQUENCE, (byte) 0, new byte[513], 513);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            //expected
+        }
+        sender.stop();
+        Assert.assertEquals(0, sender.getWaiting());
+        Assert.assertTrue(target.sent.isEmpty());
+    }
+
+    @Test
+    public void test6() throws InterruptedException {
+        CountDownLatch controlSent = new CountDownLatch(1);
+        CountDownLatch shaping = new CountDownLatch(1);
+        ArtnetSender[] sender = new ArtnetSender[1];
+        sender[0] = new ArtnetSender(new ArtnetSender.Target() {
+            @Override
+            public void sendControl(byte[] data, int length, InetAddress address) {
+                controlSent.countDown();
+            }
+
+            @Override
+            public void sendDmx(int shard, int portAddress, int sequence, byte physical, byte[] data, int length) {
+                //shaping an unsharded lane waits on the main thread; control packets are still sent meanwhile
+                shaping.countDown();
+                try {
+                    sender[0].waitNanos(TimeUnit.SECONDS.toNanos(10));
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+
+            @Override
+            public void sendSync() {
+            }
+        });
+
+        sender[0].sendDmx(1, ArtnetSender.AUTO_SEQUENCE, (byte) 0, new byte[1], 1);
+        Assert.assertTrue(shaping.await(5, TimeUnit.SECONDS));
+        sender[0].sendControl(new byte[]{1}, InetAddress.getLoopbackAddress());
+        Assert.assertTrue(controlSent.await(5, TimeUnit.SECONDS));
+    }
+}
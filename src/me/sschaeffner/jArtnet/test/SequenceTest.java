@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet.test;
+
+import me.sschaeffner.jArtnet.ArtnetSequenceCounter;
+import me.sschaeffner.jArtnet.ArtnetSequenceTracker;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author sschaeffner
+ */
+public class SequenceTest {
+
+    @Test
+    public void test1() {
+        ArtnetSequenceCounter counter = new ArtnetSequenceCounter();
+        Assert.assertEquals(0, counter.get(5));
+
+        //wraps from 255 to 1, skipping 0
+        for (int i = 1; i <= 255; i++) Assert.assertEquals((byte) i, counter.next(5));
+        Assert.assertEquals(1, counter.next(5));
+        Assert.assertEquals(2, counter.next(5));
+
+        //port-addresses count separately
+        Assert.assertEquals(1, counter.next(0x7FFF));
+        Assert.assertEquals(2, counter.get(5));
+    }
+
+    @Test
+    public void test2() {
+        ArtnetSequenceTracker tracker = new ArtnetSequenceTracker();
+
+        Assert.assertTrue(tracker.track(1, (byte) 10));
+        Assert.assertTrue(tracker.track(1, (byte) 11));
+
+        //12 to 14 skipped
+        Assert.assertTrue(tracker.track(1, (byte) 15));
+        Assert.assertEquals(3, tracker.getLost());
+
+        //14 arrives late
+        Assert.assertFalse(tracker.track(1, (byte) 14));
+        Assert.assertEquals(2, tracker.getLost());
+        Assert.assertEquals(1, tracker.getReordered());
+
+        Assert.assertFalse(tracker.track(1, (byte) 15));
+        Assert.assertEquals(1, tracker.getDuplicates());
+        Assert.assertEquals((byte) 15, tracker.get(1));
+        Assert.assertEquals(5, tracker.getReceived());
+    }
+
+    @Test
+    public void test3() {
+        ArtnetSequenceTracker tracker = new ArtnetSequenceTracker();
+
+        //wrapping from 255 to 1 is in order
+        Assert.assertTrue(tracker.track(2, (byte) 254));
+        Assert.assertTrue(tracker.track(2, (byte) 255));
+        Assert.assertTrue(tracker.track(2, (byte) 1));
+        Assert.assertFalse(tracker.track(2, (byte) 255));
+        Assert.assertEquals(0, tracker.getLost());
+        Assert.assertEquals(1, tracker.getReordered());
+
+        //sequence number 0 disables tracking
+        Assert.assertTrue(tracker.track(3, (byte) 0));
+        Assert.assertTrue(tracker.track(3, (byte) 0));
+        Assert.assertEquals(0, tracker.getDuplicates());
+    }
+}
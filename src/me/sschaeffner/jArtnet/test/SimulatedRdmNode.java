@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet.test;
+
+import me.sschaeffner.jArtnet.ArtnetOpCodes;
+import me.sschaeffner.jArtnet.ArtnetRdmManager;
+import me.sschaeffner.jArtnet.packets.ArtRdmPacket;
+import me.sschaeffner.jArtnet.packets.ArtTodControlPacket;
+import me.sschaeffner.jArtnet.packets.ArtTodDataPacket;
+import me.sschaeffner.jArtnet.packets.ArtTodRequestPacket;
+import me.sschaeffner.jArtnet.packets.ArtnetPacket;
+
+import java.net.InetAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * A node with RDM devices standing in for hardware when testing an ArtnetRdmManager.
+ *
+ * Packets sent to the node are queued and answered when {@link #deliver()} is called; all packets go through
+ * their encoded form like on the network.
+ *
+ * @author sschaeffner
+ */
+public class SimulatedRdmNode {
+    //RDM NACK reason for unknown parameters
+    private static final int NR_UNKNOWN_PID = 0x0000;
+
+    //the node's address
+    private final InetAddress address;
+
+    //manager receiving the node's answers
+    private final ArtnetRdmManager manager;
+
+    //TODs by port-address
+    private final HashMap<Integer, long[]> tods;
+
+    //parameter data by UID and parameter id
+    private final HashMap<Long, HashMap<Integer, byte[]>> parameters;
+
+    //received packets not answered yet
+    private final ArrayDeque<byte[]> received;
+
+    //amount of received requests
+    private int todRequests, todControls, rdmRequests;
+
+    //whether the node ignores all requests
+    private boolean silent;
+
+    /**
+     * Constructs a new instance of this class.
+     *
+     * @param address   the node's address
+     * @param manager   manager receiving the node's answers
+     */
+    public SimulatedRdmNode(InetAddress address, ArtnetRdmManager manager) {
+        this.address = address;
+        this.manager = manager;
+        this.tods = new HashMap<>();
+        this.parameters = new HashMap<>();
+        this.received = new ArrayDeque<>();
+    }
+
+    /**
+     * Adds a device.
+     *
+     * @param portAddress   port-address the device is connected to
+     * @param uid           the device's UID
+     */
+    public void addDevice(int portAddress, long uid) {
+        long[] tod = tods.getOrDefault(portAddress, new long[0]);
+        long[] newTod = Arrays.copyOf(tod, tod.length + 1);
+        newTod[tod.length] = uid;
+        tods.put(portAddress, newTod);
+        parameters.put(uid, new HashMap<>());
+    }
+
+    /**
+     * Sets the data of a parameter of a device.
+     *
+     * @param uid   the device's UID
+     * @param pid   parameter id
+     * @param data  parameter data
+     */
+    public void setParameter(long uid, int pid, byte[] data) {
+        parameters.get(uid).put(pid, data);
+    }
+
+    /**
+     * Replaces the TOD of a port-address and notifies the manager like a node finishing a discovery.
+     *
+     * @param portAddress   port-address
+     * @param tod           new TOD
+     */
+    public void changeTod(int portAddress, long[] tod) {
+        tods.put(portAddress, tod);
+        for (long uid : tod) parameters.putIfAbsent(uid, new HashMap<>());
+        sendTod(portAddress);
+    }
+
+    /**
+     * Queues a packet sent to the node.
+     *
+     * @param packet    packet sent to the node
+     */
+    public void receive(ArtnetPacket packet) {
+        received.add(packet.getPackageBytes());
+    }
+
+    /**
+     * Answers all queued packets.
+     *
+     * @return amount of answered packets
+     */
+    public int deliver() {
+        int count = 0;
+        ArrayList<byte[]> packets = new ArrayList<>(received);
+        received.clear();
+
+        for (byte[] bytes : packets) {
+            ArtnetPacket packet = ArtnetOpCodes.fromBytes(bytes);
+            count++;
+            if (packet instanceof ArtTodRequestPacket) {
+                todRequests++;
+                if (!silent) for (int portAddress : ((ArtTodRequestPacket) packet).getPortAddresses()) sendTod(portAddress);
+            } else if (packet instanceof ArtTodControlPacket) {
+                todControls++;
+                if (!silent) sendTod(((ArtTodControlPacket) packet).getPortAddress());
+            } else if (packet instanceof ArtRdmPacket) {
+                rdmRequests++;
+                if (!silent) answerRdm((ArtRdmPacket) packet);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Sends the TOD of a port-address.
+     *
+     * @param portAddress   port-address
+     */
+    private void sendTod(int portAddress) {
+        long[] tod = tods.get(portAddress);
+        if (tod == null) {
+            send(new ArtTodDataPacket((byte) 1, (byte) 1, portAddress, ArtTodDataPacket.TOD_NAK, 0, (byte) 0, new long[0]));
+        } else {
+            for (ArtTodDataPacket packet : ArtTodDataPacket.forTod((byte) 1, (byte) 1, portAddress, tod)) send(packet);
+        }
+    }
+
+    /**
+     * Answers an RDM GET like the addressed device would; requests to unknown devices stay unanswered.
+     *
+     * @param request   received ArtRdm packet
+     */
+    private void answerRdm(ArtRdmPacket request) {
+        HashMap<Integer, byte[]> deviceParameters = parameters.get(request.getDestUid());
+        if (!request.isRdmValid() || deviceParameters == null) return;
+
+        byte[] data = deviceParameters.get(request.getPid());
+        int responseType = ArtRdmPacket.RESPONSE_TYPE_ACK;
+        if (data == null) {
+            responseType = ArtRdmPacket.RESPONSE_TYPE_NACK_REASON;
+            data = new byte[]{(byte) (NR_UNKNOWN_PID >>> 8), (byte) NR_UNKNOWN_PID};
+        }
+        send(ArtRdmPacket.response(request.getPortAddress(), request.getSourceUid(), request.getDestUid(),
+                request.getTransaction(), responseType, ArtRdmPacket.CC_GET_COMMAND_RESPONSE, request.getPid(), data));
+    }
+
+    /**
+     * Sends a packet to the manager.
+     *
+     * @param packet    packet to send
+     */
+    private void send(ArtnetPacket packet) {
+        byte[] bytes = packet.getPackageBytes();
+        manager.onPacketReceive(ArtnetOpCodes.fromBytes(bytes), address, System.nanoTime());
+    }
+
+    public InetAddress getAddress() {
+        return address;
+    }
+
+    public int getQueued() {
+        return received.size();
+    }
+
+    public int getTodRequests() {
+        return todRequests;
+    }
+
+    public int getTodControls() {
+        return todControls;
+    }
+
+    public int getRdmRequests() {
+        return rdmRequests;
+    }
+
+    public void setSilent(boolean silent) {
+        this.silent = silent;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet.test;
+
+import me.sschaeffner.jArtnet.ArtnetOpCodes;
+import me.sschaeffner.jArtnet.packets.ArtSyncPacket;
+import me.sschaeffner.jArtnet.packets.ArtnetPacket;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author sschaeffner
+ */
+public class SyncPacketTest {
+
+    @Test
+    public void test1() {
+        byte[] b = new ArtSyncPacket().getPackageBytes();
+        Assert.assertEquals(14, b.length);
+
+        //Art-Net package code
+        for (int i = 0; i < ArtnetPacket.ID.length; i++) {
+            Assert.assertEquals(ArtnetPacket.ID[i], b[i]);
+        }
+
+        //opcode (0x5200)
+        Assert.assertEquals(0, b[8]);
+        Assert.assertEquals(0x52, b[9]);
+
+        //aux1 and aux2
+        Assert.assertEquals(0, b[12]);
+        Assert.assertEquals(0, b[13]);
+    }
+
+    @Test
+    public void test2() {
+        byte[] b = new ArtSyncPacket().getPackageBytes();
+        Assert.assertTrue(ArtnetOpCodes.fromBytes(b) instanceof ArtSyncPacket);
+    }
+}
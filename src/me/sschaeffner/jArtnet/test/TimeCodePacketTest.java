@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet.test;
+
+import me.sschaeffner.jArtnet.ArtnetOpCodes;
+import me.sschaeffner.jArtnet.packets.ArtTimeCodePacket;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author sschaeffner
+ */
+public class TimeCodePacketTest {
+
+    @Test
+    public void test1() {
+        ArtTimeCodePacket p = new ArtTimeCodePacket((byte) 1, (byte) 12, (byte) 34, (byte) 56, (byte) 7, ArtTimeCodePacket.TYPE_EBU);
+        byte[] b = p.getPackageBytes();
+        Assert.assertEquals(19, b.length);
+
+        //opcode (0x9700)
+        Assert.assertEquals(0, b[8]);
+        Assert.assertEquals((byte) 0x97, b[9]);
+
+        //stream id
+        Assert.assertEquals(1, b[13]);
+
+        //frames, seconds, minutes, hours, type
+        Assert.assertEquals(12, b[14]);
+        Assert.assertEquals(34, b[15]);
+        Assert.assertEquals(56, b[16]);
+        Assert.assertEquals(7, b[17]);
+        Assert.assertEquals(ArtTimeCodePacket.TYPE_EBU, b[18]);
+    }
+
+    @Test
+    public void test2() {
+        long nanos = TimeUnit.MINUTES.toNanos(61) + TimeUnit.SECONDS.toNanos(5) + TimeUnit.MILLISECONDS.toNanos(480);
+        ArtTimeCodePacket p = ArtTimeCodePacket.fromNanos((byte) 0, nanos, ArtTimeCodePacket.TYPE_EBU);
+
+        Assert.assertEquals(12, p.getFrames());
+        Assert.assertEquals(5, p.getSeconds());
+        Assert.assertEquals(1, p.getMinutes());
+        Assert.assertEquals(1, p.getHours());
+        Assert.assertEquals(nanos, p.toNanos());
+    }
+
+    @Test
+    public void test3() {
+        byte[] b = ArtTimeCodePacket.fromNanos((byte) 0, TimeUnit.SECONDS.toNanos(15), ArtTimeCodePacket.TYPE_SMPTE).getPackageBytes();
+        ArtTimeCodePacket p = (ArtTimeCodePacket) ArtnetOpCodes.fromBytes(b);
+
+        Assert.assertEquals(15, p.getSeconds());
+        Assert.assertEquals(ArtTimeCodePacket.TYPE_SMPTE, p.getType());
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet.test;
+
+import me.sschaeffner.jArtnet.ArtnetOpCodes;
+import me.sschaeffner.jArtnet.packets.ArtTriggerPacket;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author sschaeffner
+ */
+public class TriggerPacketTest {
+
+    @Test
+    public void test1() {
+        byte[] b = ArtTriggerPacket.ascii('s').getPackageBytes();
+        Assert.assertEquals(530, b.length);
+
+        //opcode (0x9900)
+        Assert.assertEquals(0, b[8]);
+        Assert.assertEquals((byte) 0x99, b[9]);
+
+        //oem (0xffff)
+        Assert.assertEquals((byte) 0xff, b[14]);
+        Assert.assertEquals((byte) 0xff, b[15]);
+
+        //key and subKey
+        Assert.assertEquals(ArtTriggerPacket.KEY_ASCII, b[16]);
+        Assert.assertEquals('s', b[17]);
+    }
+
+    @Test
+    public void test2() {
+        byte[] b = new ArtTriggerPacket(0x1234, ArtTriggerPacket.KEY_MACRO, (byte) 7, new byte[]{1, 2, 3}).getPackageBytes();
+        ArtTriggerPacket p = (ArtTriggerPacket) ArtnetOpCodes.fromBytes(b);
+
+        Assert.assertEquals(0x1234, p.getOem());
+        Assert.assertEquals(ArtTriggerPacket.KEY_MACRO, p.getKey());
+        Assert.assertEquals(7, p.getSubKey());
+        Assert.assertEquals(512, p.getData().length);
+        Assert.assertEquals(3, p.getData()[2]);
+        Assert.assertTrue(p.isAddressing(0x1234));
+        Assert.assertFalse(p.isAddressing(0x4321));
+    }
+}
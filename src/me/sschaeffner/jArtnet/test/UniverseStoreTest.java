@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2015  Simon Schaeffner <simon.schaeffner@googlemail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package me.sschaeffner.jArtnet.test;
+
+import me.sschaeffner.jArtnet.DmxOutput;
+import me.sschaeffner.jArtnet.DmxUniverseStore;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * @author sschaeffner
+ */
+public class UniverseStoreTest {
+
+    @Test
+    public void test1() {
+        DmxUniverseStore store = new DmxUniverseStore();
+        Assert.assertEquals(2, store.getLength(0));
+
+        store.setChannel(0, 0, 255);
+        Assert.assertEquals(2, store.getLength(0));
+        store.setChannel(0, 2, 255);
+        Assert.assertEquals(4, store.getLength(0));
+        store.setChannels(0, 100, new byte[]{1, 2, 3, 4, 5}, 0, 5);
+        Assert.assertEquals(106, store.getLength(0));
+
+        //setting a channel to 0 keeps the length so that the 0 is sent
+        store.setChannel(0, 104, 0);
+        Assert.assertEquals(106, store.getLength(0));
+        Assert.assertEquals(4, store.getChannel(0, 103));
+    }
+
+    @Test
+    public void test2() {
+        DmxUniverseStore store = new DmxUniverseStore();
+        ArrayList<String> sent = new ArrayList<>();
+        DmxOutput output = (portAddress, data, length) -> sent.add(portAddress + ":" + Arrays.toString(Arrays.copyOf(data, length)));
+
+        store.setChannel(1, 0, 10);
+        store.setChannel(0x7FFF, 3, 20);
+        Assert.assertEquals(2, store.getDirtyCount());
+
+        Assert.assertEquals(2, store.sendDirty(output));
+        Assert.assertEquals("1:[10, 0]", sent.get(0));
+        Assert.assertEquals("32767:[0, 0, 0, 20]", sent.get(1));
+
+        //unchanged values do not mark the universe
+        store.setChannel(1, 0, 10);
+        store.setChannels(0x7FFF, 0, new byte[]{0, 0, 0, 20}, 0, 4);
+        Assert.assertEquals(0, store.sendDirty(output));
+
+        store.setChannel(1, 1, 11);
+        Assert.assertEquals(1, store.sendDirty(output));
+        Assert.assertEquals("1:[10, 11]", sent.get(2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test3() {
+        new DmxUniverseStore().setChannel(0, 512, 0);
+    }
+}